@@ -22,8 +22,11 @@
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
@@ -231,6 +234,29 @@ public KeyVersion decryptEncryptedKey(
         EncryptedKeyVersion encryptedKeyVersion) throws IOException,
         GeneralSecurityException;
 
+    /**
+     * Batched version of {@link #decryptEncryptedKey(EncryptedKeyVersion)}.
+     * All encrypted key versions must have the same key name.
+     * <p>
+     * The default implementation decrypts the keys one by one.
+     *
+     * @param  ekvs List containing the EncryptedKeyVersion's
+     * @return the decrypted KeyVersion's, in the order of the input list
+     * @throws IOException If any EncryptedKeyVersion could not be decrypted
+     * @throws GeneralSecurityException If any EncryptedKeyVersion could not be
+     *                            decrypted because of a cryptographic issue.
+     */
+    default List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      Preconditions.checkNotNull(ekvs, "Input list is null");
+      final List<KeyVersion> keys = new ArrayList<>(ekvs.size());
+      for (EncryptedKeyVersion ekv : ekvs) {
+        keys.add(decryptEncryptedKey(ekv));
+      }
+      return keys;
+    }
+
     /**
      * Re-encrypts an encrypted key version, using its initialization vector
      * and key material, but with the latest key version name of its key name
@@ -460,6 +486,43 @@ public KeyVersion decryptEncryptedKey(
       }
     }
 
+    @Override
+    public List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      Preconditions.checkNotNull(ekvs, "Input list is null");
+      final List<KeyVersion> keys = new ArrayList<>(ekvs.size());
+      final Map<String, KeyVersion> encryptionKeys = new HashMap<>();
+      try (CryptoCodec cc = CryptoCodec.getInstance(keyProvider.getConf())) {
+        final Decryptor decryptor = cc.createDecryptor();
+        for (EncryptedKeyVersion ekv : ekvs) {
+          Preconditions.checkNotNull(ekv, "EncryptedKeyVersion is null");
+          Preconditions.checkNotNull(ekv.getEncryptedKeyVersion(),
+              "EncryptedKeyVersion is null");
+          Preconditions.checkArgument(
+              ekv.getEncryptedKeyVersion().getVersionName()
+                  .equals(KeyProviderCryptoExtension.EEK),
+              "encryptedKey version name must be '%s', but found '%s'",
+              KeyProviderCryptoExtension.EEK,
+              ekv.getEncryptedKeyVersion().getVersionName());
+          final String encryptionKeyVersionName =
+              ekv.getEncryptionKeyVersionName();
+          KeyVersion encryptionKey =
+              encryptionKeys.get(encryptionKeyVersionName);
+          if (encryptionKey == null) {
+            encryptionKey =
+                keyProvider.getKeyVersion(encryptionKeyVersionName);
+            Preconditions.checkNotNull(encryptionKey,
+                "KeyVersion name '%s' does not exist",
+                encryptionKeyVersionName);
+            encryptionKeys.put(encryptionKeyVersionName, encryptionKey);
+          }
+          keys.add(decryptEncryptedKey(decryptor, encryptionKey, ekv));
+        }
+      }
+      return keys;
+    }
+
     @Override
     public void warmUpEncryptedKeys(String... keyNames)
         throws IOException {
@@ -532,6 +595,21 @@ public KeyVersion decryptEncryptedKey(EncryptedKeyVersion encryptedKey)
     return getExtension().decryptEncryptedKey(encryptedKey);
   }
 
+  /**
+   * Batched version of {@link #decryptEncryptedKey(EncryptedKeyVersion)}.
+   * All encrypted key versions must have the same key name.
+   *
+   * @param  ekvs List containing the EncryptedKeyVersion's
+   * @return the decrypted KeyVersion's, in the order of the input list
+   * @throws IOException If any EncryptedKeyVersion could not be decrypted
+   * @throws GeneralSecurityException If any EncryptedKeyVersion could not be
+   *                            decrypted because of a cryptographic issue.
+   */
+  public List<KeyVersion> decryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    return getExtension().decryptEncryptedKeys(ekvs);
+  }
+
   /**
    * Re-encrypts an encrypted key version, using its initialization vector
    * and key material, but with the latest key version name of its key name
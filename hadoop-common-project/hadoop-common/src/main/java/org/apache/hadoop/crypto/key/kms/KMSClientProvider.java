@@ -68,12 +68,14 @@
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.crypto.key.KeyProviderCryptoExtension;
 import org.apache.hadoop.crypto.key.KeyProviderCryptoExtension.CryptoExtension;
@@ -82,6 +84,9 @@
 import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.thirdparty.com.google.common.base.Preconditions;
 import org.apache.hadoop.thirdparty.com.google.common.base.Strings;
+import org.apache.hadoop.thirdparty.com.google.common.cache.Cache;
+import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.thirdparty.com.google.common.cache.CacheStats;
 
 import static org.apache.hadoop.util.KMSUtil.checkNotEmpty;
 import static org.apache.hadoop.util.KMSUtil.checkNotNull;
@@ -131,6 +136,11 @@ public class KMSClientProvider extends KeyProvider implements CryptoExtension,
 
   private final ValueQueue<EncryptedKeyVersion> encKeyVersionQueue;
 
+  /**
+   * Decrypted keys by encrypted key, or null if caching them is disabled.
+   */
+  private final Cache<String, KeyVersion> decryptedKeyCache;
+
   private KeyProviderDelegationTokenExtension.DelegationTokenExtension
       clientTokenProvider = this;
   // the token's service.
@@ -420,6 +430,21 @@ public KMSClientProvider(URI uri, Configuration conf) throws IOException {
                 CommonConfigurationKeysPublic.
                     KMS_CLIENT_ENC_KEY_CACHE_NUM_REFILL_THREADS_DEFAULT),
             new EncryptedQueueRefiller());
+    long decryptedKeyCacheExpiry = conf.getLong(
+        CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS,
+        CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_DEFAULT);
+    if (decryptedKeyCacheExpiry > 0) {
+      decryptedKeyCache = CacheBuilder.newBuilder()
+          .maximumSize(conf.getInt(
+              CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_SIZE,
+              CommonConfigurationKeysPublic.
+                  KMS_CLIENT_DEC_KEY_CACHE_SIZE_DEFAULT))
+          .expireAfterWrite(decryptedKeyCacheExpiry, TimeUnit.MILLISECONDS)
+          .recordStats()
+          .build();
+    } else {
+      decryptedKeyCache = null;
+    }
     authToken = new DelegationTokenAuthenticatedURL.Token();
     LOG.debug("KMSClientProvider created for KMS url: {} delegation token "
             + "service: {} canonical service: {}.", kmsUrl, dtService,
@@ -744,6 +769,9 @@ public void invalidateCache(String name) throws IOException {
     // invalidate the server cache first, then drain local cache.
     call(conn, null, HttpURLConnection.HTTP_OK, null);
     drain(name);
+    if (decryptedKeyCache != null) {
+      decryptedKeyCache.invalidateAll();
+    }
   }
 
   private KeyVersion rollNewVersionInternal(String name, byte[] material)
@@ -811,6 +839,14 @@ public KeyVersion decryptEncryptedKey(
         encryptedKeyVersion.getEncryptedKeyVersion().getVersionName()
     );
     checkNotNull(encryptedKeyVersion.getEncryptedKeyVersion(), "encryptedKey");
+    String cacheKey = null;
+    if (decryptedKeyCache != null) {
+      cacheKey = getDecryptedKeyCacheKey(encryptedKeyVersion);
+      KeyVersion cached = decryptedKeyCache.getIfPresent(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
     Map<String, String> params = new HashMap<String, String>();
     params.put(KMSRESTConstants.EEK_OP, KMSRESTConstants.EEK_DECRYPT);
     Map<String, Object> jsonPayload = new HashMap<String, Object>();
@@ -827,7 +863,94 @@ public KeyVersion decryptEncryptedKey(
     conn.setRequestProperty(CONTENT_TYPE, APPLICATION_JSON_MIME);
     Map response =
         call(conn, jsonPayload, HttpURLConnection.HTTP_OK, Map.class);
-    return parseJSONKeyVersion(response);
+    KeyVersion keyVersion = parseJSONKeyVersion(response);
+    if (cacheKey != null) {
+      decryptedKeyCache.put(cacheKey, keyVersion);
+    }
+    return keyVersion;
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Override
+  public List<KeyVersion> decryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    checkNotNull(ekvs, "ekvs");
+    final KeyVersion[] keys = new KeyVersion[ekvs.size()];
+    final String[] cacheKeys = new String[ekvs.size()];
+    final List<Map> jsonPayload = new ArrayList<>();
+    String keyName = null;
+    for (int i = 0; i < ekvs.size(); i++) {
+      final EncryptedKeyVersion ekv = ekvs.get(i);
+      checkNotNull(ekv.getEncryptionKeyName(), "keyName");
+      checkNotNull(ekv.getEncryptionKeyVersionName(), "versionName");
+      checkNotNull(ekv.getEncryptedKeyIv(), "iv");
+      checkNotNull(ekv.getEncryptedKeyVersion(), "encryptedKey");
+      Preconditions.checkArgument(ekv.getEncryptedKeyVersion().getVersionName()
+              .equals(KeyProviderCryptoExtension.EEK),
+          "encryptedKey version name must be '%s', is '%s'",
+          KeyProviderCryptoExtension.EEK,
+          ekv.getEncryptedKeyVersion().getVersionName());
+      if (keyName == null) {
+        keyName = ekv.getEncryptionKeyName();
+      } else {
+        Preconditions.checkArgument(keyName.equals(ekv.getEncryptionKeyName()),
+            "All EncryptedKey must have the same key name.");
+      }
+      if (decryptedKeyCache != null) {
+        cacheKeys[i] = getDecryptedKeyCacheKey(ekv);
+        keys[i] = decryptedKeyCache.getIfPresent(cacheKeys[i]);
+        if (keys[i] != null) {
+          continue;
+        }
+      }
+      jsonPayload.add(KMSUtil.toJSON(ekv));
+    }
+    if (!jsonPayload.isEmpty()) {
+      final URL url = createURL(KMSRESTConstants.KEY_RESOURCE, keyName,
+          KMSRESTConstants.DECRYPT_BATCH_SUB_RESOURCE, null);
+      final HttpURLConnection conn = createConnection(url, HTTP_POST);
+      conn.setRequestProperty(CONTENT_TYPE, APPLICATION_JSON_MIME);
+      final List<Map> response =
+          call(conn, jsonPayload, HttpURLConnection.HTTP_OK, List.class);
+      Preconditions.checkArgument(response.size() == jsonPayload.size(),
+          "Response size is different than input size.");
+      int j = 0;
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == null) {
+          keys[i] = parseJSONKeyVersion(response.get(j++));
+          if (cacheKeys[i] != null) {
+            decryptedKeyCache.put(cacheKeys[i], keys[i]);
+          }
+        }
+      }
+    }
+    return Arrays.asList(keys);
+  }
+
+  /**
+   * The provider may be shared by several users, and the KMS checks the
+   * DECRYPT_EEK ACLs of each of them, so a decrypted key is only ever handed
+   * back to the user, and real user if proxied, it was decrypted for.
+   */
+  private static String getDecryptedKeyCacheKey(EncryptedKeyVersion ekv)
+      throws IOException {
+    UserGroupInformation currentUgi = UserGroupInformation.getCurrentUser();
+    UserGroupInformation realUgi = currentUgi.getRealUser();
+    return currentUgi.getUserName() + "/"
+        + (realUgi == null ? "" : realUgi.getUserName()) + "/"
+        + ekv.getEncryptionKeyVersionName() + "/"
+        + Base64.encodeBase64String(ekv.getEncryptedKeyIv()) + "/"
+        + Base64.encodeBase64String(
+            ekv.getEncryptedKeyVersion().getMaterial());
+  }
+
+  /**
+   * @return the statistics of the decrypted key cache, or null if it is
+   * disabled.
+   */
+  @VisibleForTesting
+  public CacheStats getDecryptedKeyCacheStats() {
+    return decryptedKeyCache == null ? null : decryptedKeyCache.stats();
   }
 
   @Override
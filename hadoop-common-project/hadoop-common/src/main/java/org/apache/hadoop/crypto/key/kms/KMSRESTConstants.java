@@ -38,6 +38,7 @@ public class KMSRESTConstants {
   public static final String CURRENT_VERSION_SUB_RESOURCE = "_currentversion";
   public static final String INVALIDATECACHE_RESOURCE = "_invalidatecache";
   public static final String REENCRYPT_BATCH_SUB_RESOURCE = "_reencryptbatch";
+  public static final String DECRYPT_BATCH_SUB_RESOURCE = "_decryptbatch";
 
   public static final String KEY = "key";
   public static final String EEK_OP = "eek_op";
@@ -362,6 +362,26 @@ public KeyVersion call(KMSClientProvider provider)
     }
   }
 
+  @Override
+  public List<KeyVersion> decryptEncryptedKeys(
+      final List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    try {
+      return doOp(new ProviderCallable<List<KeyVersion>>() {
+        @Override
+        public List<KeyVersion> call(KMSClientProvider provider)
+            throws IOException, GeneralSecurityException {
+          return provider.decryptEncryptedKeys(ekvs);
+        }
+      }, nextIdx(), true);
+    } catch (WrapperException we) {
+      if (we.getCause() instanceof GeneralSecurityException) {
+        throw (GeneralSecurityException) we.getCause();
+      }
+      throw new IOException(we.getCause());
+    }
+  }
+
   @Override
   public EncryptedKeyVersion reencryptEncryptedKey(
       final EncryptedKeyVersion ekv)
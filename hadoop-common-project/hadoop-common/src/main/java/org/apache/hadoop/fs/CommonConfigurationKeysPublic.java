@@ -596,6 +596,28 @@ public class CommonConfigurationKeysPublic {
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
    * core-default.xml</a>
    */
+  public static final String HADOOP_SECURITY_GROUPS_CACHE_PERSIST_FILE =
+      "hadoop.security.groups.cache.persist.file";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String
+      HADOOP_SECURITY_GROUPS_CACHE_PERSIST_INTERVAL_SECS =
+          "hadoop.security.groups.cache.persist.interval.secs";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final long
+      HADOOP_SECURITY_GROUPS_CACHE_PERSIST_INTERVAL_SECS_DEFAULT = 300;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
   public static final String HADOOP_SECURITY_GROUP_SHELL_COMMAND_TIMEOUT_KEY =
       "hadoop.security.groups.shell.command.timeout";
   /**
@@ -847,6 +869,26 @@ public class CommonConfigurationKeysPublic {
   /** Default value for KMS_CLIENT_ENC_KEY_CACHE_EXPIRY (12 hrs)*/
   public static final int KMS_CLIENT_ENC_KEY_CACHE_EXPIRY_DEFAULT = 43200000;
 
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS =
+      "hadoop.security.kms.client.decrypted.key.cache.expiry";
+  /** Default value for KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS (disabled). */
+  public static final long KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_DEFAULT = 0;
+
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String KMS_CLIENT_DEC_KEY_CACHE_SIZE =
+      "hadoop.security.kms.client.decrypted.key.cache.size";
+  /** Default value for KMS_CLIENT_DEC_KEY_CACHE_SIZE. */
+  public static final int KMS_CLIENT_DEC_KEY_CACHE_SIZE_DEFAULT = 1000;
+
   /**
    * @see
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
@@ -17,7 +17,16 @@
  */
 package org.apache.hadoop.security;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,8 +35,11 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +54,7 @@
 import org.apache.hadoop.thirdparty.com.google.common.cache.Cache;
 import org.apache.hadoop.thirdparty.com.google.common.cache.CacheLoader;
 import org.apache.hadoop.thirdparty.com.google.common.cache.LoadingCache;
+import org.apache.hadoop.thirdparty.com.google.common.cache.RemovalCause;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.FutureCallback;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.Futures;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ListenableFuture;
@@ -97,6 +110,18 @@ public class Groups {
   private final AtomicLong backgroundRefreshRunning =
       new AtomicLong(0);
 
+  private final File persistFile;
+  // Wall clock time at which each cached entry was loaded, used to restore
+  // the age of persisted entries.
+  private final Map<String, Long> loadTimes = new ConcurrentHashMap<>();
+  // When the entries restored from the persist file are due for a refresh.
+  // The cache counts their age from the restore, so it would not refresh
+  // them before a whole cacheTimeout more.
+  private final Map<String, Long> restoredRefreshTimes =
+      new ConcurrentHashMap<>();
+  private final GroupCacheLoader loader;
+  private ScheduledExecutorService persister;
+
   public Groups(Configuration conf) {
     this(conf, new Timer());
   }
@@ -129,14 +154,25 @@ public Groups(Configuration conf, final Timer timer) {
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS,
           CommonConfigurationKeys.
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS_DEFAULT);
+    String persistPath = conf.getTrimmed(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_PERSIST_FILE, "");
+    persistFile = persistPath.isEmpty() ? null : new File(persistPath);
     parseStaticMapping(conf);
 
     this.timer = timer;
+    this.loader = new GroupCacheLoader();
     this.cache = CacheBuilder.newBuilder()
       .refreshAfterWrite(cacheTimeout, TimeUnit.MILLISECONDS)
       .ticker(new TimerToTickerAdapter(timer))
       .expireAfterWrite(10 * cacheTimeout, TimeUnit.MILLISECONDS)
-      .build(new GroupCacheLoader());
+      .recordStats()
+      .<String, Set<String>>removalListener(notification -> {
+        if (notification.getCause() != RemovalCause.REPLACED) {
+          loadTimes.remove(notification.getKey());
+        }
+        restoredRefreshTimes.remove(notification.getKey());
+      })
+      .build(loader);
 
     if(negativeCacheTimeout > 0) {
       Cache<String, Boolean> tempMap = CacheBuilder.newBuilder()
@@ -150,6 +186,27 @@ public Groups(Configuration conf, final Timer timer) {
       LOG.debug("Group mapping impl=" + impl.getClass().getName() + 
           "; cacheTimeout=" + cacheTimeout + "; warningDeltaMs=" +
           warningDeltaMs);
+
+    if (persistFile != null) {
+      loadCache();
+      long persistIntervalSecs = conf.getLong(
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_PERSIST_INTERVAL_SECS,
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_PERSIST_INTERVAL_SECS_DEFAULT);
+      persister =
+          Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+              .setNameFormat("Group-Cache-Persist")
+              .setDaemon(true)
+              .build());
+      persister.scheduleWithFixedDelay(() -> {
+        try {
+          saveCache();
+        } catch (IOException e) {
+          LOG.warn("Failed to save the groups cache to " + persistFile, e);
+        }
+      }, persistIntervalSecs, persistIntervalSecs, TimeUnit.SECONDS);
+    }
   }
   
   @VisibleForTesting
@@ -256,6 +313,15 @@ private Set<String> getGroupInternal(final String user) throws IOException {
       }
     }
 
+    if (!restoredRefreshTimes.isEmpty()) {
+      Long refreshTime = restoredRefreshTimes.get(user);
+      if (refreshTime != null && timer.now() >= refreshTime
+          && restoredRefreshTimes.remove(user) != null) {
+        // As refreshAfterWrite would, in the background if enabled
+        cache.refresh(user);
+      }
+    }
+
     try {
       return cache.get(user);
     } catch (ExecutionException e) {
@@ -279,6 +345,146 @@ public long getBackgroundRefreshRunning() {
     return backgroundRefreshRunning.get();
   }
 
+  public long getCacheHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getCacheMissCount() {
+    return cache.stats().missCount();
+  }
+
+  /**
+   * Resolve the groups of the given users in the background thread pool,
+   * skipping users which are statically mapped, cached or negatively cached.
+   * Concurrent requests for a user being resolved wait for the same lookup
+   * instead of querying the group mapping provider again, so this can be used
+   * to warm the cache ahead of a burst of requests.
+   * @param users users to resolve
+   */
+  public void prefetchGroups(Collection<String> users) {
+    Map<String, Set<String>> staticUserToGroupsMap = staticMapRef.get();
+    for (String user : users) {
+      if ((staticUserToGroupsMap != null &&
+          staticUserToGroupsMap.containsKey(user)) ||
+          (isNegativeCacheEnabled() && negativeCache.contains(user)) ||
+          cache.getIfPresent(user) != null) {
+        continue;
+      }
+      loader.executorService.submit(() -> {
+        try {
+          cache.get(user);
+        } catch (ExecutionException e) {
+          LOG.debug("Failed to prefetch groups for user {}", user,
+              e.getCause());
+        }
+      });
+    }
+  }
+
+  /**
+   * Stop saving the cache to the persist file, e.g. once this instance has
+   * been replaced by another one. The cache itself stays usable.
+   */
+  public void stopPersisting() {
+    if (persister != null) {
+      persister.shutdownNow();
+    }
+  }
+
+  /**
+   * Save the cached user-to-groups mappings to the persist file, replacing
+   * it atomically.
+   * @throws IOException if the file cannot be written
+   */
+  @VisibleForTesting
+  void saveCache() throws IOException {
+    // The file lists the groups of every user, so only the owner may read it
+    Path dir = persistFile.getAbsoluteFile().getParentFile().toPath();
+    Path tmp;
+    if (FileSystems.getDefault().supportedFileAttributeViews()
+        .contains("posix")) {
+      tmp = Files.createTempFile(dir, persistFile.getName(), ".tmp",
+          PosixFilePermissions.asFileAttribute(
+              PosixFilePermissions.fromString("rw-------")));
+    } else {
+      tmp = Files.createTempFile(dir, persistFile.getName(), ".tmp");
+    }
+    int count = 0;
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp,
+          StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, Set<String>> e : cache.asMap().entrySet()) {
+          Long loadTime = loadTimes.get(e.getKey());
+          if (loadTime == null) {
+            continue;
+          }
+          StringBuilder sb = new StringBuilder(e.getKey());
+          sb.append('\t').append(loadTime);
+          for (String group : e.getValue()) {
+            sb.append('\t').append(group);
+          }
+          writer.write(sb.toString());
+          writer.newLine();
+          count++;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    Files.move(tmp, persistFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    LOG.debug("Saved {} user-to-groups mappings to {}", count, persistFile);
+  }
+
+  /**
+   * Restore the user-to-groups mappings saved by {@link #saveCache()}.
+   * Mappings which are still fresh are cached for the rest of their
+   * lifetime, stale ones are resolved again in the background.
+   */
+  private void loadCache() {
+    if (!persistFile.exists()) {
+      return;
+    }
+    long now = timer.now();
+    List<String> stale = new ArrayList<>();
+    int fresh = 0;
+    try (BufferedReader reader = Files.newBufferedReader(persistFile.toPath(),
+        StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if (fields.length < 3) {
+          continue;
+        }
+        String user = fields[0];
+        long loadTime;
+        try {
+          loadTime = Long.parseLong(fields[1]);
+        } catch (NumberFormatException e) {
+          continue;
+        }
+        if (now - loadTime >= cacheTimeout || now < loadTime) {
+          stale.add(user);
+          continue;
+        }
+        Set<String> groups = new LinkedHashSet<>(fields.length - 2);
+        for (int i = 2; i < fields.length; i++) {
+          groups.add(fields[i]);
+        }
+        cache.put(user, groups);
+        loadTimes.put(user, loadTime);
+        restoredRefreshTimes.put(user, loadTime + cacheTimeout);
+        fresh++;
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to load the groups cache from " + persistFile, e);
+    }
+    LOG.info("Restored {} user-to-groups mappings from {}, refreshing {} " +
+        "stale ones in the background", fresh, persistFile, stale.size());
+    prefetchGroups(stale);
+  }
+
   /**
    * Convert millisecond times from hadoop's timer to guava's nanosecond ticker.
    */
@@ -301,27 +507,27 @@ public long read() {
    */
   private class GroupCacheLoader extends CacheLoader<String, Set<String>> {
 
-    private ListeningExecutorService executorService;
+    private final ListeningExecutorService executorService;
 
     GroupCacheLoader() {
-      if (reloadGroupsInBackground) {
-        ThreadFactory threadFactory = new ThreadFactoryBuilder()
-            .setNameFormat("Group-Cache-Reload")
-            .setDaemon(true)
-            .build();
-        // With coreThreadCount == maxThreadCount we effectively
-        // create a fixed size thread pool. As allowCoreThreadTimeOut
-        // has been set, all threads will die after 60 seconds of non use
-        ThreadPoolExecutor parentExecutor =  new ThreadPoolExecutor(
-            reloadGroupsThreadCount,
-            reloadGroupsThreadCount,
-            60,
-            TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(),
-            threadFactory);
-        parentExecutor.allowCoreThreadTimeOut(true);
-        executorService = MoreExecutors.listeningDecorator(parentExecutor);
-      }
+      // The pool also serves prefetchGroups, so it is created even when
+      // reloadGroupsInBackground is false.
+      ThreadFactory threadFactory = new ThreadFactoryBuilder()
+          .setNameFormat("Group-Cache-Reload")
+          .setDaemon(true)
+          .build();
+      // With coreThreadCount == maxThreadCount we effectively
+      // create a fixed size thread pool. As allowCoreThreadTimeOut
+      // has been set, all threads will die after 60 seconds of non use
+      ThreadPoolExecutor parentExecutor =  new ThreadPoolExecutor(
+          reloadGroupsThreadCount,
+          reloadGroupsThreadCount,
+          60,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          threadFactory);
+      parentExecutor.allowCoreThreadTimeOut(true);
+      executorService = MoreExecutors.listeningDecorator(parentExecutor);
     }
 
     /**
@@ -366,6 +572,7 @@ public Set<String> load(String user) throws Exception {
         throw noGroupsForUser(user);
       }
 
+      loadTimes.put(user, timer.now());
       return groups;
     }
 
@@ -490,6 +697,9 @@ public static synchronized Groups getUserToGroupsMappingService(
       getUserToGroupsMappingServiceWithLoadedConfiguration(
           Configuration conf) {
 
+    if (GROUPS != null) {
+      GROUPS.stopPersisting();
+    }
     GROUPS = new Groups(conf);
     return GROUPS;
   }
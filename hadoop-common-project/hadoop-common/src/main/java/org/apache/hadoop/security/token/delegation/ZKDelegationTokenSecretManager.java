@@ -25,6 +25,8 @@
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -104,6 +106,22 @@
   public static final String ZK_DTSM_TOKEN_WATCHER_ENABLED = ZK_CONF_PREFIX
       + "token.watcher.enabled";
   public static final boolean ZK_DTSM_TOKEN_WATCHER_ENABLED_DEFAULT = true;
+  /**
+   * Maximum number of tokens kept in memory when the token watcher is
+   * disabled. Tokens are read from ZooKeeper on first use and the least
+   * recently used ones are dropped beyond this size. 0 means unbounded.
+   */
+  public static final String ZK_DTSM_TOKEN_CACHE_MAX_SIZE = ZK_CONF_PREFIX
+      + "token.cache.max.size";
+  public static final int ZK_DTSM_TOKEN_CACHE_MAX_SIZE_DEFAULT = 0;
+  /**
+   * Time after which a token read from ZooKeeper is read again, so that
+   * renewals and cancellations by other nodes are observed when the token
+   * watcher is disabled. 0 means tokens are never read again.
+   */
+  public static final String ZK_DTSM_TOKEN_CACHE_EXPIRY_MS = ZK_CONF_PREFIX
+      + "token.cache.expiry.ms";
+  public static final long ZK_DTSM_TOKEN_CACHE_EXPIRY_MS_DEFAULT = 0;
 
   public static final int ZK_DTSM_ZK_NUM_RETRIES_DEFAULT = 3;
   public static final int ZK_DTSM_ZK_SESSION_TIMEOUT_DEFAULT = 10000;
@@ -148,6 +166,14 @@ public static void setCurator(CuratorFramework curator) {
   private int currentMaxSeqNum;
 
   private final boolean isTokenWatcherEnabled;
+  private final int tokenCacheMaxSize;
+  private final long tokenCacheExpiryMs;
+  /**
+   * Time each token was read from ZooKeeper, in access order. Only used when
+   * the token watcher is disabled. Protected by its own lock.
+   */
+  private final LinkedHashMap<TokenIdent, Long> tokenLoadTimes =
+      new LinkedHashMap<>(16, 0.75f, true);
 
   public ZKDelegationTokenSecretManager(Configuration conf) {
     super(conf.getLong(DelegationTokenManager.UPDATE_INTERVAL,
@@ -164,6 +190,10 @@ public ZKDelegationTokenSecretManager(Configuration conf) {
         ZK_DTSM_TOKEN_SEQNUM_BATCH_SIZE_DEFAULT);
     isTokenWatcherEnabled = conf.getBoolean(ZK_DTSM_TOKEN_WATCHER_ENABLED,
         ZK_DTSM_TOKEN_WATCHER_ENABLED_DEFAULT);
+    tokenCacheMaxSize = conf.getInt(ZK_DTSM_TOKEN_CACHE_MAX_SIZE,
+        ZK_DTSM_TOKEN_CACHE_MAX_SIZE_DEFAULT);
+    tokenCacheExpiryMs = conf.getLong(ZK_DTSM_TOKEN_CACHE_EXPIRY_MS,
+        ZK_DTSM_TOKEN_CACHE_EXPIRY_MS_DEFAULT);
     if (CURATOR_TL.get() != null) {
       zkClient =
           CURATOR_TL.get().usingNamespace(
@@ -689,13 +719,21 @@ private DelegationKey getKeyFromZK(int keyId) throws IOException {
   protected DelegationTokenInformation getTokenInfo(TokenIdent ident) {
     // First check if I have this..
     DelegationTokenInformation tokenInfo = currentTokens.get(ident);
+    boolean stale = tokenInfo != null && isTokenStale(ident);
     // Then query ZK
-    if (tokenInfo == null) {
+    if (tokenInfo == null || stale) {
       try {
-        tokenInfo = getTokenInfoFromZK(ident);
-        if (tokenInfo != null) {
-          currentTokens.put(ident, tokenInfo);
+        DelegationTokenInformation zkTokenInfo = getTokenInfoFromZK(ident,
+            stale);
+        if (zkTokenInfo != null) {
+          currentTokens.put(ident, zkTokenInfo);
+          tokenLoaded(ident);
+        } else if (stale) {
+          // Cancelled or expired by another node.
+          currentTokens.remove(ident);
+          tokenRemoved(ident);
         }
+        tokenInfo = zkTokenInfo;
       } catch (IOException e) {
         LOG.error("Error retrieving tokenInfo [" + ident.getSequenceNumber()
             + "] from ZK", e);
@@ -704,6 +742,61 @@ protected DelegationTokenInformation getTokenInfo(TokenIdent ident) {
     return tokenInfo;
   }
 
+  /**
+   * Record a use of the local copy of a token.
+   * @return true if the local copy of a token read from ZooKeeper is older
+   * than the configured expiry and must be read again.
+   */
+  private boolean isTokenStale(TokenIdent ident) {
+    if (isTokenWatcherEnabled) {
+      return false;
+    }
+    synchronized (tokenLoadTimes) {
+      // Also marks the token as recently used, whether or not it expires
+      Long loadTime = tokenLoadTimes.get(ident);
+      return tokenCacheExpiryMs > 0 && loadTime != null
+          && now() - loadTime >= tokenCacheExpiryMs;
+    }
+  }
+
+  /**
+   * Record that a token was read from ZooKeeper and, if the local cache is
+   * bounded, drop the least recently used tokens beyond its size. Dropped
+   * tokens stay in ZooKeeper and are read again on their next use.
+   */
+  private void tokenLoaded(TokenIdent ident) {
+    if (isTokenWatcherEnabled) {
+      return;
+    }
+    synchronized (tokenLoadTimes) {
+      tokenLoadTimes.put(ident, now());
+      if (tokenCacheMaxSize <= 0) {
+        return;
+      }
+      Iterator<TokenIdent> it = tokenLoadTimes.keySet().iterator();
+      while (tokenLoadTimes.size() > tokenCacheMaxSize && it.hasNext()) {
+        currentTokens.remove(it.next());
+        it.remove();
+      }
+    }
+  }
+
+  private void tokenRemoved(TokenIdent ident) {
+    if (isTokenWatcherEnabled) {
+      return;
+    }
+    synchronized (tokenLoadTimes) {
+      tokenLoadTimes.remove(ident);
+    }
+  }
+
+  @VisibleForTesting
+  int getLoadedTokenCount() {
+    synchronized (tokenLoadTimes) {
+      return tokenLoadTimes.size();
+    }
+  }
+
   /**
    * This method synchronizes the state of a delegation token information in
    * local cache with its actual value in Zookeeper.
@@ -715,8 +808,10 @@ protected void syncLocalCacheWithZk(TokenIdent ident) {
       DelegationTokenInformation tokenInfo = getTokenInfoFromZK(ident);
       if (tokenInfo != null && !currentTokens.containsKey(ident)) {
         currentTokens.put(ident, tokenInfo);
+        tokenLoaded(ident);
       } else if (tokenInfo == null && currentTokens.containsKey(ident)) {
         currentTokens.remove(ident);
+        tokenRemoved(ident);
       }
     } catch (IOException e) {
       LOG.error("Error retrieving tokenInfo [" + ident.getSequenceNumber()
@@ -846,6 +941,12 @@ protected void storeToken(TokenIdent ident,
       DelegationTokenInformation tokenInfo) throws IOException {
     try {
       addOrUpdateToken(ident, tokenInfo, false);
+      if (!isTokenWatcherEnabled) {
+        // Without the watcher nothing else adds the local copy, and the
+        // tokens issued here must count towards the cache size as well.
+        currentTokens.put(ident, tokenInfo);
+        tokenLoaded(ident);
+      }
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -864,6 +965,11 @@ protected void updateToken(TokenIdent ident,
         addOrUpdateToken(ident, tokenInfo, false);
         LOG.debug("Attempted to update a non-existing znode " + nodeRemovePath);
       }
+      if (!isTokenWatcherEnabled) {
+        // Without the watcher nothing else refreshes the local copy.
+        currentTokens.put(ident, tokenInfo);
+        tokenLoaded(ident);
+      }
     } catch (Exception e) {
       throw new RuntimeException("Could not update Stored Token ZKDTSMDelegationToken_"
           + ident.getSequenceNumber(), e);
@@ -878,6 +984,7 @@ protected void removeStoredToken(TokenIdent ident)
 
   protected void removeStoredToken(TokenIdent ident,
       boolean checkAgainstZkBeforeDeletion) throws IOException {
+    tokenRemoved(ident);
     String nodeRemovePath =
         getNodePath(ZK_DTSM_TOKENS_ROOT, DELEGATION_TOKEN_PREFIX
             + ident.getSequenceNumber());
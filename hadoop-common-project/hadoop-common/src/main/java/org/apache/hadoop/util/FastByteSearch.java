@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.security.AccessController;
+import java.security.PrivilegedExceptionAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Utility code to find bytes in a byte array a word at a time, as used by
+ * {@link LineReader} to find the end of a line.
+ *
+ * <p>Eight bytes are read at once with {@code sun.misc.Unsafe} and tested
+ * with the "has a zero byte" bit trick (SWAR, SIMD within a register),
+ * falling back to a plain loop where {@code Unsafe} isn't available.
+ * {@code Unsafe} is only looked up reflectively, as in {@link CleanerUtil},
+ * so that using it does not add internal API warnings to the build.
+ */
+final class FastByteSearch {
+  static final Logger LOG = LoggerFactory.getLogger(FastByteSearch.class);
+
+  private FastByteSearch() {
+  }
+
+  /**
+   * Find the first occurrence of either of two bytes.
+   *
+   * @param buffer the bytes to search
+   * @param from the index to start from
+   * @param to the index to stop at, exclusive
+   * @param a a byte to look for
+   * @param b another byte to look for, may be the same as a
+   * @return the index of the first a or b, or to if there is none
+   */
+  static int indexOf(byte[] buffer, int from, int to, byte a, byte b) {
+    return SearcherHolder.BEST_SEARCHER.indexOf(buffer, from, to, a, b);
+  }
+
+  private interface Searcher {
+    int indexOf(byte[] buffer, int from, int to, byte a, byte b);
+  }
+
+  /**
+   * Provides a searcher, either a Java implementation or a faster one based
+   * on {@code Unsafe}.
+   */
+  private static class SearcherHolder {
+    static final String UNSAFE_SEARCHER_NAME =
+        SearcherHolder.class.getName() + "$UnsafeSearcher";
+
+    static final Searcher BEST_SEARCHER = getBestSearcher();
+
+    /**
+     * Returns the Unsafe-using Searcher, or falls back to the pure-Java
+     * implementation if unable to do so.
+     */
+    static Searcher getBestSearcher() {
+      if (System.getProperty("os.arch").toLowerCase().startsWith("sparc")) {
+        LOG.trace("Pure Java searcher selected for byte aligned system"
+            + " architecture");
+        return PureJavaSearcher.INSTANCE;
+      }
+      try {
+        Class<?> theClass = Class.forName(UNSAFE_SEARCHER_NAME);
+        Searcher searcher = (Searcher) theClass.getEnumConstants()[0];
+        LOG.trace("Unsafe searcher selected");
+        return searcher;
+      } catch (Throwable t) { // ensure we really catch *everything*
+        LOG.trace("Pure Java searcher selected", t);
+        return PureJavaSearcher.INSTANCE;
+      }
+    }
+
+    private enum PureJavaSearcher implements Searcher {
+      INSTANCE;
+
+      @Override
+      public int indexOf(byte[] buffer, int from, int to, byte a, byte b) {
+        for (int i = from; i < to; i++) {
+          if (buffer[i] == a || buffer[i] == b) {
+            return i;
+          }
+        }
+        return to;
+      }
+    }
+
+    @SuppressWarnings("unused") // used via reflection
+    private enum UnsafeSearcher implements Searcher {
+      INSTANCE;
+
+      /** Unsafe#getLong(Object, long) bound to the Unsafe instance. */
+      static final MethodHandle GET_LONG;
+
+      /** The offset to the first element in a byte array. */
+      static final int BYTE_ARRAY_BASE_OFFSET;
+
+      static {
+        try {
+          final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+          final Object theUnsafe = AccessController.doPrivileged(
+              (PrivilegedExceptionAction<Object>) () -> {
+                Field f = unsafeClass.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                return f.get(null);
+              });
+          final MethodHandles.Lookup lookup = MethodHandles.lookup();
+          GET_LONG = lookup.findVirtual(unsafeClass, "getLong",
+              methodType(long.class, Object.class, long.class))
+              .bindTo(theUnsafe);
+          BYTE_ARRAY_BASE_OFFSET = (int) lookup.findVirtual(unsafeClass,
+              "arrayBaseOffset", methodType(int.class, Class.class))
+              .invoke(theUnsafe, byte[].class);
+
+          // sanity check - this should never fail
+          if ((int) lookup.findVirtual(unsafeClass, "arrayIndexScale",
+              methodType(int.class, Class.class))
+              .invoke(theUnsafe, byte[].class) != 1) {
+            throw new AssertionError();
+          }
+        } catch (Throwable t) {
+          // It doesn't matter what we throw;
+          // it's swallowed in getBestSearcher().
+          throw new Error(t);
+        }
+      }
+
+      private static long getLong(byte[] buffer, int index) {
+        try {
+          return (long) GET_LONG.invokeExact((Object) buffer,
+              BYTE_ARRAY_BASE_OFFSET + (long) index);
+        } catch (Throwable t) {
+          // getLong does not throw
+          throw new AssertionError(t);
+        }
+      }
+
+      static final boolean littleEndian =
+          ByteOrder.nativeOrder().equals(ByteOrder.LITTLE_ENDIAN);
+
+      private static final long ONES = 0x0101010101010101L;
+      private static final long HIGHS = 0x8080808080808080L;
+
+      /**
+       * Returns a word with the high bit set in the bytes of x that are zero.
+       * Bytes above the lowest zero byte may be flagged wrongly because of the
+       * borrow, so only the lowest flag is exact.
+       */
+      private static long zeroBytes(long x) {
+        return (x - ONES) & ~x & HIGHS;
+      }
+
+      @Override
+      public int indexOf(byte[] buffer, int from, int to, byte a, byte b) {
+        final long patternA = (a & 0xFFL) * ONES;
+        final long patternB = (b & 0xFFL) * ONES;
+        final int stride = 8;
+        int i = from;
+        for (; i + stride <= to; i += stride) {
+          long word = getLong(buffer, i);
+          if (!littleEndian) {
+            // so the lowest byte is the first one in the array
+            word = Long.reverseBytes(word);
+          }
+          long found = zeroBytes(word ^ patternA) | zeroBytes(word ^ patternB);
+          if (found != 0) {
+            return i + (Long.numberOfTrailingZeros(found) >>> 3);
+          }
+        }
+
+        // The epilogue to cover the last ((to - from) % 8) elements.
+        for (; i < to; i++) {
+          if (buffer[i] == a || buffer[i] == b) {
+            return i;
+          }
+        }
+        return to;
+      }
+    }
+  }
+}
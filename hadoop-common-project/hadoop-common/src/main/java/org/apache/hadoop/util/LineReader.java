@@ -230,6 +230,13 @@ private int readDefaultLine(Text str, int maxLineLength, int maxBytesToConsume)
         }
       }
       for (; bufferPosn < bufferLength; ++bufferPosn) { //search for newline
+        if (!prevCharCR) { //skip to the next CR or LF a word at a time
+          bufferPosn = FastByteSearch.indexOf(buffer, bufferPosn, bufferLength,
+              CR, LF);
+          if (bufferPosn >= bufferLength) {
+            break;
+          }
+        }
         if (buffer[bufferPosn] == LF) {
           newlineLength = (prevCharCR) ? 2 : 1;
           ++bufferPosn; // at next invocation proceed from following byte
@@ -322,6 +329,13 @@ private int readCustomLine(Text str, int maxLineLength, int maxBytesToConsume)
         }
       }
       for (; bufferPosn < bufferLength; ++bufferPosn) {
+        if (delPosn == 0) { //skip to the next possible delimiter start
+          bufferPosn = FastByteSearch.indexOf(buffer, bufferPosn,
+              bufferLength, recordDelimiterBytes[0], recordDelimiterBytes[0]);
+          if (bufferPosn >= bufferLength) {
+            break;
+          }
+        }
         if (buffer[bufferPosn] == recordDelimiterBytes[delPosn]) {
           delPosn++;
           if (delPosn >= recordDelimiterBytes.length) {
@@ -17,7 +17,11 @@
  */
 package org.apache.hadoop.security;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -846,4 +850,76 @@ public void testNegativeCacheEntriesExpire() throws Exception {
     timer.advance(1000);
     assertFalse(groups.getNegativeCache().contains("user2"));
   }
+
+  @Test
+  public void testPrefetchGroups() throws Exception {
+    FakeTimer timer = new FakeTimer();
+    final Groups groups = new Groups(conf, timer);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+    FakeGroupMapping.addToBlackList("nobody");
+
+    groups.prefetchGroups(Arrays.asList("me", "you", "nobody"));
+    GenericTestUtils.waitFor(
+        () -> FakeGroupMapping.getRequestCount() == 3, 10, 10000);
+    GenericTestUtils.waitFor(
+        () -> groups.getNegativeCache().contains("nobody"), 10, 10000);
+
+    // Prefetched users are served from the cache.
+    assertEquals(2, groups.getGroups("me").size());
+    assertEquals(2, groups.getGroups("you").size());
+    assertEquals(3, FakeGroupMapping.getRequestCount());
+    assertEquals(2, groups.getCacheHitCount());
+
+    // Cached and negatively cached users are not looked up again.
+    groups.prefetchGroups(Arrays.asList("me", "nobody"));
+    assertEquals(3, FakeGroupMapping.getRequestCount());
+  }
+
+  @Test
+  public void testPersistAndRestoreCache() throws Exception {
+    File persistFile = new File(GenericTestUtils.getRandomizedTestDir(),
+        "groups.cache");
+    assertTrue(persistFile.getParentFile().mkdirs());
+    conf.set(CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_PERSIST_FILE,
+        persistFile.getAbsolutePath());
+    conf.setLong(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SECS, 10);
+    FakeTimer timer = new FakeTimer();
+    Groups groups = new Groups(conf, timer);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+
+    groups.getGroups("old");
+    timer.advance(6 * 1000);
+    groups.getGroups("new");
+    groups.saveCache();
+    assertEquals(2, FakeGroupMapping.getRequestCount());
+
+    // Restart after the first entry went stale but the second one did not.
+    timer.advance(6 * 1000);
+    Groups restarted = new Groups(conf, timer);
+    assertEquals(Arrays.asList(myGroups), restarted.getGroups("new"));
+    GenericTestUtils.waitFor(
+        () -> FakeGroupMapping.getRequestCount() == 3, 10, 10000);
+    assertEquals(Arrays.asList(myGroups), restarted.getGroups("old"));
+    assertEquals(3, FakeGroupMapping.getRequestCount());
+
+    // The restored entry is refreshed once it is as old as cacheTimeout,
+    // not a whole cacheTimeout after the restart.
+    timer.advance(5 * 1000);
+    assertEquals(Arrays.asList(myGroups), restarted.getGroups("new"));
+    assertEquals(4, FakeGroupMapping.getRequestCount());
+
+    // Only the owner may read the group memberships.
+    if (FileSystems.getDefault().supportedFileAttributeViews()
+        .contains("posix")) {
+      assertEquals(PosixFilePermissions.fromString("rw-------"),
+          Files.getPosixFilePermissions(persistFile.toPath()));
+    }
+    groups.stopPersisting();
+    restarted.stopPersisting();
+  }
 }
@@ -526,4 +526,124 @@ public Boolean get() {
       }
     }, 1000, 5000);
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testBoundedTokenCacheWithoutWatcher() throws Exception {
+    String connectString = zkServer.getConnectString();
+    Configuration conf = getSecretConf(connectString);
+    conf.setBoolean(
+        ZKDelegationTokenSecretManager.ZK_DTSM_TOKEN_WATCHER_ENABLED, false);
+    conf.setInt(ZKDelegationTokenSecretManager.ZK_DTSM_TOKEN_CACHE_MAX_SIZE, 1);
+    DelegationTokenManager tm1 = new DelegationTokenManager(conf,
+        new Text("bla"));
+    tm1.init();
+    DelegationTokenManager tm2 = new DelegationTokenManager(conf,
+        new Text("bla"));
+    tm2.init();
+    ZKDelegationTokenSecretManager zksm2 =
+        (ZKDelegationTokenSecretManager) tm2.getDelegationTokenSecretManager();
+
+    Token<DelegationTokenIdentifier> token1 =
+        (Token<DelegationTokenIdentifier>) tm1.createToken(
+            UserGroupInformation.getCurrentUser(), "foo");
+    Token<DelegationTokenIdentifier> token2 =
+        (Token<DelegationTokenIdentifier>) tm1.createToken(
+            UserGroupInformation.getCurrentUser(), "foo");
+    Assert.assertEquals("tokens are only loaded on first use",
+        0, zksm2.getCurrentTokensSize());
+
+    tm2.verifyToken(token1);
+    tm2.verifyToken(token2);
+    Assert.assertEquals(1, zksm2.getCurrentTokensSize());
+    Assert.assertEquals(1, zksm2.getLoadedTokenCount());
+    // An evicted token is read again from ZK.
+    tm2.verifyToken(token1);
+    Assert.assertEquals(1, zksm2.getCurrentTokensSize());
+
+    verifyDestroy(tm1, conf);
+    verifyDestroy(tm2, conf);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testTokenCacheEvictsLeastRecentlyUsed() throws Exception {
+    String connectString = zkServer.getConnectString();
+    Configuration conf = getSecretConf(connectString);
+    conf.setBoolean(
+        ZKDelegationTokenSecretManager.ZK_DTSM_TOKEN_WATCHER_ENABLED, false);
+    conf.setInt(ZKDelegationTokenSecretManager.ZK_DTSM_TOKEN_CACHE_MAX_SIZE, 2);
+    DelegationTokenManager tm1 = new DelegationTokenManager(conf,
+        new Text("bla"));
+    tm1.init();
+    DelegationTokenManager tm2 = new DelegationTokenManager(conf,
+        new Text("bla"));
+    tm2.init();
+    ZKDelegationTokenSecretManager zksm1 =
+        (ZKDelegationTokenSecretManager) tm1.getDelegationTokenSecretManager();
+    ZKDelegationTokenSecretManager zksm2 =
+        (ZKDelegationTokenSecretManager) tm2.getDelegationTokenSecretManager();
+
+    Token<DelegationTokenIdentifier> token1 =
+        (Token<DelegationTokenIdentifier>) tm1.createToken(
+            UserGroupInformation.getCurrentUser(), "foo");
+    Token<DelegationTokenIdentifier> token2 =
+        (Token<DelegationTokenIdentifier>) tm1.createToken(
+            UserGroupInformation.getCurrentUser(), "foo");
+    Token<DelegationTokenIdentifier> token3 =
+        (Token<DelegationTokenIdentifier>) tm1.createToken(
+            UserGroupInformation.getCurrentUser(), "foo");
+    // Locally created tokens are bounded too.
+    Assert.assertEquals(2, zksm1.getCurrentTokensSize());
+    Assert.assertEquals(2, zksm1.getLoadedTokenCount());
+
+    tm2.verifyToken(token1);
+    tm2.verifyToken(token2);
+    // Using token1 again makes token2 the least recently used one.
+    tm2.verifyToken(token1);
+    tm2.verifyToken(token3);
+    Assert.assertEquals(2, zksm2.getLoadedTokenCount());
+    Assert.assertTrue(
+        zksm2.currentTokens.containsKey(zksm2.decodeTokenIdentifier(token1)));
+    Assert.assertFalse(
+        zksm2.currentTokens.containsKey(zksm2.decodeTokenIdentifier(token2)));
+    Assert.assertTrue(
+        zksm2.currentTokens.containsKey(zksm2.decodeTokenIdentifier(token3)));
+
+    verifyDestroy(tm1, conf);
+    verifyDestroy(tm2, conf);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testTokenCacheExpiryWithoutWatcher() throws Exception {
+    String connectString = zkServer.getConnectString();
+    Configuration conf = getSecretConf(connectString);
+    conf.setBoolean(
+        ZKDelegationTokenSecretManager.ZK_DTSM_TOKEN_WATCHER_ENABLED, false);
+    conf.setLong(ZKDelegationTokenSecretManager.ZK_DTSM_TOKEN_CACHE_EXPIRY_MS,
+        1);
+    DelegationTokenManager tm1 = new DelegationTokenManager(conf,
+        new Text("bla"));
+    tm1.init();
+    DelegationTokenManager tm2 = new DelegationTokenManager(conf,
+        new Text("bla"));
+    tm2.init();
+
+    Token<DelegationTokenIdentifier> token =
+        (Token<DelegationTokenIdentifier>) tm1.createToken(
+            UserGroupInformation.getCurrentUser(), "foo");
+    tm2.verifyToken(token);
+    tm1.cancelToken(token, "foo");
+    Thread.sleep(10);
+    try {
+      tm2.verifyToken(token);
+      fail("Expected InvalidToken for a token cancelled by a peer");
+    } catch (SecretManager.InvalidToken it) {
+      // Expected
+    }
+
+    verifyDestroy(tm1, conf);
+    verifyDestroy(tm2, conf);
+  }
 }
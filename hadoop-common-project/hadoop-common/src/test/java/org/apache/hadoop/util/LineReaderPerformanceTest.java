@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Performance test to compare {@link LineReader}, which searches for line
+ * breaks a word at a time, with a byte at a time search. This can be run
+ * from the command line with:
+ *
+ *   java -cp path/to/test/classes:path/to/common/classes \
+ *      'org.apache.hadoop.util.LineReaderPerformanceTest' [line length]
+ *
+ * The output is in JIRA table format.
+ */
+public class LineReaderPerformanceTest {
+  static final int MB = 1024 * 1024;
+  static final int DATA_SIZE = 64 * MB;
+  static final int ROUNDS = 10;
+
+  /** The byte at a time search of LineReader, without CR handling. */
+  static class ByteAtATimeReader {
+    private final InputStream in;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int bufferLength = 0;
+    private int bufferPosn = 0;
+
+    ByteAtATimeReader(InputStream in) {
+      this.in = in;
+    }
+
+    int readLine(Text str) throws IOException {
+      str.clear();
+      int bytesConsumed = 0;
+      boolean newline = false;
+      do {
+        if (bufferPosn >= bufferLength) {
+          bufferPosn = 0;
+          bufferLength = in.read(buffer);
+          if (bufferLength <= 0) {
+            break;
+          }
+        }
+        int startPosn = bufferPosn;
+        for (; bufferPosn < bufferLength; ++bufferPosn) {
+          if (buffer[bufferPosn] == '\n' || buffer[bufferPosn] == '\r') {
+            newline = true;
+            break;
+          }
+        }
+        str.append(buffer, startPosn, bufferPosn - startPosn);
+        bytesConsumed += bufferPosn - startPosn;
+        if (newline) {
+          bufferPosn++;
+          bytesConsumed++;
+        }
+      } while (!newline);
+      return bytesConsumed;
+    }
+  }
+
+  static byte[] generate(int lineLength) {
+    Random random = new Random(0);
+    byte[] data = new byte[DATA_SIZE];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i + 1) % lineLength == 0
+          ? (byte) '\n' : (byte) ('a' + random.nextInt(26));
+    }
+    return data;
+  }
+
+  static double runLineReader(byte[] data) throws IOException {
+    long start = System.nanoTime();
+    LineReader reader = new LineReader(new ByteArrayInputStream(data));
+    Text line = new Text();
+    while (reader.readLine(line) > 0) {
+      // read everything
+    }
+    reader.close();
+    return mbPerSecond(data.length, System.nanoTime() - start);
+  }
+
+  static double runByteAtATime(byte[] data) throws IOException {
+    long start = System.nanoTime();
+    ByteAtATimeReader reader =
+        new ByteAtATimeReader(new ByteArrayInputStream(data));
+    Text line = new Text();
+    while (reader.readLine(line) > 0) {
+      // read everything
+    }
+    return mbPerSecond(data.length, System.nanoTime() - start);
+  }
+
+  static double mbPerSecond(long bytes, long nanos) {
+    return bytes * 1e9 / nanos / MB;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int[] lineLengths = args.length > 0
+        ? new int[] {Integer.parseInt(args[0])}
+        : new int[] {16, 80, 256, 4096};
+    System.out.println("|| line length || byte at a time MB/s "
+        + "|| LineReader MB/s ||");
+    for (int lineLength : lineLengths) {
+      byte[] data = generate(lineLength);
+      double bytewise = 0;
+      double wordwise = 0;
+      // the first rounds warm up the JIT
+      for (int i = 0; i < ROUNDS; i++) {
+        bytewise = Math.max(bytewise, runByteAtATime(data));
+        wordwise = Math.max(wordwise, runLineReader(data));
+      }
+      System.out.printf("| %d | %.1f | %.1f |%n", lineLength, bytewise,
+          wordwise);
+    }
+  }
+}
@@ -20,7 +20,10 @@
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.apache.hadoop.io.Text;
 import org.junit.Assert;
@@ -163,4 +166,92 @@ public void testCustomDelimiter3() throws Exception {
 
     lineReader.close();
   }
+
+  /**
+   * Split the input the way the byte at a time search used to.
+   */
+  private static List<String> splitLines(byte[] data) {
+    List<String> lines = new ArrayList<String>();
+    int start = 0;
+    for (int i = 0; i < data.length; i++) {
+      if (data[i] == '\n' || data[i] == '\r') {
+        lines.add(new String(data, start, i - start, StandardCharsets.UTF_8));
+        if (data[i] == '\r' && i + 1 < data.length && data[i + 1] == '\n') {
+          i++;
+        }
+        start = i + 1;
+      }
+    }
+    if (start < data.length) {
+      lines.add(new String(data, start, data.length - start,
+          StandardCharsets.UTF_8));
+    }
+    return lines;
+  }
+
+  /**
+   * The word at a time search must find the same lines, wherever the line
+   * breaks fall relative to the words and the buffer boundaries.
+   */
+  @Test
+  public void testDefaultDelimiterRandom() throws Exception {
+    final byte[] alphabet = "ab\r\n\u00e9".getBytes(StandardCharsets.UTF_8);
+    final Random rand = new Random();
+    for (int round = 0; round < 200; round++) {
+      byte[] data = new byte[rand.nextInt(300)];
+      int breakEvery = 1 + rand.nextInt(40);
+      for (int i = 0; i < data.length; i++) {
+        data[i] = rand.nextInt(breakEvery) == 0
+            ? alphabet[2 + rand.nextInt(2)]
+            : alphabet[rand.nextInt(alphabet.length)];
+      }
+      int bufferSize = 1 + rand.nextInt(32);
+      LineReader lineReader =
+          new LineReader(new ByteArrayInputStream(data), bufferSize);
+      List<String> lines = new ArrayList<String>();
+      Text line = new Text();
+      int consumed = 0;
+      int read;
+      while ((read = lineReader.readLine(line)) > 0) {
+        lines.add(line.toString());
+        consumed += read;
+      }
+      lineReader.close();
+      Assert.assertEquals("buffer size " + bufferSize, splitLines(data),
+          lines);
+      Assert.assertEquals(data.length, consumed);
+    }
+  }
+
+  @Test
+  public void testCustomDelimiterRandom() throws Exception {
+    final String delimiter = "abc";
+    final Random rand = new Random();
+    for (int round = 0; round < 200; round++) {
+      StringBuilder data = new StringBuilder();
+      int length = rand.nextInt(300);
+      for (int i = 0; i < length; i++) {
+        data.append("abcd".charAt(rand.nextInt(4)));
+      }
+      List<String> expected =
+          new ArrayList<String>(Arrays.asList(data.toString().split(
+              delimiter, -1)));
+      if (expected.get(expected.size() - 1).isEmpty()) {
+        expected.remove(expected.size() - 1);
+      }
+      int bufferSize = 1 + rand.nextInt(32);
+      LineReader lineReader = new LineReader(
+          new ByteArrayInputStream(
+              data.toString().getBytes(StandardCharsets.UTF_8)),
+          bufferSize, delimiter.getBytes(StandardCharsets.UTF_8));
+      List<String> lines = new ArrayList<String>();
+      Text line = new Text();
+      while (lineReader.readLine(line) > 0) {
+        lines.add(line.toString());
+      }
+      lineReader.close();
+      Assert.assertEquals(data + " buffer size " + bufferSize, expected,
+          lines);
+    }
+  }
 }
@@ -84,6 +84,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -827,6 +828,18 @@ public Void call() throws Exception {
               ekv.getEncryptionKeyVersionName());
         }
 
+        // test decrypt batch
+        List<KeyVersion> dks = kpExt.decryptEncryptedKeys(ekvs);
+        assertEquals(ekvs.size(), dks.size());
+        for (int i = 0; i < dks.size(); i++) {
+          assertEquals(KeyProviderCryptoExtension.EK,
+              dks.get(i).getVersionName());
+          assertArrayEquals(kpExt.decryptEncryptedKey(ekvs.get(i))
+              .getMaterial(), dks.get(i).getMaterial());
+        }
+        assertArrayEquals(k1.getMaterial(), dks.get(0).getMaterial());
+        assertArrayEquals(k2.getMaterial(), dks.get(1).getMaterial());
+
         // deleteKey()
         kp.deleteKey("k1");
 
@@ -985,6 +998,130 @@ public Void call() throws Exception {
     });
   }
 
+  @Test
+  public void testKMSProviderDecryptedKeyCaching() throws Exception {
+    Configuration conf = new Configuration();
+    File confDir = getTestDir();
+    conf = createBaseKMSConf(confDir, conf);
+    conf.set(KeyAuthorizationKeyProvider.KEY_ACL + "k1.ALL", "*");
+    writeConf(confDir, conf);
+
+    runServer(null, null, confDir, new KMSCallable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        final Configuration conf = new Configuration();
+        conf.setLong(
+            CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS,
+            60000);
+        final URI uri = createKMSUri(getKMSUrl());
+        KMSClientProvider kmscp = createKMSClientProvider(uri, conf);
+
+        KeyProvider.Options options = new KeyProvider.Options(conf);
+        options.setCipher("AES/CTR/NoPadding");
+        options.setBitLength(128);
+        kmscp.createKey("k1", options);
+        EncryptedKeyVersion ek1 = kmscp.generateEncryptedKey("k1");
+        EncryptedKeyVersion ek2 = kmscp.generateEncryptedKey("k1");
+
+        KeyVersion k1 = kmscp.decryptEncryptedKey(ek1);
+        assertEquals(0, kmscp.getDecryptedKeyCacheStats().hitCount());
+        assertArrayEquals(k1.getMaterial(),
+            kmscp.decryptEncryptedKey(ek1).getMaterial());
+        assertEquals(1, kmscp.getDecryptedKeyCacheStats().hitCount());
+
+        // only ek2 is sent to the KMS, ek1 comes from the cache.
+        List<KeyVersion> dks = kmscp.decryptEncryptedKeys(
+            Arrays.asList(ek1, ek2));
+        assertArrayEquals(k1.getMaterial(), dks.get(0).getMaterial());
+        assertEquals(2, kmscp.getDecryptedKeyCacheStats().hitCount());
+        assertEquals(2, kmscp.getDecryptedKeyCacheStats().missCount());
+        assertArrayEquals(dks.get(1).getMaterial(),
+            kmscp.decryptEncryptedKey(ek2).getMaterial());
+        assertEquals(3, kmscp.getDecryptedKeyCacheStats().hitCount());
+
+        kmscp.invalidateCache("k1");
+        kmscp.decryptEncryptedKey(ek1);
+        assertEquals(3, kmscp.getDecryptedKeyCacheStats().missCount());
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testKMSProviderDecryptedKeyCachingPerUser() throws Exception {
+    Configuration conf = new Configuration();
+    conf.set("hadoop.security.authentication", "kerberos");
+    File testDir = getTestDir();
+    conf = createBaseKMSConf(testDir, conf);
+    conf.set("hadoop.kms.proxyuser.client.users", "foo,bar");
+    conf.set("hadoop.kms.proxyuser.client.hosts", "*");
+    conf.set(KeyAuthorizationKeyProvider.KEY_ACL + "kc.ALL", "client,foo");
+    writeConf(testDir, conf);
+
+    runServer(null, null, testDir, new KMSCallable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        final Configuration conf = new Configuration();
+        conf.setInt(KeyProvider.DEFAULT_BITLENGTH_NAME, 128);
+        conf.setLong(
+            CommonConfigurationKeysPublic.KMS_CLIENT_DEC_KEY_CACHE_EXPIRY_MS,
+            60000);
+        final URI uri = createKMSUri(getKMSUrl());
+        final UserGroupInformation clientUgi =
+            UserGroupInformation.createRemoteUser("client");
+        UserGroupInformation.setLoginUser(clientUgi);
+
+        clientUgi.doAs(new PrivilegedExceptionAction<Void>() {
+          @Override
+          public Void run() throws Exception {
+            // one provider shared by the users, as in a multi-user service
+            final KMSClientProvider kmscp =
+                createKMSClientProvider(uri, conf);
+            kmscp.createKey("kc", new KeyProvider.Options(conf));
+            final EncryptedKeyVersion ek = kmscp.generateEncryptedKey("kc");
+
+            UserGroupInformation.createProxyUser("foo", clientUgi).doAs(
+                new PrivilegedExceptionAction<Void>() {
+                  @Override
+                  public Void run() throws Exception {
+                    kmscp.decryptEncryptedKey(ek);
+                    kmscp.decryptEncryptedKey(ek);
+                    return null;
+                  }
+                });
+            assertEquals(1, kmscp.getDecryptedKeyCacheStats().hitCount());
+
+            // bar is not allowed to decrypt, the key foo got must not be
+            // handed to it
+            UserGroupInformation.createProxyUser("bar", clientUgi).doAs(
+                new PrivilegedExceptionAction<Void>() {
+                  @Override
+                  public Void run() throws Exception {
+                    try {
+                      kmscp.decryptEncryptedKey(ek);
+                      Assert.fail("bar must not be allowed to decrypt");
+                    } catch (AuthorizationException ex) {
+                      // OK
+                    }
+                    try {
+                      kmscp.decryptEncryptedKeys(
+                          Collections.singletonList(ek));
+                      Assert.fail("bar must not be allowed to decrypt");
+                    } catch (AuthorizationException ex) {
+                      // OK
+                    }
+                    return null;
+                  }
+                });
+            assertEquals(1, kmscp.getDecryptedKeyCacheStats().hitCount());
+            return null;
+          }
+        });
+        return null;
+      }
+    });
+  }
+
   @Test
   @SuppressWarnings("checkstyle:methodlength")
   public void testKeyACLs() throws Exception {
@@ -873,6 +873,11 @@ public String getVerifyECWithTopologyResult() {
     return null;
   }
 
+  @Override
+  public String getTopCallerProfile() {
+    return null;
+  }
+
   @Override
   public long getCurrentTokensCount() {
     return 0;
@@ -702,6 +702,14 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final boolean DFS_NAMENODE_AUDIT_LOG_ASYNC_BLOCKING_DEFAULT = true;
   public static final String  DFS_NAMENODE_AUDIT_LOG_ASYNC_BUFFER_SIZE_KEY = "dfs.namenode.audit.log.async.buffer.size";
   public static final int     DFS_NAMENODE_AUDIT_LOG_ASYNC_BUFFER_SIZE_DEFAULT = 128;
+  public static final String  DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_KEY = "dfs.namenode.audit.loggers.async.dispatch";
+  public static final boolean DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_DEFAULT = false;
+  public static final String  DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BLOCKING_KEY = "dfs.namenode.audit.loggers.async.dispatch.blocking";
+  public static final boolean DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BLOCKING_DEFAULT = true;
+  public static final String  DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BUFFER_SIZE_KEY = "dfs.namenode.audit.loggers.async.dispatch.buffer.size";
+  public static final int     DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BUFFER_SIZE_DEFAULT = 65536;
+  public static final String  DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BATCH_SIZE_KEY = "dfs.namenode.audit.loggers.async.dispatch.batch.size";
+  public static final int     DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BATCH_SIZE_DEFAULT = 1024;
   public static final String  DFS_NAMENODE_AUDIT_LOG_DEBUG_CMDLIST = "dfs.namenode.audit.log.debug.cmdlist";
   public static final String  DFS_NAMENODE_METRICS_LOGGER_PERIOD_SECONDS_KEY =
       "dfs.namenode.metrics.logger.period.seconds";
@@ -1482,6 +1490,25 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String NNTOP_WINDOWS_MINUTES_KEY =
       "dfs.namenode.top.windows.minutes";
   public static final String[] NNTOP_WINDOWS_MINUTES_DEFAULT = {"1", "5", "25"};
+  // nntop operation profiler, attributing cost to (user, op, path prefix)
+  public static final String NNTOP_PROFILER_ENABLED_KEY =
+      "dfs.namenode.top.profiler.enabled";
+  public static final boolean NNTOP_PROFILER_ENABLED_DEFAULT = false;
+  public static final String NNTOP_PROFILER_CAPACITY_KEY =
+      "dfs.namenode.top.profiler.capacity";
+  public static final int NNTOP_PROFILER_CAPACITY_DEFAULT = 1000;
+  public static final String NNTOP_PROFILER_SAMPLE_RATE_KEY =
+      "dfs.namenode.top.profiler.sample.rate";
+  public static final int NNTOP_PROFILER_SAMPLE_RATE_DEFAULT = 10;
+  public static final String NNTOP_PROFILER_PATH_DEPTH_KEY =
+      "dfs.namenode.top.profiler.path.depth";
+  public static final int NNTOP_PROFILER_PATH_DEPTH_DEFAULT = 3;
+  public static final String NNTOP_PROFILER_WINDOW_KEY =
+      "dfs.namenode.top.profiler.window";
+  public static final long NNTOP_PROFILER_WINDOW_DEFAULT = 300000;
+  public static final String NNTOP_PROFILER_NUM_TOP_KEY =
+      "dfs.namenode.top.profiler.num.top";
+  public static final int NNTOP_PROFILER_NUM_TOP_DEFAULT = 20;
   public static final String DFS_PIPELINE_ECN_ENABLED = "dfs.pipeline.ecn";
   public static final boolean DFS_PIPELINE_ECN_ENABLED_DEFAULT = false;
 
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenSecretManager;
+import org.apache.hadoop.ipc.CallerContext;
+import org.apache.hadoop.ipc.Server;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.util.Daemon;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link HdfsAuditLogger} which moves the work of other audit loggers off
+ * the RPC handler threads. Handlers only capture an {@link AuditEvent} into a
+ * bounded buffer; a single dispatcher thread drains the buffer in batches and
+ * hands every event to the wrapped loggers, in the order it was audited.
+ * <p>
+ * When the buffer is full, handlers either wait for the dispatcher or drop
+ * the event, depending on
+ * {@link DFSConfigKeys#DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BLOCKING_KEY}.
+ */
+@InterfaceAudience.Private
+public class AsyncAuditLogger extends HdfsAuditLogger {
+  public static final Logger LOG =
+      LoggerFactory.getLogger(AsyncAuditLogger.class);
+
+  private final List<AuditLogger> loggers;
+  private final boolean isDefaultAuditLogger;
+  private final BlockingQueue<AuditEvent> queue;
+  private final boolean blocking;
+  private final int batchSize;
+  private final AtomicLong numDropped = new AtomicLong();
+  private final Daemon dispatcher;
+  private volatile boolean running = true;
+
+  /**
+   * @param loggers initialized audit loggers to dispatch events to.
+   * @param conf configuration of the buffer.
+   */
+  public AsyncAuditLogger(List<AuditLogger> loggers, Configuration conf) {
+    this.loggers = loggers;
+    this.isDefaultAuditLogger = loggers.size() == 1 &&
+        loggers.get(0) instanceof DefaultAuditLogger;
+    this.queue = new ArrayBlockingQueue<>(conf.getInt(
+        DFSConfigKeys.DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BUFFER_SIZE_KEY,
+        DFSConfigKeys.
+            DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BUFFER_SIZE_DEFAULT));
+    this.blocking = conf.getBoolean(
+        DFSConfigKeys.DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BLOCKING_KEY,
+        DFSConfigKeys.
+            DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BLOCKING_DEFAULT);
+    this.batchSize = conf.getInt(
+        DFSConfigKeys.DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BATCH_SIZE_KEY,
+        DFSConfigKeys.
+            DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_BATCH_SIZE_DEFAULT);
+    this.dispatcher = new Daemon(this::dispatchLoop);
+    this.dispatcher.setName("AuditLogDispatcher");
+    this.dispatcher.start();
+  }
+
+  @Override
+  public void initialize(Configuration conf) {
+    // The wrapped loggers are initialized by their creator.
+  }
+
+  @Override
+  public void logAuditEvent(boolean succeeded, String userName,
+      InetAddress addr, String cmd, String src, String dst,
+      FileStatus stat, CallerContext callerContext, UserGroupInformation ugi,
+      DelegationTokenSecretManager dtSecretManager) {
+    if (isDisabled()) {
+      return;
+    }
+    logAuditEvent(new AuditEvent(Time.now(), succeeded, userName, addr, cmd,
+        src, dst, stat, callerContext, ugi, dtSecretManager,
+        Server.getProtocol()));
+  }
+
+  @Override
+  public void logAuditEvent(boolean succeeded, String userName,
+      InetAddress addr, String cmd, String src, String dst,
+      FileStatus stat, UserGroupInformation ugi,
+      DelegationTokenSecretManager dtSecretManager) {
+    logAuditEvent(succeeded, userName, addr, cmd, src, dst, stat,
+        null /*callerContext*/, ugi, dtSecretManager);
+  }
+
+  @Override
+  public void logAuditEvent(AuditEvent event) {
+    if (isDisabled()) {
+      return;
+    } else if (blocking) {
+      try {
+        queue.put(event);
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    } else if (queue.offer(event)) {
+      return;
+    }
+    numDropped.incrementAndGet();
+  }
+
+  /**
+   * @return true if the only wrapped logger is the default one and the audit
+   * log is off, so that the events would be dropped by the dispatcher.
+   */
+  private boolean isDisabled() {
+    return isDefaultAuditLogger && !FSNamesystem.auditLog.isInfoEnabled();
+  }
+
+  private void dispatchLoop() {
+    List<AuditEvent> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        AuditEvent first = queue.take();
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+      } catch (InterruptedException e) {
+        if (running) {
+          LOG.warn("Audit log dispatcher interrupted while running");
+        }
+        queue.drainTo(batch);
+      }
+      for (AuditEvent event : batch) {
+        dispatch(event);
+      }
+      batch.clear();
+    }
+  }
+
+  private void dispatch(AuditEvent event) {
+    for (AuditLogger logger : loggers) {
+      try {
+        if (logger instanceof HdfsAuditLogger) {
+          ((HdfsAuditLogger) logger).logAuditEvent(event);
+        } else {
+          logger.logAuditEvent(event.isSucceeded(), event.getUserName(),
+              event.getAddr(), event.getCmd(), event.getSrc(), event.getDst(),
+              event.getStatus());
+        }
+      } catch (Throwable t) {
+        LOG.error("Audit logger {} failed to log event: (cmd={},userName={})",
+            logger.getClass().getName(), event.getCmd(), event.getUserName(),
+            t);
+      }
+    }
+  }
+
+  /**
+   * Stop the dispatcher after the buffered events have
+   * been handed to the wrapped loggers, and wait for it to exit.
+   */
+  public void stop() {
+    running = false;
+    dispatcher.interrupt();
+    try {
+      dispatcher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** @return the number of events dropped because the buffer was full. */
+  public long getNumDroppedEvents() {
+    return numDropped.get();
+  }
+
+  /** @return the number of events waiting to be dispatched. */
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  /** @return the wrapped audit loggers. */
+  List<AuditLogger> getLoggers() {
+    return loggers;
+  }
+}
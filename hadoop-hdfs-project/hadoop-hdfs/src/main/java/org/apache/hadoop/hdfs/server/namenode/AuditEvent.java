@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode;
+
+import java.net.InetAddress;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenSecretManager;
+import org.apache.hadoop.ipc.CallerContext;
+import org.apache.hadoop.security.UserGroupInformation;
+
+/**
+ * An audited namenode operation. The event captures everything an
+ * {@link HdfsAuditLogger} needs, including the state which is otherwise only
+ * available from the thread serving the RPC call, so that it can be logged
+ * from a different thread.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class AuditEvent {
+  private final long timestamp;
+  private final boolean succeeded;
+  private final String userName;
+  private final InetAddress addr;
+  private final String cmd;
+  private final String src;
+  private final String dst;
+  private final FileStatus status;
+  private final CallerContext callerContext;
+  private final UserGroupInformation ugi;
+  private final DelegationTokenSecretManager dtSecretManager;
+  private final String protocol;
+
+  @SuppressWarnings("checkstyle:parameternumber")
+  public AuditEvent(long timestamp, boolean succeeded, String userName,
+      InetAddress addr, String cmd, String src, String dst, FileStatus status,
+      CallerContext callerContext, UserGroupInformation ugi,
+      DelegationTokenSecretManager dtSecretManager, String protocol) {
+    this.timestamp = timestamp;
+    this.succeeded = succeeded;
+    this.userName = userName;
+    this.addr = addr;
+    this.cmd = cmd;
+    this.src = src;
+    this.dst = dst;
+    this.status = status;
+    this.callerContext = callerContext;
+    this.ugi = ugi;
+    this.dtSecretManager = dtSecretManager;
+    this.protocol = protocol;
+  }
+
+  /** @return the time the operation was audited, in milliseconds. */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /** @return whether authorization succeeded. */
+  public boolean isSucceeded() {
+    return succeeded;
+  }
+
+  /** @return name of the user executing the request. */
+  public String getUserName() {
+    return userName;
+  }
+
+  /** @return remote address of the request. */
+  public InetAddress getAddr() {
+    return addr;
+  }
+
+  /** @return the requested command. */
+  public String getCmd() {
+    return cmd;
+  }
+
+  /** @return path of affected source file. */
+  public String getSrc() {
+    return src;
+  }
+
+  /** @return path of affected destination file, if any. */
+  public String getDst() {
+    return dst;
+  }
+
+  /** @return file information for operations that change metadata. */
+  public FileStatus getStatus() {
+    return status;
+  }
+
+  /** @return context information of the caller, if any. */
+  public CallerContext getCallerContext() {
+    return callerContext;
+  }
+
+  /** @return UserGroupInformation of the user executing the request. */
+  public UserGroupInformation getUgi() {
+    return ugi;
+  }
+
+  /** @return the token secret manager, used to log token tracking IDs. */
+  public DelegationTokenSecretManager getDtSecretManager() {
+    return dtSecretManager;
+  }
+
+  /** @return the RPC protocol of the request, if any. */
+  public String getProtocol() {
+    return protocol;
+  }
+}
@@ -297,6 +297,8 @@
 import org.apache.hadoop.hdfs.server.namenode.top.TopAuditLogger;
 import org.apache.hadoop.hdfs.server.namenode.top.TopConf;
 import org.apache.hadoop.hdfs.server.namenode.top.metrics.TopMetrics;
+import org.apache.hadoop.hdfs.server.namenode.top.profile.OpProfiler;
+import org.apache.hadoop.hdfs.server.namenode.top.profile.OpProfilerAuditLogger;
 import org.apache.hadoop.hdfs.server.namenode.top.window.RollingWindowManager;
 import org.apache.hadoop.hdfs.server.protocol.BlocksWithLocations;
 import org.apache.hadoop.hdfs.server.protocol.DatanodeCommand;
@@ -629,6 +631,8 @@ private void logAuditEvent(boolean succeeded,
 
   private final TopConf topConf;
   private TopMetrics topMetrics;
+  private OpProfiler opProfiler;
+  private int opProfilerNumTop;
 
   private INodeAttributeProvider inodeAttributeProvider;
 
@@ -1000,8 +1004,9 @@ static FSNamesystem loadFromDisk(Configuration conf) throws IOException {
       ErasureCodingPolicyManager.getInstance().init(conf);
       this.topConf = new TopConf(conf);
       this.auditLoggers = initAuditLoggers(conf);
-      this.isDefaultAuditLogger = auditLoggers.size() == 1 &&
-        auditLoggers.get(0) instanceof DefaultAuditLogger;
+      List<AuditLogger> unwrappedAuditLoggers = getUnwrappedAuditLoggers();
+      this.isDefaultAuditLogger = unwrappedAuditLoggers.size() == 1 &&
+        unwrappedAuditLoggers.get(0) instanceof DefaultAuditLogger;
       this.retryCache = ignoreRetryCache ? null : initRetryCache(conf);
       Class<? extends INodeAttributeProvider> klass = conf.getClass(
           DFS_NAMENODE_INODE_ATTRIBUTES_PROVIDER_KEY,
@@ -1129,7 +1134,7 @@ static RetryCache initRetryCache(Configuration conf) {
    *          true, enable CallerContext, otherwise false to disable it.
    */
   void setCallerContextEnabled(final boolean value) {
-    for (AuditLogger logger : auditLoggers) {
+    for (AuditLogger logger : getUnwrappedAuditLoggers()) {
       if (logger instanceof DefaultAuditLogger) {
         ((DefaultAuditLogger) logger).setCallerContextEnabled(value);
         break;
@@ -1144,7 +1149,7 @@ void setCallerContextEnabled(final boolean value) {
    *         disabled.
    */
   boolean getCallerContextEnabled() {
-    for (AuditLogger logger : auditLoggers) {
+    for (AuditLogger logger : getUnwrappedAuditLoggers()) {
       if (logger instanceof DefaultAuditLogger) {
         return ((DefaultAuditLogger) logger).getCallerContextEnabled();
       }
@@ -1152,6 +1157,22 @@ boolean getCallerContextEnabled() {
     return false;
   }
 
+  /**
+   * @return the audit loggers, with the ones invoked through an
+   * {@link AsyncAuditLogger} in place of the AsyncAuditLogger itself.
+   */
+  private List<AuditLogger> getUnwrappedAuditLoggers() {
+    List<AuditLogger> loggers = new ArrayList<>();
+    for (AuditLogger logger : auditLoggers) {
+      if (logger instanceof AsyncAuditLogger) {
+        loggers.addAll(((AsyncAuditLogger) logger).getLoggers());
+      } else {
+        loggers.add(logger);
+      }
+    }
+    return loggers;
+  }
+
   private List<AuditLogger> initAuditLoggers(Configuration conf) {
     // Initialize the custom access loggers if configured.
     Collection<String> alClasses =
@@ -1191,6 +1212,16 @@ private List<AuditLogger> initAuditLoggers(Configuration conf) {
       auditLoggers.add(fsNamesystemAuditLogger);
     }
 
+    // Move the configured loggers off the handler threads if requested
+    if (conf.getBoolean(
+        DFSConfigKeys.DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_KEY,
+        DFSConfigKeys.DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_DEFAULT)) {
+      AuditLogger asyncLogger = new AsyncAuditLogger(
+          Collections.unmodifiableList(new ArrayList<>(auditLoggers)), conf);
+      auditLoggers.clear();
+      auditLoggers.add(asyncLogger);
+    }
+
     // Add audit logger to calculate top users
     if (topConf.isEnabled && !topAuditLoggerAdded) {
       topMetrics = new TopMetrics(conf, topConf.nntopReportingPeriodsMs);
@@ -1202,6 +1233,15 @@ private List<AuditLogger> initAuditLoggers(Configuration conf) {
       auditLoggers.add(new TopAuditLogger(topMetrics));
     }
 
+    // Add audit logger to profile operations by user and path
+    if (conf.getBoolean(DFSConfigKeys.NNTOP_PROFILER_ENABLED_KEY,
+        DFSConfigKeys.NNTOP_PROFILER_ENABLED_DEFAULT)) {
+      opProfiler = new OpProfiler(conf);
+      opProfilerNumTop = conf.getInt(DFSConfigKeys.NNTOP_PROFILER_NUM_TOP_KEY,
+          DFSConfigKeys.NNTOP_PROFILER_NUM_TOP_DEFAULT);
+      auditLoggers.add(new OpProfilerAuditLogger(opProfiler));
+    }
+
     return Collections.unmodifiableList(auditLoggers);
   }
 
@@ -1865,6 +1905,18 @@ void close() {
       } finally {
         IOUtils.cleanupWithLogger(LOG, dir);
         IOUtils.cleanupWithLogger(LOG, fsImage);
+        stopAsyncAuditLoggers();
+      }
+    }
+  }
+
+  private void stopAsyncAuditLoggers() {
+    if (auditLoggers == null) {
+      return;
+    }
+    for (AuditLogger logger : auditLoggers) {
+      if (logger instanceof AsyncAuditLogger) {
+        ((AsyncAuditLogger) logger).stop();
       }
     }
   }
@@ -5689,6 +5741,31 @@ public int getNumStaleStorages() {
     return getBlockManager().getDatanodeManager().getNumStaleStorages();
   }
 
+  @Metric({"NumDroppedAuditEvents",
+      "Number of audit events dropped because the audit dispatch buffer " +
+      "was full"})
+  public long getNumDroppedAuditEvents() {
+    long dropped = 0;
+    for (AuditLogger logger : auditLoggers) {
+      if (logger instanceof AsyncAuditLogger) {
+        dropped += ((AsyncAuditLogger) logger).getNumDroppedEvents();
+      }
+    }
+    return dropped;
+  }
+
+  @Metric({"PendingAuditEvents",
+      "Number of audit events waiting to be dispatched to the audit loggers"})
+  public int getPendingAuditEvents() {
+    int pending = 0;
+    for (AuditLogger logger : auditLoggers) {
+      if (logger instanceof AsyncAuditLogger) {
+        pending += ((AsyncAuditLogger) logger).getQueueSize();
+      }
+    }
+    return pending;
+  }
+
   @Override // FSNamesystemMBean
   public String getTopUserOpCounts() {
     if (!topConf.isEnabled) {
@@ -5709,6 +5786,34 @@ public String getTopUserOpCounts() {
     return null;
   }
 
+  @Override // NameNodeMXBean
+  public String getTopCallerProfile() {
+    return getTopCallerProfile(opProfilerNumTop);
+  }
+
+  /**
+   * Get the heaviest (user, operation, path prefix) tuples recorded by the
+   * operation profiler.
+   *
+   * @param numTop number of tuples to return per metric.
+   * @return the profile as a JSON string, or null if the profiler is disabled.
+   */
+  String getTopCallerProfile(int numTop) {
+    if (opProfiler == null) {
+      return null;
+    }
+
+    Map<String, Object> profile = new LinkedHashMap<String, Object>();
+    profile.put("timestamp", DFSUtil.dateToIso8601String(new Date()));
+    profile.putAll(opProfiler.getReport(numTop));
+    try {
+      return JsonUtil.toJsonString(profile);
+    } catch (IOException e) {
+      LOG.warn("Failed to fetch the operation profile", e);
+    }
+    return null;
+  }
+
   /**
    * Increments, logs and then returns the stamp
    */
@@ -8712,6 +8817,23 @@ public void logAuditEvent(boolean succeeded, String userName,
         InetAddress addr, String cmd, String src, String dst,
         FileStatus status, CallerContext callerContext, UserGroupInformation ugi,
         DelegationTokenSecretManager dtSecretManager) {
+      logAuditEvent(succeeded, userName, addr, cmd, src, dst, status,
+          callerContext, ugi, dtSecretManager, Server.getProtocol());
+    }
+
+    @Override
+    public void logAuditEvent(AuditEvent event) {
+      logAuditEvent(event.isSucceeded(), event.getUserName(), event.getAddr(),
+          event.getCmd(), event.getSrc(), event.getDst(), event.getStatus(),
+          event.getCallerContext(), event.getUgi(), event.getDtSecretManager(),
+          event.getProtocol());
+    }
+
+    @SuppressWarnings("checkstyle:parameternumber")
+    private void logAuditEvent(boolean succeeded, String userName,
+        InetAddress addr, String cmd, String src, String dst,
+        FileStatus status, CallerContext callerContext, UserGroupInformation ugi,
+        DelegationTokenSecretManager dtSecretManager, String protocol) {
 
       if (auditLog.isDebugEnabled() ||
           (auditLog.isInfoEnabled() && !debugCmdSet.contains(cmd))) {
@@ -8750,7 +8872,7 @@ public void logAuditEvent(boolean succeeded, String userName,
           sb.append(trackingId);
         }
         sb.append("\t").append("proto=")
-            .append(Server.getProtocol());
+            .append(protocol);
         if (isCallerContextEnabled &&
             callerContext != null &&
             callerContext.isContextValid()) {
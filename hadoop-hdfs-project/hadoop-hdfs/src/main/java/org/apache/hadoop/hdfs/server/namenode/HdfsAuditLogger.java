@@ -76,4 +76,18 @@ public abstract void logAuditEvent(boolean succeeded, String userName,
       InetAddress addr, String cmd, String src, String dst,
       FileStatus stat, UserGroupInformation ugi,
       DelegationTokenSecretManager dtSecretManager);
+
+  /**
+   * Log a structured audit event, possibly from a thread other than the one
+   * that served the audited operation. Implementations which read thread
+   * local state such as {@link org.apache.hadoop.ipc.Server#getProtocol()}
+   * should override this method and take that state from the event instead.
+   *
+   * @param event the audited operation.
+   */
+  public void logAuditEvent(AuditEvent event) {
+    logAuditEvent(event.isSucceeded(), event.getUserName(), event.getAddr(),
+        event.getCmd(), event.getSrc(), event.getDst(), event.getStatus(),
+        event.getCallerContext(), event.getUgi(), event.getDtSecretManager());
+  }
 }
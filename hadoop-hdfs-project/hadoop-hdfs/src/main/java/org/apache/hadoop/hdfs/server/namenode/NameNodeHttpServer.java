@@ -255,6 +255,8 @@ private static void setupServlets(HttpServer2 httpServer) {
         IsNameNodeActiveServlet.class);
     httpServer.addInternalServlet(NetworkTopologyServlet.SERVLET_NAME,
         NetworkTopologyServlet.PATH_SPEC, NetworkTopologyServlet.class);
+    httpServer.addInternalServlet(OpProfilerServlet.SERVLET_NAME,
+        OpProfilerServlet.PATH_SPEC, OpProfilerServlet.class);
   }
 
   static FSImage getFsImageFromContext(ServletContext context) {
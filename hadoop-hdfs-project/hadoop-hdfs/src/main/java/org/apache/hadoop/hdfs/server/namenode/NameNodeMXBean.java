@@ -331,4 +331,14 @@ public interface NameNodeMXBean {
    */
   String getVerifyECWithTopologyResult();
 
+  /**
+   * Get the heaviest (user, operation, path prefix) tuples by operation
+   * count, lock hold time and lock wait time, as recorded by the operation
+   * profiler.
+   *
+   * @return the profile as a JSON string, or null if the profiler is
+   * disabled.
+   */
+  String getTopCallerProfile();
+
 }
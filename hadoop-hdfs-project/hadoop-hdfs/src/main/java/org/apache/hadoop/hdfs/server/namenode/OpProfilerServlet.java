@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.http.HttpServer2;
+
+/**
+ * A servlet returning the heaviest (user, operation, path prefix) tuples
+ * recorded by the NameNode operation profiler as JSON. The optional
+ * {@code top} parameter overrides the number of tuples returned per metric.
+ */
+@InterfaceAudience.Private
+public class OpProfilerServlet extends DfsServlet {
+  private static final long serialVersionUID = 1L;
+
+  public static final String SERVLET_NAME = "opprofile";
+  public static final String PATH_SPEC = "/opprofile";
+
+  static final String TOP_PARAM = "top";
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    final ServletContext context = getServletContext();
+    if (!HttpServer2.isInstrumentationAccessAllowed(context, request,
+        response)) {
+      return;
+    }
+
+    Configuration conf = NameNodeHttpServer.getConfFromContext(context);
+    int numTop = conf.getInt(DFSConfigKeys.NNTOP_PROFILER_NUM_TOP_KEY,
+        DFSConfigKeys.NNTOP_PROFILER_NUM_TOP_DEFAULT);
+    String topParam = request.getParameter(TOP_PARAM);
+    if (topParam != null) {
+      try {
+        numTop = Integer.parseInt(topParam);
+      } catch (NumberFormatException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+            "Invalid value for " + TOP_PARAM + ": " + topParam);
+        return;
+      }
+    }
+
+    NameNode nn = NameNodeHttpServer.getNameNodeFromContext(context);
+    String profile = nn.getNamesystem().getTopCallerProfile(numTop);
+    if (profile == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND,
+          "The operation profiler is disabled, set "
+          + DFSConfigKeys.NNTOP_PROFILER_ENABLED_KEY + " to enable it.");
+      return;
+    }
+
+    response.setContentType("application/json; charset=UTF-8");
+    PrintWriter writer = response.getWriter();
+    writer.write(profile);
+    writer.flush();
+  }
+}
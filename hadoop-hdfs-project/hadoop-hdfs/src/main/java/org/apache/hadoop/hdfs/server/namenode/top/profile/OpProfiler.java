@@ -0,0 +1,279 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.top.profile;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.thirdparty.com.google.common.base.Preconditions;
+import org.apache.hadoop.util.Time;
+
+/**
+ * Sampling profiler that attributes NameNode operations to
+ * (user, operation, path prefix) tuples. Each sampled operation contributes
+ * its call count, lock hold time and lock wait time to a set of
+ * {@link SpaceSavingSketch}es, so memory stays bounded regardless of the
+ * number of distinct callers and paths.
+ * <p>
+ * Sketches are kept per fixed-length window. The current window and the last
+ * completed window are reported; older data is discarded.
+ */
+@InterfaceAudience.Private
+public class OpProfiler {
+
+  /**
+   * The quantities attributed to each profile key.
+   */
+  public enum Metric {
+    OPS("ops"),
+    LOCK_HOLD_MICROS("lockHoldMicros"),
+    LOCK_WAIT_MICROS("lockWaitMicros");
+
+    private final String jsonName;
+
+    Metric(String jsonName) {
+      this.jsonName = jsonName;
+    }
+
+    public String getJsonName() {
+      return jsonName;
+    }
+  }
+
+  /**
+   * Attribution key of a profiled operation.
+   */
+  public static final class Key {
+    private final String user;
+    private final String op;
+    private final String path;
+
+    Key(String user, String op, String path) {
+      this.user = user;
+      this.op = op;
+      this.path = path;
+    }
+
+    public String getUser() {
+      return user;
+    }
+
+    public String getOp() {
+      return op;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(user, other.user) && Objects.equals(op, other.op)
+          && Objects.equals(path, other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(user, op, path);
+    }
+
+    @Override
+    public String toString() {
+      return user + ":" + op + ":" + path;
+    }
+  }
+
+  private static final class Window {
+    private final long start;
+    private final Map<Metric, SpaceSavingSketch<Key>> sketches =
+        new EnumMap<>(Metric.class);
+
+    Window(long start, int capacity) {
+      this.start = start;
+      for (Metric m : Metric.values()) {
+        sketches.put(m, new SpaceSavingSketch<>(capacity));
+      }
+    }
+  }
+
+  private final int capacity;
+  private final int sampleRate;
+  private final int pathDepth;
+  private final long windowMs;
+
+  private volatile Window current;
+  private volatile Window previous;
+
+  public OpProfiler(Configuration conf) {
+    this(conf.getInt(DFSConfigKeys.NNTOP_PROFILER_CAPACITY_KEY,
+            DFSConfigKeys.NNTOP_PROFILER_CAPACITY_DEFAULT),
+        conf.getInt(DFSConfigKeys.NNTOP_PROFILER_SAMPLE_RATE_KEY,
+            DFSConfigKeys.NNTOP_PROFILER_SAMPLE_RATE_DEFAULT),
+        conf.getInt(DFSConfigKeys.NNTOP_PROFILER_PATH_DEPTH_KEY,
+            DFSConfigKeys.NNTOP_PROFILER_PATH_DEPTH_DEFAULT),
+        conf.getTimeDuration(DFSConfigKeys.NNTOP_PROFILER_WINDOW_KEY,
+            DFSConfigKeys.NNTOP_PROFILER_WINDOW_DEFAULT,
+            TimeUnit.MILLISECONDS));
+  }
+
+  @VisibleForTesting
+  public OpProfiler(int capacity, int sampleRate, int pathDepth,
+      long windowMs) {
+    Preconditions.checkArgument(sampleRate > 0,
+        "sample rate must be positive: %s", sampleRate);
+    Preconditions.checkArgument(pathDepth >= 0,
+        "path depth must not be negative: %s", pathDepth);
+    Preconditions.checkArgument(windowMs > 0,
+        "window must be positive: %s", windowMs);
+    this.capacity = capacity;
+    this.sampleRate = sampleRate;
+    this.pathDepth = pathDepth;
+    this.windowMs = windowMs;
+    this.current = new Window(Time.monotonicNow(), capacity);
+  }
+
+  /**
+   * Consider an operation for profiling. Only one in {@code sampleRate}
+   * operations is recorded, with its weight scaled accordingly.
+   */
+  public void report(String user, String op, String src,
+      long lockHoldNanos, long lockWaitNanos) {
+    if (sampleRate > 1
+        && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+      return;
+    }
+    record(Time.monotonicNow(), user, op, src, lockHoldNanos, lockWaitNanos);
+  }
+
+  @VisibleForTesting
+  void record(long now, String user, String op, String src,
+      long lockHoldNanos, long lockWaitNanos) {
+    Window w = rollIfNeeded(now);
+    Key key = new Key(user, op, getPathPrefix(src, pathDepth));
+    w.sketches.get(Metric.OPS).offer(key, sampleRate);
+    if (lockHoldNanos > 0) {
+      w.sketches.get(Metric.LOCK_HOLD_MICROS).offer(key,
+          sampleRate * TimeUnit.NANOSECONDS.toMicros(lockHoldNanos));
+    }
+    if (lockWaitNanos > 0) {
+      w.sketches.get(Metric.LOCK_WAIT_MICROS).offer(key,
+          sampleRate * TimeUnit.NANOSECONDS.toMicros(lockWaitNanos));
+    }
+  }
+
+  private Window rollIfNeeded(long now) {
+    Window w = current;
+    if (now - w.start < windowMs) {
+      return w;
+    }
+    synchronized (this) {
+      w = current;
+      if (now - w.start >= windowMs) {
+        // Skip empty windows entirely if no operation arrived for a while.
+        previous = now - w.start < 2 * windowMs ? w : null;
+        w = new Window(now - (now - w.start) % windowMs, capacity);
+        current = w;
+      }
+      return w;
+    }
+  }
+
+  /**
+   * @return the first {@code depth} components of {@code src}, e.g.
+   * {@code /user/alice} for {@code /user/alice/data/part-0} and depth 2.
+   */
+  @VisibleForTesting
+  static String getPathPrefix(String src, int depth) {
+    if (src == null || src.isEmpty()) {
+      return "";
+    }
+    int idx = 0;
+    for (int i = 0; i < depth; i++) {
+      idx = src.indexOf('/', idx + 1);
+      if (idx < 0) {
+        return src;
+      }
+    }
+    return idx == 0 ? "/" : src.substring(0, idx);
+  }
+
+  /**
+   * Build a JSON-friendly view of the heaviest {@code topN} keys per metric
+   * for the current and the last completed window.
+   */
+  public Map<String, Object> getReport(int topN) {
+    long now = Time.monotonicNow();
+    rollIfNeeded(now);
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("windowMs", windowMs);
+    report.put("sampleRate", sampleRate);
+    report.put("pathDepth", pathDepth);
+    report.put("current", toMap(current, now, topN));
+    Window p = previous;
+    if (p != null) {
+      report.put("previous", toMap(p, now, topN));
+    }
+    return report;
+  }
+
+  private static Map<String, Object> toMap(Window w, long now, int topN) {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("ageMs", now - w.start);
+    for (Map.Entry<Metric, SpaceSavingSketch<Key>> e :
+        w.sketches.entrySet()) {
+      SpaceSavingSketch<Key> sketch = e.getValue();
+      Map<String, Object> metric = new LinkedHashMap<>();
+      metric.put("total", sketch.getTotal());
+      List<Map<String, Object>> top = new ArrayList<>();
+      for (SpaceSavingSketch.Entry<Key> entry : sketch.getTop(topN)) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("user", entry.getKey().getUser());
+        m.put("op", entry.getKey().getOp());
+        m.put("path", entry.getKey().getPath());
+        m.put("value", entry.getWeight());
+        m.put("error", entry.getError());
+        top.add(m);
+      }
+      metric.put("top", top);
+      map.put(e.getKey().getJsonName(), metric);
+    }
+    return map;
+  }
+
+  @VisibleForTesting
+  List<SpaceSavingSketch.Entry<Key>> getCurrentTop(Metric metric, int n) {
+    return current.sketches.get(metric).getTop(n);
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.top.profile;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.hdfs.server.namenode.AuditLogger;
+import org.apache.hadoop.ipc.ProcessingDetails;
+import org.apache.hadoop.ipc.ProcessingDetails.Timing;
+import org.apache.hadoop.ipc.Server;
+import org.apache.hadoop.thirdparty.com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link AuditLogger} that feeds every audited operation into an
+ * {@link OpProfiler}. Lock times are taken from the {@link ProcessingDetails}
+ * of the current RPC call, so operations not served over RPC are only
+ * counted.
+ */
+@InterfaceAudience.Private
+public class OpProfilerAuditLogger implements AuditLogger {
+  public static final Logger LOG =
+      LoggerFactory.getLogger(OpProfilerAuditLogger.class);
+
+  private final OpProfiler profiler;
+
+  public OpProfilerAuditLogger(OpProfiler profiler) {
+    Preconditions.checkNotNull(profiler, "Cannot init with a null " +
+        "OpProfiler");
+    this.profiler = profiler;
+  }
+
+  @Override
+  public void initialize(Configuration conf) {
+  }
+
+  @Override
+  public void logAuditEvent(boolean succeeded, String userName,
+      InetAddress addr, String cmd, String src, String dst, FileStatus status) {
+    try {
+      long lockHold = 0;
+      long lockWait = 0;
+      Server.Call call = Server.getCurCall().get();
+      if (call != null) {
+        ProcessingDetails details = call.getProcessingDetails();
+        lockHold = details.get(Timing.LOCKSHARED, TimeUnit.NANOSECONDS)
+            + details.get(Timing.LOCKEXCLUSIVE, TimeUnit.NANOSECONDS);
+        lockWait = details.get(Timing.LOCKWAIT, TimeUnit.NANOSECONDS);
+      }
+      profiler.report(userName, cmd, src, lockHold, lockWait);
+    } catch (Throwable t) {
+      LOG.error("An error occurred while reflecting the event in the op "
+          + "profiler, event: (cmd={},userName={})", cmd, userName, t);
+    }
+  }
+}
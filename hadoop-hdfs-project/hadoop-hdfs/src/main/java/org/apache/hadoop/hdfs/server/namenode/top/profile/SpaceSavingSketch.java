@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.top.profile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.thirdparty.com.google.common.base.Preconditions;
+
+/**
+ * A weighted implementation of the Space-Saving heavy hitter algorithm
+ * (Metwally, Agrawal and El Abbadi). At most {@code capacity} keys are
+ * tracked; when a new key arrives and the sketch is full, the key with the
+ * smallest weight is evicted and the newcomer inherits its weight as the
+ * upper bound of its estimation error. Any key whose true weight exceeds
+ * {@code total / capacity} is guaranteed to be present.
+ * <p>
+ * Updates and queries cost O(log capacity). The class is thread-safe.
+ */
+@InterfaceAudience.Private
+public class SpaceSavingSketch<K> {
+
+  /**
+   * A tracked key with its estimated weight and the maximum overestimation.
+   */
+  public static final class Entry<K> {
+    private final K key;
+    private long weight;
+    private long error;
+    private long seq;
+
+    private Entry(K key, long weight, long error, long seq) {
+      this.key = key;
+      this.weight = weight;
+      this.error = error;
+      this.seq = seq;
+    }
+
+    public K getKey() {
+      return key;
+    }
+
+    public long getWeight() {
+      return weight;
+    }
+
+    public long getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + weight + "(+/-" + error + ")";
+    }
+  }
+
+  private static final Comparator<Entry<?>> ORDER =
+      Comparator.<Entry<?>>comparingLong(e -> e.weight)
+          .thenComparingLong(e -> e.seq);
+
+  private final int capacity;
+  private final Map<K, Entry<K>> entries;
+  private final TreeSet<Entry<?>> ordered = new TreeSet<>(ORDER);
+  private long total;
+  private long nextSeq;
+
+  public SpaceSavingSketch(int capacity) {
+    Preconditions.checkArgument(capacity > 0,
+        "capacity must be positive: %s", capacity);
+    this.capacity = capacity;
+    this.entries = new HashMap<>(capacity * 2);
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Add {@code weight} to the estimate of {@code key}.
+   */
+  public synchronized void offer(K key, long weight) {
+    Preconditions.checkArgument(weight >= 0,
+        "weight must not be negative: %s", weight);
+    total += weight;
+    Entry<K> e = entries.get(key);
+    if (e != null) {
+      ordered.remove(e);
+      e.weight += weight;
+      e.seq = nextSeq++;
+      ordered.add(e);
+      return;
+    }
+    long error = 0;
+    if (entries.size() >= capacity) {
+      @SuppressWarnings("unchecked")
+      Entry<K> min = (Entry<K>) ordered.pollFirst();
+      entries.remove(min.key);
+      error = min.weight;
+    }
+    e = new Entry<>(key, error + weight, error, nextSeq++);
+    entries.put(key, e);
+    ordered.add(e);
+  }
+
+  /**
+   * @return the sum of all weights offered to the sketch.
+   */
+  public synchronized long getTotal() {
+    return total;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return up to {@code n} entries, heaviest first. The returned entries
+   * are copies and are not affected by later updates.
+   */
+  public synchronized List<Entry<K>> getTop(int n) {
+    List<Entry<K>> top = new ArrayList<>(Math.min(n, entries.size()));
+    Iterator<Entry<?>> it = ordered.descendingIterator();
+    while (it.hasNext() && top.size() < n) {
+      @SuppressWarnings("unchecked")
+      Entry<K> e = (Entry<K>) it.next();
+      top.add(new Entry<>(e.key, e.weight, e.error, e.seq));
+    }
+    return top;
+  }
+}
@@ -68,6 +68,7 @@
 import static org.apache.hadoop.fs.permission.FsAction.EXECUTE;
 import static org.apache.hadoop.fs.permission.FsAction.READ_EXECUTE;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_ACLS_ENABLED_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_LOGGERS_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.NNTOP_ENABLED_KEY;
 import static org.junit.Assert.assertEquals;
@@ -124,6 +125,67 @@ public void testAuditLogger() throws IOException {
     }
   }
 
+  /**
+   * Tests that audit events reach the configured loggers when they are
+   * dispatched asynchronously.
+   */
+  @Test
+  public void testAsyncDispatchAuditLogger() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.set(DFS_NAMENODE_AUDIT_LOGGERS_KEY,
+        DummyAuditLogger.class.getName());
+    conf.setBoolean(DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_KEY, true);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).build();
+
+    try {
+      cluster.waitClusterUp();
+      assertTrue(DummyAuditLogger.initialized);
+      List<AuditLogger> auditLoggers =
+          cluster.getNameNode().getNamesystem().getAuditLoggers();
+      assertTrue(auditLoggers.get(0) instanceof AsyncAuditLogger);
+      DummyAuditLogger.resetLogCount();
+
+      FileSystem fs = cluster.getFileSystem();
+      long time = System.currentTimeMillis();
+      fs.setTimes(new Path("/"), time, time);
+      GenericTestUtils.waitFor(() -> DummyAuditLogger.logCount == 1,
+          10, 10000);
+      assertEquals("setTimes", DummyAuditLogger.getLastCommand());
+      assertEquals(0,
+          cluster.getNameNode().getNamesystem().getNumDroppedAuditEvents());
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
+  /**
+   * Tests that audit events are not built when the default audit logger is
+   * dispatched asynchronously and the audit log is off.
+   */
+  @Test
+  public void testAsyncDispatchDisabledDefaultAuditLogger() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(DFS_NAMENODE_AUDIT_LOGGERS_ASYNC_DISPATCH_KEY, true);
+    conf.setBoolean(NNTOP_ENABLED_KEY, false);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).build();
+    Logger auditLog =
+        LoggerFactory.getLogger(FSNamesystem.class.getName() + ".audit");
+
+    try {
+      cluster.waitClusterUp();
+      FSNamesystem namesystem = cluster.getNameNode().getNamesystem();
+      assertTrue(namesystem.getAuditLoggers().get(0)
+          instanceof AsyncAuditLogger);
+      GenericTestUtils.setLogLevel(auditLog, Level.INFO);
+      assertTrue(namesystem.isAuditEnabled());
+      GenericTestUtils.setLogLevel(auditLog, Level.WARN);
+      assertFalse(namesystem.isAuditEnabled());
+    } finally {
+      GenericTestUtils.setLogLevel(auditLog, Level.INFO);
+      cluster.shutdown();
+    }
+  }
+
   /**
    * Tests that TopAuditLogger can be disabled
    */
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.top.profile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.util.Time;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestOpProfiler {
+
+  @Test
+  public void testPathPrefix() {
+    Assert.assertEquals("/user/alice",
+        OpProfiler.getPathPrefix("/user/alice/data/part-0", 2));
+    Assert.assertEquals("/user",
+        OpProfiler.getPathPrefix("/user/alice", 1));
+    Assert.assertEquals("/user/alice",
+        OpProfiler.getPathPrefix("/user/alice", 3));
+    Assert.assertEquals("/", OpProfiler.getPathPrefix("/tmp", 0));
+    Assert.assertEquals("", OpProfiler.getPathPrefix(null, 2));
+  }
+
+  @Test
+  public void testAttribution() {
+    OpProfiler profiler = new OpProfiler(100, 1, 2, 60000);
+    long now = Time.monotonicNow();
+    for (int i = 0; i < 5; i++) {
+      profiler.record(now, "alice", "listStatus", "/user/alice/d" + i,
+          TimeUnit.MICROSECONDS.toNanos(10), 0);
+    }
+    profiler.record(now, "bob", "create", "/user/bob/f",
+        TimeUnit.MICROSECONDS.toNanos(500), TimeUnit.MICROSECONDS.toNanos(7));
+
+    List<SpaceSavingSketch.Entry<OpProfiler.Key>> ops =
+        profiler.getCurrentTop(OpProfiler.Metric.OPS, 1);
+    Assert.assertEquals("alice", ops.get(0).getKey().getUser());
+    Assert.assertEquals("listStatus", ops.get(0).getKey().getOp());
+    Assert.assertEquals("/user/alice", ops.get(0).getKey().getPath());
+    Assert.assertEquals(5, ops.get(0).getWeight());
+
+    List<SpaceSavingSketch.Entry<OpProfiler.Key>> hold =
+        profiler.getCurrentTop(OpProfiler.Metric.LOCK_HOLD_MICROS, 2);
+    Assert.assertEquals("bob", hold.get(0).getKey().getUser());
+    Assert.assertEquals(500, hold.get(0).getWeight());
+    Assert.assertEquals(50, hold.get(1).getWeight());
+
+    List<SpaceSavingSketch.Entry<OpProfiler.Key>> wait =
+        profiler.getCurrentTop(OpProfiler.Metric.LOCK_WAIT_MICROS, 2);
+    Assert.assertEquals(1, wait.size());
+    Assert.assertEquals(7, wait.get(0).getWeight());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testWindowRoll() {
+    OpProfiler profiler = new OpProfiler(100, 1, 2, 60000);
+    long now = Time.monotonicNow();
+    profiler.record(now, "alice", "open", "/a", 0, 0);
+    profiler.record(now + 60001, "bob", "open", "/b", 0, 0);
+
+    Map<String, Object> report = profiler.getReport(10);
+    Assert.assertTrue(report.containsKey("previous"));
+    Map<String, Object> current = (Map<String, Object>) report.get("current");
+    Map<String, Object> currentOps = (Map<String, Object>) current.get("ops");
+    Assert.assertEquals(1L, currentOps.get("total"));
+    List<Map<String, Object>> top =
+        (List<Map<String, Object>>) currentOps.get("top");
+    Assert.assertEquals("bob", top.get(0).get("user"));
+  }
+}
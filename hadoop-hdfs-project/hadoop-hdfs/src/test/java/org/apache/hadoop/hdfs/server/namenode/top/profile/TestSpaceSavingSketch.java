@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.top.profile;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSpaceSavingSketch {
+
+  @Test
+  public void testExactBelowCapacity() {
+    SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(4);
+    sketch.offer("a", 5);
+    sketch.offer("b", 1);
+    sketch.offer("a", 2);
+    sketch.offer("c", 3);
+
+    List<SpaceSavingSketch.Entry<String>> top = sketch.getTop(10);
+    Assert.assertEquals(3, top.size());
+    Assert.assertEquals("a", top.get(0).getKey());
+    Assert.assertEquals(7, top.get(0).getWeight());
+    Assert.assertEquals(0, top.get(0).getError());
+    Assert.assertEquals("c", top.get(1).getKey());
+    Assert.assertEquals("b", top.get(2).getKey());
+    Assert.assertEquals(11, sketch.getTotal());
+  }
+
+  @Test
+  public void testEvictsLightestKey() {
+    SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+    sketch.offer("a", 10);
+    sketch.offer("b", 2);
+    sketch.offer("c", 1);
+
+    Assert.assertEquals(2, sketch.size());
+    List<SpaceSavingSketch.Entry<String>> top = sketch.getTop(2);
+    Assert.assertEquals("a", top.get(0).getKey());
+    Assert.assertEquals("c", top.get(1).getKey());
+    Assert.assertEquals("The newcomer must inherit the evicted weight",
+        3, top.get(1).getWeight());
+    Assert.assertEquals(2, top.get(1).getError());
+  }
+
+  @Test
+  public void testHeavyHittersSurviveNoise() {
+    SpaceSavingSketch<Integer> sketch = new SpaceSavingSketch<>(10);
+    for (int i = 0; i < 10000; i++) {
+      sketch.offer(i % 3 == 0 ? -1 : i, 1);
+    }
+    SpaceSavingSketch.Entry<Integer> top = sketch.getTop(1).get(0);
+    Assert.assertEquals(Integer.valueOf(-1), top.getKey());
+    Assert.assertTrue("Estimate must never underestimate the true weight",
+        top.getWeight() >= 3334);
+    Assert.assertTrue(top.getWeight() - top.getError() <= 3334);
+  }
+
+  @Test
+  public void testTopIsSnapshot() {
+    SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+    sketch.offer("a", 1);
+    List<SpaceSavingSketch.Entry<String>> top = sketch.getTop(1);
+    sketch.offer("a", 1);
+    Assert.assertEquals(1, top.get(0).getWeight());
+  }
+}
@@ -87,6 +87,7 @@ public class TaskAttemptListenerImpl extends CompositeService
   protected TaskHeartbeatHandler taskHeartbeatHandler;
   private RMHeartbeatHandler rmHeartbeatHandler;
   private long commitWindowMs;
+  private boolean reuseJVMs;
   private InetSocketAddress address;
   private ConcurrentMap<WrappedJvmID, org.apache.hadoop.mapred.Task>
     jvmIDToActiveAttemptMap
@@ -105,6 +106,10 @@ public class TaskAttemptListenerImpl extends CompositeService
   private Set<WrappedJvmID> launchedJVMs = Collections
       .newSetFromMap(new ConcurrentHashMap<WrappedJvmID, Boolean>());
 
+  // JVMs that wait for their next task once the current one is done
+  private Set<WrappedJvmID> reusableJVMs = Collections
+      .newSetFromMap(new ConcurrentHashMap<WrappedJvmID, Boolean>());
+
   private JobTokenSecretManager jobTokenSecretManager = null;
   private AMPreemptionPolicy preemptionPolicy;
   private byte[] encryptedSpillKey;
@@ -134,6 +139,7 @@ protected void serviceInit(Configuration conf) throws Exception {
     registerHeartbeatHandler(conf);
     commitWindowMs = conf.getLong(MRJobConfig.MR_AM_COMMIT_WINDOW_MS,
         MRJobConfig.DEFAULT_MR_AM_COMMIT_WINDOW_MS);
+    reuseJVMs = conf.getInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1) != 1;
     // initialize the delta threshold for logging the task progress.
     MRJobConfUtil.setTaskLogProgressDeltaThresholds(conf);
     super.serviceInit(conf);
@@ -511,11 +517,17 @@ public JvmTask getTask(JvmContext context) throws IOException {
     WrappedJvmID wJvmID = new WrappedJvmID(jvmId.getJobId(), jvmId.isMap,
         jvmId.getId());
 
-    // Try to look up the task. We remove it directly as we don't give
-    // multiple tasks to a JVM
+    // Try to look up the task. We remove it directly as a JVM is only given
+    // another task once the container was assigned to another attempt.
     if (!jvmIDToActiveAttemptMap.containsKey(wJvmID)) {
-      LOG.info("JVM with ID: " + jvmId + " is invalid and will be killed.");
-      jvmTask = TASK_FOR_INVALID_JVM;
+      if (reusableJVMs.contains(wJvmID)) {
+        jvmTask = null;
+        LOG.info("JVM with ID: " + jvmId
+            + " asking for task while waiting to be reused. Given null task");
+      } else {
+        LOG.info("JVM with ID: " + jvmId + " is invalid and will be killed.");
+        jvmTask = TASK_FOR_INVALID_JVM;
+      }
     } else {
       if (!launchedJVMs.contains(wJvmID)) {
         jvmTask = null;
@@ -528,6 +540,12 @@ public JvmTask getTask(JvmContext context) throws IOException {
         org.apache.hadoop.mapred.Task task =
             jvmIDToActiveAttemptMap.remove(wJvmID);
         launchedJVMs.remove(wJvmID);
+        // The JVM asks again when the task is done. It is kept waiting until
+        // the attempt either hands the container over to another attempt or
+        // declines to.
+        if (reuseJVMs) {
+          reusableJVMs.add(wJvmID);
+        }
         LOG.info("JVM with ID: " + jvmId + " given task: " + task.getTaskID());
         task.setEncryptedSpillKey(encryptedSpillKey);
         jvmTask = new JvmTask(task, false);
@@ -582,6 +600,11 @@ public void unregister(
     attemptIdToStatus.remove(attemptID);
   }
 
+  @Override
+  public void unregisterReusableJvm(WrappedJvmID jvmID) {
+    reusableJVMs.remove(jvmID);
+  }
+
   @Override
   public ProtocolSignature getProtocolSignature(String protocol,
       long clientVersion, int clientMethodsHash) throws IOException {
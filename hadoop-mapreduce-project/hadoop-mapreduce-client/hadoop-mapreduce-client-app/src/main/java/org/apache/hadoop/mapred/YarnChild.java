@@ -129,56 +129,74 @@ public TaskUmbilicalProtocol run() throws Exception {
     ScheduledExecutorService logSyncer = null;
 
     try {
-      int idleLoopCount = 0;
-      JvmTask myTask = null;
-      // poll for new task
-      for (int idle = 0; null == myTask; ++idle) {
-        long sleepTimeMilliSecs = Math.min(idle * 500, 1500);
-        LOG.info("Sleeping for " + sleepTimeMilliSecs
-            + "ms before retrying again. Got null now.");
-        MILLISECONDS.sleep(sleepTimeMilliSecs);
-        myTask = umbilical.getTask(context);
-      }
-      if (myTask.shouldDie()) {
-        return;
-      }
+      // -1 means the JVM runs as many tasks as the AM gives it
+      final int numTasksToRun = job.getNumTasksToExecutePerJvm();
+      for (int tasksRun = 0;
+          numTasksToRun < 0 || tasksRun < numTasksToRun; ++tasksRun) {
+        JvmTask myTask = null;
+        // poll for new task
+        for (int idle = 0; null == myTask; ++idle) {
+          long sleepTimeMilliSecs = Math.min(idle * 500, 1500);
+          LOG.info("Sleeping for " + sleepTimeMilliSecs
+              + "ms before retrying again. Got null now.");
+          MILLISECONDS.sleep(sleepTimeMilliSecs);
+          myTask = umbilical.getTask(context);
+        }
+        if (myTask.shouldDie()) {
+          return;
+        }
 
-      task = myTask.getTask();
-      YarnChild.taskid = task.getTaskID();
+        task = myTask.getTask();
+        YarnChild.taskid = task.getTaskID();
+        if (tasksRun > 0) {
+          // the file system counters of the JVM add up across its tasks
+          FileSystem.clearStatistics();
+        }
 
-      // Create the job-conf and set credentials
-      configureTask(job, task, credentials, jt);
+        // Create the job-conf and set credentials. Every task localizes a
+        // copy of its own.
+        final JobConf taskJob = new JobConf(job);
+        configureTask(taskJob, task, credentials, jt);
 
-      // log the system properties
-      String systemPropsToLog = MRApps.getSystemPropertiesToLog(job);
-      if (systemPropsToLog != null) {
-        LOG.info(systemPropsToLog);
-      }
+        if (tasksRun == 0) {
+          // log the system properties
+          String systemPropsToLog = MRApps.getSystemPropertiesToLog(taskJob);
+          if (systemPropsToLog != null) {
+            LOG.info(systemPropsToLog);
+          }
+
+          // Initiate Java VM metrics
+          JvmMetrics.initSingleton(jvmId.toString(), taskJob.getSessionId());
+          childUGI = UserGroupInformation.createRemoteUser(System
+              .getenv(ApplicationConstants.Environment.USER.toString()));
+          // Add tokens to new user so that it may execute its task correctly.
+          childUGI.addCredentials(credentials);
+
+          // set job classloader if configured before invoking the task, the
+          // confs of the later tasks are copied with it
+          MRApps.setJobClassLoader(taskJob);
+          job.setClassLoader(taskJob.getClassLoader());
 
-      // Initiate Java VM metrics
-      JvmMetrics.initSingleton(jvmId.toString(), job.getSessionId());
-      childUGI = UserGroupInformation.createRemoteUser(System
-          .getenv(ApplicationConstants.Environment.USER.toString()));
-      // Add tokens to new user so that it may execute its task correctly.
-      childUGI.addCredentials(credentials);
-
-      // set job classloader if configured before invoking the task
-      MRApps.setJobClassLoader(job);
-
-      logSyncer = TaskLog.createLogSyncer();
-
-      // Create a final reference to the task for the doAs block
-      final Task taskFinal = task;
-      childUGI.doAs(new PrivilegedExceptionAction<Object>() {
-        @Override
-        public Object run() throws Exception {
-          // use job-specified working directory
-          setEncryptedSpillKeyIfRequired(taskFinal);
-          FileSystem.get(job).setWorkingDirectory(job.getWorkingDirectory());
-          taskFinal.run(job, umbilical); // run the task
-          return null;
+          logSyncer = TaskLog.createLogSyncer();
         }
-      });
+
+        // Create a final reference to the task for the doAs block
+        final Task taskFinal = task;
+        childUGI.doAs(new PrivilegedExceptionAction<Object>() {
+          @Override
+          public Object run() throws Exception {
+            // use job-specified working directory
+            setEncryptedSpillKeyIfRequired(taskFinal);
+            FileSystem.get(taskJob).setWorkingDirectory(
+                taskJob.getWorkingDirectory());
+            taskFinal.run(taskJob, umbilical); // run the task
+            return null;
+          }
+        });
+        // the task is done, nothing to clean up or report if polling fails
+        task = null;
+        YarnChild.taskid = null;
+      }
     } catch (FSError e) {
       LOG.error("FSError from child", e);
       if (!ShutdownHookManager.get().isShutdownInProgress()) {
@@ -57,4 +57,12 @@ public interface TaskAttemptListener {
    */
   void unregister(TaskAttemptId attemptID, WrappedJvmID jvmID);
 
+  /**
+   * Tell a JVM that waits for another task after its attempt is done to exit,
+   * as its container is not going to be reused.
+   * @param jvmID the ID of the JVM.
+   */
+  default void unregisterReusableJvm(WrappedJvmID jvmID) {
+  }
+
 }
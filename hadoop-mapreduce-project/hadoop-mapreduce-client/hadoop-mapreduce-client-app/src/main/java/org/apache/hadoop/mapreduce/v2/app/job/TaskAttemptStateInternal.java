@@ -48,6 +48,18 @@ public enum TaskAttemptStateInternal {
   // notification from YARN.
   SUCCESS_FINISHING_CONTAINER,
 
+  // Transition into SUCCESS_CONTAINER_REUSING
+  // Instead of SUCCESS_FINISHING_CONTAINER when the JVM may run another
+  // task; the allocator is asked whether it has one for the container.
+
+  // Transition out of SUCCESS_CONTAINER_REUSING
+  // The attempt will transition to SUCCEEDED once the container is handed
+  // over to another attempt, or to SUCCESS_FINISHING_CONTAINER if the
+  // allocator declines it. The container is no longer the attempt's to
+  // clean up after the handoff, so events that would do so are held back
+  // until the allocator has answered.
+  SUCCESS_CONTAINER_REUSING,
+
   // Transition into FAIL_FINISHING_CONTAINER
   // After the attempt fails from
   // TaskUmbilicalProtocol's point of view, it will transition to
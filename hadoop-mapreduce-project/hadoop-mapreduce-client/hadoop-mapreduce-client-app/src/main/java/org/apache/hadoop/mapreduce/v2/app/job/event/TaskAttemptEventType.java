@@ -34,6 +34,8 @@ public enum TaskAttemptEventType {
   //Producer:ContainerAllocator
   TA_ASSIGNED,
   TA_CONTAINER_COMPLETED,
+  TA_CONTAINER_REUSED,
+  TA_CONTAINER_REUSE_DECLINED,
 
   //Producer:ContainerLauncher
   TA_CONTAINER_LAUNCHED,
@@ -83,6 +83,7 @@
 import org.apache.hadoop.mapreduce.v2.app.AppContext;
 import org.apache.hadoop.mapreduce.v2.app.TaskAttemptListener;
 import org.apache.hadoop.mapreduce.v2.app.commit.CommitterTaskAbortEvent;
+import org.apache.hadoop.mapreduce.v2.app.job.Job;
 import org.apache.hadoop.mapreduce.v2.app.job.TaskAttemptStateInternal;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobCounterUpdateEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobDiagnosticsUpdateEvent;
@@ -200,6 +201,8 @@ public abstract class TaskAttemptImpl implements
   private Avataar avataar;
   private boolean rescheduleNextAttempt = false;
   private boolean failFast = false;
+  private final List<TaskAttemptEvent> eventsHeldForReuse =
+      new ArrayList<TaskAttemptEvent>();
 
   private static final CleanupContainerTransition
       CLEANUP_CONTAINER_TRANSITION = new CleanupContainerTransition();
@@ -235,7 +238,9 @@ public abstract class TaskAttemptImpl implements
       TaskAttemptEventType.TA_FAILMSG,
       TaskAttemptEventType.TA_FAILMSG_BY_CLIENT,
       TaskAttemptEventType.TA_TIMED_OUT,
-      TaskAttemptEventType.TA_TOO_MANY_FETCH_FAILURE);
+      TaskAttemptEventType.TA_TOO_MANY_FETCH_FAILURE,
+      TaskAttemptEventType.TA_CONTAINER_REUSED,
+      TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED);
 
   private static final StateMachineFactory
         <TaskAttemptImpl, TaskAttemptStateInternal, TaskAttemptEventType, TaskAttemptEvent>
@@ -312,7 +317,8 @@ TaskAttemptEventType.TA_UPDATE, new StatusUpdater())
      // If no commit is required, task goes to finishing state
      // This will give a chance for the container to exit by itself
      .addTransition(TaskAttemptStateInternal.RUNNING,
-         TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
+         EnumSet.of(TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
+             TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING),
          TaskAttemptEventType.TA_DONE, SUCCEEDED_FINISHING_TRANSITION)
      // If commit is required, task goes through commit pending state.
      .addTransition(TaskAttemptStateInternal.RUNNING,
@@ -367,6 +373,8 @@ TaskAttemptEventType.TA_PREEMPTED, new PreemptedTransition())
          TaskAttemptStateInternal.SUCCEEDED,
          TaskAttemptEventType.TA_CONTAINER_CLEANED,
          new ExitFinishingOnContainerCleanedupTransition())
+     // The container was handed over to another attempt of the same type,
+     // the JVM goes on running that one.
      // The client wants to kill the task. Given the task is in finishing
      // state, it could go to succeeded state or killed state. If it is a
      // reducer, it will go to succeeded state;
@@ -398,6 +406,42 @@ TaskAttemptEventType.TA_PREEMPTED, new PreemptedTransition())
              TaskAttemptEventType.TA_FAILMSG,
              TaskAttemptEventType.TA_FAILMSG_BY_CLIENT))
 
+     // Transitions from SUCCESS_CONTAINER_REUSING state
+     // The container was handed over to another attempt of the same type,
+     // the JVM goes on running that one.
+     .addTransition(TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         TaskAttemptStateInternal.SUCCEEDED,
+         TaskAttemptEventType.TA_CONTAINER_REUSED,
+         new ContainerReusedTransition())
+     // No attempt could use the container, let the JVM exit by itself.
+     .addTransition(TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
+         TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED,
+         new ContainerReuseDeclinedTransition())
+     // Until the allocator answers, the attempt cannot tell whether the
+     // container is still its own. Hold back the events that would clean
+     // it up, they are replayed in the state the answer leads to.
+     .addTransition(TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         EnumSet.of(TaskAttemptEventType.TA_KILL,
+             TaskAttemptEventType.TA_TIMED_OUT,
+             TaskAttemptEventType.TA_CONTAINER_COMPLETED,
+             TaskAttemptEventType.TA_CONTAINER_CLEANED,
+             TaskAttemptEventType.TA_TOO_MANY_FETCH_FAILURE),
+         new HoldForContainerReuseTransition())
+     .addTransition(TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         TaskAttemptEventType.TA_DIAGNOSTICS_UPDATE,
+         DIAGNOSTIC_INFORMATION_UPDATE_TRANSITION)
+     // ignore-able events
+     .addTransition(TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING,
+         EnumSet.of(TaskAttemptEventType.TA_UPDATE,
+             TaskAttemptEventType.TA_DONE,
+             TaskAttemptEventType.TA_COMMIT_PENDING,
+             TaskAttemptEventType.TA_FAILMSG,
+             TaskAttemptEventType.TA_FAILMSG_BY_CLIENT))
+
      // Transitions from FAIL_FINISHING_CONTAINER state
      // When the container exits by itself, the notification of container
      // completed event will be routed via NM -> RM -> AM.
@@ -444,7 +488,8 @@ TaskAttemptEventType.TA_PREEMPTED, new PreemptedTransition())
          TaskAttemptEventType.TA_DIAGNOSTICS_UPDATE,
          DIAGNOSTIC_INFORMATION_UPDATE_TRANSITION)
      .addTransition(TaskAttemptStateInternal.COMMIT_PENDING,
-         TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
+         EnumSet.of(TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
+             TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING),
          TaskAttemptEventType.TA_DONE, SUCCEEDED_FINISHING_TRANSITION)
      .addTransition(TaskAttemptStateInternal.COMMIT_PENDING,
          TaskAttemptStateInternal.KILL_CONTAINER_CLEANUP,
@@ -499,7 +544,9 @@ TaskAttemptEventType.TA_CONTAINER_CLEANED, new KilledTransition())
              TaskAttemptEventType.TA_FAILMSG,
              TaskAttemptEventType.TA_FAILMSG_BY_CLIENT,
              TaskAttemptEventType.TA_TIMED_OUT,
-             TaskAttemptEventType.TA_CONTAINER_COMPLETED))
+             TaskAttemptEventType.TA_CONTAINER_COMPLETED,
+             TaskAttemptEventType.TA_CONTAINER_REUSED,
+             TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED))
 
      // Transitions from FAIL_CONTAINER_CLEANUP state.
      .addTransition(TaskAttemptStateInternal.FAIL_CONTAINER_CLEANUP,
@@ -545,7 +592,9 @@ TaskAttemptEventType.TA_CONTAINER_CLEANED, new TaskCleanupTransition())
              TaskAttemptEventType.TA_DONE,
              TaskAttemptEventType.TA_FAILMSG,
              TaskAttemptEventType.TA_FAILMSG_BY_CLIENT,
-             TaskAttemptEventType.TA_TIMED_OUT))
+             TaskAttemptEventType.TA_TIMED_OUT,
+             TaskAttemptEventType.TA_CONTAINER_REUSED,
+             TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED))
 
      // Transitions from FAIL_TASK_CLEANUP
      // run the task cleanup
@@ -593,7 +642,9 @@ TaskAttemptEventType.TA_CONTAINER_CLEANED, new TaskCleanupTransition())
              TaskAttemptEventType.TA_PREEMPTED,
              // Container launch events can arrive late
              TaskAttemptEventType.TA_CONTAINER_LAUNCHED,
-             TaskAttemptEventType.TA_CONTAINER_LAUNCH_FAILED))
+             TaskAttemptEventType.TA_CONTAINER_LAUNCH_FAILED,
+             TaskAttemptEventType.TA_CONTAINER_REUSED,
+             TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED))
 
       // Transitions from SUCCEEDED
      .addTransition(TaskAttemptStateInternal.SUCCEEDED, //only possible for map attempts
@@ -617,7 +668,9 @@ TaskAttemptEventType.TA_CONTAINER_CLEANED, new TaskCleanupTransition())
              // after the attempt receives TA_CONTAINER_COMPLETED.
              TaskAttemptEventType.TA_TIMED_OUT,
              TaskAttemptEventType.TA_CONTAINER_CLEANED,
-             TaskAttemptEventType.TA_CONTAINER_COMPLETED))
+             TaskAttemptEventType.TA_CONTAINER_COMPLETED,
+             TaskAttemptEventType.TA_CONTAINER_REUSED,
+             TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED))
 
      // Transitions from FAILED state
      .addTransition(TaskAttemptStateInternal.FAILED, TaskAttemptStateInternal.FAILED,
@@ -1441,6 +1494,18 @@ public void setTaskFailFast(boolean failFast) {
   public boolean isTaskFailFast() {
     return failFast;
   }
+
+  /**
+   * Whether the JVM of the attempt may run another task once this one is
+   * done. Uber tasks all run in the AM, they have no JVM of their own.
+   */
+  private boolean isContainerReusable() {
+    if (jvmID == null || conf.getInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1) == 1) {
+      return false;
+    }
+    Job job = appContext.getJob(attemptId.getTaskId().getJobId());
+    return job != null && !job.isUber();
+  }
   
   @SuppressWarnings("unchecked")
   public TaskAttemptStateInternal recover(TaskAttemptInfo taInfo,
@@ -1564,6 +1629,7 @@ protected static TaskAttemptState getExternalState(
       return TaskAttemptState.NEW;
     case SUCCESS_CONTAINER_CLEANUP:
     case SUCCESS_FINISHING_CONTAINER:
+    case SUCCESS_CONTAINER_REUSING:
     case SUCCEEDED:
       return TaskAttemptState.SUCCEEDED;
     default:
@@ -2071,6 +2137,49 @@ public void transition(TaskAttemptImpl taskAttempt,
     }
   }
 
+  private static class HoldForContainerReuseTransition implements
+      SingleArcTransition<TaskAttemptImpl, TaskAttemptEvent> {
+    @Override
+    public void transition(TaskAttemptImpl taskAttempt,
+        TaskAttemptEvent event) {
+      LOG.info("Holding back " + event.getType() + " for "
+          + taskAttempt.attemptId + " until its container is reused or not");
+      taskAttempt.eventsHeldForReuse.add(event);
+    }
+  }
+
+  private static class ContainerReusedTransition implements
+      SingleArcTransition<TaskAttemptImpl, TaskAttemptEvent> {
+    @Override
+    public void transition(TaskAttemptImpl taskAttempt,
+        TaskAttemptEvent event) {
+      taskAttempt.appContext.getTaskAttemptFinishingMonitor().unregister(
+          taskAttempt.attemptId);
+      // the container belongs to the new attempt now, none of the held
+      // events may clean it up and SUCCEEDED does not
+      taskAttempt.replayEventsHeldForReuse();
+    }
+  }
+
+  private static class ContainerReuseDeclinedTransition implements
+      SingleArcTransition<TaskAttemptImpl, TaskAttemptEvent> {
+    @Override
+    public void transition(TaskAttemptImpl taskAttempt,
+        TaskAttemptEvent event) {
+      taskAttempt.taskAttemptListener.unregisterReusableJvm(
+          taskAttempt.jvmID);
+      taskAttempt.replayEventsHeldForReuse();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void replayEventsHeldForReuse() {
+    for (TaskAttemptEvent event : eventsHeldForReuse) {
+      eventHandler.handle(event);
+    }
+    eventsHeldForReuse.clear();
+  }
+
   private static class FailedTransition implements
       SingleArcTransition<TaskAttemptImpl, TaskAttemptEvent> {
 
@@ -2410,13 +2519,15 @@ private static void sendContainerCleanup(TaskAttemptImpl taskAttempt,
   }
 
   /**
-   * Transition to SUCCESS_FINISHING_CONTAINER upon receiving TA_DONE event
+   * Transition to SUCCESS_FINISHING_CONTAINER upon receiving TA_DONE event,
+   * or to SUCCESS_CONTAINER_REUSING if the JVM may run another task
    */
   private static class MoveContainerToSucceededFinishingTransition implements
-      SingleArcTransition<TaskAttemptImpl, TaskAttemptEvent> {
+      MultipleArcTransition<TaskAttemptImpl, TaskAttemptEvent,
+      TaskAttemptStateInternal> {
     @SuppressWarnings("unchecked")
     @Override
-    public void transition(TaskAttemptImpl taskAttempt,
+    public TaskAttemptStateInternal transition(TaskAttemptImpl taskAttempt,
         TaskAttemptEvent event) {
       finalizeProgress(taskAttempt);
 
@@ -2440,6 +2551,14 @@ public void transition(TaskAttemptImpl taskAttempt,
           (new SpeculatorEvent
               (taskAttempt.reportedStatus, taskAttempt.clock.getTime()));
 
+      // the JVM waits for another task, see if the allocator has one for it
+      if (taskAttempt.isContainerReusable()) {
+        taskAttempt.eventHandler.handle(new ContainerAllocatorEvent(
+            taskAttempt.attemptId,
+            ContainerAllocator.EventType.CONTAINER_REUSE));
+        return TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING;
+      }
+      return TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER;
     }
   }
 
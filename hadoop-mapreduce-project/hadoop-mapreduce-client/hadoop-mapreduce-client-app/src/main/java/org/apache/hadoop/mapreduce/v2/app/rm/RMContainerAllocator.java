@@ -44,10 +44,13 @@
 import org.apache.hadoop.mapreduce.jobhistory.NormalizedResourceEvent;
 import org.apache.hadoop.mapreduce.v2.api.records.JobId;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptState;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskType;
 import org.apache.hadoop.mapreduce.v2.app.AppContext;
 import org.apache.hadoop.mapreduce.v2.app.MRAppMaster;
 import org.apache.hadoop.mapreduce.v2.app.client.ClientService;
+import org.apache.hadoop.mapreduce.v2.app.job.Task;
+import org.apache.hadoop.mapreduce.v2.app.job.TaskAttempt;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobCounterUpdateEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobDiagnosticsUpdateEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobEvent;
@@ -178,6 +181,11 @@ added to the pending and are ramped up (added to scheduled) based
   private float reduceSlowStart = 0;
   private int maxRunningMaps = 0;
   private int maxRunningReduces = 0;
+  // tasks a container may run, -1 for no limit
+  private int maxTasksPerContainer = 1;
+  // tasks run by the containers that have been reused
+  private final Map<ContainerId, Integer> containerTaskCounts =
+      new HashMap<ContainerId, Integer>();
   private long retryInterval;
   private long retrystartTime;
   private Clock clock;
@@ -229,6 +237,7 @@ protected void serviceInit(Configuration conf) throws Exception {
         MRJobConfig.DEFAULT_JOB_RUNNING_MAP_LIMIT);
     maxRunningReduces = conf.getInt(MRJobConfig.JOB_RUNNING_REDUCE_LIMIT,
         MRJobConfig.DEFAULT_JOB_RUNNING_REDUCE_LIMIT);
+    maxTasksPerContainer = conf.getInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1);
     RackResolver.init(conf);
     retryInterval = getConfig().getLong(MRJobConfig.MR_AM_TO_RM_WAIT_INTERVAL_MS,
                                 MRJobConfig.DEFAULT_MR_AM_TO_RM_WAIT_INTERVAL_MS);
@@ -415,7 +424,58 @@ protected synchronized void handleEvent(ContainerAllocatorEvent event) {
       // propagate failures to preemption policy to discard checkpoints for
       // failed tasks
       preemptionPolicy.handleFailedContainer(event.getAttemptID());
+    } else if (
+        event.getType() == ContainerAllocator.EventType.CONTAINER_REUSE) {
+      handleContainerReuse(event.getAttemptID());
+    }
+  }
+
+  /**
+   * Hand the container of a succeeded attempt, whose JVM waits for another
+   * task, over to a scheduled attempt of the same type. The finished attempt
+   * is told whether its container was reused, if not the JVM exits and the
+   * container completes as usual.
+   */
+  @SuppressWarnings("unchecked")
+  private void handleContainerReuse(TaskAttemptId aId) {
+    Container container = assignedRequests.getContainer(aId);
+    if (container != null && canReuse(aId, container)) {
+      ContainerId containerId = container.getId();
+      Integer tasks = containerTaskCounts.get(containerId);
+      ContainerRequest assigned = scheduledRequests.reuse(container,
+          aId.getTaskId().getTaskType());
+      if (assigned != null) {
+        assignedRequests.remove(aId);
+        scheduledRequests.containerAssigned(container, assigned);
+        containerTaskCounts.put(containerId, tasks == null ? 2 : tasks + 1);
+        LOG.info("Reusing container " + containerId + " of " + aId
+            + " for " + assigned.attemptID);
+        eventHandler.handle(new TaskAttemptEvent(aId,
+            TaskAttemptEventType.TA_CONTAINER_REUSED));
+        return;
+      }
+    }
+    eventHandler.handle(new TaskAttemptEvent(aId,
+        TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED));
+  }
+
+  private boolean canReuse(TaskAttemptId aId, Container container) {
+    if (maxTasksPerContainer == 1) {
+      return false;
+    }
+    Integer tasks = containerTaskCounts.get(container.getId());
+    if (maxTasksPerContainer > 0 && tasks != null
+        && tasks >= maxTasksPerContainer) {
+      return false;
+    }
+    if (isNodeBlacklisted(container.getNodeId().getHost())) {
+      return false;
     }
+    // the attempt holds back kills until it has the answer, this is only
+    // a sanity check
+    Task task = getJob().getTask(aId.getTaskId());
+    TaskAttempt attempt = task == null ? null : task.getAttempt(aId);
+    return attempt != null && attempt.getState() == TaskAttemptState.SUCCEEDED;
   }
 
   @SuppressWarnings({ "unchecked" })
@@ -902,6 +962,7 @@ void processFinishedContainer(ContainerStatus container) {
     } else {
       pendingRelease.remove(container.getContainerId());
       assignedRequests.remove(attemptID);
+      containerTaskCounts.remove(container.getContainerId());
 
       // Send the diagnostics
       String diagnostic = StringInterner.weakIntern(container.getDiagnostics());
@@ -1367,6 +1428,58 @@ else if (PRIORITY_REDUCE.equals(priority)) {
     }
     
     
+    /**
+     * Find a scheduled request of the same type for a container that runs
+     * a finished attempt. The running attempts do not change in number, so
+     * the limits on them do not apply.
+     */
+    @SuppressWarnings("unchecked")
+    private ContainerRequest reuse(Container container, TaskType type) {
+      if (type == TaskType.REDUCE) {
+        if (reduces.isEmpty()) {
+          return null;
+        }
+        return reduces.remove(reduces.keySet().iterator().next());
+      }
+
+      ContainerRequest assigned = removeFirstMap(earlierFailedMaps);
+      JobCounter locality = JobCounter.OTHER_LOCAL_MAPS;
+      if (assigned == null) {
+        String host = container.getNodeId().getHost();
+        assigned = removeFirstMap(mapsHostMapping.get(host));
+        if (assigned != null) {
+          locality = JobCounter.DATA_LOCAL_MAPS;
+          hostLocalAssigned++;
+        } else {
+          String rack = RackResolver.resolve(host).getNetworkLocation();
+          assigned = removeFirstMap(mapsRackMapping.get(rack));
+          if (assigned != null) {
+            locality = JobCounter.RACK_LOCAL_MAPS;
+            rackLocalAssigned++;
+          } else if (!maps.isEmpty()) {
+            assigned = maps.remove(maps.keySet().iterator().next());
+          }
+        }
+      }
+      if (assigned != null) {
+        JobCounterUpdateEvent jce =
+            new JobCounterUpdateEvent(assigned.attemptID.getTaskId().getJobId());
+        jce.addCounterUpdate(locality, 1);
+        eventHandler.handle(jce);
+      }
+      return assigned;
+    }
+
+    private ContainerRequest removeFirstMap(LinkedList<TaskAttemptId> list) {
+      while (list != null && list.size() > 0) {
+        TaskAttemptId tId = list.removeFirst();
+        if (maps.containsKey(tId)) {
+          return maps.remove(tId);
+        }
+      }
+      return null;
+    }
+
     @SuppressWarnings("unchecked")
     private ContainerRequest assignToFailedMap(Container allocated) {
       //try to assign to earlierFailedMaps if present
@@ -1566,12 +1679,7 @@ TaskAttemptId get(ContainerId cId) {
     }
 
     ContainerId get(TaskAttemptId tId) {
-      Container taskContainer;
-      if (tId.getTaskId().getTaskType().equals(TaskType.MAP)) {
-        taskContainer = maps.get(tId);
-      } else {
-        taskContainer = reduces.get(tId);
-      }
+      Container taskContainer = getContainer(tId);
 
       if (taskContainer == null) {
         return null;
@@ -1579,6 +1687,14 @@ ContainerId get(TaskAttemptId tId) {
         return taskContainer.getId();
       }
     }
+
+    Container getContainer(TaskAttemptId tId) {
+      if (tId.getTaskId().getTaskType().equals(TaskType.MAP)) {
+        return maps.get(tId);
+      } else {
+        return reduces.get(tId);
+      }
+    }
   }
 
   private class ScheduleStats {
@@ -42,6 +42,14 @@ public synchronized void add(final double newNum) {
     this.sumSquares += newNum * newNum;
   }
 
+  public synchronized void remove(final double oldNum) {
+    if (count > 0) {
+      this.count--;
+      this.sum -= oldNum;
+      this.sumSquares -= oldNum * oldNum;
+    }
+  }
+
   public synchronized void updateStatistics(final double old,
       final double update) {
     this.sum += update - old;
@@ -0,0 +1,335 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.v2.app.speculate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.v2.api.records.JobId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptState;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskType;
+import org.apache.hadoop.mapreduce.v2.app.AppContext;
+import org.apache.hadoop.mapreduce.v2.app.job.Job;
+import org.apache.hadoop.mapreduce.v2.app.job.Task;
+import org.apache.hadoop.mapreduce.v2.app.job.TaskAttempt;
+import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptStatusUpdateEvent.TaskAttemptStatus;
+import org.apache.hadoop.yarn.api.records.NodeId;
+
+import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Estimates runtimes from the throughput of the attempts, their progress per
+ * millisecond, and models the throughput of the nodes they run on.
+ * <p>
+ * A task is only worth speculating if the throughput of its attempt is an
+ * outlier among the attempts of the same type, i.e. lower than their average
+ * by more than {@link MRJobConfig#SPECULATIVE_SLOWTASK_THRESHOLD} standard
+ * deviations, or if it runs on a degraded node, one whose finished attempts
+ * were outliers on average. Tasks on nodes that are only a little slower than
+ * the rest are left alone. New attempts are expected to run at the throughput
+ * of the nodes that are not degraded.
+ */
+public class NodeThroughputTaskRuntimeEstimator extends StartEndTimesBase {
+
+  private static final long DEFAULT_ESTIMATE_RUNTIME = -1L;
+
+  private final ConcurrentMap<TaskAttemptId, AttemptThroughput> attempts
+      = new ConcurrentHashMap<TaskAttemptId, AttemptThroughput>();
+
+  private final Map<Job, ThroughputModel> mapperModels
+      = new HashMap<Job, ThroughputModel>();
+  private final Map<Job, ThroughputModel> reducerModels
+      = new HashMap<Job, ThroughputModel>();
+
+  private float slowTaskThreshold;
+  private int minNodeSamples;
+
+  /**
+   * The throughput of the attempts of one type of tasks of a job.
+   */
+  private static class ThroughputModel {
+    // the running and the finished attempts
+    private final DataStatistics attempts = new DataStatistics();
+    // the finished attempts, by node
+    private final ConcurrentMap<String, DataStatistics> nodes
+        = new ConcurrentHashMap<String, DataStatistics>();
+    private volatile Set<String> degradedNodes = Collections.emptySet();
+    private volatile double healthyThroughput = 0.0;
+
+    double cutoff(float sigma) {
+      return attempts.mean() - sigma * attempts.std();
+    }
+
+    synchronized void addFinished(String node, double throughput,
+        float sigma, int minNodeSamples) {
+      DataStatistics statistics = nodes.get(node);
+      if (statistics == null) {
+        statistics = new DataStatistics();
+        nodes.put(node, statistics);
+      }
+      statistics.add(throughput);
+
+      // The distribution of the attempts moves with every report, so the
+      // nodes are only classified when one of them finishes an attempt.
+      final double cutoff = cutoff(sigma);
+      final Set<String> degraded = new HashSet<String>();
+      double sum = 0.0;
+      double count = 0.0;
+      for (Map.Entry<String, DataStatistics> entry : nodes.entrySet()) {
+        DataStatistics finished = entry.getValue();
+        if (finished.count() >= minNodeSamples && finished.mean() < cutoff) {
+          degraded.add(entry.getKey());
+        } else {
+          sum += finished.mean() * finished.count();
+          count += finished.count();
+        }
+      }
+      degradedNodes = Collections.unmodifiableSet(degraded);
+      healthyThroughput = count == 0.0 ? 0.0 : sum / count;
+    }
+  }
+
+  /**
+   * The latest throughput of an attempt, as counted in its model.
+   */
+  private static class AttemptThroughput {
+    private final ThroughputModel model;
+    private String node = null;
+    private double throughput = -1.0;
+    private boolean finished = false;
+
+    AttemptThroughput(ThroughputModel model) {
+      this.model = model;
+    }
+
+    void update(double newThroughput) {
+      if (throughput < 0.0) {
+        model.attempts.add(newThroughput);
+      } else {
+        model.attempts.updateStatistics(throughput, newThroughput);
+      }
+      throughput = newThroughput;
+    }
+
+    void remove() {
+      if (throughput >= 0.0) {
+        model.attempts.remove(throughput);
+        throughput = -1.0;
+      }
+    }
+  }
+
+  @Override
+  public void contextualize(Configuration conf, AppContext context) {
+    super.contextualize(conf, context);
+
+    slowTaskThreshold
+        = conf.getFloat(MRJobConfig.SPECULATIVE_SLOWTASK_THRESHOLD, 1.0f);
+    minNodeSamples = conf.getInt(
+        MRJobConfig.MR_AM_TASK_ESTIMATOR_NODE_THROUGHPUT_MIN_SAMPLES,
+        MRJobConfig.DEFAULT_MR_AM_TASK_ESTIMATOR_NODE_THROUGHPUT_MIN_SAMPLES);
+
+    for (Job job : context.getAllJobs().values()) {
+      mapperModels.put(job, new ThroughputModel());
+      reducerModels.put(job, new ThroughputModel());
+    }
+  }
+
+  private ThroughputModel modelForTask(TaskId taskID) {
+    Job job = context.getJob(taskID.getJobId());
+
+    if (job == null) {
+      return null;
+    }
+
+    return taskID.getTaskType() == TaskType.MAP
+        ? mapperModels.get(job)
+        : taskID.getTaskType() == TaskType.REDUCE
+            ? reducerModels.get(job)
+            : null;
+  }
+
+  @Override
+  public void updateAttempt(TaskAttemptStatus status, long timestamp) {
+    super.updateAttempt(status, timestamp);
+
+    TaskAttemptId attemptID = status.id;
+    TaskId taskID = attemptID.getTaskId();
+    JobId jobID = taskID.getJobId();
+    Job job = context.getJob(jobID);
+
+    if (job == null) {
+      return;
+    }
+
+    Task task = job.getTask(taskID);
+
+    if (task == null) {
+      return;
+    }
+
+    TaskAttempt taskAttempt = task.getAttempt(attemptID);
+    ThroughputModel model = modelForTask(taskID);
+    Long start = startTimes.get(attemptID);
+
+    if (taskAttempt == null || model == null || start == null) {
+      return;
+    }
+
+    AttemptThroughput entry = attempts.get(attemptID);
+    if (entry == null) {
+      attempts.putIfAbsent(attemptID, new AttemptThroughput(model));
+      entry = attempts.get(attemptID);
+    }
+
+    synchronized (entry) {
+      if (entry.finished) {
+        return;
+      }
+      if (entry.node == null) {
+        NodeId nodeId = taskAttempt.getNodeId();
+        if (nodeId != null) {
+          entry.node = nodeId.getHost();
+        }
+      }
+
+      TaskAttemptState state = taskAttempt.getState();
+      long elapsed = timestamp - start;
+
+      if (state == TaskAttemptState.SUCCEEDED) {
+        entry.finished = true;
+        if (elapsed > 0L) {
+          entry.update(1.0 / elapsed);
+          if (entry.node != null) {
+            model.addFinished(entry.node, entry.throughput,
+                slowTaskThreshold, minNodeSamples);
+          }
+        }
+      } else if (state == TaskAttemptState.FAILED
+          || state == TaskAttemptState.KILLED) {
+        // a lost attempt says nothing about the throughput of the others
+        entry.finished = true;
+        entry.remove();
+      } else if (status.progress > 0.0F && elapsed > 0L) {
+        entry.update(Math.min(status.progress, 1.0F) / elapsed);
+      }
+    }
+  }
+
+  @Override
+  public long thresholdRuntime(TaskId taskID) {
+    long threshold = super.thresholdRuntime(taskID);
+
+    if (threshold == Long.MAX_VALUE) {
+      return threshold;
+    }
+
+    Task task = context.getJob(taskID.getJobId()).getTask(taskID);
+    ThroughputModel model = modelForTask(taskID);
+
+    if (task == null || model == null) {
+      return Long.MAX_VALUE;
+    }
+
+    for (TaskAttemptId attemptID : task.getAttempts().keySet()) {
+      if (isStraggler(attemptID, model)) {
+        return threshold;
+      }
+    }
+
+    return Long.MAX_VALUE;
+  }
+
+  private boolean isStraggler(TaskAttemptId attemptID,
+      ThroughputModel model) {
+    AttemptThroughput entry = attempts.get(attemptID);
+
+    if (entry == null) {
+      return false;
+    }
+
+    synchronized (entry) {
+      if (entry.finished || entry.throughput < 0.0) {
+        return false;
+      }
+      if (entry.node != null && model.degradedNodes.contains(entry.node)) {
+        return true;
+      }
+      return entry.throughput < model.cutoff(slowTaskThreshold);
+    }
+  }
+
+  @VisibleForTesting
+  public Set<String> getDegradedNodes(TaskType type) {
+    for (Job job : context.getAllJobs().values()) {
+      ThroughputModel model
+          = (type == TaskType.MAP ? mapperModels : reducerModels).get(job);
+      if (model != null) {
+        return model.degradedNodes;
+      }
+    }
+    return Collections.emptySet();
+  }
+
+  @Override
+  public long estimatedRuntime(TaskAttemptId id) {
+    AttemptThroughput entry = attempts.get(id);
+
+    if (entry == null) {
+      return DEFAULT_ESTIMATE_RUNTIME;
+    }
+
+    synchronized (entry) {
+      if (entry.throughput <= 0.0) {
+        return DEFAULT_ESTIMATE_RUNTIME;
+      }
+      // the whole of the work at the current throughput
+      return (long) (1.0 / entry.throughput);
+    }
+  }
+
+  @Override
+  public long estimatedNewAttemptRuntime(TaskId id) {
+    ThroughputModel model = modelForTask(id);
+
+    if (model == null) {
+      return DEFAULT_ESTIMATE_RUNTIME;
+    }
+
+    double throughput = model.healthyThroughput;
+    if (throughput <= 0.0) {
+      return super.estimatedNewAttemptRuntime(id);
+    }
+    return (long) (1.0 / throughput);
+  }
+
+  @Override
+  public long runtimeEstimateVariance(TaskAttemptId id) {
+    return -1L;
+  }
+}
@@ -226,6 +226,45 @@ public void testGetTask() throws IOException {
 
   }
 
+  @Test (timeout=5000)
+  public void testGetTaskWithJvmReuse() throws IOException {
+    configureMocks();
+    Configuration conf = new Configuration();
+    conf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, -1);
+    listener.init(conf);
+    listener.start();
+
+    JvmContext context = new JvmContext();
+    context.jvmId = id;
+    listener.registerPendingTask(task, wid);
+    listener.registerLaunchedTask(attemptId, wid);
+    JvmTask result = listener.getTask(context);
+    assertNotNull(result);
+    assertFalse(result.shouldDie);
+    listener.unregister(attemptId, wid);
+
+    // The JVM waits while its container may be handed over.
+    assertNull(listener.getTask(context));
+
+    // Reused for another attempt.
+    TaskAttemptId nextAttemptId = TypeConverter.toYarn(
+        new TaskAttemptID("1", 1, TaskType.MAP, 2, 1));
+    listener.registerPendingTask(task, wid);
+    assertNull(listener.getTask(context));
+    listener.registerLaunchedTask(nextAttemptId, wid);
+    result = listener.getTask(context);
+    assertNotNull(result);
+    assertFalse(result.shouldDie);
+    listener.unregister(nextAttemptId, wid);
+
+    // Not reused, the JVM is told to exit.
+    assertNull(listener.getTask(context));
+    listener.unregisterReusableJvm(wid);
+    result = listener.getTask(context);
+    assertNotNull(result);
+    assertTrue(result.shouldDie);
+  }
+
   @Test (timeout=5000)
   public void testJVMId() {
 
@@ -57,6 +57,7 @@
 import org.apache.hadoop.mapreduce.v2.app.speculate.DefaultSpeculator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.ExponentiallySmoothedTaskRuntimeEstimator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.LegacyTaskRuntimeEstimator;
+import org.apache.hadoop.mapreduce.v2.app.speculate.NodeThroughputTaskRuntimeEstimator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.SimpleExponentialTaskRuntimeEstimator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.Speculator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.SpeculatorEvent;
@@ -79,6 +80,7 @@
 import org.apache.hadoop.yarn.util.ControlledClock;
 import org.apache.hadoop.yarn.util.SystemClock;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,6 +98,11 @@ public class TestRuntimeEstimators {
   private static int MAP_TASKS = 200;
   private static int REDUCE_TASKS = 150;
 
+  private static final int NODES = 7;
+
+  // attempts on this node run three times longer
+  private String degradedNode = null;
+
   ControlledClock clock;
 
   Job myJob;
@@ -126,6 +133,14 @@ public class TestRuntimeEstimators {
 
   private void coreTestEstimator
       (TaskRuntimeEstimator testedEstimator, int expectedSpeculations) {
+    if (runEstimator(testedEstimator)) {
+      Assert.assertEquals("We got the wrong number of successful speculations.",
+          expectedSpeculations, successfulSpeculations.get());
+    }
+  }
+
+  // returns false if the speculator did not keep up with the tasks
+  private boolean runEstimator(TaskRuntimeEstimator testedEstimator) {
     estimator = testedEstimator;
 	clock = new ControlledClock();
 	dispatcher = new AsyncDispatcher();
@@ -233,7 +248,7 @@ public class TestRuntimeEstimators {
       while (!speculator.eventQueueEmpty()) {
         Thread.yield();
         if (System.currentTimeMillis() > startTime + 130000) {
-          return;
+          return false;
         }
       }
 
@@ -244,8 +259,7 @@ public class TestRuntimeEstimators {
       }
     }
 
-    Assert.assertEquals("We got the wrong number of successful speculations.",
-        expectedSpeculations, successfulSpeculations.get());
+    return true;
   }
 
   @Test
@@ -268,6 +282,31 @@ public void testSimpleExponentialEstimator() throws Exception {
     coreTestEstimator(specificEstimator, 3);
   }
 
+  @Test
+  public void testNodeThroughputEstimator() throws Exception {
+    TaskRuntimeEstimator specificEstimator
+        = new NodeThroughputTaskRuntimeEstimator();
+    coreTestEstimator(specificEstimator, 3);
+  }
+
+  @Test
+  public void testNodeThroughputEstimatorDegradedNode() throws Exception {
+    NodeThroughputTaskRuntimeEstimator specificEstimator
+        = new NodeThroughputTaskRuntimeEstimator();
+    degradedNode = "host3";
+    try {
+      Assume.assumeTrue(runEstimator(specificEstimator));
+    } finally {
+      degradedNode = null;
+    }
+    Assert.assertEquals(Collections.singleton("host3"),
+        specificEstimator.getDegradedNodes(TaskType.MAP));
+    // the 3 slow tasks of testNodeThroughputEstimator plus the tasks stuck
+    // on the degraded node
+    Assert.assertTrue("Too few successful speculations: "
+        + successfulSpeculations.get(), successfulSpeculations.get() > 3);
+  }
+
   int taskTypeSlots(TaskType type) {
     return type == TaskType.MAP ? MAP_SLOT_REQUIREMENT : REDUCE_SLOT_REQUIREMENT;
   }
@@ -601,7 +640,9 @@ void startUp() {
 
     @Override
     public NodeId getNodeId() throws UnsupportedOperationException{
-      throw new UnsupportedOperationException();
+      return NodeId.newInstance("host"
+          + (myAttemptID.getTaskId().getId() + myAttemptID.getId()) % NODES,
+          0);
     }
     
     @Override
@@ -655,6 +696,10 @@ private float getCodeRuntime() {
           break;
       }
 
+      if (getNodeId().getHost().equals(degradedNode)) {
+        result *= 3.0F;
+      }
+
       return result;
     }
 
@@ -89,6 +89,9 @@
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskEventType;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskTAttemptKilledEvent;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncher;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncherEvent;
+import org.apache.hadoop.mapreduce.v2.app.rm.ContainerAllocator;
 import org.apache.hadoop.mapreduce.v2.app.rm.ContainerRequestEvent;
 import org.apache.hadoop.mapreduce.v2.util.MRBuilderUtils;
 import org.apache.hadoop.security.Credentials;
@@ -1308,6 +1311,60 @@ public void testContainerKillWhileCommitPending() throws Exception {
         .isEqualTo(TaskAttemptStateInternal.KILL_CONTAINER_CLEANUP);
   }
 
+  @Test
+  public void testKillMapTaskWhileContainerReused() throws Exception {
+    ReuseEventHandler eventHandler = new ReuseEventHandler();
+    TaskAttemptImpl taImpl = createReusableTaskAttemptImpl(eventHandler);
+
+    taImpl.handle(new TaskAttemptEvent(taImpl.getID(),
+        TaskAttemptEventType.TA_DONE));
+    assertTrue("Container reuse was not requested",
+        eventHandler.reuseRequested);
+    assertThat(taImpl.getState()).isEqualTo(TaskAttemptState.SUCCEEDED);
+    assertThat(taImpl.getInternalState())
+        .isEqualTo(TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING);
+
+    // the allocator hands the container over while the kill is queued
+    taImpl.handle(new TaskAttemptEvent(taImpl.getID(),
+        TaskAttemptEventType.TA_KILL));
+    assertThat(taImpl.getInternalState())
+        .isEqualTo(TaskAttemptStateInternal.SUCCESS_CONTAINER_REUSING);
+    taImpl.handle(new TaskAttemptEvent(taImpl.getID(),
+        TaskAttemptEventType.TA_CONTAINER_REUSED));
+    assertThat(taImpl.getInternalState())
+        .isEqualTo(TaskAttemptStateInternal.SUCCEEDED);
+    eventHandler.replay(taImpl);
+
+    assertThat(taImpl.getInternalState())
+        .isEqualTo(TaskAttemptStateInternal.KILLED);
+    assertFalse("Container of the new attempt was cleaned up",
+        eventHandler.containerCleanedUp);
+    assertFalse("InternalError occurred", eventHandler.internalError);
+  }
+
+  @Test
+  public void testKillMapTaskWhileContainerReuseDeclined() throws Exception {
+    ReuseEventHandler eventHandler = new ReuseEventHandler();
+    TaskAttemptImpl taImpl = createReusableTaskAttemptImpl(eventHandler);
+
+    taImpl.handle(new TaskAttemptEvent(taImpl.getID(),
+        TaskAttemptEventType.TA_DONE));
+    taImpl.handle(new TaskAttemptEvent(taImpl.getID(),
+        TaskAttemptEventType.TA_KILL));
+    taImpl.handle(new TaskAttemptEvent(taImpl.getID(),
+        TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED));
+    assertThat(taImpl.getInternalState())
+        .isEqualTo(TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER);
+    eventHandler.replay(taImpl);
+
+    // the container is still the attempt's own, so the kill cleans it up
+    assertThat(taImpl.getInternalState())
+        .isEqualTo(TaskAttemptStateInternal.KILL_CONTAINER_CLEANUP);
+    assertTrue("Container was not cleaned up",
+        eventHandler.containerCleanedUp);
+    assertFalse("InternalError occurred", eventHandler.internalError);
+  }
+
   @Test
   public void testKillMapTaskWhileSuccessFinishing() throws Exception {
     MockEventHandler eventHandler = new MockEventHandler();
@@ -1967,6 +2024,7 @@ private TaskAttemptImpl createCommonTaskAttemptImpl(
     AppContext appCtx = mock(AppContext.class);
     ClusterInfo clusterInfo = mock(ClusterInfo.class);
     when(appCtx.getClusterInfo()).thenReturn(clusterInfo);
+    when(appCtx.getJob(jobId)).thenReturn(mock(Job.class));
     setupTaskAttemptFinishingMonitor(eventHandler, jobConf, appCtx);
 
     TaskAttemptImpl taImpl =
@@ -1990,6 +2048,13 @@ private TaskAttemptImpl createCommonTaskAttemptImpl(
     return taImpl;
   }
 
+  private TaskAttemptImpl createReusableTaskAttemptImpl(
+      MockEventHandler eventHandler) {
+    JobConf jobConf = new JobConf();
+    jobConf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, -1);
+    return createCommonTaskAttemptImpl(eventHandler, jobConf);
+  }
+
   private TaskAttemptImpl createTaskAttemptImpl(
       MockEventHandler eventHandler) {
     JobConf jobConf = new JobConf();
@@ -2021,4 +2086,37 @@ public void handle(Event event) {
     }
 
   };
+
+  /**
+   * Records what the attempt asks of the allocator and the launcher, and
+   * keeps the events it sends to itself so a test can replay them.
+   */
+  private static class ReuseEventHandler extends MockEventHandler {
+    private final List<TaskAttemptEvent> attemptEvents = new ArrayList<>();
+    private boolean reuseRequested;
+    private boolean containerCleanedUp;
+
+    @Override
+    public void handle(Event event) {
+      super.handle(event);
+      if (event instanceof TaskAttemptEvent) {
+        attemptEvents.add((TaskAttemptEvent) event);
+      } else if (event.getType() ==
+          ContainerAllocator.EventType.CONTAINER_REUSE) {
+        reuseRequested = true;
+      } else if (event instanceof ContainerLauncherEvent
+          && event.getType() ==
+              ContainerLauncher.EventType.CONTAINER_REMOTE_CLEANUP) {
+        containerCleanedUp = true;
+      }
+    }
+
+    void replay(TaskAttemptImpl taImpl) {
+      List<TaskAttemptEvent> events = new ArrayList<>(attemptEvents);
+      attemptEvents.clear();
+      for (TaskAttemptEvent event : events) {
+        taImpl.handle(event);
+      }
+    }
+  }
 }
@@ -56,6 +56,7 @@
 import org.apache.hadoop.mapreduce.v2.api.records.JobId;
 import org.apache.hadoop.mapreduce.v2.api.records.JobState;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptState;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskId;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskState;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskType;
@@ -1977,6 +1978,8 @@ static class MyContainerAllocator extends RMContainerAllocator {
     static final List<JobUpdatedNodesEvent> jobUpdatedNodeEvents =
         new ArrayList<>();
     static final List<JobEvent> jobEvents = new ArrayList<>();
+    static final List<TaskAttemptEvent> containerReuseEvents =
+        new ArrayList<>();
     private MyResourceManager rm;
     private boolean isUnregistered = false;
     private AllocateResponse allocateResponse;
@@ -2002,6 +2005,11 @@ public void handle(Event event) {
             jobUpdatedNodeEvents.add((JobUpdatedNodesEvent)event);
           } else if (event instanceof JobEvent) {
             jobEvents.add((JobEvent)event);
+          } else if (
+              event.getType() == TaskAttemptEventType.TA_CONTAINER_REUSED
+              || event.getType()
+                  == TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED) {
+            containerReuseEvents.add((TaskAttemptEvent) event);
           }
         }
       });
@@ -3133,6 +3141,93 @@ protected ApplicationMasterProtocol createSchedulerProxy() {
     allocator.close();
   }
 
+  @Test
+  public void testContainerReuse() throws Exception {
+    LOG.info("Running testContainerReuse");
+    Configuration conf = new Configuration();
+    conf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, 2);
+    ApplicationId appId = ApplicationId.newInstance(1, 1);
+    ApplicationAttemptId appAttemptId = ApplicationAttemptId.newInstance(
+        appId, 1);
+    JobId jobId = MRBuilderUtils.newJobId(appAttemptId.getApplicationId(), 0);
+    Job mockJob = mock(Job.class);
+    when(mockJob.getReport()).thenReturn(
+        MRBuilderUtils.newJobReport(jobId, "job", "user", JobState.RUNNING, 0,
+            0, 0, 0, 0, 0, 0, "jobfile", null, false, ""));
+    TaskAttempt succeeded = mock(TaskAttempt.class);
+    when(succeeded.getState()).thenReturn(TaskAttemptState.SUCCEEDED);
+    Task task = mock(Task.class);
+    when(task.getAttempt(any(TaskAttemptId.class))).thenReturn(succeeded);
+    when(mockJob.getTask(any(TaskId.class))).thenReturn(task);
+
+    final MockScheduler mockScheduler = new MockScheduler(appAttemptId);
+    MyContainerAllocator allocator = new MyContainerAllocator(null, conf,
+        appAttemptId, mockJob, SystemClock.getInstance()) {
+          @Override
+          protected void register() {
+          }
+
+          @Override
+          protected ApplicationMasterProtocol createSchedulerProxy() {
+            return mockScheduler;
+          }
+    };
+    MyContainerAllocator.containerReuseEvents.clear();
+
+    ContainerRequestEvent[] reqMapEvents = new ContainerRequestEvent[3];
+    for (int i = 0; i < reqMapEvents.length; ++i) {
+      reqMapEvents[i] = ContainerRequestCreator.createRequest(jobId, i,
+          Resource.newInstance(1024, 1), new String[] {"h1"});
+    }
+    allocator.sendRequests(Arrays.asList(reqMapEvents));
+    allocator.schedule();
+    Assert.assertEquals(3, mockScheduler.lastAnyAskMap);
+
+    ContainerId cid = mockScheduler.assignContainer("h1", false);
+    List<TaskAttemptContainerAssignedEvent> assigned = allocator.schedule();
+    Assert.assertEquals(1, assigned.size());
+    Assert.assertEquals(reqMapEvents[0].getAttemptID(),
+        assigned.get(0).getTaskAttemptID());
+
+    // the container of the first map runs the second one
+    allocator.sendDeallocate(new ContainerAllocatorEvent(
+        reqMapEvents[0].getAttemptID(),
+        ContainerAllocator.EventType.CONTAINER_REUSE));
+    assigned = allocator.schedule();
+    Assert.assertEquals(1, assigned.size());
+    Assert.assertEquals(reqMapEvents[1].getAttemptID(),
+        assigned.get(0).getTaskAttemptID());
+    Assert.assertEquals(cid, assigned.get(0).getContainer().getId());
+    Assert.assertEquals(1, MyContainerAllocator.containerReuseEvents.size());
+    TaskAttemptEvent reuseEvent =
+        MyContainerAllocator.containerReuseEvents.remove(0);
+    Assert.assertEquals(reqMapEvents[0].getAttemptID(),
+        reuseEvent.getTaskAttemptID());
+    Assert.assertEquals(TaskAttemptEventType.TA_CONTAINER_REUSED,
+        reuseEvent.getType());
+    // only the third map still needs a container
+    allocator.schedule();
+    Assert.assertEquals(1, mockScheduler.lastAnyAskMap);
+
+    // the container has run as many tasks as it may
+    allocator.sendDeallocate(new ContainerAllocatorEvent(
+        reqMapEvents[1].getAttemptID(),
+        ContainerAllocator.EventType.CONTAINER_REUSE));
+    assigned = allocator.schedule();
+    Assert.assertEquals(0, assigned.size());
+    reuseEvent = MyContainerAllocator.containerReuseEvents.remove(0);
+    Assert.assertEquals(reqMapEvents[1].getAttemptID(),
+        reuseEvent.getTaskAttemptID());
+    Assert.assertEquals(TaskAttemptEventType.TA_CONTAINER_REUSE_DECLINED,
+        reuseEvent.getType());
+
+    // the container completes with the attempt it was last assigned to
+    mockScheduler.completeContainer(cid);
+    allocator.schedule();
+    Assert.assertEquals(0, allocator.getAssignedRequests().maps.size());
+    allocator.close();
+  }
+
   @Test(expected = RMContainerAllocationException.class)
   public void testAttemptNotFoundCausesRMCommunicatorException()
       throws Exception {
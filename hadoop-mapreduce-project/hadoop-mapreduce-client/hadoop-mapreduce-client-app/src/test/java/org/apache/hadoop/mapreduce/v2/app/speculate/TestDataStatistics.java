@@ -70,4 +70,15 @@ public void testUpdateStatistics() throws Exception {
     Assert.assertEquals(29.0, statistics.mean(), TOL);
     Assert.assertEquals(0.0, statistics.var(), TOL);
   }
+
+  @Test
+  public void testRemove() throws Exception {
+    DataStatistics statistics = new DataStatistics(17);
+    statistics.add(29);
+    statistics.add(41);
+    statistics.remove(41);
+    Assert.assertEquals(2, statistics.count(), TOL);
+    Assert.assertEquals(23.0, statistics.mean(), TOL);
+    Assert.assertEquals(36.0, statistics.var(), TOL);
+  }
 }
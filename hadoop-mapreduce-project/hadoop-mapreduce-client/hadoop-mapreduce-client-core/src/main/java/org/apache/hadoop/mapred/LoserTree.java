@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A tournament tree of losers for k-way merges, with the same interface as
+ * {@link org.apache.hadoop.util.PriorityQueue}. Every inner node keeps the
+ * loser of the match played at it, so when the least element changes only
+ * the path from its leaf to the root is replayed, with exactly one
+ * comparison per level. A binary heap needs up to two comparisons per level
+ * to restore its order after {@link #adjustTop()}.
+ * <p>
+ * The tree is built lazily on the first access following a {@link #put},
+ * so all elements should be added before the merge starts.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+abstract class LoserTree<T> {
+  private T[] leaves;
+  // tree[0] is the leaf of the least element, tree[1..n) the losers
+  private int[] tree;
+  private int numLeaves;
+  private int size;
+  private boolean built;
+
+  /** Determines the ordering of the elements. */
+  protected abstract boolean lessThan(Object a, Object b);
+
+  @SuppressWarnings("unchecked")
+  protected final void initialize(int maxSize) {
+    leaves = (T[]) new Object[Math.max(1, maxSize)];
+    tree = new int[leaves.length];
+    numLeaves = 0;
+    size = 0;
+    built = false;
+  }
+
+  /**
+   * Adds an element. If one tries to add more elements than maxSize from
+   * initialize an ArrayIndexOutOfBoundsException is thrown.
+   */
+  public final void put(T element) {
+    int leaf = numLeaves;
+    if (leaf == leaves.length) {
+      // reuse the leaf of a popped element
+      leaf = 0;
+      while (leaves[leaf] != null) {
+        leaf++;
+      }
+    } else {
+      numLeaves++;
+    }
+    leaves[leaf] = element;
+    size++;
+    built = false;
+  }
+
+  /** @return the least element, or null if there are none. */
+  public final T top() {
+    if (size == 0) {
+      return null;
+    }
+    ensureBuilt();
+    return leaves[tree[0]];
+  }
+
+  /** Removes and returns the least element, or null if there are none. */
+  public final T pop() {
+    if (size == 0) {
+      return null;
+    }
+    ensureBuilt();
+    final int leaf = tree[0];
+    final T result = leaves[leaf];
+    leaves[leaf] = null;
+    size--;
+    if (size > 0) {
+      replay(leaf);
+    }
+    return result;
+  }
+
+  /** Should be called when the least element changes its value. */
+  public final void adjustTop() {
+    if (size == 0) {
+      return;
+    }
+    ensureBuilt();
+    replay(tree[0]);
+  }
+
+  /** @return the number of elements. */
+  public final int size() {
+    return size;
+  }
+
+  /** Removes all elements. */
+  public final void clear() {
+    for (int i = 0; i < numLeaves; i++) {
+      leaves[i] = null;
+    }
+    numLeaves = 0;
+    size = 0;
+    built = false;
+  }
+
+  /**
+   * @return whether the element of leaf a is less than the one of leaf b.
+   * Empty leaves are greater than every element.
+   */
+  private boolean less(int a, int b) {
+    if (leaves[a] == null) {
+      return false;
+    }
+    if (leaves[b] == null) {
+      return true;
+    }
+    return lessThan(leaves[a], leaves[b]);
+  }
+
+  private void ensureBuilt() {
+    if (built) {
+      return;
+    }
+    final int n = numLeaves;
+    if (n == 1) {
+      tree[0] = 0;
+    } else {
+      // winners[n + i] is leaf i, winners[1..n) the winners of inner nodes
+      int[] winners = new int[2 * n];
+      for (int i = 0; i < n; i++) {
+        winners[n + i] = i;
+      }
+      for (int node = n - 1; node > 0; node--) {
+        int a = winners[2 * node];
+        int b = winners[2 * node + 1];
+        if (less(b, a)) {
+          winners[node] = b;
+          tree[node] = a;
+        } else {
+          winners[node] = a;
+          tree[node] = b;
+        }
+      }
+      tree[0] = winners[1];
+    }
+    built = true;
+  }
+
+  /**
+   * Replay the matches from the leaf to the root. Like the heap of
+   * {@link org.apache.hadoop.util.PriorityQueue}, the element of the leaf
+   * stays the least one if it is equal to others, which keeps merges reading
+   * from the same segment while its keys are tied.
+   */
+  private void replay(int leaf) {
+    int winner = leaf;
+    for (int node = (leaf + numLeaves) >>> 1; node > 0; node >>>= 1) {
+      if (less(tree[node], winner)) {
+        int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+}
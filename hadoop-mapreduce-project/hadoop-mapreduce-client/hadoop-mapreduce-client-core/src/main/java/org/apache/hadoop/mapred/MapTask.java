@@ -924,8 +924,15 @@ private long getOutputBytes(List<Statistics> stats) {
     private static final int KEYSTART = 1;         // key offset in acct
     private static final int PARTITION = 2;        // partition offset in acct
     private static final int VALLEN = 3;           // length of value
+    private static final int PREFIX_HI = 4;        // key prefix, high bits
+    private static final int PREFIX_LO = 5;        // key prefix, low bits
     private static final int NMETA = 4;            // num meta ints
-    private static final int METASIZE = NMETA * 4; // size in bytes
+    private static final int NMETA_WITH_PREFIX = 6;
+
+    private int nmeta = NMETA;                     // num meta ints
+    private int metasize = NMETA * 4;              // size in bytes
+    // normalized key prefix stored with the metadata, may be null
+    private SortKeyPrefix keyPrefix;
 
     // spill accounting
     private int maxRec;
@@ -995,9 +1002,22 @@ public void init(MapOutputCollector.Context context
       sorter = ReflectionUtils.newInstance(job.getClass(
                    MRJobConfig.MAP_SORT_CLASS, QuickSort.class,
                    IndexedSorter.class), job);
+      comparator = job.getOutputKeyComparator();
+      if (job.getBoolean(MRJobConfig.MAP_SORT_KEY_PREFIX_ENABLED,
+          MRJobConfig.DEFAULT_MAP_SORT_KEY_PREFIX_ENABLED)) {
+        keyPrefix = SortKeyPrefix.get(comparator);
+        if (keyPrefix != null) {
+          nmeta = NMETA_WITH_PREFIX;
+          metasize = nmeta * 4;
+        } else {
+          LOG.info("Key prefixes are not supported for " +
+              comparator.getClass().getName());
+        }
+      }
+      metaBufferTmp = new byte[metasize];
       // buffers and accounting
       int maxMemUsage = sortmb << 20;
-      maxMemUsage -= maxMemUsage % METASIZE;
+      maxMemUsage -= maxMemUsage % metasize;
       kvbuffer = new byte[maxMemUsage];
       bufvoid = kvbuffer.length;
       kvmeta = ByteBuffer.wrap(kvbuffer)
@@ -1007,7 +1027,7 @@ public void init(MapOutputCollector.Context context
       bufstart = bufend = bufindex = equator;
       kvstart = kvend = kvindex;
 
-      maxRec = kvmeta.capacity() / NMETA;
+      maxRec = kvmeta.capacity() / nmeta;
       softLimit = (int)(kvbuffer.length * spillper);
       bufferRemaining = softLimit;
       LOG.info(JobContext.IO_SORT_MB + ": " + sortmb);
@@ -1016,7 +1036,6 @@ public void init(MapOutputCollector.Context context
       LOG.info("kvstart = " + kvstart + "; length = " + maxRec);
 
       // k/v serialization
-      comparator = job.getOutputKeyComparator();
       keyClass = (Class<K>)job.getMapOutputKeyClass();
       valClass = (Class<V>)job.getMapOutputValueClass();
       serializationFactory = new SerializationFactory(job);
@@ -1098,7 +1117,7 @@ public synchronized void collect(K key, V value, final int partition
             partition + ")");
       }
       checkSpillException();
-      bufferRemaining -= METASIZE;
+      bufferRemaining -= metasize;
       if (bufferRemaining <= 0) {
         // start spill if the thread is not running and the soft limit has been
         // reached
@@ -1113,13 +1132,13 @@ public synchronized void collect(K key, V value, final int partition
               // created by a reset must be included in "used" bytes
               final int bUsed = distanceTo(kvbidx, bufindex);
               final boolean bufsoftlimit = bUsed >= softLimit;
-              if ((kvbend + METASIZE) % kvbuffer.length !=
-                  equator - (equator % METASIZE)) {
+              if ((kvbend + metasize) % kvbuffer.length !=
+                  equator - (equator % metasize)) {
                 // spill finished, reclaim space
                 resetSpill();
                 bufferRemaining = Math.min(
-                    distanceTo(bufindex, kvbidx) - 2 * METASIZE,
-                    softLimit - bUsed) - METASIZE;
+                    distanceTo(bufindex, kvbidx) - 2 * metasize,
+                    softLimit - bUsed) - metasize;
                 continue;
               } else if (bufsoftlimit && kvindex != kvend) {
                 // spill records, if any collected; check latter, as it may
@@ -1132,9 +1151,9 @@ public synchronized void collect(K key, V value, final int partition
                 // ensure that kvindex >= bufindex
                 final int distkvi = distanceTo(bufindex, kvbidx);
                 final int newPos = (bufindex +
-                  Math.max(2 * METASIZE - 1,
+                  Math.max(2 * metasize - 1,
                           Math.min(distkvi / 2,
-                                   distkvi / (METASIZE + avgRec) * METASIZE)))
+                                   distkvi / (metasize + avgRec) * metasize)))
                   % kvbuffer.length;
                 setEquator(newPos);
                 bufmark = bufindex = newPos;
@@ -1149,7 +1168,7 @@ public synchronized void collect(K key, V value, final int partition
                       // serialization max
                       distanceTo(newPos, serBound),
                       // soft limit
-                      softLimit)) - 2 * METASIZE;
+                      softLimit)) - 2 * metasize;
               }
             }
           } while (false);
@@ -1191,8 +1210,14 @@ public synchronized void collect(K key, V value, final int partition
         kvmeta.put(kvindex + KEYSTART, keystart);
         kvmeta.put(kvindex + VALSTART, valstart);
         kvmeta.put(kvindex + VALLEN, distanceTo(valstart, valend));
+        if (keyPrefix != null) {
+          final long prefix =
+              keyPrefix.get(kvbuffer, keystart, valstart - keystart);
+          kvmeta.put(kvindex + PREFIX_HI, (int) (prefix >>> 32));
+          kvmeta.put(kvindex + PREFIX_LO, (int) prefix);
+        }
         // advance kvindex
-        kvindex = (kvindex - NMETA + kvmeta.capacity()) % kvmeta.capacity();
+        kvindex = (kvindex - nmeta + kvmeta.capacity()) % kvmeta.capacity();
       } catch (MapBufferTooSmallException e) {
         LOG.info("Record too large for in-memory buffer: " + e.getMessage());
         spillSingleRecord(key, value, partition);
@@ -1213,10 +1238,10 @@ private TaskAttemptID getTaskID() {
     private void setEquator(int pos) {
       equator = pos;
       // set index prior to first entry, aligned at meta boundary
-      final int aligned = pos - (pos % METASIZE);
+      final int aligned = pos - (pos % metasize);
       // Cast one of the operands to long to avoid integer overflow
       kvindex = (int)
-        (((long)aligned - METASIZE + kvbuffer.length) % kvbuffer.length) / 4;
+        (((long)aligned - metasize + kvbuffer.length) % kvbuffer.length) / 4;
       LOG.info("(EQUATOR) " + pos + " kvi " + kvindex +
           "(" + (kvindex * 4) + ")");
     }
@@ -1229,11 +1254,11 @@ private void setEquator(int pos) {
     private void resetSpill() {
       final int e = equator;
       bufstart = bufend = e;
-      final int aligned = e - (e % METASIZE);
+      final int aligned = e - (e % metasize);
       // set start/end to point to first meta record
       // Cast one of the operands to long to avoid integer overflow
       kvstart = kvend = (int)
-        (((long)aligned - METASIZE + kvbuffer.length) % kvbuffer.length) / 4;
+        (((long)aligned - metasize + kvbuffer.length) % kvbuffer.length) / 4;
       LOG.info("(RESET) equator " + e + " kv " + kvstart + "(" +
         (kvstart * 4) + ")" + " kvi " + kvindex + "(" + (kvindex * 4) + ")");
     }
@@ -1262,7 +1287,7 @@ int distanceTo(final int i, final int j, final int mod) {
      * kvmeta buffer.
      */
     int offsetFor(int metapos) {
-      return metapos * NMETA;
+      return metapos * nmeta;
     }
 
     /**
@@ -1280,6 +1305,18 @@ public int compare(final int mi, final int mj) {
       if (kvip != kvjp) {
         return kvip - kvjp;
       }
+      if (keyPrefix != null) {
+        // sort by key prefix, then by key if the prefixes are equal
+        int cmp = Integer.compareUnsigned(kvmeta.get(kvi + PREFIX_HI),
+            kvmeta.get(kvj + PREFIX_HI));
+        if (cmp == 0) {
+          cmp = Integer.compareUnsigned(kvmeta.get(kvi + PREFIX_LO),
+              kvmeta.get(kvj + PREFIX_LO));
+        }
+        if (cmp != 0 || keyPrefix.isComplete()) {
+          return cmp;
+        }
+      }
       // sort by key
       return comparator.compare(kvbuffer,
           kvmeta.get(kvi + KEYSTART),
@@ -1289,18 +1326,18 @@ public int compare(final int mi, final int mj) {
           kvmeta.get(kvj + VALSTART) - kvmeta.get(kvj + KEYSTART));
     }
 
-    final byte META_BUFFER_TMP[] = new byte[METASIZE];
+    private byte[] metaBufferTmp;
     /**
      * Swap metadata for items i, j
      * @see IndexedSortable#swap
      */
     @Override
     public void swap(final int mi, final int mj) {
-      int iOff = (mi % maxRec) * METASIZE;
-      int jOff = (mj % maxRec) * METASIZE;
-      System.arraycopy(kvbuffer, iOff, META_BUFFER_TMP, 0, METASIZE);
-      System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, METASIZE);
-      System.arraycopy(META_BUFFER_TMP, 0, kvbuffer, jOff, METASIZE);
+      int iOff = (mi % maxRec) * metasize;
+      int jOff = (mj % maxRec) * metasize;
+      System.arraycopy(kvbuffer, iOff, metaBufferTmp, 0, metasize);
+      System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, metasize);
+      System.arraycopy(metaBufferTmp, 0, kvbuffer, jOff, metasize);
     }
 
     /**
@@ -1376,7 +1413,7 @@ public void write(int v)
       @Override
       public void write(byte b[], int off, int len)
           throws IOException {
-        // must always verify the invariant that at least METASIZE bytes are
+        // must always verify the invariant that at least metasize bytes are
         // available beyond kvindex, even when len == 0
         bufferRemaining -= len;
         if (bufferRemaining <= 0) {
@@ -1404,19 +1441,19 @@ public void write(byte b[], int off, int len)
               // either the metadata or the current write. Note that collect
               // ensures its metadata requirement with a zero-length write
               blockwrite = distkvi <= distkve
-                ? distkvi <= len + 2 * METASIZE
-                : distkve <= len || distanceTo(bufend, kvbidx) < 2 * METASIZE;
+                ? distkvi <= len + 2 * metasize
+                : distkve <= len || distanceTo(bufend, kvbidx) < 2 * metasize;
 
               if (!spillInProgress) {
                 if (blockwrite) {
-                  if ((kvbend + METASIZE) % kvbuffer.length !=
-                      equator - (equator % METASIZE)) {
+                  if ((kvbend + metasize) % kvbuffer.length !=
+                      equator - (equator % metasize)) {
                     // spill finished, reclaim space
                     // need to use meta exclusively; zero-len rec & 100% spill
                     // pcnt would fail
                     resetSpill(); // resetSpill doesn't move bufindex, kvindex
                     bufferRemaining = Math.min(
-                        distkvi - 2 * METASIZE,
+                        distkvi - 2 * metasize,
                         softLimit - distanceTo(kvbidx, bufindex)) - len;
                     continue;
                   }
@@ -1488,13 +1525,13 @@ public void flush() throws IOException, ClassNotFoundException,
         checkSpillException();
 
         final int kvbend = 4 * kvend;
-        if ((kvbend + METASIZE) % kvbuffer.length !=
-            equator - (equator % METASIZE)) {
+        if ((kvbend + metasize) % kvbuffer.length !=
+            equator - (equator % metasize)) {
           // spill finished
           resetSpill();
         }
         if (kvindex != kvend) {
-          kvend = (kvindex + NMETA) % kvmeta.capacity();
+          kvend = (kvindex + nmeta) % kvmeta.capacity();
           bufend = bufmark;
           LOG.info("Spilling map output");
           LOG.info("bufstart = " + bufstart + "; bufend = " + bufmark +
@@ -1590,7 +1627,7 @@ private void checkSpillException() throws IOException {
 
     private void startSpill() {
       assert !spillInProgress;
-      kvend = (kvindex + NMETA) % kvmeta.capacity();
+      kvend = (kvindex + nmeta) % kvmeta.capacity();
       bufend = bufmark;
       spillInProgress = true;
       LOG.info("Spilling map output");
@@ -1618,11 +1655,11 @@ private void sortAndSpill() throws IOException, ClassNotFoundException,
             mapOutputFile.getSpillFileForWrite(numSpills, size);
         out = rfs.create(filename);
 
-        final int mstart = kvend / NMETA;
+        final int mstart = kvend / nmeta;
         final int mend = 1 + // kvend is a valid record
           (kvstart >= kvend
           ? kvstart
-          : kvmeta.capacity() + kvstart) / NMETA;
+          : kvmeta.capacity() + kvstart) / nmeta;
         sorter.sort(MapOutputBuffer.this, mstart, mend, reporter);
         int spindex = mstart;
         final IndexRecord rec = new IndexRecord();
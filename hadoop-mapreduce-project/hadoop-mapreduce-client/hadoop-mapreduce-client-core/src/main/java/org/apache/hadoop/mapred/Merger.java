@@ -41,7 +41,6 @@
 import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.mapreduce.CryptoUtils;
 import org.apache.hadoop.mapreduce.security.IntermediateEncryptedStream;
-import org.apache.hadoop.util.PriorityQueue;
 import org.apache.hadoop.util.Progress;
 import org.apache.hadoop.util.Progressable;
 import org.slf4j.Logger;
@@ -303,6 +302,7 @@ void init(Counters.Counter readsCounter) throws IOException {
         FSDataInputStream in = fs.open(file);
 
         in.seek(segmentOffset);
+        in = PrefetchingInputStream.wrapIfEnabled(conf, in, segmentLength);
         in = IntermediateEncryptedStream.wrapIfNecessary(conf, in, file);
         reader = new Reader<K, V>(conf, in,
             segmentLength - CryptoUtils.cryptoPadding(conf),
@@ -384,7 +384,7 @@ void reinitReader(int offset) throws IOException {
 
   
   private static class MergeQueue<K extends Object, V extends Object> 
-  extends PriorityQueue<Segment<K, V>> implements RawKeyValueIterator {
+  extends LoserTree<Segment<K, V>> implements RawKeyValueIterator {
     Configuration conf;
     FileSystem fs;
     CompressionCodec codec;
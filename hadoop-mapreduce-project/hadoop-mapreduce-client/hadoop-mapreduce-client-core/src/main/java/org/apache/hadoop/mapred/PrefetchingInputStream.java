@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An input stream reading a range of a file in large sequential chunks. While
+ * the caller consumes one chunk, the next one is read by a shared background
+ * thread, so merges of many on-disk segments issue few large reads instead
+ * of many small ones interleaved across files.
+ */
+@InterfaceAudience.Private
+class PrefetchingInputStream extends FSInputStream {
+  private static ExecutorService prefetchThreads;
+
+  private final FSDataInputStream in;
+  private final long end;
+  private final int bufferSize;
+
+  // position in the file of the first byte of the current buffer
+  private long bufferStart;
+  private byte[] buffer;
+  private int bufferPos;
+  private int bufferLen;
+
+  // buffer being filled in the background, starting at bufferStart+bufferLen
+  private byte[] nextBuffer;
+  private Future<Integer> pendingFill;
+  private boolean closed;
+
+  /**
+   * @param in the stream to read, positioned at the start of the range.
+   * @param length the length of the range.
+   * @param bufferSize the size of each of the two buffers.
+   * @param conf the configuration of the shared background threads.
+   */
+  PrefetchingInputStream(FSDataInputStream in, long length, int bufferSize,
+      Configuration conf) throws IOException {
+    this.in = in;
+    this.bufferStart = in.getPos();
+    this.end = bufferStart + length;
+    this.bufferSize = bufferSize;
+    this.buffer = new byte[bufferSize];
+    this.nextBuffer = new byte[bufferSize];
+    initPrefetchThreads(conf);
+    prefetch();
+  }
+
+  private static synchronized void initPrefetchThreads(Configuration conf) {
+    if (prefetchThreads == null) {
+      prefetchThreads = Executors.newFixedThreadPool(
+          conf.getInt(MRConfig.MAPRED_IFILE_PREFETCH_THREADS,
+              MRConfig.DEFAULT_MAPRED_IFILE_PREFETCH_THREADS),
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("IFile Prefetcher #%d").build());
+    }
+  }
+
+  /**
+   * Wrap {@code in} into a stream reading the next {@code length} bytes
+   * ahead, if prefetching is enabled.
+   */
+  static FSDataInputStream wrapIfEnabled(Configuration conf,
+      FSDataInputStream in, long length) throws IOException {
+    int bufferSize = conf.getInt(MRConfig.MAPRED_IFILE_PREFETCH_BYTES,
+        MRConfig.DEFAULT_MAPRED_IFILE_PREFETCH_BYTES);
+    if (bufferSize <= 0) {
+      return in;
+    }
+    if (length < bufferSize) {
+      bufferSize = (int) Math.max(1, length);
+    }
+    return new FSDataInputStream(
+        new PrefetchingInputStream(in, length, bufferSize, conf));
+  }
+
+  /** Start filling the next buffer in the background. */
+  private void prefetch() {
+    final long position = bufferStart + bufferLen;
+    final int len = (int) Math.min(bufferSize, end - position);
+    if (len <= 0) {
+      return;
+    }
+    final byte[] b = nextBuffer;
+    pendingFill = prefetchThreads.submit(() -> {
+      int n = 0;
+      while (n < len) {
+        int read = in.read(b, n, len - n);
+        if (read < 0) {
+          break;
+        }
+        n += read;
+      }
+      return n;
+    });
+  }
+
+  /** Wait for the pending fill, if any, and return the bytes it read. */
+  private int awaitFill() throws IOException {
+    if (pendingFill == null) {
+      return 0;
+    }
+    try {
+      return pendingFill.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw (IOException) new InterruptedIOException(
+          "Interrupted while waiting for prefetched data").initCause(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      pendingFill = null;
+    }
+  }
+
+  /**
+   * Make the prefetched buffer the current one and start the next fill.
+   * @return false at the end of the range.
+   */
+  private boolean advance() throws IOException {
+    if (closed) {
+      throw new IOException("Stream is closed");
+    }
+    final int filled = awaitFill();
+    if (filled <= 0) {
+      return false;
+    }
+    byte[] tmp = buffer;
+    buffer = nextBuffer;
+    nextBuffer = tmp;
+    bufferStart += bufferLen;
+    bufferLen = filled;
+    bufferPos = 0;
+    prefetch();
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (bufferPos == bufferLen && !advance()) {
+      return -1;
+    }
+    return buffer[bufferPos++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (bufferPos == bufferLen && !advance()) {
+      return -1;
+    }
+    final int n = Math.min(len, bufferLen - bufferPos);
+    System.arraycopy(buffer, bufferPos, b, off, n);
+    bufferPos += n;
+    return n;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return bufferLen - bufferPos;
+  }
+
+  @Override
+  public long getPos() throws IOException {
+    return bufferStart + bufferPos;
+  }
+
+  @Override
+  public void seek(long pos) throws IOException {
+    if (pos >= bufferStart && pos <= bufferStart + bufferLen) {
+      bufferPos = (int) (pos - bufferStart);
+      return;
+    }
+    if (pos < 0 || pos > end) {
+      throw new EOFException("Cannot seek to " + pos);
+    }
+    awaitFill();
+    in.seek(pos);
+    bufferStart = pos;
+    bufferLen = 0;
+    bufferPos = 0;
+    prefetch();
+  }
+
+  @Override
+  public boolean seekToNewSource(long targetPos) throws IOException {
+    return false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      // the background thread must be done with the stream before closing
+      awaitFill();
+    } finally {
+      in.close();
+    }
+  }
+}
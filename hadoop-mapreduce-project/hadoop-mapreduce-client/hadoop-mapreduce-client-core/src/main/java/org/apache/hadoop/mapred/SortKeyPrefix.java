@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Computes a normalized 64 bit prefix of serialized keys, such that comparing
+ * the prefixes of two keys as unsigned longs agrees with the raw comparator
+ * of the keys whenever the prefixes differ. Keys with equal prefixes have to
+ * be compared with the comparator, unless the prefix is complete, i.e. it
+ * holds the whole key.
+ */
+abstract class SortKeyPrefix {
+
+  /**
+   * @return the prefix of the key serialized in {@code b[s, s + l)}.
+   */
+  abstract long get(byte[] b, int s, int l);
+
+  /**
+   * @return whether keys with equal prefixes are equal.
+   */
+  abstract boolean isComplete();
+
+  /**
+   * @return the prefix for keys ordered by {@code comparator}, or null if the
+   * order of the comparator is not known. Only the default comparators of the
+   * supported key types are recognized, as any other comparator, including
+   * subclasses of them, may order the keys differently.
+   */
+  static SortKeyPrefix get(RawComparator<?> comparator) {
+    if (comparator == null) {
+      return null;
+    }
+    Class<?> clazz = comparator.getClass();
+    if (clazz == Text.Comparator.class) {
+      return TEXT;
+    } else if (clazz == BytesWritable.Comparator.class) {
+      return BYTES;
+    } else if (clazz == LongWritable.Comparator.class) {
+      return LONG;
+    } else if (clazz == IntWritable.Comparator.class) {
+      return INT;
+    }
+    return null;
+  }
+
+  /**
+   * The first 8 bytes of {@code b[s, s + l)} in big endian order, padded
+   * with zeros. Zero padding keeps shorter keys before longer keys starting
+   * with the same bytes, or makes the prefixes equal.
+   */
+  static long bytesPrefix(byte[] b, int s, int l) {
+    long prefix = 0;
+    final int n = Math.min(l, 8);
+    for (int i = 0; i < n; i++) {
+      prefix = (prefix << 8) | (b[s + i] & 0xff);
+    }
+    return prefix << ((8 - n) << 3);
+  }
+
+  private static final SortKeyPrefix TEXT = new SortKeyPrefix() {
+    @Override
+    long get(byte[] b, int s, int l) {
+      final int n = WritableUtils.decodeVIntSize(b[s]);
+      return bytesPrefix(b, s + n, l - n);
+    }
+
+    @Override
+    boolean isComplete() {
+      return false;
+    }
+  };
+
+  private static final SortKeyPrefix BYTES = new SortKeyPrefix() {
+    @Override
+    long get(byte[] b, int s, int l) {
+      return bytesPrefix(b, s + 4, l - 4);
+    }
+
+    @Override
+    boolean isComplete() {
+      return false;
+    }
+  };
+
+  private static final SortKeyPrefix LONG = new SortKeyPrefix() {
+    @Override
+    long get(byte[] b, int s, int l) {
+      // flip the sign bit, so that the signed order is the unsigned order
+      return WritableComparator.readLong(b, s) ^ Long.MIN_VALUE;
+    }
+
+    @Override
+    boolean isComplete() {
+      return true;
+    }
+  };
+
+  private static final SortKeyPrefix INT = new SortKeyPrefix() {
+    @Override
+    long get(byte[] b, int s, int l) {
+      return ((long) (WritableComparator.readInt(b, s) ^ Integer.MIN_VALUE))
+          << 32;
+    }
+
+    @Override
+    boolean isComplete() {
+      return true;
+    }
+  };
+}
@@ -87,6 +87,16 @@ public interface MRConfig {
 
   public static final boolean SHUFFLE_SSL_ENABLED_DEFAULT = false;
 
+  /**
+   * Path of the UNIX domain socket on which the ShuffleHandler passes the
+   * files of map-outputs to reducers on the same node. "_PORT" is replaced
+   * by the shuffle port. Empty disables node-local shuffles.
+   */
+  public static final String SHUFFLE_DOMAIN_SOCKET_PATH =
+    "mapreduce.shuffle.domain-socket.path";
+
+  public static final String DEFAULT_SHUFFLE_DOMAIN_SOCKET_PATH = "";
+
   public static final String SHUFFLE_CONSUMER_PLUGIN =
     "mapreduce.job.reduce.shuffle.consumer.plugin.class";
 
@@ -107,6 +117,24 @@ public interface MRConfig {
   public static final int DEFAULT_MAPRED_IFILE_READAHEAD_BYTES =
     4 * 1024 * 1024;
 
+  /**
+   * Configuration key to set the size of the buffers on-disk segments are
+   * prefetched into by a background thread while merging, 0 disables it.
+   */
+  public static final String MAPRED_IFILE_PREFETCH_BYTES =
+    "mapreduce.ifile.prefetch.bytes";
+
+  public static final int DEFAULT_MAPRED_IFILE_PREFETCH_BYTES = 0;
+
+  /**
+   * Configuration key to set the number of threads prefetching on-disk
+   * segments.
+   */
+  public static final String MAPRED_IFILE_PREFETCH_THREADS =
+    "mapreduce.ifile.prefetch.threads";
+
+  public static final int DEFAULT_MAPRED_IFILE_PREFETCH_THREADS = 4;
+
   /**
    * Whether users are explicitly trying to control resource monitoring
    * configuration for the MiniMRCluster. Disabled by default.
@@ -31,6 +31,10 @@ public interface MRJobConfig {
   // Used by MapTask
   public static final String MAP_SORT_CLASS = "map.sort.class";
 
+  public static final String MAP_SORT_KEY_PREFIX_ENABLED =
+      "mapreduce.map.sort.key-prefix.enabled";
+  public static final boolean DEFAULT_MAP_SORT_KEY_PREFIX_ENABLED = false;
+
   // Put all of the attribute names in here so that Job and JobContext are
   // consistent.
   public static final String INPUT_FORMAT_CLASS_ATTR = "mapreduce.job.inputformat.class";
@@ -407,6 +411,9 @@ public interface MRJobConfig {
 
   public static final String MAP_INPUT_PATH = "mapreduce.map.input.length";
 
+  /** The length of the input of the map; the key of {@link #MAP_INPUT_PATH}. */
+  public static final String MAP_INPUT_LENGTH = MAP_INPUT_PATH;
+
   public static final String MAP_INPUT_START = "mapreduce.map.input.start";
 
   /**
@@ -534,6 +541,14 @@ public interface MRJobConfig {
   public static final String SHUFFLE_MERGE_PERCENT = "mapreduce.reduce.shuffle.merge.percent";
   public static final float DEFAULT_SHUFFLE_MERGE_PERCENT = 0.66f;
 
+  public static final String SHUFFLE_OFFHEAP_LIMIT_BYTES =
+      "mapreduce.reduce.shuffle.offheap.limit.bytes";
+  public static final long DEFAULT_SHUFFLE_OFFHEAP_LIMIT_BYTES = 0L;
+
+  public static final String SHUFFLE_MERGE_ADAPTIVE =
+      "mapreduce.reduce.shuffle.merge.adaptive";
+  public static final boolean DEFAULT_SHUFFLE_MERGE_ADAPTIVE = false;
+
   public static final String REDUCE_FAILURES_MAXPERCENT = "mapreduce.reduce.failures.maxpercent";
 
   public static final String REDUCE_ENV = "mapreduce.reduce.env";
@@ -569,6 +584,9 @@ public interface MRJobConfig {
   
   public static final String SHUFFLE_FETCH_RETRY_ENABLED = "mapreduce.reduce.shuffle.fetch.retry.enabled";
 
+  public static final String SHUFFLE_FETCH_MAX_MAPS = "mapreduce.reduce.shuffle.fetch.max-maps";
+  public static final int DEFAULT_SHUFFLE_FETCH_MAX_MAPS = 20;
+
   public static final String SHUFFLE_NOTIFY_READERROR = "mapreduce.reduce.shuffle.notify.readerror";
   
   public static final String MAX_SHUFFLE_FETCH_RETRY_DELAY = "mapreduce.reduce.shuffle.retry-delay.max.ms";
@@ -909,6 +927,15 @@ public interface MRJobConfig {
    */
   int DEFAULT_MR_AM_TASK_ESTIMATOR_SIMPLE_SMOOTH_INITIALS = 24;
 
+  /**
+   * The number of finished attempts on a node before the node throughput
+   * estimator may consider the node degraded.
+   */
+  String MR_AM_TASK_ESTIMATOR_NODE_THROUGHPUT_MIN_SAMPLES =
+      MR_AM_PREFIX
+          + "job.task.estimator.node-throughput.min-samples";
+  int DEFAULT_MR_AM_TASK_ESTIMATOR_NODE_THROUGHPUT_MIN_SAMPLES = 3;
+
   /** The number of threads used to handle task RPC calls.*/
   public static final String MR_AM_TASK_LISTENER_THREAD_COUNT =
     MR_AM_PREFIX + "job.task.listener.thread-count";
@@ -0,0 +1,468 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.lib.input;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.net.NetworkTopology;
+import org.apache.hadoop.net.NodeBase;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * An {@link org.apache.hadoop.mapreduce.InputFormat} that combines the small
+ * inputs of any other {@link FileInputFormat} into fewer splits.
+ *
+ * <p>The files are listed by the wrapped format, see
+ * {@link FileInputFormat#LIST_STATUS_NUM_THREADS} to list them in parallel,
+ * and cut into chunks the way it would cut them into splits. A chunk of at
+ * least {@link #SPLIT_TARGETSIZE} bytes makes a split of its own. The smaller
+ * ones are packed into splits of up to that size, first by the node holding
+ * them, then by rack, and what is left regardless of locality. Every chunk is
+ * visited a constant number of times, so this takes linear time in the number
+ * of files.
+ *
+ * <p>Unlike {@link CombineFileInputFormat} this works with the
+ * <code>RecordReader</code>s of the wrapped format as they are: every chunk of
+ * a split is read by one of them, given a {@link FileSplit} for the chunk.
+ * The wrapped format's own <code>getSplits</code> is not used.
+ *
+ * @see #setInputFormatClass(Job, Class)
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class CombiningFileInputFormat<K, V> extends FileInputFormat<K, V> {
+  public static final String INPUT_FORMAT_CLASS =
+      "mapreduce.input.combiningfileinputformat.inputformat.class";
+  public static final String SPLIT_TARGETSIZE =
+      "mapreduce.input.combiningfileinputformat.split.targetsize";
+  public static final long DEFAULT_SPLIT_TARGETSIZE = 128 * 1024 * 1024;
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(CombiningFileInputFormat.class);
+
+  private static final double SPLIT_SLOP = 1.1;   // 10% slop
+
+  // Node and rack local splits filled less than this are not made, their
+  // chunks are packed with the chunks of the whole rack or cluster instead.
+  private static final double MIN_FILL = 0.5;
+
+  /**
+   * Set the {@link FileInputFormat} whose inputs are combined.
+   * @param job the job
+   * @param inputFormatClass the format, {@link TextInputFormat} by default
+   */
+  @SuppressWarnings("rawtypes")
+  public static void setInputFormatClass(Job job,
+      Class<? extends FileInputFormat> inputFormatClass) {
+    job.getConfiguration().setClass(INPUT_FORMAT_CLASS, inputFormatClass,
+        FileInputFormat.class);
+  }
+
+  /**
+   * Set the size of the combined splits.
+   * @param job the job
+   * @param size the number of bytes a split is filled up to
+   */
+  public static void setTargetSplitSize(Job job, long size) {
+    job.getConfiguration().setLong(SPLIT_TARGETSIZE, size);
+  }
+
+  /**
+   * Get the size of the combined splits.
+   * @param job the job
+   * @return the number of bytes a split is filled up to
+   */
+  public static long getTargetSplitSize(JobContext job) {
+    return job.getConfiguration().getLong(SPLIT_TARGETSIZE,
+        DEFAULT_SPLIT_TARGETSIZE);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static <K, V> FileInputFormat<K, V> getInputFormat(
+      Configuration conf) {
+    Class<? extends FileInputFormat> inputFormatClass = conf.getClass(
+        INPUT_FORMAT_CLASS, TextInputFormat.class, FileInputFormat.class);
+    return (FileInputFormat<K, V>) ReflectionUtils.newInstance(
+        inputFormatClass, conf);
+  }
+
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return getInputFormat(job.getConfiguration()).listStatus(job);
+  }
+
+  @Override
+  protected boolean isSplitable(JobContext context, Path filename) {
+    return getInputFormat(context.getConfiguration())
+        .isSplitable(context, filename);
+  }
+
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    StopWatch sw = new StopWatch().start();
+    FileInputFormat<K, V> format = getInputFormat(job.getConfiguration());
+    List<FileStatus> files = format.listStatus(job);
+    List<InputSplit> splits = getSplits(job, format, files);
+    // Save the number of input files for metrics/loadgen
+    job.getConfiguration().setLong(NUM_INPUT_FILES, files.size());
+    sw.stop();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Total # of splits generated by getSplits: " + splits.size()
+          + " for " + files.size() + " files, TimeTaken: "
+          + sw.now(TimeUnit.MILLISECONDS));
+    }
+    return splits;
+  }
+
+  @VisibleForTesting
+  static List<InputSplit> getSplits(JobContext job,
+      FileInputFormat<?, ?> format, List<FileStatus> files)
+      throws IOException {
+    long minSize = Math.max(format.getFormatMinSplitSize(),
+        getMinSplitSize(job));
+    long maxSize = getMaxSplitSize(job);
+    boolean ignoreDirs = !getInputDirRecursive(job)
+        && job.getConfiguration().getBoolean(
+            INPUT_DIR_NONRECURSIVE_IGNORE_SUBDIRS, false);
+
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    Packer packer = new Packer(getTargetSplitSize(job), splits);
+    for (FileStatus file : files) {
+      if (ignoreDirs && file.isDirectory()) {
+        continue;
+      }
+      Path path = file.getPath();
+      long length = file.getLen();
+      if (length == 0) {
+        packer.add(new Chunk(path, 0, 0, null));
+        continue;
+      }
+      BlockLocation[] blkLocations;
+      if (file instanceof LocatedFileStatus) {
+        blkLocations = ((LocatedFileStatus) file).getBlockLocations();
+      } else {
+        FileSystem fs = path.getFileSystem(job.getConfiguration());
+        blkLocations = fs.getFileBlockLocations(file, 0, length);
+      }
+      if (format.isSplitable(job, path)) {
+        long splitSize = format.computeSplitSize(file.getBlockSize(),
+            minSize, maxSize);
+        long bytesRemaining = length;
+        while (((double) bytesRemaining) / splitSize > SPLIT_SLOP) {
+          int blkIndex = format.getBlockIndex(blkLocations,
+              length - bytesRemaining);
+          packer.add(new Chunk(path, length - bytesRemaining, splitSize,
+              blkLocations[blkIndex]));
+          bytesRemaining -= splitSize;
+        }
+        if (bytesRemaining != 0) {
+          int blkIndex = format.getBlockIndex(blkLocations,
+              length - bytesRemaining);
+          packer.add(new Chunk(path, length - bytesRemaining, bytesRemaining,
+              blkLocations[blkIndex]));
+        }
+      } else {
+        packer.add(new Chunk(path, 0, length, blkLocations[0]));
+      }
+    }
+    packer.pack();
+    return splits;
+  }
+
+  /**
+   * A part of a file, read as one {@link FileSplit}.
+   */
+  private static class Chunk {
+    private final Path path;
+    private final long start;
+    private final long length;
+    private final String[] hosts;
+    private final String[] racks;
+
+    Chunk(Path path, long start, long length, BlockLocation location)
+        throws IOException {
+      this.path = path;
+      this.start = start;
+      this.length = length;
+      if (location == null) {
+        hosts = new String[0];
+        racks = new String[0];
+        return;
+      }
+      hosts = location.getHosts();
+      // the topology paths have the host as their last component
+      String[] topologyPaths = location.getTopologyPaths();
+      racks = new String[hosts.length];
+      for (int i = 0; i < hosts.length; i++) {
+        racks[i] = topologyPaths.length == hosts.length
+            ? new NodeBase(topologyPaths[i]).getNetworkLocation()
+            : NetworkTopology.DEFAULT_RACK;
+      }
+    }
+  }
+
+  /**
+   * Packs the chunks into splits, by node, by rack and then regardless of
+   * locality.
+   */
+  private static class Packer {
+    private final long targetSize;
+    private final List<InputSplit> splits;
+    private final Map<String, List<Chunk>> nodeChunks =
+        new LinkedHashMap<String, List<Chunk>>();
+    private final Map<String, Long> nodeBytes = new HashMap<String, Long>();
+    private final Map<String, String> nodeRacks =
+        new HashMap<String, String>();
+    private final List<Chunk> otherChunks = new ArrayList<Chunk>();
+
+    Packer(long targetSize, List<InputSplit> splits) {
+      this.targetSize = targetSize;
+      this.splits = splits;
+    }
+
+    void add(Chunk chunk) {
+      if (chunk.length >= targetSize) {
+        List<Chunk> single = new ArrayList<Chunk>(1);
+        single.add(chunk);
+        addSplit(single, chunk.hosts);
+        return;
+      }
+      if (chunk.hosts.length == 0) {
+        otherChunks.add(chunk);
+        return;
+      }
+      // the node holding a replica with the fewest bytes to read so far
+      String node = null;
+      long fewest = Long.MAX_VALUE;
+      for (int i = 0; i < chunk.hosts.length; i++) {
+        Long bytes = nodeBytes.get(chunk.hosts[i]);
+        if (bytes == null) {
+          bytes = 0L;
+          nodeRacks.put(chunk.hosts[i], chunk.racks[i]);
+        }
+        if (bytes < fewest) {
+          node = chunk.hosts[i];
+          fewest = bytes;
+        }
+      }
+      nodeBytes.put(node, fewest + chunk.length);
+      List<Chunk> chunks = nodeChunks.get(node);
+      if (chunks == null) {
+        chunks = new ArrayList<Chunk>();
+        nodeChunks.put(node, chunks);
+      }
+      chunks.add(chunk);
+    }
+
+    void pack() {
+      Map<String, List<Chunk>> rackChunks =
+          new LinkedHashMap<String, List<Chunk>>();
+      Map<String, Set<String>> rackNodes =
+          new HashMap<String, Set<String>>();
+      for (Map.Entry<String, List<Chunk>> entry : nodeChunks.entrySet()) {
+        String node = entry.getKey();
+        List<Chunk> rest = fill(entry.getValue(), new String[] {node}, false);
+        if (rest.isEmpty()) {
+          continue;
+        }
+        String rack = nodeRacks.get(node);
+        List<Chunk> chunks = rackChunks.get(rack);
+        if (chunks == null) {
+          chunks = new ArrayList<Chunk>();
+          rackChunks.put(rack, chunks);
+          rackNodes.put(rack, new LinkedHashSet<String>());
+        }
+        chunks.addAll(rest);
+        rackNodes.get(rack).add(node);
+      }
+      for (Map.Entry<String, List<Chunk>> entry : rackChunks.entrySet()) {
+        Set<String> nodes = rackNodes.get(entry.getKey());
+        otherChunks.addAll(fill(entry.getValue(),
+            nodes.toArray(new String[nodes.size()]), false));
+      }
+      fill(otherChunks, new String[0], true);
+    }
+
+    /**
+     * Make splits of up to the target size from the chunks.
+     * @return the chunks of a last split that would be filled too little,
+     *         unless it is made anyway
+     */
+    private List<Chunk> fill(List<Chunk> chunks, String[] locations,
+        boolean all) {
+      List<Chunk> bin = new ArrayList<Chunk>();
+      long bytes = 0;
+      for (Chunk chunk : chunks) {
+        if (!bin.isEmpty() && bytes + chunk.length > targetSize) {
+          addSplit(bin, locations);
+          bin = new ArrayList<Chunk>();
+          bytes = 0;
+        }
+        bin.add(chunk);
+        bytes += chunk.length;
+      }
+      if (!bin.isEmpty() && (all || bytes >= targetSize * MIN_FILL)) {
+        addSplit(bin, locations);
+        bin = new ArrayList<Chunk>();
+      }
+      return bin;
+    }
+
+    private void addSplit(List<Chunk> chunks, String[] locations) {
+      Path[] paths = new Path[chunks.size()];
+      long[] starts = new long[chunks.size()];
+      long[] lengths = new long[chunks.size()];
+      for (int i = 0; i < paths.length; i++) {
+        Chunk chunk = chunks.get(i);
+        paths[i] = chunk.path;
+        starts[i] = chunk.start;
+        lengths[i] = chunk.length;
+      }
+      splits.add(new CombineFileSplit(paths, starts, lengths, locations));
+    }
+  }
+
+  @Override
+  public RecordReader<K, V> createRecordReader(InputSplit split,
+      TaskAttemptContext context) throws IOException {
+    return new CombiningRecordReader<K, V>(
+        CombiningFileInputFormat.<K, V>getInputFormat(
+            context.getConfiguration()));
+  }
+
+  /**
+   * Reads the chunks of a {@link CombineFileSplit} one after the other with
+   * the record readers of the wrapped format.
+   */
+  private static class CombiningRecordReader<K, V>
+      extends RecordReader<K, V> {
+    private final FileInputFormat<K, V> format;
+    private CombineFileSplit split;
+    private TaskAttemptContext context;
+    private int idx;
+    private long progress;
+    private RecordReader<K, V> curReader;
+
+    CombiningRecordReader(FileInputFormat<K, V> format) {
+      this.format = format;
+    }
+
+    @Override
+    public void initialize(InputSplit genericSplit,
+        TaskAttemptContext taskContext) {
+      this.split = (CombineFileSplit) genericSplit;
+      this.context = taskContext;
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      while ((curReader == null) || !curReader.nextKeyValue()) {
+        if (!initNextRecordReader()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public K getCurrentKey() throws IOException, InterruptedException {
+      return curReader.getCurrentKey();
+    }
+
+    @Override
+    public V getCurrentValue() throws IOException, InterruptedException {
+      return curReader.getCurrentValue();
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      if (split.getLength() == 0) {
+        return idx == split.getNumPaths() && curReader == null ? 1.0f : 0.0f;
+      }
+      long subprogress = 0;    // bytes processed in current chunk
+      if (curReader != null) {
+        // idx is always one past the current chunk's index.
+        subprogress =
+            (long) (curReader.getProgress() * split.getLength(idx - 1));
+      }
+      return Math.min(1.0f,
+          (progress + subprogress) / (float) split.getLength());
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (curReader != null) {
+        curReader.close();
+        curReader = null;
+      }
+    }
+
+    private boolean initNextRecordReader()
+        throws IOException, InterruptedException {
+      if (curReader != null) {
+        curReader.close();
+        curReader = null;
+        progress += split.getLength(idx - 1);
+      }
+      if (idx == split.getNumPaths()) {
+        return false;
+      }
+      context.progress();
+
+      Configuration conf = context.getConfiguration();
+      conf.set(MRJobConfig.MAP_INPUT_FILE, split.getPath(idx).toString());
+      conf.setLong(MRJobConfig.MAP_INPUT_START, split.getOffset(idx));
+      conf.setLong(MRJobConfig.MAP_INPUT_LENGTH, split.getLength(idx));
+
+      FileSplit fileSplit = new FileSplit(split.getPath(idx),
+          split.getOffset(idx), split.getLength(idx), split.getLocations());
+      curReader = format.createRecordReader(fileSplit, context);
+      curReader.initialize(fileSplit, context);
+      idx++;
+      return true;
+    }
+  }
+}
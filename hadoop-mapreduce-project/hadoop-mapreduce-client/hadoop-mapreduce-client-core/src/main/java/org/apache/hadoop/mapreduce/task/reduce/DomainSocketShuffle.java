@@ -0,0 +1,248 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.task.reduce;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.security.SecureShuffleUtils;
+import org.apache.hadoop.net.unix.DomainSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The protocol of node-local shuffles over a UNIX domain socket. Instead of
+ * sending the map-outputs, the ShuffleHandler passes the descriptors of the
+ * map-output files to the reducer, which reads its partitions from them.
+ * <p>
+ * A request holds the job, the reduce, the map ids and a hash of them made
+ * with the job token, as the URL hash of HTTP requests. The reply starts
+ * with a status. On success the hash of the request hash follows, then for
+ * every map its {@link ShuffleHeader}, the offset of the partition in the
+ * file, and the file descriptor, sent along with a single byte. On error an
+ * error message follows.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public final class DomainSocketShuffle {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(DomainSocketShuffle.class);
+
+  public static final int VERSION = 1;
+  public static final int STATUS_OK = 0;
+  public static final int STATUS_ERROR = 1;
+
+  private static final int DATA_BUFFER_SIZE = 64 * 1024;
+
+  private DomainSocketShuffle() {
+  }
+
+  /**
+   * @return the path of the socket of the ShuffleHandler listening on
+   * {@code port}, or null if node-local shuffles are disabled.
+   */
+  public static String getPath(Configuration conf, int port) {
+    final String path = conf.getTrimmed(MRConfig.SHUFFLE_DOMAIN_SOCKET_PATH,
+        MRConfig.DEFAULT_SHUFFLE_DOMAIN_SOCKET_PATH);
+    if (path.isEmpty()) {
+      return null;
+    }
+    return DomainSocket.getEffectivePath(path, port);
+  }
+
+  /**
+   * A request for the partitions of some maps of a job.
+   */
+  public static class Request {
+    private final String jobId;
+    private final int reduce;
+    private final List<String> mapIds;
+    private final String hash;
+
+    public Request(String jobId, int reduce, List<String> mapIds,
+        SecretKey jobTokenSecret) throws IOException {
+      this.jobId = jobId;
+      this.reduce = reduce;
+      this.mapIds = mapIds;
+      this.hash = SecureShuffleUtils.hashFromString(
+          buildMsg(jobId, reduce, mapIds), jobTokenSecret);
+    }
+
+    private Request(String jobId, int reduce, List<String> mapIds,
+        String hash) {
+      this.jobId = jobId;
+      this.reduce = reduce;
+      this.mapIds = mapIds;
+      this.hash = hash;
+    }
+
+    public String getJobId() {
+      return jobId;
+    }
+
+    public int getReduce() {
+      return reduce;
+    }
+
+    public List<String> getMapIds() {
+      return mapIds;
+    }
+
+    /**
+     * Verify the hash of the request.
+     * @return the hash to reply with.
+     * @throws IOException if the request is not authenticated.
+     */
+    public String verify(SecretKey jobTokenSecret) throws IOException {
+      SecureShuffleUtils.verifyReply(hash,
+          buildMsg(jobId, reduce, mapIds), jobTokenSecret);
+      return SecureShuffleUtils.hashFromString(hash, jobTokenSecret);
+    }
+
+    private static String buildMsg(String jobId, int reduce,
+        List<String> mapIds) {
+      final StringBuilder msg = new StringBuilder(jobId);
+      msg.append('/').append(reduce);
+      for (String mapId : mapIds) {
+        msg.append('/').append(mapId);
+      }
+      return msg.toString();
+    }
+
+    public void write(DataOutput out) throws IOException {
+      out.writeInt(VERSION);
+      Text.writeString(out, jobId);
+      WritableUtils.writeVInt(out, reduce);
+      WritableUtils.writeVInt(out, mapIds.size());
+      for (String mapId : mapIds) {
+        Text.writeString(out, mapId);
+      }
+      Text.writeString(out, hash);
+    }
+
+    public static Request read(DataInput in, int maxMaps) throws IOException {
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Incompatible shuffle request version "
+            + version);
+      }
+      final String jobId = Text.readString(in);
+      final int reduce = WritableUtils.readVInt(in);
+      final int numMaps = WritableUtils.readVInt(in);
+      if (numMaps < 0 || numMaps > maxMaps) {
+        throw new IOException("Invalid number of maps " + numMaps);
+      }
+      final List<String> mapIds = new ArrayList<String>(numMaps);
+      for (int i = 0; i < numMaps; i++) {
+        mapIds.add(Text.readString(in));
+      }
+      final String hash = Text.readString(in);
+      return new Request(jobId, reduce, Collections.unmodifiableList(mapIds),
+          hash);
+    }
+  }
+
+  /**
+   * The reducer side of a request. The headers of the map-outputs are read
+   * from {@link #getInputStream()}, each followed by {@link #openData()}.
+   */
+  public static class Client implements Closeable {
+    private final DomainSocket socket;
+    private final DataInputStream in;
+    private final byte[] marker = new byte[1];
+    private FileInputStream data;
+
+    public Client(String path, Request request, SecretKey jobTokenSecret,
+        int timeout) throws IOException {
+      socket = DomainSocket.connect(path);
+      try {
+        socket.setAttribute(DomainSocket.SEND_TIMEOUT, timeout);
+        socket.setAttribute(DomainSocket.RECEIVE_TIMEOUT, timeout);
+        final DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream()));
+        request.write(out);
+        out.flush();
+        // not buffered, the descriptors are received out of the stream
+        in = new DataInputStream(socket.getInputStream());
+        if (in.readInt() != STATUS_OK) {
+          throw new IOException("Shuffle request failed: "
+              + Text.readString(in));
+        }
+        SecureShuffleUtils.verifyReply(Text.readString(in), request.hash,
+            jobTokenSecret);
+      } catch (IOException e) {
+        IOUtils.cleanupWithLogger(LOG, socket);
+        throw e;
+      }
+    }
+
+    public DataInputStream getInputStream() {
+      return in;
+    }
+
+    /**
+     * Receive the file of the map-output whose header was read last.
+     * @return the partition of the reduce, valid until the next call.
+     */
+    public InputStream openData() throws IOException {
+      closeData();
+      final long offset = in.readLong();
+      final FileInputStream[] files = new FileInputStream[1];
+      if (socket.recvFileInputStreams(files, marker, 0, 1) <= 0
+          || files[0] == null) {
+        throw new IOException("No map-output file received");
+      }
+      data = files[0];
+      data.getChannel().position(offset);
+      return new BufferedInputStream(data, DATA_BUFFER_SIZE);
+    }
+
+    private void closeData() {
+      if (data != null) {
+        IOUtils.cleanupWithLogger(LOG, data);
+        data = null;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      closeData();
+      socket.close();
+    }
+  }
+}
@@ -18,18 +18,23 @@
 package org.apache.hadoop.mapreduce.task.reduce;
 
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.crypto.SecretKey;
@@ -45,6 +50,8 @@
 import org.apache.hadoop.mapreduce.security.IntermediateEncryptedStream;
 import org.apache.hadoop.mapreduce.security.SecureShuffleUtils;
 import org.apache.hadoop.mapreduce.CryptoUtils;
+import org.apache.hadoop.net.NetUtils;
+import org.apache.hadoop.net.unix.DomainSocket;
 import org.apache.hadoop.security.ssl.SSLFactory;
 import org.apache.hadoop.util.Time;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
@@ -90,6 +97,7 @@
   protected final int id;
   private static int nextId = 0;
   protected final int reduce;
+  private final String jobId;
   
   private final int connectionTimeout;
   private final int readTimeout;
@@ -101,6 +109,11 @@
   
   private final SecretKey shuffleSecretKey;
 
+  // whether the shuffle domain socket may be used to fetch from a host
+  private final boolean domainSocketEnabled;
+  private final Map<String, Boolean> domainSocketHosts =
+      new HashMap<String, Boolean>();
+
   protected HttpURLConnection connection;
   private volatile boolean stopped = false;
   
@@ -132,6 +145,7 @@ public Fetcher(JobConf job, TaskAttemptID reduceId,
     this.exceptionReporter = exceptionReporter;
     this.id = id;
     this.reduce = reduceId.getTaskID().getId();
+    this.jobId = reduceId.getJobID().toString();
     this.shuffleSecretKey = shuffleKey;
     ioErrs = reporter.getCounter(SHUFFLE_ERR_GRP_NAME,
         ShuffleErrors.IO_ERROR.toString());
@@ -165,6 +179,14 @@ public Fetcher(JobConf job, TaskAttemptID reduceId,
         MRJobConfig.SHUFFLE_FETCH_RETRY_ENABLED, 
         shuffleFetchEnabledDefault);
     
+    boolean domainSocket = DomainSocketShuffle.getPath(job, 0) != null;
+    if (domainSocket && DomainSocket.getLoadingFailureReason() != null) {
+      LOG.warn("Node-local shuffles are disabled: "
+          + DomainSocket.getLoadingFailureReason());
+      domainSocket = false;
+    }
+    this.domainSocketEnabled = domainSocket;
+
     setName("fetcher#" + id);
     setDaemon(true);
 
@@ -322,6 +344,10 @@ protected void copyFromHost(MapHost host) throws IOException {
     
     // List of maps to be fetched yet
     Set<TaskAttemptID> remaining = new HashSet<TaskAttemptID>(maps);
+
+    if (copyFromLocalHost(host, remaining)) {
+      return;
+    }
     
     // Construct the url and connect
     URL url = getMapOutputURL(host, maps);
@@ -355,13 +381,7 @@ protected void copyFromHost(MapHost host) throws IOException {
         }
       }
       
-      if(failedTasks != null && failedTasks.length > 0) {
-        LOG.warn("copyMapOutput failed for tasks "+Arrays.toString(failedTasks));
-        scheduler.hostFailed(host.getHostName());
-        for(TaskAttemptID left: failedTasks) {
-          scheduler.copyFailed(left, host, true, false);
-        }
-      }
+      reportFailedTasks(host, failedTasks);
 
       // Sanity check
       if (failedTasks == null && !remaining.isEmpty()) {
@@ -381,6 +401,99 @@ protected void copyFromHost(MapHost host) throws IOException {
     }
   }
 
+  private void reportFailedTasks(MapHost host, TaskAttemptID[] failedTasks) {
+    if(failedTasks != null && failedTasks.length > 0) {
+      LOG.warn("copyMapOutput failed for tasks "+Arrays.toString(failedTasks));
+      scheduler.hostFailed(host.getHostName());
+      for(TaskAttemptID left: failedTasks) {
+        scheduler.copyFailed(left, host, true, false);
+      }
+    }
+  }
+
+  /**
+   * Fetch the map-outputs of a host on this node through the domain socket
+   * of its ShuffleHandler, reading them from the map-output files directly.
+   * @return false if the map-outputs have to be fetched over HTTP.
+   */
+  private boolean copyFromLocalHost(MapHost host,
+      Set<TaskAttemptID> remaining) throws IOException {
+    final String path = getDomainSocketPath(host);
+    if (path == null) {
+      return false;
+    }
+    if (!new File(path).exists()) {
+      // The ShuffleHandler of the host does not serve node-local shuffles
+      domainSocketHosts.put(host.getHostName(), false);
+      return false;
+    }
+    final List<String> mapIds = new ArrayList<String>(remaining.size());
+    for (TaskAttemptID mapId : remaining) {
+      mapIds.add(mapId.toString());
+    }
+    final DomainSocketShuffle.Client client;
+    try {
+      client = new DomainSocketShuffle.Client(path,
+          new DomainSocketShuffle.Request(jobId, reduce, mapIds,
+              shuffleSecretKey), shuffleSecretKey, readTimeout);
+    } catch (IOException e) {
+      // The failure may be transient, so only this fetch uses HTTP
+      LOG.warn("Failed to shuffle from " + host + " through " + path
+          + ", falling back to HTTP", e);
+      return false;
+    }
+    try {
+      TaskAttemptID[] failedTasks = null;
+      while (!remaining.isEmpty() && failedTasks == null) {
+        failedTasks = copyMapOutput(host, client.getInputStream(),
+            remaining, false, client::openData);
+      }
+      reportFailedTasks(host, failedTasks);
+    } finally {
+      IOUtils.cleanupWithLogger(LOG, client);
+      for (TaskAttemptID left : remaining) {
+        scheduler.putBackKnownMapOutput(host, left);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the path of the domain socket of the ShuffleHandler of
+   * {@code host}, or null if it is not on this node.
+   */
+  private String getDomainSocketPath(MapHost host) {
+    if (!domainSocketEnabled) {
+      return null;
+    }
+    final String hostName = host.getHostName();
+    final int colon = hostName.lastIndexOf(':');
+    if (colon < 0) {
+      return null;
+    }
+    Boolean local = domainSocketHosts.get(hostName);
+    if (local == null) {
+      try {
+        local = NetUtils.isLocalAddress(
+            InetAddress.getByName(hostName.substring(0, colon)));
+      } catch (IOException e) {
+        // Resolve the host again on the next fetch
+        return null;
+      }
+      domainSocketHosts.put(hostName, local);
+    }
+    if (!local) {
+      return null;
+    }
+    try {
+      return DomainSocketShuffle.getPath(jobConf,
+          Integer.parseInt(hostName.substring(colon + 1)));
+    } catch (NumberFormatException e) {
+      domainSocketHosts.put(hostName, false);
+      return null;
+    }
+  }
+
   private void setupConnectionsWithRetry(URL url) throws IOException {
     openConnectionWithRetry(url);
     if (stopped) {
@@ -484,11 +597,27 @@ private void setupShuffleConnection(String encHash) {
   }
   
   private static TaskAttemptID[] EMPTY_ATTEMPT_ID_ARRAY = new TaskAttemptID[0];
-  
+
+  /**
+   * Opens the data of a map-output once its header has been read.
+   */
+  private interface MapOutputData {
+    InputStream open() throws IOException;
+  }
+
   private TaskAttemptID[] copyMapOutput(MapHost host,
                                 DataInputStream input,
                                 Set<TaskAttemptID> remaining,
                                 boolean canRetry) throws IOException {
+    // the data follows the header in the response
+    return copyMapOutput(host, input, remaining, canRetry, () -> input);
+  }
+
+  private TaskAttemptID[] copyMapOutput(MapHost host,
+                                DataInputStream input,
+                                Set<TaskAttemptID> remaining,
+                                boolean canRetry,
+                                MapOutputData data) throws IOException {
     MapOutput<K,V> mapOutput = null;
     TaskAttemptID mapId = null;
     long decompressedLength = -1;
@@ -512,7 +641,7 @@ private TaskAttemptID[] copyMapOutput(MapHost host,
         return remaining.toArray(new TaskAttemptID[remaining.size()]);
       }
 
-      InputStream is = input;
+      InputStream is = data.open();
       is =
           IntermediateEncryptedStream.wrapIfNecessary(jobConf, is,
               compressedLength, null);
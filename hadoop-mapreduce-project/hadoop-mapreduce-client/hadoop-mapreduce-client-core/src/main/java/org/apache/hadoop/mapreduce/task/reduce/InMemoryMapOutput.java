@@ -19,6 +19,7 @@
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -36,6 +37,7 @@
 import org.apache.hadoop.mapred.Reporter;
 
 import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.util.CleanerUtil;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,8 +47,12 @@
 class InMemoryMapOutput<K, V> extends IFileWrappedMapOutput<K, V> {
   private static final Logger LOG =
       LoggerFactory.getLogger(InMemoryMapOutput.class);
+  private static final int OFF_HEAP_COPY_SIZE = 64 * 1024;
+
   private final byte[] memory;
   private BoundedByteArrayOutputStream byteStream;
+  // Direct buffer holding the map-output when it is kept off-heap
+  private ByteBuffer offHeapMemory;
   // Decompression of map-outputs
   private final CompressionCodec codec;
   private final Decompressor decompressor;
@@ -55,10 +61,23 @@ public InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
                            MergeManagerImpl<K, V> merger,
                            int size, CompressionCodec codec,
                            boolean primaryMapOutput) {
+    this(conf, mapId, merger, size, codec, primaryMapOutput, false);
+  }
+
+  public InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
+                           MergeManagerImpl<K, V> merger,
+                           int size, CompressionCodec codec,
+                           boolean primaryMapOutput, boolean offHeap) {
     super(conf, merger, mapId, (long)size, primaryMapOutput);
     this.codec = codec;
-    byteStream = new BoundedByteArrayOutputStream(size);
-    memory = byteStream.getBuffer();
+    if (offHeap) {
+      byteStream = null;
+      memory = null;
+      offHeapMemory = ByteBuffer.allocateDirect(size);
+    } else {
+      byteStream = new BoundedByteArrayOutputStream(size);
+      memory = byteStream.getBuffer();
+    }
     if (codec != null) {
       decompressor = CodecPool.getDecompressor(codec);
     } else {
@@ -66,10 +85,24 @@ public InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
     }
   }
 
+  /**
+   * @return the map-output, or null if it is kept off-heap.
+   */
   public byte[] getMemory() {
     return memory;
   }
 
+  /**
+   * @return the map-output, or null if it is kept on the heap.
+   */
+  public ByteBuffer getOffHeapMemory() {
+    return offHeapMemory;
+  }
+
+  public boolean isOffHeap() {
+    return offHeapMemory != null;
+  }
+
   public BoundedByteArrayOutputStream getArrayStream() {
     return byteStream;
   }
@@ -88,10 +121,15 @@ protected void doShuffle(MapHost host, IFileInputStream iFin,
     }
   
     try {
-      IOUtils.readFully(input, memory, 0, memory.length);
-      metrics.inputBytes(memory.length);
+      final int size = (int) getSize();
+      if (isOffHeap()) {
+        readOffHeap(input, size);
+      } else {
+        IOUtils.readFully(input, memory, 0, size);
+      }
+      metrics.inputBytes(size);
       reporter.progress();
-      LOG.info("Read " + memory.length + " bytes from map-output for " +
+      LOG.info("Read " + size + " bytes from map-output for " +
                 getMapId());
 
       /**
@@ -110,6 +148,37 @@ protected void doShuffle(MapHost host, IFileInputStream iFin,
     }
   }
 
+  private void readOffHeap(InputStream input, int size) throws IOException {
+    final byte[] chunk = new byte[Math.min(size, OFF_HEAP_COPY_SIZE)];
+    offHeapMemory.clear();
+    while (offHeapMemory.hasRemaining()) {
+      final int len = Math.min(chunk.length, offHeapMemory.remaining());
+      IOUtils.readFully(input, chunk, 0, len);
+      offHeapMemory.put(chunk, 0, len);
+    }
+    offHeapMemory.flip();
+  }
+
+  /**
+   * Release the direct buffer of an off-heap map-output right away, instead
+   * of waiting for it to be garbage collected.
+   */
+  void freeOffHeapMemory() {
+    final ByteBuffer buffer = offHeapMemory;
+    if (buffer == null) {
+      return;
+    }
+    offHeapMemory = null;
+    if (CleanerUtil.UNMAP_SUPPORTED) {
+      try {
+        CleanerUtil.getCleaner().freeBuffer(buffer);
+      } catch (IOException e) {
+        LOG.debug("Failed to free the off-heap map-output of " + getMapId(),
+            e);
+      }
+    }
+  }
+
   @Override
   public void commit() throws IOException {
     getMerger().closeInMemoryFile(this);
@@ -117,7 +186,8 @@ public void commit() throws IOException {
   
   @Override
   public void abort() {
-    getMerger().unreserve(memory.length);
+    freeOffHeapMemory();
+    getMerger().unreserve(getSize());
   }
 
   @Override
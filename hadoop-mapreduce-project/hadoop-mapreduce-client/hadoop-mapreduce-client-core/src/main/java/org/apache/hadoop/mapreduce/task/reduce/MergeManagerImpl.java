@@ -57,6 +57,7 @@
 import org.apache.hadoop.mapreduce.task.reduce.MapOutput.MapOutputComparator;
 import org.apache.hadoop.util.Progress;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -106,6 +107,25 @@
   
   private final int memToMemMergeOutputsThreshold; 
   private final long mergeThreshold;
+
+  /**
+   * Whether map-outputs shuffled into memory are kept in direct buffers.
+   */
+  @VisibleForTesting
+  final boolean offHeap;
+
+  /**
+   * Whether the in-memory merge threshold adapts to the rate at which
+   * map-outputs arrive, see {@link #getMergeThreshold()}.
+   */
+  private final boolean adaptiveMerge;
+  // Weight of the latest sample in the moving averages below
+  private static final double ADAPTIVE_MERGE_SMOOTHING = 0.2;
+  private long lastCommitTime;
+  // Bytes of map-outputs committed to memory per millisecond
+  private double commitRate;
+  private double averageMapOutputSize;
+  private double inMemoryMergeMillis;
   
   private final int ioSortFactor;
 
@@ -171,10 +191,19 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
           maxInMemCopyUse);
     }
 
-    // Allow unit tests to fix Runtime memory
-    this.memoryLimit = (long)(jobConf.getLong(
-        MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES,
-        Runtime.getRuntime().maxMemory()) * maxInMemCopyUse);
+    final long offHeapLimit =
+        jobConf.getLong(MRJobConfig.SHUFFLE_OFFHEAP_LIMIT_BYTES,
+            MRJobConfig.DEFAULT_SHUFFLE_OFFHEAP_LIMIT_BYTES);
+    this.offHeap = offHeapLimit > 0;
+    if (offHeap) {
+      // Direct buffers are accounted separately from the heap
+      this.memoryLimit = offHeapLimit;
+    } else {
+      // Allow unit tests to fix Runtime memory
+      this.memoryLimit = (long)(jobConf.getLong(
+          MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES,
+          Runtime.getRuntime().maxMemory()) * maxInMemCopyUse);
+    }
 
     this.ioSortFactor = jobConf.getInt(MRJobConfig.IO_SORT_FACTOR,
         MRJobConfig.DEFAULT_IO_SORT_FACTOR);
@@ -205,7 +234,12 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
                           jobConf.getFloat(
                             MRJobConfig.SHUFFLE_MERGE_PERCENT,
                             MRJobConfig.DEFAULT_SHUFFLE_MERGE_PERCENT));
+    this.adaptiveMerge = jobConf.getBoolean(
+        MRJobConfig.SHUFFLE_MERGE_ADAPTIVE,
+        MRJobConfig.DEFAULT_SHUFFLE_MERGE_ADAPTIVE);
     LOG.info("MergerManager: memoryLimit=" + memoryLimit + ", " +
+             "offHeap=" + offHeap + ", " +
+             "adaptiveMerge=" + adaptiveMerge + ", " +
              "maxSingleShuffleLimit=" + maxSingleShuffleLimit + ", " +
              "mergeThreshold=" + mergeThreshold + ", " + 
              "ioSortFactor=" + ioSortFactor + ", " +
@@ -220,6 +254,11 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
 
     boolean allowMemToMemMerge = 
       jobConf.getBoolean(MRJobConfig.REDUCE_MEMTOMEM_ENABLED, false);
+    if (allowMemToMemMerge && offHeap) {
+      LOG.warn(MRJobConfig.REDUCE_MEMTOMEM_ENABLED + " is ignored since "
+          + "map-outputs are kept off-heap");
+      allowMemToMemMerge = false;
+    }
     if (allowMemToMemMerge) {
       this.memToMemMerger = 
         new IntermediateMemoryToMemoryMerger(this,
@@ -310,8 +349,10 @@ public synchronized MapOutput<K,V> reserve(TaskAttemptID mapId,
   private synchronized InMemoryMapOutput<K, V> unconditionalReserve(
       TaskAttemptID mapId, long requestedSize, boolean primaryMapOutput) {
     usedMemory += requestedSize;
+    // The Memory-to-Memory merge writes its output through a byte array
     return new InMemoryMapOutput<K,V>(jobConf, mapId, this, (int)requestedSize,
-                                      codec, primaryMapOutput);
+                                      codec, primaryMapOutput,
+                                      offHeap && primaryMapOutput);
   }
   
   synchronized void unreserve(long size) {
@@ -325,11 +366,15 @@ public synchronized void closeInMemoryFile(InMemoryMapOutput<K,V> mapOutput) {
         + ", commitMemory -> " + commitMemory + ", usedMemory ->" + usedMemory);
 
     commitMemory+= mapOutput.getSize();
+    if (adaptiveMerge) {
+      recordCommit(mapOutput.getSize(), Time.monotonicNow());
+    }
 
     // Can hang if mergeThreshold is really low.
-    if (commitMemory >= mergeThreshold) {
+    final long threshold = getMergeThreshold();
+    if (commitMemory >= threshold) {
       LOG.info("Starting inMemoryMerger's merge since commitMemory=" +
-          commitMemory + " > mergeThreshold=" + mergeThreshold + 
+          commitMemory + " > mergeThreshold=" + threshold + 
           ". Current usedMemory=" + usedMemory);
       inMemoryMapOutputs.addAll(inMemoryMergedMapOutputs);
       inMemoryMergedMapOutputs.clear();
@@ -345,6 +390,49 @@ public synchronized void closeInMemoryFile(InMemoryMapOutput<K,V> mapOutput) {
   }
   
   
+  @VisibleForTesting
+  synchronized void recordCommit(long size, long now) {
+    if (averageMapOutputSize == 0) {
+      averageMapOutputSize = size;
+    } else {
+      averageMapOutputSize += ADAPTIVE_MERGE_SMOOTHING *
+          (size - averageMapOutputSize);
+    }
+    if (lastCommitTime > 0 && now > lastCommitTime) {
+      final double rate = (double) size / (now - lastCommitTime);
+      commitRate = commitRate == 0 ? rate :
+          commitRate + ADAPTIVE_MERGE_SMOOTHING * (rate - commitRate);
+    }
+    lastCommitTime = now;
+  }
+
+  @VisibleForTesting
+  synchronized void recordInMemoryMerge(long millis) {
+    inMemoryMergeMillis = inMemoryMergeMillis == 0 ? millis :
+        inMemoryMergeMillis + ADAPTIVE_MERGE_SMOOTHING *
+            (millis - inMemoryMergeMillis);
+  }
+
+  /**
+   * @return the committed memory at which an in-memory merge is started.
+   * With adaptive merges, the merge starts early enough that the map-outputs
+   * arriving while it runs still fit into memory, so fetchers do not stall.
+   * It is never started before half of the configured threshold, nor before
+   * about io.sort.factor map-outputs are available, which keeps the number of
+   * small spills down when map-outputs are small.
+   */
+  @VisibleForTesting
+  synchronized long getMergeThreshold() {
+    if (!adaptiveMerge || inMemoryMergeMillis == 0) {
+      return mergeThreshold;
+    }
+    final long expectedArrivals = (long) (commitRate * inMemoryMergeMillis);
+    final long lowerBound = Math.max(mergeThreshold / 2,
+        Math.min(mergeThreshold, (long) (ioSortFactor * averageMapOutputSize)));
+    return Math.max(lowerBound,
+        Math.min(mergeThreshold, memoryLimit - expectedArrivals));
+  }
+  
   public synchronized void closeInMemoryMergedFile(InMemoryMapOutput<K,V> mapOutput) {
     inMemoryMergedMapOutputs.add(mapOutput);
     LOG.info("closeInMemoryMergedFile -> size: " + mapOutput.getSize() + 
@@ -457,6 +545,7 @@ public void merge(List<InMemoryMapOutput<K,V>> inputs) throws IOException {
       //figure out the mapId 
       TaskAttemptID mapId = inputs.get(0).getMapId();
       TaskID mapTaskId = mapId.getTaskID();
+      final long mergeStart = Time.monotonicNow();
 
       List<Segment<K, V>> inMemorySegments = new ArrayList<Segment<K, V>>();
       long mergeOutputSize = 
@@ -511,6 +600,8 @@ public void merge(List<InMemoryMapOutput<K,V>> inputs) throws IOException {
         throw e;
       }
 
+      recordInMemoryMerge(Time.monotonicNow() - mergeStart);
+
       // Note the output of the merge
       closeOnDiskFile(compressAwarePath);
     }
@@ -626,17 +717,23 @@ private long createInMemorySegments(List<InMemoryMapOutput<K,V>> inMemoryMapOutp
     // closed but not yet present in inMemoryMapOutputs
     long fullSize = 0L;
     for (InMemoryMapOutput<K,V> mo : inMemoryMapOutputs) {
-      fullSize += mo.getMemory().length;
+      fullSize += mo.getSize();
     }
     while(fullSize > leaveBytes) {
       InMemoryMapOutput<K,V> mo = inMemoryMapOutputs.remove(0);
-      byte[] data = mo.getMemory();
-      long size = data.length;
+      long size = mo.getSize();
       totalSize += size;
       fullSize -= size;
-      Reader<K,V> reader = new InMemoryReader<K,V>(MergeManagerImpl.this, 
-                                                   mo.getMapId(),
-                                                   data, 0, (int)size, jobConf);
+      Reader<K,V> reader;
+      if (mo.isOffHeap()) {
+        reader = new OffHeapInMemoryReader<K,V>(MergeManagerImpl.this, mo,
+                                                jobConf);
+      } else {
+        reader = new InMemoryReader<K,V>(MergeManagerImpl.this,
+                                         mo.getMapId(),
+                                         mo.getMemory(), 0, (int)size,
+                                         jobConf);
+      }
       inMemorySegments.add(new Segment<K,V>(reader, true, 
                                             (mo.isPrimaryMapOutput() ? 
                                             mergedMapOutputsCounter : null)));
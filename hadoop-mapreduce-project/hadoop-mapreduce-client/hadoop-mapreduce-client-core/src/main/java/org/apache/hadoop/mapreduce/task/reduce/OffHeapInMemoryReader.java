@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.task.reduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataInputByteBuffer;
+import org.apache.hadoop.mapred.IFile.Reader;
+
+/**
+ * <code>IFile.Reader</code> to read map-outputs kept in direct buffers.
+ * Unlike {@link InMemoryReader} the keys and values cannot point into the
+ * map-output, so every record is copied into buffers of the reader, which
+ * stay valid until the next record is read.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class OffHeapInMemoryReader<K, V> extends Reader<K, V> {
+  private final MergeManagerImpl<K, V> merger;
+  private final InMemoryMapOutput<K, V> mapOutput;
+  private final DataInputByteBuffer memDataIn = new DataInputByteBuffer();
+  private byte[] keyBytes = new byte[0];
+  private byte[] valueBytes = new byte[0];
+
+  public OffHeapInMemoryReader(MergeManagerImpl<K, V> merger,
+                               InMemoryMapOutput<K, V> mapOutput,
+                               Configuration conf) throws IOException {
+    super(conf, null, mapOutput.getSize(), null, null);
+    this.merger = merger;
+    this.mapOutput = mapOutput;
+    memDataIn.reset(mapOutput.getOffHeapMemory().duplicate());
+  }
+
+  @Override
+  public long getPosition() throws IOException {
+    // the number of uncompressed bytes read, as in InMemoryReader
+    return bytesRead;
+  }
+
+  @Override
+  public long getLength() {
+    return fileLength;
+  }
+
+  @Override
+  public boolean nextRawKey(DataInputBuffer key) throws IOException {
+    if (!positionToNextRecord(memDataIn)) {
+      return false;
+    }
+    if (keyBytes.length < currentKeyLength) {
+      keyBytes = new byte[currentKeyLength << 1];
+    }
+    memDataIn.readFully(keyBytes, 0, currentKeyLength);
+    key.reset(keyBytes, currentKeyLength);
+    bytesRead += currentKeyLength;
+    return true;
+  }
+
+  @Override
+  public void nextRawValue(DataInputBuffer value) throws IOException {
+    if (valueBytes.length < currentValueLength) {
+      valueBytes = new byte[currentValueLength << 1];
+    }
+    memDataIn.readFully(valueBytes, 0, currentValueLength);
+    value.reset(valueBytes, currentValueLength);
+    bytesRead += currentValueLength;
+    ++recNo;
+  }
+
+  @Override
+  public void close() {
+    keyBytes = null;
+    valueBytes = null;
+    mapOutput.freeOffHeapMemory();
+    // Inform the MergeManager
+    if (merger != null) {
+      merger.unreserve(fileLength);
+    }
+  }
+}
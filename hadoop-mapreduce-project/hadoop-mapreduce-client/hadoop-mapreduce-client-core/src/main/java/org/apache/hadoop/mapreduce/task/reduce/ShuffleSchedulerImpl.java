@@ -64,7 +64,6 @@ protected Long initialValue() {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(ShuffleSchedulerImpl.class);
-  private static final int MAX_MAPS_AT_ONCE = 20;
   private static final long INITIAL_PENALTY = 10000;
   private static final float PENALTY_GROWTH_RATE = 1.3f;
   private final static int REPORT_FAILURE_LIMIT = 10;
@@ -109,6 +108,7 @@ protected Long initialValue() {
   private final boolean reportReadErrorImmediately;
   private long maxPenalty = MRJobConfig.DEFAULT_MAX_SHUFFLE_FETCH_RETRY_DELAY;
   private int maxHostFailures;
+  private final int maxMapsAtOnce;
 
   public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
                           TaskAttemptID reduceId,
@@ -143,6 +143,9 @@ public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
     this.maxHostFailures = job.getInt(
         MRJobConfig.MAX_SHUFFLE_FETCH_HOST_FAILURES,
         MRJobConfig.DEFAULT_MAX_SHUFFLE_FETCH_HOST_FAILURES);
+    this.maxMapsAtOnce = Math.max(1, job.getInt(
+        MRJobConfig.SHUFFLE_FETCH_MAX_MAPS,
+        MRJobConfig.DEFAULT_SHUFFLE_FETCH_MAX_MAPS));
   }
 
   @Override
@@ -473,7 +476,7 @@ public synchronized List<TaskAttemptID> getMapsForHost(MapHost host) {
       TaskAttemptID id = itr.next();
       if (!obsoleteMaps.contains(id) && !finishedMaps[id.getTaskID().getId()]) {
         result.add(id);
-        if (++includedMaps >= MAX_MAPS_AT_ONCE) {
+        if (++includedMaps >= maxMapsAtOnce) {
           break;
         }
       }
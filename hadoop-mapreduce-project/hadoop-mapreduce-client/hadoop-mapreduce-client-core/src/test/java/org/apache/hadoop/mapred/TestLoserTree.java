@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLoserTree {
+
+  /** A sorted run of ints, standing in for a merged segment. */
+  private static class Run {
+    private final int[] values;
+    private int pos;
+
+    Run(int[] values) {
+      this.values = values;
+    }
+
+    int current() {
+      return values[pos];
+    }
+
+    boolean next() {
+      return ++pos < values.length;
+    }
+  }
+
+  private static class RunTree extends LoserTree<Run> {
+    private int comparisons;
+
+    RunTree(int maxSize) {
+      initialize(maxSize);
+    }
+
+    @Override
+    protected boolean lessThan(Object a, Object b) {
+      comparisons++;
+      return ((Run) a).current() < ((Run) b).current();
+    }
+  }
+
+  @Test
+  public void testMerge() {
+    Random rand = new Random();
+    for (int numRuns = 1; numRuns <= 33; numRuns++) {
+      List<Integer> expected = new ArrayList<>();
+      RunTree tree = new RunTree(numRuns);
+      for (int i = 0; i < numRuns; i++) {
+        int[] values = new int[1 + rand.nextInt(50)];
+        for (int j = 0; j < values.length; j++) {
+          values[j] = rand.nextInt(100);
+          expected.add(values[j]);
+        }
+        Arrays.sort(values);
+        tree.put(new Run(values));
+      }
+      Collections.sort(expected);
+      Assert.assertEquals(numRuns, tree.size());
+
+      List<Integer> merged = new ArrayList<>();
+      while (tree.size() > 0) {
+        Run min = tree.top();
+        merged.add(min.current());
+        if (min.next()) {
+          tree.adjustTop();
+        } else {
+          Assert.assertSame(min, tree.pop());
+        }
+      }
+      Assert.assertEquals(expected, merged);
+      Assert.assertNull(tree.top());
+      Assert.assertNull(tree.pop());
+    }
+  }
+
+  @Test
+  public void testComparisonsPerAdjust() {
+    final int numRuns = 64;
+    RunTree tree = new RunTree(numRuns);
+    for (int i = 0; i < numRuns; i++) {
+      int[] values = new int[100];
+      for (int j = 0; j < values.length; j++) {
+        values[j] = j * numRuns + i;
+      }
+      tree.put(new Run(values));
+    }
+    tree.top();
+    tree.comparisons = 0;
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertTrue(tree.top().next());
+      tree.adjustTop();
+    }
+    // one comparison per level of the tree
+    Assert.assertEquals(1000 * 6, tree.comparisons);
+  }
+
+  @Test
+  public void testPopAndPut() {
+    RunTree tree = new RunTree(3);
+    tree.put(new Run(new int[] {5}));
+    tree.put(new Run(new int[] {1}));
+    tree.put(new Run(new int[] {3}));
+    Assert.assertEquals(1, tree.pop().current());
+    // reuses the leaf of the popped run
+    tree.put(new Run(new int[] {2}));
+    Assert.assertEquals(2, tree.pop().current());
+    Assert.assertEquals(3, tree.pop().current());
+    Assert.assertEquals(5, tree.pop().current());
+    Assert.assertEquals(0, tree.size());
+    tree.clear();
+    tree.put(new Run(new int[] {7}));
+    Assert.assertEquals(7, tree.top().current());
+  }
+}
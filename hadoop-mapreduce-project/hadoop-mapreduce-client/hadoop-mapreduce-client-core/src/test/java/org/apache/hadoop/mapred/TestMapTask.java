@@ -19,14 +19,23 @@
 package org.apache.hadoop.mapred;
 
 import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapred.Counters.Counter;
 import org.apache.hadoop.mapred.MapTask.MapOutputBuffer;
 import org.apache.hadoop.mapred.Task.TaskReporter;
 import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskCounter;
 import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.util.Progress;
@@ -35,6 +44,7 @@
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Random;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
@@ -84,4 +94,106 @@ public void testShufflePermissions() throws Exception {
     Assert.assertEquals("Incorrect index file perms",
         (short)0640, perms.toShort());
   }
+
+  @Test
+  public void testSortWithKeyPrefix() throws Exception {
+    final Random rand = new Random();
+    final String[] stems = {"", "a", "user_", "user_0000000"};
+    for (boolean prefixEnabled : new boolean[] {false, true}) {
+      verifySortedOutput(prefixEnabled, Text.class, () -> new Text(
+          stems[rand.nextInt(stems.length)] + rand.nextInt(1000)));
+      verifySortedOutput(prefixEnabled, LongWritable.class,
+          () -> new LongWritable(rand.nextBoolean()
+              ? rand.nextLong() : rand.nextInt(100) - 50));
+      verifySortedOutput(prefixEnabled, IntWritable.class,
+          () -> new IntWritable(rand.nextInt()));
+      verifySortedOutput(prefixEnabled, BytesWritable.class, () -> {
+        byte[] b = new byte[rand.nextInt(12)];
+        rand.nextBytes(b);
+        if (b.length > 0) {
+          b[0] &= 0x81;
+        }
+        return new BytesWritable(b);
+      });
+    }
+  }
+
+  private interface KeyGenerator<K> {
+    K next();
+  }
+
+  /**
+   * Collect enough records into a small buffer to cause several spills and
+   * verify that the partitions of the final output are sorted.
+   */
+  private <K extends Writable> void verifySortedOutput(boolean prefixEnabled,
+      Class<K> keyClass, KeyGenerator<K> keys) throws Exception {
+    final int numRecords = 50000;
+    final int numPartitions = 3;
+    JobConf conf = new JobConf();
+    // use a new local dir for every run, the directory allocator does not
+    // recreate a directory it has already seen
+    conf.set(MRConfig.LOCAL_DIR, new File(TEST_ROOT_DIR,
+        keyClass.getSimpleName() + "-" + prefixEnabled).getAbsolutePath());
+    conf.setInt(MRJobConfig.IO_SORT_MB, 1);
+    conf.setNumReduceTasks(numPartitions);
+    conf.setMapOutputKeyClass(keyClass);
+    conf.setMapOutputValueClass(IntWritable.class);
+    conf.setBoolean(MRJobConfig.MAP_SORT_KEY_PREFIX_ENABLED, prefixEnabled);
+    MapOutputFile mof = new MROutputFiles();
+    mof.setConf(conf);
+    TaskAttemptID attemptId = new TaskAttemptID("12345", 1, TaskType.MAP, 1, 1);
+    MapTask mockTask = mock(MapTask.class);
+    doReturn(mof).when(mockTask).getMapOutputFile();
+    doReturn(attemptId).when(mockTask).getTaskID();
+    doReturn(new Progress()).when(mockTask).getSortPhase();
+    TaskReporter mockReporter = mock(TaskReporter.class);
+    doReturn(new Counter()).when(mockReporter).getCounter(
+        any(TaskCounter.class));
+    MapOutputCollector.Context ctx = new MapOutputCollector.Context(mockTask,
+        conf, mockReporter);
+    MapOutputBuffer<K, IntWritable> mob = new MapOutputBuffer<>();
+    mob.init(ctx);
+    for (int i = 0; i < numRecords; i++) {
+      mob.collect(keys.next(), new IntWritable(i), i % numPartitions);
+    }
+    mob.flush();
+    mob.close();
+
+    @SuppressWarnings("unchecked")
+    RawComparator<K> comparator = conf.getOutputKeyComparator();
+    FileSystem lfs = FileSystem.getLocal(conf).getRaw();
+    SpillRecord spillRecord = new SpillRecord(mof.getOutputIndexFile(), conf);
+    DataInputBuffer key = new DataInputBuffer();
+    DataInputBuffer value = new DataInputBuffer();
+    IntWritable recordId = new IntWritable();
+    int count = 0;
+    for (int p = 0; p < numPartitions; p++) {
+      IndexRecord rec = spillRecord.getIndex(p);
+      try (FSDataInputStream in = lfs.open(mof.getOutputFile())) {
+        in.seek(rec.startOffset);
+        IFile.Reader<K, IntWritable> reader = new IFile.Reader<>(conf, in,
+            rec.partLength, null, null);
+        byte[] prev = null;
+        while (reader.nextRawKey(key)) {
+          byte[] cur = new byte[key.getLength() - key.getPosition()];
+          System.arraycopy(key.getData(), key.getPosition(), cur, 0,
+              cur.length);
+          if (prev != null) {
+            Assert.assertTrue("Output of " + keyClass.getSimpleName()
+                    + " keys not sorted, key prefix " + prefixEnabled,
+                comparator.compare(prev, 0, prev.length,
+                    cur, 0, cur.length) <= 0);
+          }
+          prev = cur;
+          reader.nextRawValue(value);
+          recordId.readFields(value);
+          Assert.assertEquals(p, recordId.get() % numPartitions);
+          count++;
+        }
+        reader.close();
+      }
+    }
+    Assert.assertEquals(numRecords, count);
+  }
 }
@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.lib.input;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCombiningFileInputFormat {
+
+  private static Path outDir = new Path(System.getProperty("test.build.data",
+      "/tmp"), TestCombiningFileInputFormat.class.getName());
+
+  private static Job newJob(long targetSize) throws Exception {
+    Job job = Job.getInstance(new Configuration());
+    CombiningFileInputFormat.setTargetSplitSize(job, targetSize);
+    return job;
+  }
+
+  private static FileStatus file(String name, long length, long blockSize,
+      String... hostAndRacks) {
+    List<BlockLocation> blocks = new ArrayList<BlockLocation>();
+    for (long offset = 0; offset < length; offset += blockSize) {
+      String[] hosts = new String[hostAndRacks.length / 2];
+      String[] topologyPaths = new String[hosts.length];
+      for (int i = 0; i < hosts.length; i++) {
+        hosts[i] = hostAndRacks[2 * i];
+        topologyPaths[i] = hostAndRacks[2 * i + 1] + "/" + hosts[i];
+      }
+      blocks.add(new BlockLocation(hosts, hosts, topologyPaths, offset,
+          Math.min(blockSize, length - offset)));
+    }
+    return new LocatedFileStatus(length, false, 3, blockSize, 0, 0,
+        FsPermission.getFileDefault(), "user", "group", null,
+        new Path("hdfs://nn/data/" + name),
+        blocks.toArray(new BlockLocation[blocks.size()]));
+  }
+
+  private static List<InputSplit> getSplits(Job job, List<FileStatus> files)
+      throws Exception {
+    return CombiningFileInputFormat.getSplits(job, new TextInputFormat(),
+        files);
+  }
+
+  private static Set<String> locations(InputSplit split) throws Exception {
+    return new HashSet<String>(Arrays.asList(split.getLocations()));
+  }
+
+  @Test
+  public void testSmallFilesPackedByNode() throws Exception {
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    for (int i = 0; i < 10; i++) {
+      files.add(file("a" + i, 20, 100, "h1", "/r1"));
+      files.add(file("b" + i, 20, 100, "h2", "/r1"));
+    }
+    List<InputSplit> splits = getSplits(newJob(100), files);
+
+    Assert.assertEquals(4, splits.size());
+    int paths = 0;
+    for (InputSplit split : splits) {
+      CombineFileSplit combined = (CombineFileSplit) split;
+      Assert.assertEquals(100, combined.getLength());
+      Assert.assertEquals(1, combined.getLocations().length);
+      String host = combined.getLocations()[0];
+      for (Path path : combined.getPaths()) {
+        Assert.assertEquals(host.equals("h1") ? 'a' : 'b',
+            path.getName().charAt(0));
+      }
+      paths += combined.getNumPaths();
+    }
+    Assert.assertEquals(20, paths);
+  }
+
+  @Test
+  public void testReplicasBalancedOverNodes() throws Exception {
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    for (int i = 0; i < 20; i++) {
+      files.add(file("f" + i, 10, 100, "h1", "/r1", "h2", "/r1"));
+    }
+    List<InputSplit> splits = getSplits(newJob(100), files);
+
+    Assert.assertEquals(2, splits.size());
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("h1")),
+        locations(splits.get(0)));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("h2")),
+        locations(splits.get(1)));
+  }
+
+  @Test
+  public void testLargeFilesKeepTheirSplits() throws Exception {
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    files.add(file("large", 300, 100, "h1", "/r1"));
+    files.add(file("small", 10, 100, "h1", "/r1"));
+    List<InputSplit> splits = getSplits(newJob(100), files);
+
+    Assert.assertEquals(4, splits.size());
+    for (int i = 0; i < 3; i++) {
+      CombineFileSplit split = (CombineFileSplit) splits.get(i);
+      Assert.assertEquals(1, split.getNumPaths());
+      Assert.assertEquals("large", split.getPath(0).getName());
+      Assert.assertEquals(i * 100, split.getOffset(0));
+      Assert.assertEquals(100, split.getLength(0));
+      Assert.assertEquals(new HashSet<String>(Arrays.asList("h1")),
+          locations(split));
+    }
+    // too small for a node local split and nothing else to pack it with
+    CombineFileSplit last = (CombineFileSplit) splits.get(3);
+    Assert.assertEquals("small", last.getPath(0).getName());
+    Assert.assertEquals(0, last.getLocations().length);
+  }
+
+  @Test
+  public void testLeftoversPackedByRackThenAnywhere() throws Exception {
+    List<FileStatus> files = new ArrayList<FileStatus>();
+    files.add(file("a", 30, 100, "h1", "/r1"));
+    files.add(file("b", 30, 100, "h2", "/r1"));
+    files.add(file("c", 30, 100, "h3", "/r2"));
+    files.add(file("d", 0, 100));
+    List<InputSplit> splits = getSplits(newJob(100), files);
+
+    Assert.assertEquals(2, splits.size());
+    CombineFileSplit rackLocal = (CombineFileSplit) splits.get(0);
+    Assert.assertEquals(2, rackLocal.getNumPaths());
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("h1", "h2")),
+        locations(rackLocal));
+    CombineFileSplit rest = (CombineFileSplit) splits.get(1);
+    Assert.assertEquals(2, rest.getNumPaths());
+    Assert.assertEquals(30, rest.getLength());
+    Assert.assertEquals(0, rest.getLocations().length);
+  }
+
+  @Test
+  public void testReadThroughWrappedFormat() throws Exception {
+    File dir = new File(outDir.toString());
+    FileUtil.fullyDelete(dir);
+    Assert.assertTrue(dir.mkdirs());
+    try {
+      Set<String> expected = new HashSet<String>();
+      for (int i = 0; i < 5; i++) {
+        FileWriter writer = new FileWriter(new File(dir, "part" + i));
+        for (int j = 0; j < 3; j++) {
+          String line = "file" + i + "line" + j;
+          writer.write(line + "\n");
+          expected.add(line);
+        }
+        writer.close();
+      }
+
+      Job job = newJob(1024);
+      CombiningFileInputFormat.setInputFormatClass(job, TextInputFormat.class);
+      FileInputFormat.setInputPaths(job, new Path(dir.getAbsolutePath()));
+      CombiningFileInputFormat<LongWritable, Text> format =
+          new CombiningFileInputFormat<LongWritable, Text>();
+      List<InputSplit> splits = format.getSplits(job);
+      Assert.assertEquals(1, splits.size());
+      Assert.assertEquals(5, job.getConfiguration()
+          .getLong(FileInputFormat.NUM_INPUT_FILES, 0));
+
+      TaskAttemptContext context = new TaskAttemptContextImpl(
+          job.getConfiguration(), new TaskAttemptID());
+      RecordReader<LongWritable, Text> reader =
+          format.createRecordReader(splits.get(0), context);
+      reader.initialize(splits.get(0), context);
+      Assert.assertEquals(0.0f, reader.getProgress(), 0.0f);
+      Set<String> read = new HashSet<String>();
+      while (reader.nextKeyValue()) {
+        String line = reader.getCurrentValue().toString();
+        Assert.assertTrue(context.getConfiguration()
+            .get(MRJobConfig.MAP_INPUT_FILE).endsWith(line.substring(4, 5)));
+        File file = new File(new Path(context.getConfiguration()
+            .get(MRJobConfig.MAP_INPUT_FILE)).toUri().getPath());
+        Assert.assertEquals(file.length(),
+            context.getConfiguration()
+                .getLong(MRJobConfig.MAP_INPUT_LENGTH, -1));
+        read.add(line);
+      }
+      Assert.assertEquals(1.0f, reader.getProgress(), 0.0f);
+      reader.close();
+      Assert.assertEquals(expected, read);
+    } finally {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+}
@@ -312,6 +312,70 @@ private void verifyReservedMapOutputType(MergeManagerImpl<Text, Text> mgr,
     mgr.unreserve(size);
   }
 
+  @Test
+  public void testOffHeapMemoryLimit() throws Exception {
+    final JobConf conf = new JobConf();
+    conf.setLong(MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES, 1000000L);
+    conf.setLong(MRJobConfig.SHUFFLE_OFFHEAP_LIMIT_BYTES, 10000L);
+    final MergeManagerImpl<Text, Text> mgr = new MergeManagerImpl<Text, Text>(
+        null, conf, mock(LocalFileSystem.class), null, null, null, null, null,
+        null, null, null, null, null, new MROutputFiles());
+    assertTrue(mgr.offHeap);
+    assertEquals(10000L, mgr.memoryLimit);
+    assertEquals(2500L, mgr.maxSingleShuffleLimit);
+
+    final TaskAttemptID mapId = TaskAttemptID.forName("attempt_0_1_m_1_1");
+    final MapOutput<Text, Text> mapOutput = mgr.reserve(mapId, 2000L, 1);
+    assertTrue(mapOutput instanceof InMemoryMapOutput);
+    final InMemoryMapOutput<Text, Text> inMemory =
+        (InMemoryMapOutput<Text, Text>) mapOutput;
+    assertTrue(inMemory.isOffHeap());
+    Assert.assertNull(inMemory.getMemory());
+    assertEquals(2000, inMemory.getOffHeapMemory().capacity());
+    inMemory.abort();
+    Assert.assertNull(inMemory.getOffHeapMemory());
+    verifyReservedMapOutputType(mgr, 3000L, "DISK");
+  }
+
+  @Test
+  public void testAdaptiveMergeThreshold() throws Exception {
+    final JobConf conf = new JobConf();
+    conf.setLong(MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES, 100000L);
+    conf.setFloat(MRJobConfig.SHUFFLE_INPUT_BUFFER_PERCENT, 1.0f);
+    conf.setFloat(MRJobConfig.SHUFFLE_MERGE_PERCENT, 0.66f);
+    conf.setInt(MRJobConfig.IO_SORT_FACTOR, 10);
+    final MergeManagerImpl<Text, Text> fixed = new MergeManagerImpl<Text, Text>(
+        null, conf, mock(LocalFileSystem.class), null, null, null, null, null,
+        null, null, null, null, null, new MROutputFiles());
+    fixed.recordCommit(1000L, 1000L);
+    fixed.recordCommit(1000L, 1010L);
+    fixed.recordInMemoryMerge(500L);
+    assertEquals(66000L, fixed.getMergeThreshold());
+
+    conf.setBoolean(MRJobConfig.SHUFFLE_MERGE_ADAPTIVE, true);
+    final MergeManagerImpl<Text, Text> mgr = new MergeManagerImpl<Text, Text>(
+        null, conf, mock(LocalFileSystem.class), null, null, null, null, null,
+        null, null, null, null, null, new MROutputFiles());
+    // nothing is known about merges yet
+    assertEquals(66000L, mgr.getMergeThreshold());
+
+    // 100 bytes per ms arrive, 50000 bytes during a merge of 500 ms
+    mgr.recordCommit(1000L, 1000L);
+    mgr.recordCommit(1000L, 1010L);
+    mgr.recordInMemoryMerge(500L);
+    assertEquals(50000L, mgr.getMergeThreshold());
+
+    // merges slow down to 800 ms on average, but the threshold is not
+    // lowered below half of the configured one
+    mgr.recordInMemoryMerge(2000L);
+    assertEquals(33000L, mgr.getMergeThreshold());
+
+    // slow arrivals do not raise it above the configured one
+    mgr.recordCommit(1000L, 100000L);
+    mgr.recordCommit(1000L, 200000L);
+    assertTrue(mgr.getMergeThreshold() <= 66000L);
+  }
+
   @Test
   public void testZeroShuffleMemoryLimitPercent() throws Exception {
     final JobConf jobConf = new JobConf();
@@ -31,6 +31,7 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
 
 import org.apache.hadoop.conf.Configuration;
@@ -53,6 +54,7 @@
 import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapreduce.JobID;
 import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskType;
@@ -231,6 +233,54 @@ public void testInMemoryAndOnDiskMerger() throws Throwable {
     Assert.assertEquals(0, mergeManager.onDiskMapOutputs.size());
   }
 
+  @Test
+  public void testOffHeapInMemoryMerger() throws Throwable {
+    jobConf.setLong(MRJobConfig.SHUFFLE_OFFHEAP_LIMIT_BYTES, 1024 * 1024);
+    JobID jobId = new JobID("a", 0);
+    TaskAttemptID reduceId = new TaskAttemptID(
+        new TaskID(jobId, TaskType.REDUCE, 0), 0);
+    LocalDirAllocator lda = new LocalDirAllocator(MRConfig.LOCAL_DIR);
+    MergeManagerImpl<Text, Text> mergeManager = new MergeManagerImpl<Text, Text>(
+        reduceId, jobConf, fs, lda, Reporter.NULL, null, null, null, null,
+        null, null, null, new Progress(), new MROutputFiles());
+
+    Map<String, String> map1 = new TreeMap<String, String>();
+    map1.put("apple", "disgusting");
+    map1.put("carrot", "delicious");
+    Map<String, String> map2 = new TreeMap<String, String>();
+    map2.put("banana", "pretty good");
+    List<InMemoryMapOutput<Text, Text>> mapOutputs =
+        new ArrayList<InMemoryMapOutput<Text, Text>>();
+    int mapNo = 1;
+    for (Map<String, String> map : Arrays.asList(map1, map2)) {
+      TaskAttemptID mapId = new TaskAttemptID(
+          new TaskID(jobId, TaskType.MAP, mapNo++), 0);
+      byte[] mapOutputBytes = writeMapOutput(jobConf, map);
+      InMemoryMapOutput<Text, Text> mapOutput =
+          new InMemoryMapOutput<Text, Text>(jobConf, mapId, mergeManager,
+              mapOutputBytes.length, null, true, true);
+      mapOutput.getOffHeapMemory().put(mapOutputBytes).flip();
+      mapOutputs.add(mapOutput);
+    }
+    List<InMemoryMapOutput<Text, Text>> inputs =
+        new ArrayList<InMemoryMapOutput<Text, Text>>(mapOutputs);
+    mergeManager.createInMemoryMerger().merge(inputs);
+
+    // the direct buffers are released once merged
+    for (InMemoryMapOutput<Text, Text> mapOutput : mapOutputs) {
+      Assert.assertNull(mapOutput.getOffHeapMemory());
+    }
+    Assert.assertEquals(1, mergeManager.onDiskMapOutputs.size());
+    List<String> keys = new ArrayList<String>();
+    List<String> values = new ArrayList<String>();
+    readOnDiskMapOutput(jobConf, fs,
+        mergeManager.onDiskMapOutputs.iterator().next(), keys, values);
+    assertThat(keys).isEqualTo(Arrays.asList("apple", "banana", "carrot"));
+    assertThat(values).isEqualTo(Arrays.asList("disgusting", "pretty good",
+        "delicious"));
+    mergeManager.close();
+  }
+
   private byte[] writeMapOutput(Configuration conf, Map<String, String> keysToValues)
       throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -275,6 +325,92 @@ public void testUncompressed() throws IOException {
     testMergeShouldReturnProperProgress(getUncompressedSegments());
   }
 
+  @Test
+  public void testOnDiskMergeWithPrefetch() throws Throwable {
+    jobConf.setInt(MRConfig.MAPRED_IFILE_PREFETCH_BYTES, 100);
+    verifyOnDiskMerge();
+  }
+
+  @Test
+  public void testEncryptedOnDiskMergeWithPrefetch() throws Throwable {
+    MRJobConfUtil.initEncryptedIntermediateConfigsForTesting(jobConf);
+    Credentials credentials =
+        UserGroupInformation.getCurrentUser().getCredentials();
+    TokenCache.setEncryptedSpillKey(new byte[16], credentials);
+    UserGroupInformation.getCurrentUser().addCredentials(credentials);
+    jobConf.setInt(MRConfig.MAPRED_IFILE_PREFETCH_BYTES, 100);
+    verifyOnDiskMerge();
+  }
+
+  /**
+   * Merge on-disk segments in several passes, two of them stored one after
+   * the other in the same file, and verify that all records come out sorted.
+   */
+  private void verifyOnDiskMerge() throws IOException {
+    final int numFiles = 9;
+    final int numRecords = 500;
+    Random rand = new Random();
+    Path tmpDir = new Path(jobConf.get("mapreduce.cluster.temp.dir"),
+        "localpath");
+    List<Segment<Text, Text>> segments = new ArrayList<>();
+    int total = 0;
+    for (int i = 0; i < numFiles; i++) {
+      Path file = new Path(unitTestDir.getAbsolutePath(), "segment" + i);
+      FSDataOutputStream out = fs.create(file);
+      // a file with two segments for i == 0
+      long[] ends = new long[i == 0 ? 2 : 1];
+      for (int j = 0; j < ends.length; j++) {
+        List<String> keys = new ArrayList<>();
+        for (int k = rand.nextInt(numRecords); k > 0; k--) {
+          keys.add(Integer.toString(rand.nextInt(100000)));
+        }
+        keys.sort(null);
+        FSDataOutputStream segmentOut =
+            IntermediateEncryptedStream.wrapIfNecessary(jobConf, out, false,
+                file);
+        IFile.Writer<Text, Text> writer = new IFile.Writer<>(jobConf,
+            segmentOut, Text.class, Text.class, null, null);
+        for (String key : keys) {
+          writer.append(new Text(key), new Text("value" + key));
+        }
+        writer.close();
+        if (segmentOut != out) {
+          segmentOut.close();
+        }
+        ends[j] = out.getPos();
+        total += keys.size();
+      }
+      out.close();
+      long start = 0;
+      for (long end : ends) {
+        segments.add(new Segment<Text, Text>(jobConf, fs, file, start,
+            end - start, null, true));
+        start = end;
+      }
+    }
+    RawComparator<Text> comparator = new Text.Comparator();
+    RawKeyValueIterator iter = Merger.merge(jobConf, fs, Text.class,
+        Text.class, segments, 3, tmpDir, comparator, getReporter(),
+        new Counter(), new Counter(), new Progress());
+    Text key = new Text();
+    Text value = new Text();
+    String prev = null;
+    int count = 0;
+    while (iter.next()) {
+      key.readFields(iter.getKey());
+      value.readFields(iter.getValue());
+      Assert.assertEquals("value" + key, value.toString());
+      if (prev != null) {
+        Assert.assertTrue(prev + " merged before " + key,
+            prev.compareTo(key.toString()) <= 0);
+      }
+      prev = key.toString();
+      count++;
+    }
+    iter.close();
+    Assert.assertEquals(total, count);
+  }
+
   @SuppressWarnings( { "unchecked" })
   public void testMergeShouldReturnProperProgress(
       List<Segment<Text, Text>> segments) throws IOException {
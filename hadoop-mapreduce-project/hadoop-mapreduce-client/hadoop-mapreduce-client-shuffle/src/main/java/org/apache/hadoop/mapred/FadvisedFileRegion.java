@@ -33,7 +33,7 @@
 
 import static org.apache.hadoop.io.nativeio.NativeIO.POSIX.POSIX_FADV_DONTNEED;
 
-import org.jboss.netty.channel.DefaultFileRegion;
+import io.netty.channel.DefaultFileRegion;
 
 import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
 
@@ -54,6 +54,7 @@ public class FadvisedFileRegion extends DefaultFileRegion {
   private final FileChannel fileChannel;
   
   private ReadaheadRequest readaheadRequest;
+  private long customTransferred;
 
   public FadvisedFileRegion(RandomAccessFile file, long position, long count,
       boolean manageOsCache, int readaheadLength, ReadaheadPool readaheadPool,
@@ -72,20 +73,39 @@ public FadvisedFileRegion(RandomAccessFile file, long position, long count,
     this.shuffleTransferToAllowed = shuffleTransferToAllowed;
   }
 
+  /**
+   * Open the region and issue the readahead for the next part of the file.
+   * Netty calls this before every transfer, including the native sendfile
+   * transfers of the epoll transport which bypass {@link #transferTo}.
+   */
   @Override
-  public long transferTo(WritableByteChannel target, long position)
-      throws IOException {
+  public void open() throws IOException {
+    super.open();
     if (readaheadPool != null && readaheadLength > 0) {
       readaheadRequest = readaheadPool.readaheadStream(identifier, fd,
-          getPosition() + position, readaheadLength,
-          getPosition() + getCount(), readaheadRequest);
+          position() + transferred(), readaheadLength,
+          position() + count(), readaheadRequest);
     }
-    
+  }
+
+  @Override
+  public long transferTo(WritableByteChannel target, long position)
+      throws IOException {
     if(this.shuffleTransferToAllowed) {
       return super.transferTo(target, position);
     } else {
-      return customShuffleTransfer(target, position);
-    } 
+      open();
+      long written = customShuffleTransfer(target, position);
+      customTransferred += written;
+      return written;
+    }
+  }
+
+  @Override
+  public long transferred() {
+    // The parent only counts the bytes sent by FileChannel#transferTo or by
+    // the native transports.
+    return super.transferred() + customTransferred;
   }
 
   /**
@@ -145,24 +165,32 @@ long customShuffleTransfer(WritableByteChannel target, long position)
     return actualCount - trans;
   }
 
-  
+  /**
+   * Called by netty once the region has been written or discarded. If the
+   * whole region was transferred, the OS is advised that the pages are no
+   * longer needed before the file is closed.
+   */
   @Override
-  public void releaseExternalResources() {
+  protected void deallocate() {
     if (readaheadRequest != null) {
       readaheadRequest.cancel();
+      readaheadRequest = null;
+    }
+    if (transferred() >= count()) {
+      transferSuccessful();
     }
-    super.releaseExternalResources();
+    super.deallocate();
   }
-  
+
   /**
    * Call when the transfer completes successfully so we can advise the OS that
    * we don't need the region to be cached anymore.
    */
   public void transferSuccessful() {
-    if (manageOsCache && getCount() > 0) {
+    if (manageOsCache && count() > 0) {
       try {
         NativeIO.POSIX.getCacheManipulator().posixFadviseIfPossible(identifier,
-            fd, getPosition(), getCount(), POSIX_FADV_DONTNEED);
+            fd, position(), count(), POSIX_FADV_DONTNEED);
       } catch (Throwable t) {
         LOG.warn("Failed to manage OS cache for " + identifier, t);
       }
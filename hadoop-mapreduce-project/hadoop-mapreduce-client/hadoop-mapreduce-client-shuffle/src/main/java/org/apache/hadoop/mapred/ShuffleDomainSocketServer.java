@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.crypto.SecretKey;
+
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.SecureIOUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.ShuffleHandler.Shuffle.MapOutputInfo;
+import org.apache.hadoop.mapreduce.task.reduce.DomainSocketShuffle;
+import org.apache.hadoop.mapreduce.task.reduce.ShuffleHeader;
+import org.apache.hadoop.net.unix.DomainSocket;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves reducers on the same node over a UNIX domain socket, see
+ * {@link DomainSocketShuffle}. Only the descriptors of the map-output files
+ * are passed, so the data does not go through the NodeManager at all.
+ */
+class ShuffleDomainSocketServer implements Runnable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ShuffleDomainSocketServer.class);
+
+  private static final byte[] MARKER = new byte[] {0};
+  // far above what fits into the URL of an HTTP request
+  private static final int MAX_MAPS = 10000;
+  private static final int TIMEOUT_MS = 60 * 1000;
+
+  private final ShuffleHandler handler;
+  private final ShuffleHandler.Shuffle shuffle;
+  private final String path;
+  private final DomainSocket serverSocket;
+  private final ExecutorService workers;
+  private final Thread acceptor;
+  private volatile boolean closed;
+
+  ShuffleDomainSocketServer(ShuffleHandler handler,
+      ShuffleHandler.Shuffle shuffle, String path, int threads)
+      throws IOException {
+    this.handler = handler;
+    this.shuffle = shuffle;
+    this.path = path;
+    this.serverSocket = DomainSocket.bindAndListen(path);
+    this.workers = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("ShuffleHandler DomainSocket #%d").build());
+    this.acceptor = new Thread(this, "ShuffleHandler DomainSocket Acceptor");
+    this.acceptor.setDaemon(true);
+  }
+
+  void start() {
+    acceptor.start();
+    LOG.info("Serving node-local shuffles on " + path);
+  }
+
+  void stop() throws InterruptedException {
+    closed = true;
+    IOUtils.cleanupWithLogger(LOG, serverSocket);
+    workers.shutdownNow();
+    acceptor.join(10000);
+  }
+
+  @Override
+  public void run() {
+    while (!closed) {
+      final DomainSocket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        if (closed || !serverSocket.isOpen()) {
+          break;
+        }
+        LOG.warn("Failed to accept on " + path, e);
+        continue;
+      }
+      try {
+        workers.execute(() -> serve(socket));
+      } catch (RejectedExecutionException e) {
+        IOUtils.cleanupWithLogger(LOG, socket);
+      }
+    }
+  }
+
+  private void serve(DomainSocket socket) {
+    try {
+      socket.setAttribute(DomainSocket.SEND_TIMEOUT, TIMEOUT_MS);
+      socket.setAttribute(DomainSocket.RECEIVE_TIMEOUT, TIMEOUT_MS);
+      final DataInputStream in = new DataInputStream(socket.getInputStream());
+      final DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+      final DomainSocketShuffle.Request request;
+      final String user;
+      final String replyHash;
+      final List<MapOutputInfo> infos = new ArrayList<MapOutputInfo>();
+      try {
+        request = DomainSocketShuffle.Request.read(in, MAX_MAPS);
+        final String jobId = request.getJobId();
+        final SecretKey tokenSecret = handler.getJobTokenSecret(jobId);
+        if (tokenSecret == null) {
+          throw new IOException("could not find jobid");
+        }
+        replyHash = request.verify(tokenSecret);
+        user = handler.getJobUser(jobId);
+        for (String mapId : request.getMapIds()) {
+          infos.add(shuffle.getMapOutputInfo(mapId, request.getReduce(),
+              jobId, user));
+        }
+      } catch (IOException e) {
+        LOG.warn("Node-local shuffle failure", e);
+        out.writeInt(DomainSocketShuffle.STATUS_ERROR);
+        Text.writeString(out, String.valueOf(e.getMessage()));
+        out.flush();
+        return;
+      }
+      out.writeInt(DomainSocketShuffle.STATUS_OK);
+      Text.writeString(out, replyHash);
+      for (int i = 0; i < infos.size(); i++) {
+        final MapOutputInfo info = infos.get(i);
+        final IndexRecord index = info.indexRecord;
+        new ShuffleHeader(request.getMapIds().get(i), index.partLength,
+            index.rawLength, request.getReduce()).write(out);
+        out.writeLong(index.startOffset);
+        out.flush();
+        final RandomAccessFile file = SecureIOUtils.openForRandomRead(
+            new File(info.mapOutputFileName.toString()), "r", user, null);
+        try {
+          socket.sendFileDescriptors(new FileDescriptor[] {file.getFD()},
+              MARKER, 0, MARKER.length);
+        } finally {
+          file.close();
+        }
+        handler.metrics.shuffleOutputsOK.incr();
+        handler.metrics.shuffleOutputsDomainSocket.incr();
+      }
+    } catch (IOException e) {
+      LOG.debug("Node-local shuffle failed", e);
+      handler.metrics.shuffleOutputsFailed.incr();
+    } finally {
+      IOUtils.cleanupWithLogger(LOG, socket);
+    }
+  }
+}
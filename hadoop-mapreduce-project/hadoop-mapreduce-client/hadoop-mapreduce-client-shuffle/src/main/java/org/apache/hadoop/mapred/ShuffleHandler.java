@@ -20,18 +20,19 @@
 
 import static org.fusesource.leveldbjni.JniDBFactory.asString;
 import static org.fusesource.leveldbjni.JniDBFactory.bytes;
-import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
-import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
-import static org.jboss.netty.handler.codec.http.HttpMethod.GET;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
-import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
-
+import static org.apache.hadoop.io.nativeio.NativeIO.POSIX.POSIX_FADV_DONTNEED;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -40,6 +41,7 @@
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,6 +49,8 @@
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -61,11 +65,13 @@
 import org.apache.hadoop.io.ReadaheadPool;
 import org.apache.hadoop.io.SecureIOUtils;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.nativeio.NativeIO;
 import org.apache.hadoop.mapred.proto.ShuffleHandlerRecoveryProtos.JobShuffleInfoProto;
 import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.mapreduce.security.SecureShuffleUtils;
 import org.apache.hadoop.mapreduce.security.token.JobTokenIdentifier;
 import org.apache.hadoop.mapreduce.security.token.JobTokenSecretManager;
+import org.apache.hadoop.mapreduce.task.reduce.DomainSocketShuffle;
 import org.apache.hadoop.mapreduce.task.reduce.ShuffleHeader;
 import org.apache.hadoop.metrics2.MetricsSystem;
 import org.apache.hadoop.metrics2.annotation.Metric;
@@ -74,12 +80,12 @@
 import org.apache.hadoop.metrics2.lib.MutableCounterInt;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
+import org.apache.hadoop.net.unix.DomainSocket;
 import org.apache.hadoop.security.proto.SecurityProtos.TokenProto;
 import org.apache.hadoop.security.ssl.SSLFactory;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.util.DiskChecker;
 import org.apache.hadoop.util.Shell;
-import org.apache.hadoop.util.concurrent.HadoopExecutors;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.VersionProto;
 import org.apache.hadoop.yarn.server.api.ApplicationInitializationContext;
@@ -94,42 +100,53 @@
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.Options;
-import org.jboss.netty.bootstrap.ServerBootstrap;
-import org.jboss.netty.buffer.ChannelBuffers;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFactory;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.ChannelFutureListener;
-import org.jboss.netty.channel.ChannelHandler;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelPipelineFactory;
-import org.jboss.netty.channel.ChannelStateEvent;
-import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.channel.group.ChannelGroup;
-import org.jboss.netty.channel.group.DefaultChannelGroup;
-import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
-import org.jboss.netty.handler.codec.frame.TooLongFrameException;
-import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
-import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
-import org.jboss.netty.handler.codec.http.HttpRequest;
-import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
-import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
-import org.jboss.netty.handler.codec.http.HttpResponseStatus;
-import org.jboss.netty.handler.codec.http.QueryStringDecoder;
-import org.jboss.netty.handler.ssl.SslHandler;
-import org.jboss.netty.handler.stream.ChunkedWriteHandler;
-import org.jboss.netty.handler.timeout.IdleState;
-import org.jboss.netty.handler.timeout.IdleStateAwareChannelHandler;
-import org.jboss.netty.handler.timeout.IdleStateEvent;
-import org.jboss.netty.handler.timeout.IdleStateHandler;
-import org.jboss.netty.util.CharsetUtil;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.Timer;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.eclipse.jetty.http.HttpHeader;
 import org.slf4j.LoggerFactory;
 
@@ -187,8 +204,11 @@ public class ShuffleHandler extends AuxiliaryService {
   public static final String RETRY_AFTER_HEADER = "Retry-After";
 
   private int port;
-  private ChannelFactory selector;
-  private final ChannelGroup accepted = new DefaultChannelGroup();
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private Class<? extends ServerChannel> serverChannelClass;
+  private final ChannelGroup accepted =
+      new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
   protected HttpPipelineFactory pipelineFact;
   private int sslFileBufferSize;
   
@@ -202,10 +222,15 @@ public class ShuffleHandler extends AuxiliaryService {
   private int shuffleBufferSize;
   private boolean shuffleTransferToAllowed;
   private int maxSessionOpenFiles;
+  private int coalesceMaxSegmentSize;
+  private int coalesceBufferSize;
+  private ExecutorService coalesceReaders;
+  private WriteBufferWaterMark writeBufferWaterMark;
   private ReadaheadPool readaheadPool = ReadaheadPool.getInstance();
 
   private Map<String,String> userRsrc;
   private JobTokenSecretManager secretManager;
+  private ShuffleDomainSocketServer domainSocketServer;
 
   private DB stateDb = null;
 
@@ -257,6 +282,26 @@ public class ShuffleHandler extends AuxiliaryService {
       false;
   private static final String TIMEOUT_HANDLER = "timeout";
 
+  public static final String SHUFFLE_EPOLL_ENABLED =
+      "mapreduce.shuffle.epoll.enabled";
+  public static final boolean DEFAULT_SHUFFLE_EPOLL_ENABLED = true;
+
+  public static final String SHUFFLE_WRITE_BUFFER_LOW_WATERMARK =
+      "mapreduce.shuffle.write.buffer.low-watermark";
+  public static final int DEFAULT_SHUFFLE_WRITE_BUFFER_LOW_WATERMARK =
+      256 * 1024;
+
+  public static final String SHUFFLE_WRITE_BUFFER_HIGH_WATERMARK =
+      "mapreduce.shuffle.write.buffer.high-watermark";
+  public static final int DEFAULT_SHUFFLE_WRITE_BUFFER_HIGH_WATERMARK =
+      1024 * 1024;
+
+  /* map outputs of a request which are waiting for the channel to drain
+   below the low watermark before they are sent
+   */
+  private static final AttributeKey<ReduceContext> DEFERRED_REDUCE_CONTEXT =
+      AttributeKey.valueOf("shuffle.deferredReduceContext");
+
   /* the maximum number of files a single GET request can
    open simultaneously during shuffle
    */
@@ -264,10 +309,35 @@ public class ShuffleHandler extends AuxiliaryService {
       "mapreduce.shuffle.max.session-open-files";
   public static final int DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES = 3;
 
+  /* map outputs up to this size are read into memory and sent together
+   with the following small map outputs of the same request, 0 (the
+   default) disables it
+   */
+  public static final String SHUFFLE_COALESCE_MAX_SEGMENT_SIZE =
+      "mapreduce.shuffle.coalesce.max-segment-size";
+  public static final int DEFAULT_SHUFFLE_COALESCE_MAX_SEGMENT_SIZE = 0;
+
+  public static final String SHUFFLE_COALESCE_BUFFER_SIZE =
+      "mapreduce.shuffle.coalesce.buffer-size";
+  public static final int DEFAULT_SHUFFLE_COALESCE_BUFFER_SIZE = 1024 * 1024;
+
+  /* threads reading the map outputs to coalesce, so that the file reads do
+   not block the netty event loops
+   */
+  public static final String SHUFFLE_COALESCE_READ_THREADS =
+      "mapreduce.shuffle.coalesce.read-threads";
+  public static final int DEFAULT_SHUFFLE_COALESCE_READ_THREADS = 4;
+
+  /* threads passing map-output files to node-local reducers over the
+   domain socket set by mapreduce.shuffle.domain-socket.path
+   */
+  public static final String SHUFFLE_DOMAIN_SOCKET_THREADS =
+      "mapreduce.shuffle.domain-socket.threads";
+  public static final int DEFAULT_SHUFFLE_DOMAIN_SOCKET_THREADS = 4;
+
   boolean connectionKeepAliveEnabled = false;
   private int connectionKeepAliveTimeOut;
   private int mapOutputMetaInfoCacheSize;
-  private Timer timer;
 
   @Metrics(about="Shuffle output metrics", context="mapred")
   static class ShuffleMetrics implements ChannelFutureListener {
@@ -279,6 +349,8 @@ static class ShuffleMetrics implements ChannelFutureListener {
         MutableCounterInt shuffleOutputsOK;
     @Metric("# of current shuffle connections")
         MutableGaugeInt shuffleConnections;
+    @Metric("# of shuffle outputs passed over the domain socket")
+        MutableCounterInt shuffleOutputsDomainSocket;
 
     @Override
     public void operationComplete(ChannelFuture future) throws Exception {
@@ -297,31 +369,52 @@ public void operationComplete(ChannelFuture future) throws Exception {
   class ReduceMapFileCount implements ChannelFutureListener {
 
     private ReduceContext reduceContext;
+    private final int numMaps;
 
     public ReduceMapFileCount(ReduceContext rc) {
+      this(rc, 1);
+    }
+
+    /**
+     * @param rc the context of the request.
+     * @param numMaps the number of map outputs sent by the write.
+     */
+    public ReduceMapFileCount(ReduceContext rc, int numMaps) {
       this.reduceContext = rc;
+      this.numMaps = numMaps;
     }
 
     @Override
     public void operationComplete(ChannelFuture future) throws Exception {
+      Channel ch = future.channel();
       if (!future.isSuccess()) {
-        future.getChannel().close();
+        ch.close();
         return;
       }
-      int waitCount = this.reduceContext.getMapsToWait().decrementAndGet();
+      int waitCount =
+          this.reduceContext.getMapsToWait().addAndGet(-numMaps);
       if (waitCount == 0) {
         metrics.operationComplete(future);
+        ch.attr(DEFERRED_REDUCE_CONTEXT).set(null);
+        // Complete the response so that the encoder accepts the next one
+        ChannelFuture lastContent =
+            ch.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
         // Let the idle timer handler close keep-alive connections
         if (reduceContext.getKeepAlive()) {
-          ChannelPipeline pipeline = future.getChannel().getPipeline();
+          ChannelPipeline pipeline = ch.pipeline();
           TimeoutHandler timeoutHandler =
               (TimeoutHandler)pipeline.get(TIMEOUT_HANDLER);
           timeoutHandler.setEnabledTimeout(true);
         } else {
-          future.getChannel().close();
+          lastContent.addListener(ChannelFutureListener.CLOSE);
         }
-      } else {
+      } else if (ch.isWritable()) {
         pipelineFact.getSHUFFLE().sendMap(reduceContext);
+      } else {
+        // Too much data is queued on the channel, send the next map output
+        // once it has drained below the low watermark.
+        reduceContext.getDeferredSends().incrementAndGet();
+        ch.attr(DEFERRED_REDUCE_CONTEXT).set(reduceContext);
       }
     }
   }
@@ -341,6 +434,7 @@ private static class ReduceContext {
     private Map<String, Shuffle.MapOutputInfo> infoMap;
     private String jobId;
     private final boolean keepAlive;
+    private final AtomicInteger deferredSends;
 
     public ReduceContext(List<String> mapIds, int rId,
                          ChannelHandlerContext context, String usr,
@@ -362,6 +456,11 @@ public ReduceContext(List<String> mapIds, int rId,
       * asynchronously. Used to decide which mapId should be sent next.
       */
       this.mapsToSend = new AtomicInteger(0);
+      /**
+      * Number of sendMap() calls postponed until the channel is writable
+      * again.
+      */
+      this.deferredSends = new AtomicInteger(0);
       this.ctx = context;
       this.user = usr;
       this.infoMap = mapOutputInfoMap;
@@ -404,6 +503,10 @@ public AtomicInteger getMapsToWait() {
     public boolean getKeepAlive() {
       return keepAlive;
     }
+
+    public AtomicInteger getDeferredSends() {
+      return deferredSends;
+    }
   }
 
   ShuffleHandler(MetricsSystem ms) {
@@ -519,17 +622,45 @@ protected void serviceInit(Configuration conf) throws Exception {
     maxSessionOpenFiles = conf.getInt(SHUFFLE_MAX_SESSION_OPEN_FILES,
         DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES);
 
+    coalesceBufferSize = conf.getInt(SHUFFLE_COALESCE_BUFFER_SIZE,
+        DEFAULT_SHUFFLE_COALESCE_BUFFER_SIZE);
+    coalesceMaxSegmentSize = Math.min(coalesceBufferSize,
+        conf.getInt(SHUFFLE_COALESCE_MAX_SEGMENT_SIZE,
+            DEFAULT_SHUFFLE_COALESCE_MAX_SEGMENT_SIZE));
+    if (coalesceMaxSegmentSize > 0) {
+      coalesceReaders = Executors.newFixedThreadPool(
+          Math.max(1, conf.getInt(SHUFFLE_COALESCE_READ_THREADS,
+              DEFAULT_SHUFFLE_COALESCE_READ_THREADS)),
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("ShuffleHandler Coalesce Reader #%d").build());
+    }
+
+    writeBufferWaterMark = new WriteBufferWaterMark(
+        conf.getInt(SHUFFLE_WRITE_BUFFER_LOW_WATERMARK,
+            DEFAULT_SHUFFLE_WRITE_BUFFER_LOW_WATERMARK),
+        conf.getInt(SHUFFLE_WRITE_BUFFER_HIGH_WATERMARK,
+            DEFAULT_SHUFFLE_WRITE_BUFFER_HIGH_WATERMARK));
+
     ThreadFactory bossFactory = new ThreadFactoryBuilder()
       .setNameFormat("ShuffleHandler Netty Boss #%d")
       .build();
     ThreadFactory workerFactory = new ThreadFactoryBuilder()
       .setNameFormat("ShuffleHandler Netty Worker #%d")
       .build();
-    
-    selector = new NioServerSocketChannelFactory(
-        HadoopExecutors.newCachedThreadPool(bossFactory),
-        HadoopExecutors.newCachedThreadPool(workerFactory),
-        maxShuffleThreads);
+
+    // The native transport writes file regions with sendfile(2) directly,
+    // so it cannot be used with the custom transfer.
+    if (conf.getBoolean(SHUFFLE_EPOLL_ENABLED, DEFAULT_SHUFFLE_EPOLL_ENABLED)
+        && shuffleTransferToAllowed && Epoll.isAvailable()) {
+      LOG.info("Using the epoll transport for shuffle connections");
+      bossGroup = new EpollEventLoopGroup(1, bossFactory);
+      workerGroup = new EpollEventLoopGroup(maxShuffleThreads, workerFactory);
+      serverChannelClass = EpollServerSocketChannel.class;
+    } else {
+      bossGroup = new NioEventLoopGroup(1, bossFactory);
+      workerGroup = new NioEventLoopGroup(maxShuffleThreads, workerFactory);
+      serverChannelClass = NioServerSocketChannel.class;
+    }
     super.serviceInit(new Configuration(conf));
   }
 
@@ -540,25 +671,31 @@ protected void serviceStart() throws Exception {
     userRsrc = new ConcurrentHashMap<String,String>();
     secretManager = new JobTokenSecretManager();
     recoverState(conf);
-    ServerBootstrap bootstrap = new ServerBootstrap(selector);
-    // Timer is shared across entire factory and must be released separately
-    timer = new HashedWheelTimer();
     try {
-      pipelineFact = new HttpPipelineFactory(conf, timer);
+      pipelineFact = new HttpPipelineFactory(conf);
     } catch (Exception ex) {
       throw new RuntimeException(ex);
     }
-    bootstrap.setOption("backlog", conf.getInt(SHUFFLE_LISTEN_QUEUE_SIZE,
-        DEFAULT_SHUFFLE_LISTEN_QUEUE_SIZE));
-    bootstrap.setOption("child.keepAlive", true);
-    bootstrap.setPipelineFactory(pipelineFact);
+    ServerBootstrap bootstrap = new ServerBootstrap()
+        .group(bossGroup, workerGroup)
+        .channel(serverChannelClass)
+        .handler(new ConnectionTracker())
+        .option(ChannelOption.SO_BACKLOG,
+            conf.getInt(SHUFFLE_LISTEN_QUEUE_SIZE,
+                DEFAULT_SHUFFLE_LISTEN_QUEUE_SIZE))
+        .childOption(ChannelOption.SO_KEEPALIVE, true)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+            writeBufferWaterMark)
+        .childHandler(pipelineFact);
     port = conf.getInt(SHUFFLE_PORT_CONFIG_KEY, DEFAULT_SHUFFLE_PORT);
-    Channel ch = bootstrap.bind(new InetSocketAddress(port));
+    Channel ch = bootstrap.bind(new InetSocketAddress(port)).sync().channel();
     accepted.add(ch);
-    port = ((InetSocketAddress)ch.getLocalAddress()).getPort();
+    port = ((InetSocketAddress)ch.localAddress()).getPort();
     conf.set(SHUFFLE_PORT_CONFIG_KEY, Integer.toString(port));
     pipelineFact.SHUFFLE.setPort(port);
     LOG.info(getName() + " listening on port " + port);
+    startDomainSocketServer(conf);
     super.serviceStart();
 
     sslFileBufferSize = conf.getInt(SUFFLE_SSL_FILE_BUFFER_SIZE_KEY,
@@ -574,20 +711,43 @@ protected void serviceStart() throws Exception {
           DEFAULT_SHUFFLE_MAPOUTPUT_META_INFO_CACHE_SIZE));
   }
 
+  private void startDomainSocketServer(Configuration conf) throws IOException {
+    final String path = DomainSocketShuffle.getPath(conf, port);
+    if (path == null) {
+      return;
+    }
+    if (DomainSocket.getLoadingFailureReason() != null) {
+      LOG.warn("Node-local shuffles are disabled: "
+          + DomainSocket.getLoadingFailureReason());
+      return;
+    }
+    domainSocketServer = new ShuffleDomainSocketServer(this,
+        pipelineFact.SHUFFLE, path,
+        Math.max(1, conf.getInt(SHUFFLE_DOMAIN_SOCKET_THREADS,
+            DEFAULT_SHUFFLE_DOMAIN_SOCKET_THREADS)));
+    domainSocketServer.start();
+  }
+
   @Override
   protected void serviceStop() throws Exception {
+    if (domainSocketServer != null) {
+      domainSocketServer.stop();
+      domainSocketServer = null;
+    }
     accepted.close().awaitUninterruptibly(10, TimeUnit.SECONDS);
-    if (selector != null) {
-      ServerBootstrap bootstrap = new ServerBootstrap(selector);
-      bootstrap.releaseExternalResources();
+    if (coalesceReaders != null) {
+      coalesceReaders.shutdownNow();
+    }
+    if (bossGroup != null) {
+      bossGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS);
+    }
+    if (workerGroup != null) {
+      workerGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS)
+          .awaitUninterruptibly(10, TimeUnit.SECONDS);
     }
     if (pipelineFact != null) {
       pipelineFact.destroy();
     }
-    if (timer != null) {
-      // Release this shared timer resource
-      timer.stop();
-    }
     if (stateDb != null) {
       stateDb.close();
     }
@@ -606,6 +766,14 @@ public synchronized ByteBuffer getMetaData() {
     }
   }
 
+  SecretKey getJobTokenSecret(String jobId) throws IOException {
+    return secretManager.retrieveTokenSecret(jobId);
+  }
+
+  String getJobUser(String jobId) {
+    return userRsrc.get(jobId);
+  }
+
   protected Shuffle getShuffle(Configuration conf) {
     return new Shuffle(conf);
   }
@@ -785,7 +953,7 @@ private void removeJobShuffleInfo(JobID jobId) throws IOException {
     }
   }
 
-  static class TimeoutHandler extends IdleStateAwareChannelHandler {
+  static class TimeoutHandler extends ChannelInboundHandlerAdapter {
 
     private boolean enabledTimeout;
 
@@ -794,20 +962,43 @@ void setEnabledTimeout(boolean enabledTimeout) {
     }
 
     @Override
-    public void channelIdle(ChannelHandlerContext ctx, IdleStateEvent e) {
-      if (e.getState() == IdleState.WRITER_IDLE && enabledTimeout) {
-        e.getChannel().close();
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt)
+        throws Exception {
+      if (evt instanceof IdleStateEvent) {
+        IdleStateEvent e = (IdleStateEvent) evt;
+        if (e.state() == IdleState.WRITER_IDLE && enabledTimeout) {
+          ctx.channel().close();
+        }
+      } else {
+        super.userEventTriggered(ctx, evt);
       }
     }
   }
 
-  class HttpPipelineFactory implements ChannelPipelineFactory {
+  /**
+   * Adds accepted connections to the channel group on the boss thread, so
+   * that the connection limit is applied in the order connections arrive
+   * rather than in the order the worker threads activate them.
+   */
+  @Sharable
+  class ConnectionTracker extends ChannelInboundHandlerAdapter {
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg)
+        throws Exception {
+      if (maxShuffleConnections <= 0 ||
+          accepted.size() < maxShuffleConnections) {
+        accepted.add((Channel) msg);
+      }
+      super.channelRead(ctx, msg);
+    }
+  }
+
+  class HttpPipelineFactory extends ChannelInitializer<SocketChannel> {
 
     final Shuffle SHUFFLE;
     private SSLFactory sslFactory;
-    private final ChannelHandler idleStateHandler;
 
-    public HttpPipelineFactory(Configuration conf, Timer timer) throws Exception {
+    public HttpPipelineFactory(Configuration conf) throws Exception {
       SHUFFLE = getShuffle(conf);
       if (conf.getBoolean(MRConfig.SHUFFLE_SSL_ENABLED_KEY,
                           MRConfig.SHUFFLE_SSL_ENABLED_DEFAULT)) {
@@ -815,7 +1006,6 @@ public HttpPipelineFactory(Configuration conf, Timer timer) throws Exception {
         sslFactory = new SSLFactory(SSLFactory.Mode.SERVER, conf);
         sslFactory.init();
       }
-      this.idleStateHandler = new IdleStateHandler(timer, 0, connectionKeepAliveTimeOut, 0);
     }
 
     public Shuffle getSHUFFLE() {
@@ -829,26 +1019,27 @@ public void destroy() {
     }
 
     @Override
-    public ChannelPipeline getPipeline() throws Exception {
-      ChannelPipeline pipeline = Channels.pipeline();
+    protected void initChannel(SocketChannel ch) throws Exception {
+      ChannelPipeline pipeline = ch.pipeline();
       if (sslFactory != null) {
         pipeline.addLast("ssl", new SslHandler(sslFactory.createSSLEngine()));
       }
       pipeline.addLast("decoder", new HttpRequestDecoder());
-      pipeline.addLast("aggregator", new HttpChunkAggregator(1 << 16));
+      pipeline.addLast("aggregator", new HttpObjectAggregator(1 << 16));
       pipeline.addLast("encoder", new HttpResponseEncoder());
       pipeline.addLast("chunking", new ChunkedWriteHandler());
       pipeline.addLast("shuffle", SHUFFLE);
-      pipeline.addLast("idle", idleStateHandler);
+      pipeline.addLast("idle", new IdleStateHandler(
+          0, connectionKeepAliveTimeOut, 0, TimeUnit.SECONDS));
       pipeline.addLast(TIMEOUT_HANDLER, new TimeoutHandler());
-      return pipeline;
       // TODO factor security manager into pipeline
       // TODO factor out encode/decode to permit binary shuffle
       // TODO factor out decode of index to permit alt. models
     }
   }
 
-  class Shuffle extends SimpleChannelUpstreamHandler {
+  @Sharable
+  class Shuffle extends ChannelInboundHandlerAdapter {
     private final IndexCache indexCache;
     private final
     LoadingCache<AttemptPathIdentifier, AttemptPathInfo> pathCache;
@@ -904,11 +1095,11 @@ private List<String> splitMaps(List<String> mapq) {
     }
 
     @Override
-    public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent evt) 
-        throws Exception {
-      super.channelOpen(ctx, evt);
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+      super.channelActive(ctx);
 
-      if ((maxShuffleConnections > 0) && (accepted.size() >= maxShuffleConnections)) {
+      // Connections above the limit are not added by the ConnectionTracker
+      if (!accepted.contains(ctx.channel())) {
         LOG.info(String.format("Current number of shuffle connections (%d) is " + 
             "greater than or equal to the max allowed shuffle connections (%d)", 
             accepted.size(), maxShuffleConnections));
@@ -920,16 +1111,37 @@ public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent evt)
         // fetch failure.
         headers.put(RETRY_AFTER_HEADER, String.valueOf(FETCH_RETRY_DELAY));
         sendError(ctx, "", TOO_MANY_REQ_STATUS, headers);
-        return;
       }
-      accepted.add(evt.getChannel());
     }
 
     @Override
-    public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
+    public void channelWritabilityChanged(ChannelHandlerContext ctx)
+        throws Exception {
+      Channel ch = ctx.channel();
+      ReduceContext reduceContext = ch.attr(DEFERRED_REDUCE_CONTEXT).get();
+      while (reduceContext != null && ch.isWritable() &&
+          reduceContext.getDeferredSends().get() > 0) {
+        reduceContext.getDeferredSends().decrementAndGet();
+        if (sendMap(reduceContext) == null) {
+          break;
+        }
+      }
+      super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg)
         throws Exception {
-      HttpRequest request = (HttpRequest) evt.getMessage();
-      if (request.getMethod() != GET) {
+      try {
+        messageReceived(ctx, (HttpRequest) msg);
+      } finally {
+        ReferenceCountUtil.release(msg);
+      }
+    }
+
+    private void messageReceived(ChannelHandlerContext ctx,
+        HttpRequest request) throws Exception {
+      if (!GET.equals(request.method())) {
           sendError(ctx, METHOD_NOT_ALLOWED);
           return;
       }
@@ -942,9 +1154,10 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
                   request.headers()
                       .get(ShuffleHeader.HTTP_HEADER_VERSION) : null)) {
         sendError(ctx, "Incompatible shuffle request version", BAD_REQUEST);
+        return;
       }
       final Map<String,List<String>> q =
-        new QueryStringDecoder(request.getUri()).getParameters();
+        new QueryStringDecoder(request.uri()).parameters();
       final List<String> keepAliveList = q.get("keepAlive");
       boolean keepAliveParam = false;
       if (keepAliveList != null && keepAliveList.size() == 1) {
@@ -958,7 +1171,7 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
       final List<String> reduceQ = q.get("reduce");
       final List<String> jobQ = q.get("job");
       if (LOG.isDebugEnabled()) {
-        LOG.debug("RECV: " + request.getUri() +
+        LOG.debug("RECV: " + request.uri() +
             "\n  mapId: " + mapIds +
             "\n  reduceId: " + reduceQ +
             "\n  jobId: " + jobQ +
@@ -986,7 +1199,7 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
         sendError(ctx, "Bad job parameter", BAD_REQUEST);
         return;
       }
-      final String reqUri = request.getUri();
+      final String reqUri = request.uri();
       if (null == reqUri) {
         // TODO? add upstream?
         sendError(ctx, FORBIDDEN);
@@ -1004,8 +1217,8 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
 
       Map<String, MapOutputInfo> mapOutputInfoMap =
           new HashMap<String, MapOutputInfo>();
-      Channel ch = evt.getChannel();
-      ChannelPipeline pipeline = ch.getPipeline();
+      Channel ch = ctx.channel();
+      ChannelPipeline pipeline = ch.pipeline();
       TimeoutHandler timeoutHandler =
           (TimeoutHandler)pipeline.get(TIMEOUT_HANDLER);
       timeoutHandler.setEnabledTimeout(false);
@@ -1015,7 +1228,6 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
         populateHeaders(mapIds, jobId, user, reduceId, request,
           response, keepAliveParam, mapOutputInfoMap);
       } catch(IOException e) {
-        ch.write(response);
         LOG.error("Shuffle error in populating headers :", e);
         String errorMessage = getErrorMessage(e);
         sendError(ctx,errorMessage , INTERNAL_SERVER_ERROR);
@@ -1059,31 +1271,188 @@ public ChannelFuture sendMap(ReduceContext reduceContext)
             info = getMapOutputInfo(mapId, reduceContext.getReduceId(),
                 reduceContext.getJobId(), reduceContext.getUser());
           }
-          nextMap = sendMapOutput(
-              reduceContext.getCtx(),
-              reduceContext.getCtx().getChannel(),
-              reduceContext.getUser(), mapId,
-              reduceContext.getReduceId(), info);
+          if (isCoalescable(info)) {
+            nextMap = sendCoalescedMapOutputs(reduceContext, mapId, info);
+          } else {
+            nextMap = sendMapOutput(
+                reduceContext.getCtx(),
+                reduceContext.getCtx().channel(),
+                reduceContext.getUser(), mapId,
+                reduceContext.getReduceId(), info);
+            if (null != nextMap) {
+              nextMap.addListener(new ReduceMapFileCount(reduceContext));
+            }
+          }
           if (null == nextMap) {
             sendError(reduceContext.getCtx(), NOT_FOUND);
             return null;
           }
-          nextMap.addListener(new ReduceMapFileCount(reduceContext));
         } catch (IOException e) {
-          if (e instanceof DiskChecker.DiskErrorException) {
-            LOG.error("Shuffle error :" + e);
-          } else {
-            LOG.error("Shuffle error :", e);
-          }
-          String errorMessage = getErrorMessage(e);
-          sendError(reduceContext.getCtx(), errorMessage,
-              INTERNAL_SERVER_ERROR);
+          sendMapError(reduceContext.getCtx(), e);
           return null;
         }
       }
       return nextMap;
     }
 
+    private void sendMapError(ChannelHandlerContext ctx, Exception e) {
+      if (e instanceof DiskChecker.DiskErrorException) {
+        LOG.error("Shuffle error :" + e);
+      } else {
+        LOG.error("Shuffle error :", e);
+      }
+      String errorMessage = getErrorMessage(e);
+      sendError(ctx, errorMessage, INTERNAL_SERVER_ERROR);
+    }
+
+    private boolean isCoalescable(MapOutputInfo info) {
+      return coalesceMaxSegmentSize > 0 && info != null &&
+          info.indexRecord.partLength <= coalesceMaxSegmentSize;
+    }
+
+    /**
+     * Send the output of {@code mapId} together with the outputs of the
+     * following maps of the request, as long as they are small enough to be
+     * coalesced and fit into the coalesce buffer. The outputs are read into a
+     * single buffer and written with one write, instead of a header and a
+     * file region per map. Only maps whose output info is already cached for
+     * the request are added. The outputs are read by the coalesce readers,
+     * not on the event loop of the channel.
+     * @return the future of the write.
+     */
+    protected ChannelFuture sendCoalescedMapOutputs(
+        final ReduceContext reduceContext, final String mapId,
+        final MapOutputInfo info) {
+      final ChannelPromise promise =
+          reduceContext.getCtx().channel().newPromise();
+      coalesceReaders.execute(new Runnable() {
+        @Override
+        public void run() {
+          readCoalescedMapOutputs(reduceContext, mapId, info, promise);
+        }
+      });
+      return promise;
+    }
+
+    private void readCoalescedMapOutputs(ReduceContext reduceContext,
+        String mapId, MapOutputInfo info, ChannelPromise promise) {
+      final ChannelHandlerContext ctx = reduceContext.getCtx();
+      final List<String> mapIds = reduceContext.getMapIds();
+      final int reduce = reduceContext.getReduceId();
+      final List<String> sendIds = new ArrayList<String>();
+      final List<MapOutputInfo> sendInfos = new ArrayList<MapOutputInfo>();
+      final List<Integer> headerEnds = new ArrayList<Integer>();
+      final DataOutputBuffer headers = new DataOutputBuffer();
+      ByteBuf buf = null;
+      try {
+        // claim the maps to send first, their index records tell how large
+        // the buffer has to be
+        writeShuffleHeader(headers, mapId, reduce, info);
+        long size = headers.getLength() + info.indexRecord.partLength;
+        while (true) {
+          sendIds.add(mapId);
+          sendInfos.add(info);
+          headerEnds.add(headers.getLength());
+          int nextIndex = reduceContext.getMapsToSend().get();
+          if (nextIndex >= mapIds.size()) {
+            break;
+          }
+          mapId = mapIds.get(nextIndex);
+          info = reduceContext.getInfoMap().get(mapId);
+          if (!isCoalescable(info)) {
+            break;
+          }
+          int headerStart = headers.getLength();
+          writeShuffleHeader(headers, mapId, reduce, info);
+          long nextSize = size + headers.getLength() - headerStart +
+              info.indexRecord.partLength;
+          if (nextSize > coalesceBufferSize ||
+              !reduceContext.getMapsToSend().compareAndSet(
+                  nextIndex, nextIndex + 1)) {
+            break;
+          }
+          size = nextSize;
+        }
+        buf = ctx.channel().alloc().directBuffer((int) size, (int) size);
+        int headerStart = 0;
+        for (int i = 0; i < sendIds.size(); i++) {
+          buf.writeBytes(headers.getData(), headerStart,
+              headerEnds.get(i) - headerStart);
+          headerStart = headerEnds.get(i);
+          if (!readMapOutput(buf, reduceContext.getUser(), sendInfos.get(i))) {
+            buf.release();
+            promise.setFailure(new FileNotFoundException(
+                "Output of " + sendIds.get(i) + " not found"));
+            sendError(ctx, NOT_FOUND);
+            return;
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        if (buf != null) {
+          buf.release();
+        }
+        promise.setFailure(e);
+        sendMapError(ctx, e);
+        return;
+      }
+      promise.addListener(
+          new ReduceMapFileCount(reduceContext, sendIds.size()));
+      ctx.channel().writeAndFlush(buf, promise);
+    }
+
+    private void writeShuffleHeader(DataOutputBuffer out, String mapId,
+        int reduce, MapOutputInfo mapOutputInfo) throws IOException {
+      final IndexRecord info = mapOutputInfo.indexRecord;
+      new ShuffleHeader(mapId, info.partLength, info.rawLength, reduce)
+          .write(out);
+    }
+
+    /**
+     * Append the partition of a map output to {@code buf}.
+     * @return false if the map output file was not found.
+     */
+    private boolean readMapOutput(ByteBuf buf, String user,
+        MapOutputInfo mapOutputInfo) throws IOException {
+      final IndexRecord info = mapOutputInfo.indexRecord;
+      final File spillfile =
+          new File(mapOutputInfo.mapOutputFileName.toString());
+      RandomAccessFile spill;
+      try {
+        spill = SecureIOUtils.openForRandomRead(spillfile, "r", user, null);
+      } catch (FileNotFoundException e) {
+        LOG.info(spillfile + " not found");
+        return false;
+      }
+      try {
+        FileChannel fileChannel = spill.getChannel();
+        long position = info.startOffset;
+        long remaining = info.partLength;
+        while (remaining > 0) {
+          int read = buf.writeBytes(fileChannel, position, (int) remaining);
+          if (read < 0) {
+            throw new EOFException("Unexpected end of " + spillfile +
+                " at offset " + position);
+          }
+          position += read;
+          remaining -= read;
+        }
+        if (manageOsCache && info.partLength > 0) {
+          try {
+            NativeIO.POSIX.getCacheManipulator().posixFadviseIfPossible(
+                spillfile.getAbsolutePath(), spill.getFD(), info.startOffset,
+                info.partLength, POSIX_FADV_DONTNEED);
+          } catch (Throwable t) {
+            LOG.warn("Failed to manage OS cache for " + spillfile, t);
+          }
+        }
+      } finally {
+        spill.close();
+      }
+      metrics.shuffleConnections.incr();
+      metrics.shuffleOutputBytes.incr(info.partLength);
+      return true;
+    }
+
     private String getErrorMessage(Throwable t) {
       StringBuffer sb = new StringBuffer(t.getMessage());
       while (t.getCause() != null) {
@@ -1257,9 +1626,14 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx, Channel ch,
       final IndexRecord info = mapOutputInfo.indexRecord;
       final ShuffleHeader header =
         new ShuffleHeader(mapId, info.partLength, info.rawLength, reduce);
-      final DataOutputBuffer dob = new DataOutputBuffer();
-      header.write(dob);
-      ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+      final ByteBuf headerBuf = ch.alloc().directBuffer();
+      try {
+        header.write(new ByteBufOutputStream(headerBuf));
+      } catch (IOException e) {
+        headerBuf.release();
+        throw e;
+      }
+      ch.write(headerBuf);
       final File spillfile =
           new File(mapOutputInfo.mapOutputFileName.toString());
       RandomAccessFile spill;
@@ -1270,30 +1644,21 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx, Channel ch,
         return null;
       }
       ChannelFuture writeFuture;
-      if (ch.getPipeline().get(SslHandler.class) == null) {
+      if (ch.pipeline().get(SslHandler.class) == null) {
+        // The region is released, and the OS cache advised, by netty once it
+        // has been written out.
         final FadvisedFileRegion partition = new FadvisedFileRegion(spill,
             info.startOffset, info.partLength, manageOsCache, readaheadLength,
             readaheadPool, spillfile.getAbsolutePath(), 
             shuffleBufferSize, shuffleTransferToAllowed);
-        writeFuture = ch.write(partition);
-        writeFuture.addListener(new ChannelFutureListener() {
-            // TODO error handling; distinguish IO/connection failures,
-            //      attribute to appropriate spill output
-          @Override
-          public void operationComplete(ChannelFuture future) {
-            if (future.isSuccess()) {
-              partition.transferSuccessful();
-            }
-            partition.releaseExternalResources();
-          }
-        });
+        writeFuture = ch.writeAndFlush(partition);
       } else {
         // HTTPS cannot be done with zero copy.
         final FadvisedChunkedFile chunk = new FadvisedChunkedFile(spill,
             info.startOffset, info.partLength, sslFileBufferSize,
             manageOsCache, readaheadLength, readaheadPool,
             spillfile.getAbsolutePath());
-        writeFuture = ch.write(chunk);
+        writeFuture = ch.writeAndFlush(chunk);
       }
       metrics.shuffleConnections.incr();
       metrics.shuffleOutputBytes.incr(info.partLength); // optimistic
@@ -1312,7 +1677,8 @@ protected void sendError(ChannelHandlerContext ctx, String message,
 
     protected void sendError(ChannelHandlerContext ctx, String msg,
         HttpResponseStatus status, Map<String, String> headers) {
-      HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status);
+      FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status,
+          Unpooled.copiedBuffer(msg, CharsetUtil.UTF_8));
       response.headers().set(CONTENT_TYPE, "text/plain; charset=UTF-8");
       // Put shuffle version into http header
       response.headers().set(ShuffleHeader.HTTP_HEADER_NAME,
@@ -1322,18 +1688,16 @@ protected void sendError(ChannelHandlerContext ctx, String msg,
       for (Map.Entry<String, String> header : headers.entrySet()) {
         response.headers().set(header.getKey(), header.getValue());
       }
-      response.setContent(
-          ChannelBuffers.copiedBuffer(msg, CharsetUtil.UTF_8));
 
       // Close the connection as soon as the error message is sent.
-      ctx.getChannel().write(response).addListener(ChannelFutureListener.CLOSE);
+      ctx.channel().writeAndFlush(response)
+          .addListener(ChannelFutureListener.CLOSE);
     }
 
     @Override
-    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
         throws Exception {
-      Channel ch = e.getChannel();
-      Throwable cause = e.getCause();
+      Channel ch = ctx.channel();
       if (cause instanceof TooLongFrameException) {
         sendError(ctx, BAD_REQUEST);
         return;
@@ -1350,8 +1714,8 @@ public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
       }
 
       LOG.error("Shuffle error: ", cause);
-      if (ch.isConnected()) {
-        LOG.error("Shuffle error " + e);
+      if (ch.isActive()) {
+        LOG.error("Shuffle error " + cause);
         sendError(ctx, INTERNAL_SERVER_ERROR);
       }
     }
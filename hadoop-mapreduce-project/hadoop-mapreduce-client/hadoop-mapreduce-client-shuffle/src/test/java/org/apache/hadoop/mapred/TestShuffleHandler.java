@@ -22,9 +22,9 @@
 import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.junit.Assert.assertTrue;
-import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
-import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -41,13 +41,19 @@
 import java.net.URL;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.zip.CheckedOutputStream;
 import java.util.zip.Checksum;
 
+import javax.crypto.SecretKey;
+import org.apache.commons.io.IOUtils;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -56,16 +62,21 @@
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.io.nativeio.NativeIO;
+import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.mapreduce.TypeConverter;
 import org.apache.hadoop.mapreduce.security.SecureShuffleUtils;
 import org.apache.hadoop.mapreduce.security.token.JobTokenIdentifier;
 import org.apache.hadoop.mapreduce.security.token.JobTokenSecretManager;
+import org.apache.hadoop.mapreduce.task.reduce.DomainSocketShuffle;
 import org.apache.hadoop.mapreduce.task.reduce.ShuffleHeader;
 import org.apache.hadoop.metrics2.MetricsRecordBuilder;
 import org.apache.hadoop.metrics2.MetricsSource;
 import org.apache.hadoop.metrics2.MetricsSystem;
 import org.apache.hadoop.metrics2.impl.MetricsSystemImpl;
+import org.apache.hadoop.net.unix.DomainSocket;
+import org.apache.hadoop.net.unix.TemporarySocketDirectory;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.service.ServiceStateException;
@@ -79,18 +90,17 @@
 import org.apache.hadoop.yarn.server.api.AuxiliaryLocalPathHandler;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.ContainerLocalizer;
 import org.apache.hadoop.yarn.server.records.Version;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.socket.SocketChannel;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.AbstractChannel;
-import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
-import org.jboss.netty.handler.codec.http.HttpRequest;
-import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpResponseStatus;
-import org.jboss.netty.handler.codec.http.HttpMethod;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.Attribute;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
@@ -145,7 +155,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
           for (int i = 0; i < 100; ++i) {
             header.write(dob);
           }
-          return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+          return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
         }
       };
     }
@@ -193,8 +203,8 @@ protected Shuffle getShuffle(final Configuration conf) {
         protected void verifyRequest(String appid, ChannelHandlerContext ctx,
             HttpRequest request, HttpResponse response, URL requestUri)
             throws IOException {
-          SocketChannel channel = (SocketChannel)(ctx.getChannel());
-          socketKeepAlive = channel.getConfig().isKeepAlive();
+          SocketChannel channel = (SocketChannel)(ctx.channel());
+          socketKeepAlive = channel.config().isKeepAlive();
         }
       };
     }
@@ -305,14 +315,14 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i = 0; i < 100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
           @Override
           protected void sendError(ChannelHandlerContext ctx,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
           @Override
@@ -320,7 +330,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
         };
@@ -417,7 +427,7 @@ protected void populateHeaders(List<String> mapIds, String jobId,
           protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
               Channel ch, String user, String mapId, int reduce,
               MapOutputInfo info) throws IOException {
-            lastSocketAddress.setAddress(ch.getRemoteAddress());
+            lastSocketAddress.setAddress(ch.remoteAddress());
             HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
 
             // send a shuffle header and a lot of data down the channel
@@ -431,7 +441,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i = 0; i < 100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
 
           @Override
@@ -439,7 +449,7 @@ protected void sendError(ChannelHandlerContext ctx,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
 
@@ -448,7 +458,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
         };
@@ -541,7 +551,11 @@ public void testSocketKeepAlive() throws Exception {
       conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
           ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
       conn.connect();
-      conn.getInputStream();
+      // the request fails populating the headers, locating the map output
+      Assert.assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR,
+          conn.getResponseCode());
+      Assert.assertEquals("Test", IOUtils.toString(conn.getErrorStream(),
+          StandardCharsets.UTF_8));
       Assert.assertTrue("socket should be set KEEP_ALIVE",
           shuffleHandler.isSocketKeepAlive());
     } finally {
@@ -587,6 +601,57 @@ public void testIncompatibleShuffleVersion() throws Exception {
     shuffleHandler.close();
   }
 
+  /**
+   * Verify that a failure to populate the response headers is answered with
+   * a single error response, without the OK response being sent first.
+   *
+   * @throws Exception exception
+   */
+  @Test (timeout = 10000)
+  public void testPopulateHeadersFailure() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    ShuffleHandler shuffleHandler = new ShuffleHandler() {
+      @Override
+      protected Shuffle getShuffle(Configuration conf) {
+        return new Shuffle(conf) {
+          @Override
+          protected void verifyRequest(String appid,
+              ChannelHandlerContext ctx, HttpRequest request,
+              HttpResponse response, URL requestUri) throws IOException {
+          }
+          @Override
+          protected void populateHeaders(List<String> mapIds, String jobId,
+              String user, int reduce, HttpRequest request,
+              HttpResponse response, boolean keepAliveParam,
+              Map<String, MapOutputInfo> infoMap) throws IOException {
+            throw new IOException("Injected index read failure");
+          }
+        };
+      }
+    };
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      URL url = new URL("http://127.0.0.1:"
+          + shuffleHandler.getConfig().get(
+              ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY)
+          + "/mapOutput?job=job_12345_1&reduce=1&map=attempt_12345_1_m_1_0");
+      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+      conn.connect();
+      Assert.assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR,
+          conn.getResponseCode());
+      conn.disconnect();
+    } finally {
+      shuffleHandler.stop();
+      shuffleHandler.close();
+    }
+  }
+
   /**
    * Validate the limit on number of shuffle connections.
    * 
@@ -638,7 +703,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i=0; i<100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
         };
       }
@@ -681,7 +746,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
     try {
       rc = conns[2].getResponseCode();
       Assert.assertEquals("Expected a too-many-requests response code",
-          ShuffleHandler.TOO_MANY_REQ_STATUS.getCode(), rc);
+          ShuffleHandler.TOO_MANY_REQ_STATUS.code(), rc);
       long backoff = Long.valueOf(
           conns[2].getHeaderField(ShuffleHandler.RETRY_AFTER_HEADER));
       Assert.assertTrue("The backoff value cannot be negative.", backoff > 0);
@@ -838,6 +903,84 @@ private static void createIndexFile(File indexFile, Configuration conf)
     output.close();
   }
 
+  @Test(timeout = 100000)
+  public void testDomainSocketShuffle() throws Exception {
+    assumeTrue(DomainSocket.getLoadingFailureReason() == null);
+    final String user = System.getProperty("user.name");
+    final ApplicationId appId = ApplicationId.newInstance(12345, 1);
+    final String mapId = "attempt_12345_1_m_1_0";
+    final byte[] mapOutput = "map-output of reduce 1".getBytes();
+    final File attemptDir = new File(StringUtils.join(Path.SEPARATOR,
+        new String[] {ABS_LOG_DIR.getAbsolutePath(),
+            ContainerLocalizer.USERCACHE, user, ContainerLocalizer.APPCACHE,
+            appId.toString(), "output", mapId}));
+    attemptDir.mkdirs();
+    Configuration conf = new Configuration();
+    try (FileOutputStream out =
+        new FileOutputStream(new File(attemptDir, "file.out"))) {
+      out.write(new byte[7]);
+      out.write(mapOutput);
+    }
+    SpillRecord spillRecord = new SpillRecord(2);
+    spillRecord.putIndex(new IndexRecord(0, 7, 7), 0);
+    spillRecord.putIndex(
+        new IndexRecord(7, mapOutput.length, mapOutput.length), 1);
+    spillRecord.writeToFile(
+        new Path(new File(attemptDir, "file.out.index").getAbsolutePath()),
+        new JobConf(conf));
+
+    TemporarySocketDirectory socketDir = new TemporarySocketDirectory();
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    conf.set(YarnConfiguration.NM_LOCAL_DIRS, ABS_LOG_DIR.getAbsolutePath());
+    conf.set(MRConfig.SHUFFLE_DOMAIN_SOCKET_PATH,
+        new File(socketDir.getDir(), "shuffle._PORT").getAbsolutePath());
+    ShuffleHandler shuffleHandler = new ShuffleHandler();
+    shuffleHandler.setAuxiliaryLocalPathHandler(
+        new TestAuxiliaryLocalPathHandler());
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      DataOutputBuffer outputBuffer = new DataOutputBuffer();
+      Token<JobTokenIdentifier> jt = new Token<JobTokenIdentifier>(
+          "identifier".getBytes(), "password".getBytes(), new Text(user),
+          new Text("shuffleService"));
+      jt.write(outputBuffer);
+      shuffleHandler.initializeApplication(new ApplicationInitializationContext(
+          user, appId, ByteBuffer.wrap(outputBuffer.getData(), 0,
+              outputBuffer.getLength())));
+      final String path = DomainSocketShuffle.getPath(conf,
+          conf.getInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0));
+
+      SecretKey secret =
+          JobTokenSecretManager.createSecretKey("password".getBytes());
+      DomainSocketShuffle.Request request = new DomainSocketShuffle.Request(
+          "job_12345_0001", 1, Arrays.asList(mapId), secret);
+      try (DomainSocketShuffle.Client client =
+          new DomainSocketShuffle.Client(path, request, secret, 10000)) {
+        new ShuffleHeader().readFields(client.getInputStream());
+        byte[] data = new byte[mapOutput.length];
+        new DataInputStream(client.openData()).readFully(data);
+        Assert.assertArrayEquals(mapOutput, data);
+      }
+
+      // requests are authenticated with the job token
+      SecretKey wrongSecret =
+          JobTokenSecretManager.createSecretKey("wrong".getBytes());
+      try {
+        new DomainSocketShuffle.Client(path, new DomainSocketShuffle.Request(
+            "job_12345_0001", 1, Arrays.asList(mapId), wrongSecret),
+            wrongSecret, 10000).close();
+        Assert.fail("Request with a wrong job token was served");
+      } catch (IOException e) {
+        GenericTestUtils.assertExceptionContains("Shuffle request failed", e);
+      }
+    } finally {
+      shuffleHandler.stop();
+      socketDir.close();
+      FileUtil.fullyDelete(ABS_LOG_DIR);
+    }
+  }
+
   @Test
   public void testRecovery() throws IOException {
     final String user = "someuser";
@@ -872,9 +1015,9 @@ public void testRecovery() throws IOException {
           appId, ByteBuffer.wrap(outputBuffer.getData(), 0,
             outputBuffer.getLength())));
 
-      // verify we are authorized to shuffle
-      int rc = getShuffleResponseCode(shuffle, jt);
-      Assert.assertEquals(HttpURLConnection.HTTP_OK, rc);
+      // verify we are authorized to shuffle: the request gets as far as
+      // reading the index file of the map, which does not exist
+      assertShuffleFailsReadingIndexFile(shuffle, jt);
 
       // emulate shuffle handler restart
       shuffle.close();
@@ -885,12 +1028,11 @@ public void testRecovery() throws IOException {
       shuffle.start();
 
       // verify we are still authorized to shuffle to the old application
-      rc = getShuffleResponseCode(shuffle, jt);
-      Assert.assertEquals(HttpURLConnection.HTTP_OK, rc);
+      assertShuffleFailsReadingIndexFile(shuffle, jt);
 
       // shutdown app and verify access is lost
       shuffle.stopApplication(new ApplicationTerminationContext(appId));
-      rc = getShuffleResponseCode(shuffle, jt);
+      int rc = getShuffleResponseCode(shuffle, jt);
       Assert.assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, rc);
 
       // emulate shuffle handler restart
@@ -943,9 +1085,9 @@ public void testRecoveryFromOtherVersions() throws IOException {
           appId, ByteBuffer.wrap(outputBuffer.getData(), 0,
               outputBuffer.getLength())));
 
-      // verify we are authorized to shuffle
-      int rc = getShuffleResponseCode(shuffle, jt);
-      Assert.assertEquals(HttpURLConnection.HTTP_OK, rc);
+      // verify we are authorized to shuffle: the request gets as far as
+      // reading the index file of the map, which does not exist
+      assertShuffleFailsReadingIndexFile(shuffle, jt);
 
       // emulate shuffle handler restart
       shuffle.close();
@@ -956,8 +1098,7 @@ public void testRecoveryFromOtherVersions() throws IOException {
       shuffle.start();
 
       // verify we are still authorized to shuffle to the old application
-      rc = getShuffleResponseCode(shuffle, jt);
-      Assert.assertEquals(HttpURLConnection.HTTP_OK, rc);
+      assertShuffleFailsReadingIndexFile(shuffle, jt);
       Version version = Version.newInstance(1, 0);
       Assert.assertEquals(version, shuffle.getCurrentVersion());
     
@@ -976,8 +1117,7 @@ public void testRecoveryFromOtherVersions() throws IOException {
       // successfully.
       Assert.assertEquals(version, shuffle.loadVersion());
       // verify we are still authorized to shuffle to the old application
-      rc = getShuffleResponseCode(shuffle, jt);
-      Assert.assertEquals(HttpURLConnection.HTTP_OK, rc);
+      assertShuffleFailsReadingIndexFile(shuffle, jt);
     
       // emulate shuffle handler restart with incompatible version
       Version version21 = Version.newInstance(2, 1);
@@ -1007,6 +1147,35 @@ public void testRecoveryFromOtherVersions() throws IOException {
 
   private static int getShuffleResponseCode(ShuffleHandler shuffle,
       Token<JobTokenIdentifier> jt) throws IOException {
+    HttpURLConnection conn = openShuffleConnection(shuffle, jt);
+    int rc = conn.getResponseCode();
+    conn.disconnect();
+    return rc;
+  }
+
+  /**
+   * Fetch a map output that does not exist. The request fails populating
+   * the response headers, reading the index file of the map, which it only
+   * gets to once it is authorized.
+   */
+  private static void assertShuffleFailsReadingIndexFile(
+      ShuffleHandler shuffle, Token<JobTokenIdentifier> jt)
+      throws IOException {
+    HttpURLConnection conn = openShuffleConnection(shuffle, jt);
+    try {
+      Assert.assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR,
+          conn.getResponseCode());
+      String error = IOUtils.toString(conn.getErrorStream(),
+          StandardCharsets.UTF_8);
+      Assert.assertTrue(error, error.startsWith("Error Reading IndexFile"));
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  private static HttpURLConnection openShuffleConnection(
+      ShuffleHandler shuffle, Token<JobTokenIdentifier> jt)
+      throws IOException {
     URL url = new URL("http://127.0.0.1:"
         + shuffle.getConfig().get(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY)
         + "/mapOutput?job=job_12345_0001&reduce=0&map=attempt_12345_1_m_1_0");
@@ -1021,9 +1190,7 @@ private static int getShuffleResponseCode(ShuffleHandler shuffle,
     conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
         ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
     conn.connect();
-    int rc = conn.getResponseCode();
-    conn.disconnect();
-    return rc;
+    return conn;
   }
 
   @Test(timeout = 100000)
@@ -1070,7 +1237,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error(message));
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
           @Override
@@ -1082,7 +1249,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
                 new ShuffleHeader("attempt_12345_1_m_1_0", 5678, 5678, 1);
             DataOutputBuffer dob = new DataOutputBuffer();
             header.write(dob);
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
         };
       }
@@ -1130,6 +1297,140 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
     }
   }
 
+  /**
+   * Fetch several map outputs through a connection whose write buffer
+   * watermarks are far below the size of a single map output, so that every
+   * map output after the first ones waits for the channel to drain.
+   *
+   * @throws Exception exception
+   */
+  @Test(timeout = 100000)
+  public void testSendMapOutputWithBackpressure() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_WRITE_BUFFER_LOW_WATERMARK, 1024);
+    conf.setInt(ShuffleHandler.SHUFFLE_WRITE_BUFFER_HIGH_WATERMARK, 2048);
+    conf.setInt(ShuffleHandler.SHUFFLE_COALESCE_MAX_SEGMENT_SIZE, 0);
+    int[] mapOutputSizes = new int[10];
+    Arrays.fill(mapOutputSizes, 64 * 1024);
+    verifyFetchedMapOutputs(conf, mapOutputSizes);
+  }
+
+  /**
+   * Fetch a mix of small map outputs, which are coalesced into shared writes,
+   * and large ones, which are sent as file regions, and verify that all of
+   * them arrive in the requested order.
+   *
+   * @throws Exception exception
+   */
+  @Test(timeout = 100000)
+  public void testSendCoalescedMapOutputs() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_COALESCE_MAX_SEGMENT_SIZE, 4096);
+    conf.setInt(ShuffleHandler.SHUFFLE_COALESCE_BUFFER_SIZE, 16 * 1024);
+    verifyFetchedMapOutputs(conf, new int[] {100, 0, 4096, 3000, 5000, 10,
+        4096, 4096, 4096, 4096, 4096, 64 * 1024, 1, 2, 3, 4096});
+  }
+
+  private void verifyFetchedMapOutputs(Configuration conf,
+      int[] mapOutputSizes) throws Exception {
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    conf.set(CommonConfigurationKeysPublic.HADOOP_SECURITY_AUTHENTICATION,
+        "simple");
+    UserGroupInformation.setConfiguration(conf);
+    ApplicationId appId = ApplicationId.newInstance(12345, 1);
+    String user = "randomUser";
+    Random rand = new Random();
+    List<String> mapIds = new ArrayList<String>();
+    List<byte[]> mapOutputs = new ArrayList<byte[]>();
+    for (int i = 0; i < mapOutputSizes.length; i++) {
+      String mapId = "attempt_12345_1_m_" + i + "_0";
+      byte[] data = new byte[mapOutputSizes[i]];
+      rand.nextBytes(data);
+      File attemptDir = new File(StringUtils.join(Path.SEPARATOR,
+          new String[] {ABS_LOG_DIR.getAbsolutePath(),
+              ContainerLocalizer.USERCACHE, user, ContainerLocalizer.APPCACHE,
+              appId.toString(), "output", mapId}));
+      attemptDir.mkdirs();
+      try (FileOutputStream out =
+          new FileOutputStream(new File(attemptDir, "file.out"))) {
+        out.write(data);
+      }
+      SpillRecord spillRecord = new SpillRecord(1);
+      spillRecord.putIndex(new IndexRecord(0, data.length, data.length), 0);
+      spillRecord.writeToFile(
+          new Path(new File(attemptDir, "file.out.index").getAbsolutePath()),
+          new JobConf(conf));
+      mapIds.add(mapId);
+      mapOutputs.add(data);
+    }
+    ShuffleHandler shuffleHandler = new ShuffleHandler() {
+      @Override
+      protected Shuffle getShuffle(Configuration conf) {
+        return new Shuffle(conf) {
+          @Override
+          protected void verifyRequest(String appid, ChannelHandlerContext ctx,
+              HttpRequest request, HttpResponse response, URL requestUri)
+              throws IOException {
+            // Do nothing.
+          }
+        };
+      }
+    };
+    shuffleHandler.setAuxiliaryLocalPathHandler(
+        new TestAuxiliaryLocalPathHandler());
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      DataOutputBuffer outputBuffer = new DataOutputBuffer();
+      Token<JobTokenIdentifier> jt =
+          new Token<JobTokenIdentifier>("identifier".getBytes(),
+              "password".getBytes(), new Text(user), new Text("shuffleService"));
+      jt.write(outputBuffer);
+      shuffleHandler
+          .initializeApplication(new ApplicationInitializationContext(user,
+              appId, ByteBuffer.wrap(outputBuffer.getData(), 0,
+                  outputBuffer.getLength())));
+      URL url = new URL("http://127.0.0.1:"
+          + shuffleHandler.getConfig().get(
+              ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY)
+          + "/mapOutput?job=job_12345_0001&reduce=0&map="
+          + StringUtils.join(",", mapIds));
+      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+      conn.connect();
+      Assert.assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+      // Map outputs sent by different session slots may arrive in any order
+      Map<String, byte[]> expected = new HashMap<String, byte[]>();
+      for (int i = 0; i < mapIds.size(); i++) {
+        expected.put(mapIds.get(i), mapOutputs.get(i));
+      }
+      try (DataInputStream input =
+          new DataInputStream(conn.getInputStream())) {
+        for (int i = 0; i < mapIds.size(); i++) {
+          // The fields of a ShuffleHeader
+          String mapId = Text.readString(input);
+          long compressedLength = WritableUtils.readVLong(input);
+          WritableUtils.readVLong(input);
+          WritableUtils.readVInt(input);
+          byte[] output = expected.remove(mapId);
+          Assert.assertNotNull("Unexpected output of " + mapId, output);
+          Assert.assertEquals(output.length, compressedLength);
+          byte[] data = new byte[output.length];
+          input.readFully(data);
+          Assert.assertArrayEquals("Corrupted output of " + mapId,
+              output, data);
+        }
+        Assert.assertEquals(-1, input.read());
+      }
+    } finally {
+      shuffleHandler.stop();
+      FileUtil.fullyDelete(ABS_LOG_DIR);
+    }
+  }
+
   @Test(timeout = 4000)
   public void testSendMapCount() throws Exception {
     final List<ShuffleHandler.ReduceMapFileCount> listenerList =
@@ -1137,9 +1438,9 @@ public void testSendMapCount() throws Exception {
 
     final ChannelHandlerContext mockCtx =
         mock(ChannelHandlerContext.class);
-    final MessageEvent mockEvt = mock(MessageEvent.class);
-    final Channel mockCh = mock(AbstractChannel.class);
+    final Channel mockCh = mock(Channel.class);
     final ChannelPipeline mockPipeline = mock(ChannelPipeline.class);
+    final Attribute<?> mockAttribute = mock(Attribute.class);
 
     // Mock HttpRequest and ChannelFuture
     final HttpRequest mockHttpRequest = createMockHttpRequest();
@@ -1149,18 +1450,15 @@ public void testSendMapCount() throws Exception {
         new ShuffleHandler.TimeoutHandler();
 
     // Mock Netty Channel Context and Channel behavior
-    Mockito.doReturn(mockCh).when(mockCtx).getChannel();
-    when(mockCh.getPipeline()).thenReturn(mockPipeline);
+    Mockito.doReturn(mockCh).when(mockCtx).channel();
+    when(mockCh.pipeline()).thenReturn(mockPipeline);
     when(mockPipeline.get(
         Mockito.any(String.class))).thenReturn(timerHandler);
-    when(mockCtx.getChannel()).thenReturn(mockCh);
+    when(mockCh.isWritable()).thenReturn(true);
+    Mockito.doReturn(mockAttribute).when(mockCh).attr(Mockito.any());
     Mockito.doReturn(mockFuture).when(mockCh).write(Mockito.any(Object.class));
-    when(mockCh.write(Object.class)).thenReturn(mockFuture);
-
-    //Mock MessageEvent behavior
-    Mockito.doReturn(mockCh).when(mockEvt).getChannel();
-    when(mockEvt.getChannel()).thenReturn(mockCh);
-    Mockito.doReturn(mockHttpRequest).when(mockEvt).getMessage();
+    Mockito.doReturn(mockFuture).when(mockCh)
+        .writeAndFlush(Mockito.any(Object.class));
 
     final ShuffleHandler sh = new MockShuffleHandler();
     Configuration conf = new Configuration();
@@ -1168,7 +1466,7 @@ public void testSendMapCount() throws Exception {
     sh.start();
     int maxOpenFiles =conf.getInt(ShuffleHandler.SHUFFLE_MAX_SESSION_OPEN_FILES,
         ShuffleHandler.DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES);
-    sh.getShuffle(conf).messageReceived(mockCtx, mockEvt);
+    sh.getShuffle(conf).channelRead(mockCtx, mockHttpRequest);
     assertTrue("Number of Open files should not exceed the configured " +
             "value!-Not Expected",
         listenerList.size() <= maxOpenFiles);
@@ -1184,7 +1482,7 @@ public void testSendMapCount() throws Exception {
   public ChannelFuture createMockChannelFuture(Channel mockCh,
       final List<ShuffleHandler.ReduceMapFileCount> listenerList) {
     final ChannelFuture mockFuture = mock(ChannelFuture.class);
-    when(mockFuture.getChannel()).thenReturn(mockCh);
+    when(mockFuture.channel()).thenReturn(mockCh);
     Mockito.doReturn(true).when(mockFuture).isSuccess();
     Mockito.doAnswer(new Answer() {
       @Override
@@ -1203,7 +1501,7 @@ public Object answer(InvocationOnMock invocation) throws Throwable {
 
   public HttpRequest createMockHttpRequest() {
     HttpRequest mockHttpRequest = mock(HttpRequest.class);
-    Mockito.doReturn(HttpMethod.GET).when(mockHttpRequest).getMethod();
+    Mockito.doReturn(HttpMethod.GET).when(mockHttpRequest).method();
     Mockito.doAnswer(new Answer() {
       @Override
       public Object answer(InvocationOnMock invocation) throws Throwable {
@@ -1212,7 +1510,7 @@ public Object answer(InvocationOnMock invocation) throws Throwable {
           uri = uri.concat("&map=attempt_12345_1_m_" + i + "_0");
         return uri;
       }
-    }).when(mockHttpRequest).getUri();
+    }).when(mockHttpRequest).uri();
     return mockHttpRequest;
   }
 }
@@ -298,6 +298,14 @@ private static void addDeprecatedKeys() {
   public static final boolean DEFAULT_RM_WEBAPP_UI_ACTIONS_ENABLED =
     true;
 
+  /**
+   * How long the RM web services serve a scheduler or nodes response they
+   * built before building it again. 0 disables it.
+   */
+  public static final String RM_WEBAPP_RESPONSE_CACHE_EXPIRY_MS =
+      RM_PREFIX + "webapp.response-cache.expiry-ms";
+  public static final long DEFAULT_RM_WEBAPP_RESPONSE_CACHE_EXPIRY_MS = 0;
+
   /** Whether the RM should enable Reservation System */
   public static final String RM_RESERVATION_SYSTEM_ENABLE = RM_PREFIX
       + "reservation-system.enable";
@@ -800,6 +808,11 @@ public static boolean isAclEnabled(Configuration conf) {
   public static final String RECOVERY_ENABLED = RM_PREFIX + "recovery.enabled";
   public static final boolean DEFAULT_RM_RECOVERY_ENABLED = false;
 
+  /** Number of threads recovering the applications which did not finish. */
+  public static final String RM_RECOVERY_THREADS =
+      RM_PREFIX + "recovery.threads";
+  public static final int DEFAULT_RM_RECOVERY_THREADS = 1;
+
   public static final String YARN_FAIL_FAST = YARN_PREFIX + "fail-fast";
   public static final boolean DEFAULT_YARN_FAIL_FAST = false;
 
@@ -865,6 +878,30 @@ public static boolean isAclEnabled(Configuration conf) {
   public static final String ZK_RM_STATE_STORE_ROOT_NODE_ACL =
       ZK_STATE_STORE_PREFIX + "root-node.acl";
 
+  /**
+   * Maximum number of application and attempt operations ZKRMStateStore
+   * commits in a single ZooKeeper multi transaction. 1 disables batching.
+   */
+  public static final String ZK_RM_STATE_STORE_BATCH_MAX_OPS =
+      ZK_STATE_STORE_PREFIX + "batch.max-ops";
+  public static final int DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_OPS = 1;
+
+  /** Maximum size of the data in a single batch of ZKRMStateStore. */
+  public static final String ZK_RM_STATE_STORE_BATCH_MAX_BYTES =
+      ZK_STATE_STORE_PREFIX + "batch.max-bytes";
+  public static final int DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_BYTES =
+      512 * 1024;
+
+  /** Maximum time an operation may wait in a batch of ZKRMStateStore. */
+  public static final String ZK_RM_STATE_STORE_BATCH_MAX_DELAY_MS =
+      ZK_STATE_STORE_PREFIX + "batch.max-delay-ms";
+  public static final long DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_DELAY_MS = 50;
+
+  /** Number of threads ZKRMStateStore loads the applications with. */
+  public static final String ZK_RM_STATE_STORE_LOAD_THREADS =
+      ZK_STATE_STORE_PREFIX + "load.threads";
+  public static final int DEFAULT_ZK_RM_STATE_STORE_LOAD_THREADS = 1;
+
   /** HA related configs */
   public static final String RM_HA_PREFIX = RM_PREFIX + "ha.";
   public static final String RM_HA_ENABLED = RM_HA_PREFIX + "enabled";
@@ -1399,6 +1436,16 @@ public static boolean isAclEnabled(Configuration conf) {
       NM_PREFIX + "resourcemanager.minimum.version";
   public static final String DEFAULT_NM_RESOURCEMANAGER_MINIMUM_VERSION = "NONE";
 
+  /**
+   * Number of heartbeats between full container status reports of the NM.
+   * In between, the NM only reports containers whose status changed. The RM
+   * has to support incremental reports, so 1 always sends full reports.
+   */
+  public static final String NM_CONTAINER_STATUSES_FULL_REPORT_INTERVAL =
+      NM_PREFIX + "heartbeat.container-statuses.full-report-interval";
+  public static final int DEFAULT_NM_CONTAINER_STATUSES_FULL_REPORT_INTERVAL =
+      1;
+
   /** Disk Validator. */
   public static final String DISK_VALIDATOR = NM_PREFIX + "disk-validator";
   public static final String DEFAULT_DISK_VALIDATOR = BasicDiskValidator.NAME;
@@ -2942,6 +2989,15 @@ public static boolean isAclEnabled(Configuration conf) {
   public static final int
       DEFAULT_YARN_DISPATCHER_CPU_MONITOR_SAMPLES_PER_MIN = 60;
 
+  /**
+   * Number of threads, or lanes, of the resource manager's main event
+   * dispatcher. Events of one application or node are always handled by the
+   * same lane, in order. One lane keeps the single threaded dispatcher.
+   */
+  public static final String RM_DISPATCHER_LANES =
+      RM_PREFIX + "dispatcher.lanes";
+  public static final int DEFAULT_RM_DISPATCHER_LANES = 1;
+
   /**
    * CLASSPATH for YARN applications. A comma-separated list of CLASSPATH
    * entries
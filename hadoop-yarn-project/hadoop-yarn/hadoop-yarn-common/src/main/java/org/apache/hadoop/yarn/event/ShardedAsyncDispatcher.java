@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.event;
+
+import java.util.function.Function;
+
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.Interns;
+import org.apache.hadoop.service.CompositeService;
+import org.apache.hadoop.yarn.metrics.EventTypeMetrics;
+
+import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.thirdparty.com.google.common.base.Preconditions;
+
+/**
+ * Dispatches {@link Event}s on several {@link AsyncDispatcher} lanes, each
+ * with its own queue and thread. The lane of an event is chosen by hashing a
+ * key taken from the event, so events with the same key, e.g. those of one
+ * application, are handled in the order they were sent. Events without a key
+ * all go to the first lane.
+ *
+ * Registered handlers are called from every lane, so they have to be thread
+ * safe.
+ */
+@SuppressWarnings("rawtypes")
+@Private
+@Unstable
+public class ShardedAsyncDispatcher extends CompositeService
+    implements Dispatcher, MetricsSource {
+
+  private final AsyncDispatcher[] lanes;
+  private final Function<Event, Object> laneKey;
+  private final String metricsName;
+  private final EventHandler<Event> handlerInstance = new ShardingHandler();
+
+  /**
+   * @param dispatcherName name of the dispatcher, the lane threads are
+   *          named after it
+   * @param numLanes number of lanes
+   * @param laneKey returns the key of an event, or null if the event may be
+   *          handled by the first lane
+   */
+  public ShardedAsyncDispatcher(String dispatcherName, int numLanes,
+      Function<Event, Object> laneKey) {
+    super(dispatcherName);
+    Preconditions.checkArgument(numLanes > 0,
+        "Number of dispatcher lanes must be positive: %s", numLanes);
+    this.laneKey = laneKey;
+    this.metricsName = dispatcherName.replaceAll("\\s+", "");
+    this.lanes = new AsyncDispatcher[numLanes];
+    for (int i = 0; i < numLanes; i++) {
+      lanes[i] = new AsyncDispatcher(dispatcherName + " #" + i);
+      addService(lanes[i]);
+    }
+  }
+
+  @Override
+  protected void serviceStart() throws Exception {
+    super.serviceStart();
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    if (ms != null) {
+      ms.register(metricsName, "Queue sizes of the dispatcher lanes", this);
+    }
+  }
+
+  @Override
+  protected void serviceStop() throws Exception {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    if (ms != null) {
+      ms.unregisterSource(metricsName);
+    }
+    super.serviceStop();
+  }
+
+  @Override
+  public EventHandler<Event> getEventHandler() {
+    return handlerInstance;
+  }
+
+  @Override
+  public void register(Class<? extends Enum> eventType,
+      EventHandler handler) {
+    for (AsyncDispatcher lane : lanes) {
+      lane.register(eventType, handler);
+    }
+  }
+
+  public void addMetrics(EventTypeMetrics metrics,
+      Class<? extends Enum> eventClass) {
+    for (AsyncDispatcher lane : lanes) {
+      lane.addMetrics(metrics, eventClass);
+    }
+  }
+
+  public void setDrainEventsOnStop() {
+    for (AsyncDispatcher lane : lanes) {
+      lane.setDrainEventsOnStop();
+    }
+  }
+
+  @VisibleForTesting
+  public void disableExitOnDispatchException() {
+    for (AsyncDispatcher lane : lanes) {
+      lane.disableExitOnDispatchException();
+    }
+  }
+
+  public int getNumLanes() {
+    return lanes.length;
+  }
+
+  public int getEventQueueSize(int lane) {
+    return lanes[lane].getEventQueueSize();
+  }
+
+  /**
+   * @return number of events queued on all the lanes
+   */
+  public int getEventQueueSize() {
+    int size = 0;
+    for (AsyncDispatcher lane : lanes) {
+      size += lane.getEventQueueSize();
+    }
+    return size;
+  }
+
+  @VisibleForTesting
+  int getLane(Event event) {
+    Object key = laneKey.apply(event);
+    if (key == null) {
+      return 0;
+    }
+    return (key.hashCode() & Integer.MAX_VALUE) % lanes.length;
+  }
+
+  @Override
+  public void getMetrics(MetricsCollector collector, boolean all) {
+    MetricsRecordBuilder rb = collector.addRecord(metricsName)
+        .setContext("yarn");
+    for (int i = 0; i < lanes.length; i++) {
+      rb.addGauge(Interns.info("Lane" + i + "EventQueueSize",
+          "# of events queued on lane " + i), getEventQueueSize(i));
+    }
+  }
+
+  private class ShardingHandler implements EventHandler<Event> {
+    @Override
+    public void handle(Event event) {
+      lanes[getLane(event)].getEventHandler().handle(event);
+    }
+  }
+}
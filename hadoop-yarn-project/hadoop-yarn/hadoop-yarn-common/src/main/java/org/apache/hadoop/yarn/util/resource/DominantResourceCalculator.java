@@ -115,26 +115,19 @@ public int compare(Resource clusterResource, Resource lhs, Resource rhs,
     // share overall.
     ResourceInformation[] clusterRes = clusterResource.getResources();
     int maxLength = ResourceUtils.getNumberOfCountableResourceTypes();
-
-    // If array creation shows up as a time sink, these arrays could be cached
-    // because they're always the same length.
-    double[] lhsShares = new double[maxLength];
-    double[] rhsShares = new double[maxLength];
     double diff;
 
     try {
       if (singleType) {
-        double[] max = new double[2];
-
-        calculateShares(clusterRes, lhs, rhs, lhsShares, rhsShares, max);
-
-        diff = max[0] - max[1];
+        diff = calculateMaxShare(clusterRes, lhs)
+            - calculateMaxShare(clusterRes, rhs);
       } else if (maxLength == 2) {
         // Special case to handle the common scenario of only CPU and memory
         // so that we can optimize for performance
-        diff = calculateSharesForTwoMandatoryResources(clusterRes, lhs, rhs,
-            lhsShares, rhsShares);
+        diff = compareSharesOfTwoMandatoryResources(clusterRes, lhs, rhs);
       } else {
+        double[] lhsShares = new double[maxLength];
+        double[] rhsShares = new double[maxLength];
         calculateShares(clusterRes, lhs, rhs, lhsShares, rhsShares);
 
         Arrays.sort(lhsShares);
@@ -195,52 +188,41 @@ private void calculateShares(ResourceInformation[] clusterRes, Resource first,
   }
 
   /**
-   * Calculate the shares for {@code first} and {@code second} according to
-   * {@code clusterRes}, and store the results in {@code firstShares} and
-   * {@code secondShares}, respectively. All parameters must be non-null.
-   * This method assumes that the length of {@code clusterRes} is exactly 2 and
-   * makes performance optimizations based on that assumption.
+   * Compare the shares of {@code first} and {@code second} according to
+   * {@code clusterRes}, first by their dominant shares and then by their
+   * other shares. All parameters must be non-null. This method assumes that
+   * the length of {@code clusterRes} is exactly 2 and makes performance
+   * optimizations based on that assumption, it does not allocate anything.
    * @param clusterRes the array of ResourceInformation instances that
    * represents the cluster's maximum resources
    * @param first the first resource to compare
    * @param second the second resource to compare
-   * @param firstShares an array to store the shares for the first resource
-   * @param secondShares an array to store the shares for the second resource
-   * @return -1.0, 0.0, or 1.0, depending on whether the max share of the first
-   * resource is less than, equal to, or greater than the max share of the
+   * @return -1, 0, or 1, depending on whether the shares of the first
+   * resource are less than, equal to, or greater than the shares of the
    * second resource, respectively
    * @throws NullPointerException if any parameter is null
    */
-  private int calculateSharesForTwoMandatoryResources(
-      ResourceInformation[] clusterRes, Resource first, Resource second,
-      double[] firstShares, double[] secondShares) {
+  private int compareSharesOfTwoMandatoryResources(
+      ResourceInformation[] clusterRes, Resource first, Resource second) {
     ResourceInformation[] firstRes = first.getResources();
     ResourceInformation[] secondRes = second.getResources();
-    firstShares[0] = calculateShare(clusterRes[0], firstRes[0]);
-    secondShares[0] = calculateShare(clusterRes[0], secondRes[0]);
-    firstShares[1] = calculateShare(clusterRes[1], firstRes[1]);
-    secondShares[1] = calculateShare(clusterRes[1], secondRes[1]);
-
-    int firstDom = 0;
-    int firstSub = 1;
-    if (firstShares[1] > firstShares[0]) {
-      firstDom = 1;
-      firstSub = 0;
-    }
-    int secondDom = 0;
-    int secondSub = 1;
-    if (secondShares[1] > secondShares[0]) {
-      secondDom = 1;
-      secondSub = 0;
-    }
+    double firstShare0 = calculateShare(clusterRes[0], firstRes[0]);
+    double firstShare1 = calculateShare(clusterRes[1], firstRes[1]);
+    double secondShare0 = calculateShare(clusterRes[0], secondRes[0]);
+    double secondShare1 = calculateShare(clusterRes[1], secondRes[1]);
+
+    double firstDom = Math.max(firstShare0, firstShare1);
+    double firstSub = Math.min(firstShare0, firstShare1);
+    double secondDom = Math.max(secondShare0, secondShare1);
+    double secondSub = Math.min(secondShare0, secondShare1);
 
-    if (firstShares[firstDom] > secondShares[secondDom]) {
+    if (firstDom > secondDom) {
       return 1;
-    } else if (firstShares[firstDom] < secondShares[secondDom]) {
+    } else if (firstDom < secondDom) {
       return -1;
-    } else if (firstShares[firstSub] > secondShares[secondSub]) {
+    } else if (firstSub > secondSub) {
       return 1;
-    } else if (firstShares[firstSub] < secondShares[secondSub]) {
+    } else if (firstSub < secondSub) {
       return -1;
     } else {
       return 0;
@@ -248,54 +230,28 @@ private int calculateSharesForTwoMandatoryResources(
   }
 
   /**
-   * Calculate the shares for {@code first} and {@code second} according to
-   * {@code clusterRes}, and store the results in {@code firstShares} and
-   * {@code secondShares}, respectively. {@code max} will be populated with
-   * the max shares from {@code firstShare} and {@code secondShare} in the
-   * first and second indices, respectively. All parameters must be non-null,
-   * and {@code max} must have a length of at least 2.
+   * Calculate the largest share of {@code res} according to
+   * {@code clusterRes}, leaving out the resource types the cluster has none
+   * of. All parameters must be non-null.
    * @param clusterRes the array of ResourceInformation instances that
    * represents the cluster's maximum resources
-   * @param first the first resource to compare
-   * @param second the second resource to compare
-   * @param firstShares an array to store the shares for the first resource
-   * @param secondShares an array to store the shares for the second resource
-   * @param max an array to store the max shares of the first and second
-   * resources
-   * @return -1.0, 0.0, or 1.0, depending on whether the max share of the first
-   * resource is less than, equal to, or greater than the max share of the
-   * second resource, respectively
+   * @param res the resource for which to calculate the share
+   * @return the max share of the resource, 0.0 if there is none
    * @throws NullPointerException if any parameter is null
-   * @throws ArrayIndexOutOfBoundsException if the length of {@code max} is
-   * less than 2
    */
-  private void calculateShares(ResourceInformation[] clusterRes, Resource first,
-      Resource second, double[] firstShares, double[] secondShares,
-      double[] max) {
-    ResourceInformation[] firstRes = first.getResources();
-    ResourceInformation[] secondRes = second.getResources();
-
-    max[0] = 0.0;
-    max[1] = 0.0;
+  private double calculateMaxShare(ResourceInformation[] clusterRes,
+      Resource res) {
+    ResourceInformation[] resInfo = res.getResources();
+    double max = 0.0;
 
     int maxLength = ResourceUtils.getNumberOfCountableResourceTypes();
     for (int i = 0; i < maxLength; i++) {
-      firstShares[i] = calculateShare(clusterRes[i], firstRes[i]);
-      secondShares[i] = calculateShare(clusterRes[i], secondRes[i]);
-
-      if (firstShares[i] == Float.POSITIVE_INFINITY ||
-              secondShares[i] == Float.POSITIVE_INFINITY) {
-        continue;
-      }
-
-      if (firstShares[i] > max[0]) {
-        max[0] = firstShares[i];
-      }
-
-      if (secondShares[i] > max[1]) {
-        max[1] = secondShares[i];
+      double share = calculateShare(clusterRes[i], resInfo[i]);
+      if (share != Float.POSITIVE_INFINITY && share > max) {
+        max = share;
       }
     }
+    return max;
   }
 
   /**
@@ -362,20 +318,9 @@ public long computeAvailableContainers(Resource available,
   @Override
   public float divide(Resource clusterResource,
       Resource numerator, Resource denominator) {
-    int nKnownResourceTypes = ResourceUtils.getNumberOfCountableResourceTypes();
     ResourceInformation[] clusterRes = clusterResource.getResources();
-    // We have to provide the calculateShares() method with somewhere to store
-    // the shares. We don't actually need these shares afterwards.
-    double[] numeratorShares = new double[nKnownResourceTypes];
-    double[] denominatorShares = new double[nKnownResourceTypes];
-    // We also have to provide a place for calculateShares() to store the max
-    // shares so that we can use them.
-    double[] max = new double[2];
-
-    calculateShares(clusterRes, numerator, denominator, numeratorShares,
-        denominatorShares, max);
-
-    return (float) (max[0] / max[1]);
+    return (float) (calculateMaxShare(clusterRes, numerator)
+        / calculateMaxShare(clusterRes, denominator));
   }
 
   @Override
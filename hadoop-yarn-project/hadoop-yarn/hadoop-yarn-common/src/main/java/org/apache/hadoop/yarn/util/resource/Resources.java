@@ -549,6 +549,52 @@ public static Resource componentwiseMax(Resource lhs, Resource rhs) {
     return ret;
   }
 
+  /**
+   * Set each resource value of {@code lhs} to the smaller of its value and
+   * the value in {@code rhs}, without creating any new {@link Resource}
+   * object.
+   * @param lhs Resource object to update
+   * @param rhs Resource object to compare with
+   * @return Returns {@code lhs} itself with updated values
+   */
+  public static Resource componentwiseMinTo(Resource lhs, Resource rhs) {
+    int maxLength = ResourceUtils.getNumberOfCountableResourceTypes();
+    for (int i = 0; i < maxLength; i++) {
+      try {
+        long rhsValue = rhs.getResourceInformation(i).getValue();
+        if (rhsValue < lhs.getResourceInformation(i).getValue()) {
+          lhs.setResourceValue(i, rhsValue);
+        }
+      } catch (ResourceNotFoundException ye) {
+        LOG.warn("Resource is missing:" + ye.getMessage());
+      }
+    }
+    return lhs;
+  }
+
+  /**
+   * Set each resource value of {@code lhs} to the larger of its value and
+   * the value in {@code rhs}, without creating any new {@link Resource}
+   * object.
+   * @param lhs Resource object to update
+   * @param rhs Resource object to compare with
+   * @return Returns {@code lhs} itself with updated values
+   */
+  public static Resource componentwiseMaxTo(Resource lhs, Resource rhs) {
+    int maxLength = ResourceUtils.getNumberOfCountableResourceTypes();
+    for (int i = 0; i < maxLength; i++) {
+      try {
+        long rhsValue = rhs.getResourceInformation(i).getValue();
+        if (rhsValue > lhs.getResourceInformation(i).getValue()) {
+          lhs.setResourceValue(i, rhsValue);
+        }
+      } catch (ResourceNotFoundException ye) {
+        LOG.warn("Resource is missing:" + ye.getMessage());
+      }
+    }
+    return lhs;
+  }
+
   public static Resource normalizeDown(ResourceCalculator calculator,
       Resource resource, Resource factor) {
     return calculator.normalizeDown(resource, factor);
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.event;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.MetricsRecord;
+import org.apache.hadoop.metrics2.impl.MetricsCollectorImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestShardedAsyncDispatcher {
+  private static final int NUM_LANES = 4;
+  private static final int NUM_KEYS = 16;
+  private static final int EVENTS_PER_KEY = 1000;
+
+  private enum TestEventType { TEST }
+
+  private static class KeyedEvent extends AbstractEvent<TestEventType> {
+    private final Integer key;
+    private final int seq;
+
+    KeyedEvent(Integer key, int seq) {
+      super(TestEventType.TEST);
+      this.key = key;
+      this.seq = seq;
+    }
+  }
+
+  private ShardedAsyncDispatcher dispatcher;
+
+  @Before
+  public void setup() {
+    dispatcher = new ShardedAsyncDispatcher("Test dispatcher", NUM_LANES,
+        event -> ((KeyedEvent) event).key);
+    dispatcher.init(new Configuration());
+  }
+
+  @After
+  public void tearDown() {
+    dispatcher.stop();
+  }
+
+  @Test(timeout = 30000)
+  public void testEventsOfAKeyHandledInOrder() throws Exception {
+    Map<Integer, List<Integer>> handled = new ConcurrentHashMap<>();
+    Map<Integer, Set<String>> threads = new ConcurrentHashMap<>();
+    CountDownLatch done = new CountDownLatch(NUM_KEYS * EVENTS_PER_KEY);
+    dispatcher.register(TestEventType.class, (EventHandler<KeyedEvent>) e -> {
+      // Only the lane of the key touches these
+      handled.computeIfAbsent(e.key, k -> new ArrayList<>()).add(e.seq);
+      threads.computeIfAbsent(e.key, k -> new HashSet<>())
+          .add(Thread.currentThread().getName());
+      done.countDown();
+    });
+    dispatcher.start();
+
+    for (int seq = 0; seq < EVENTS_PER_KEY; seq++) {
+      for (int key = 0; key < NUM_KEYS; key++) {
+        dispatcher.getEventHandler().handle(new KeyedEvent(key, seq));
+      }
+    }
+    Assert.assertTrue(done.await(20, TimeUnit.SECONDS));
+
+    Set<String> allThreads = new HashSet<>();
+    for (int key = 0; key < NUM_KEYS; key++) {
+      List<Integer> seqs = handled.get(key);
+      Assert.assertEquals(EVENTS_PER_KEY, seqs.size());
+      for (int seq = 0; seq < EVENTS_PER_KEY; seq++) {
+        Assert.assertEquals(seq, (int) seqs.get(seq));
+      }
+      Assert.assertEquals(1, threads.get(key).size());
+      allThreads.addAll(threads.get(key));
+    }
+    Assert.assertEquals(NUM_LANES, allThreads.size());
+  }
+
+  @Test
+  public void testEventsWithoutKeyOnFirstLane() {
+    Assert.assertEquals(0, dispatcher.getLane(new KeyedEvent(null, 0)));
+    Assert.assertEquals(1, dispatcher.getLane(new KeyedEvent(1, 0)));
+    Assert.assertEquals(NUM_LANES - 1,
+        dispatcher.getLane(new KeyedEvent(-1, 0)));
+  }
+
+  @Test
+  public void testLaneQueueSizeMetrics() {
+    // Not started, so the events stay queued
+    dispatcher.register(TestEventType.class, event -> { });
+    dispatcher.getEventHandler().handle(new KeyedEvent(1, 0));
+    dispatcher.getEventHandler().handle(new KeyedEvent(1, 1));
+    dispatcher.getEventHandler().handle(new KeyedEvent(2, 0));
+    Assert.assertEquals(2, dispatcher.getEventQueueSize(1));
+    Assert.assertEquals(3, dispatcher.getEventQueueSize());
+
+    MetricsCollectorImpl collector = new MetricsCollectorImpl();
+    dispatcher.getMetrics(collector, true);
+    MetricsRecord record = collector.getRecords().get(0);
+    Map<String, Number> values = new ConcurrentHashMap<>();
+    record.metrics().forEach(m -> values.put(m.name(), m.value()));
+    Assert.assertEquals(NUM_LANES, values.size());
+    Assert.assertEquals(0, values.get("Lane0EventQueueSize").intValue());
+    Assert.assertEquals(2, values.get("Lane1EventQueueSize").intValue());
+    Assert.assertEquals(1, values.get("Lane2EventQueueSize").intValue());
+  }
+}
@@ -30,6 +30,8 @@
 
 import static org.apache.hadoop.yarn.util.resource.Resources.componentwiseMin;
 import static org.apache.hadoop.yarn.util.resource.Resources.componentwiseMax;
+import static org.apache.hadoop.yarn.util.resource.Resources.componentwiseMaxTo;
+import static org.apache.hadoop.yarn.util.resource.Resources.componentwiseMinTo;
 import static org.apache.hadoop.yarn.util.resource.Resources.add;
 import static org.apache.hadoop.yarn.util.resource.Resources.multiplyAndRoundUp;
 import static org.apache.hadoop.yarn.util.resource.Resources.subtract;
@@ -38,6 +40,7 @@
 import static org.apache.hadoop.yarn.util.resource.Resources.multiplyAndRoundDown;
 import static org.apache.hadoop.yarn.util.resource.Resources.fitsIn;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -164,6 +167,24 @@ public void testComponentwiseMax() {
         componentwiseMax(createResource(2, 2, 0), createResource(2, 1, 1)));
   }
 
+  @Test
+  public void testComponentwiseMinTo() {
+    Resource lhs = createResource(1, 2, 2);
+    assertSame(lhs, componentwiseMinTo(lhs, createResource(2, 1, 3)));
+    assertEquals(createResource(1, 1, 2), lhs);
+    assertEquals(createResource(1, 1, 0),
+        componentwiseMinTo(createResource(2, 2, 2), createResource(1, 1)));
+  }
+
+  @Test
+  public void testComponentwiseMaxTo() {
+    Resource lhs = createResource(1, 2, 2);
+    assertSame(lhs, componentwiseMaxTo(lhs, createResource(2, 1, 3)));
+    assertEquals(createResource(2, 2, 3), lhs);
+    assertEquals(createResource(2, 2, 2),
+        componentwiseMaxTo(createResource(2, 2, 2), createResource(1, 1)));
+  }
+
   @Test
   public void testAdd() {
     assertEquals(createResource(2, 3),
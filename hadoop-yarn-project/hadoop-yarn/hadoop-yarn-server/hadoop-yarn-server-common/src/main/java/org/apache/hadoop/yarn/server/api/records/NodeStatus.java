@@ -132,4 +132,18 @@ public abstract void setIncreasedContainers(
   @Unstable
   public abstract void setOpportunisticContainersStatus(
       OpportunisticContainersStatus opportunisticContainersStatus);
+
+  /**
+   * Whether the container statuses only include the containers whose status
+   * changed since the last heartbeat acknowledged by the RM. If so, running
+   * containers missing from the statuses are not lost.
+   * @return true if the container statuses are incremental
+   */
+  @Private
+  @Unstable
+  public abstract boolean isIncrementalContainersStatuses();
+
+  @Private
+  @Unstable
+  public abstract void setIncrementalContainersStatuses(boolean incremental);
 }
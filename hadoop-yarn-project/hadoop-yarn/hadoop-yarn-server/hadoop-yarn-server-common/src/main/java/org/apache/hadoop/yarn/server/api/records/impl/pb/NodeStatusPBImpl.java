@@ -425,6 +425,19 @@ public synchronized void setOpportunisticContainersStatus(
         convertToProtoFormat(opportunisticContainersStatus));
   }
 
+  @Override
+  public synchronized boolean isIncrementalContainersStatuses() {
+    NodeStatusProtoOrBuilder p = this.viaProto ? this.proto : this.builder;
+    return p.getIncrementalContainersStatuses();
+  }
+
+  @Override
+  public synchronized void setIncrementalContainersStatuses(
+      boolean incremental) {
+    maybeInitBuilder();
+    this.builder.setIncrementalContainersStatuses(incremental);
+  }
+
   private NodeIdProto convertToProtoFormat(NodeId nodeId) {
     return ((NodeIdPBImpl)nodeId).getProto();
   }
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.nodemanager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.ContainerState;
+import org.apache.hadoop.yarn.api.records.ContainerStatus;
+import org.apache.hadoop.yarn.server.api.records.NodeStatus;
+
+/**
+ * Keeps the container statuses last acknowledged by the RM, so that a
+ * heartbeat only has to carry the statuses which changed since. Completed
+ * containers are always reported until the RM acknowledges them, see
+ * {@link NodeStatusUpdaterImpl}.
+ *
+ * A full report is sent every {@code fullReportInterval} heartbeats, which
+ * lets the RM find containers it lost track of, and after any heartbeat the
+ * RM may not have processed.
+ */
+class ContainerStatusReportTracker {
+
+  private final int fullReportInterval;
+  private final Map<ContainerId, ContainerStatus> acknowledged =
+      new HashMap<>();
+  // Statuses of the heartbeat waiting for a response
+  private Map<ContainerId, ContainerStatus> sent;
+  private boolean sentFullReport;
+  private boolean fullReportNeeded = true;
+  private int heartbeatsSinceFullReport = 0;
+
+  ContainerStatusReportTracker(int fullReportInterval) {
+    this.fullReportInterval = fullReportInterval;
+  }
+
+  boolean isEnabled() {
+    return fullReportInterval > 1;
+  }
+
+  /**
+   * Remove the statuses the RM has already seen from the node status, unless
+   * a full report is due.
+   * @param nodeStatus status of the next heartbeat
+   */
+  void removeUnchangedStatuses(NodeStatus nodeStatus) {
+    if (!isEnabled()) {
+      return;
+    }
+    List<ContainerStatus> statuses = nodeStatus.getContainersStatuses();
+    sent = new HashMap<>();
+    for (ContainerStatus status : statuses) {
+      if (status.getState() != ContainerState.COMPLETE) {
+        sent.put(status.getContainerId(), status);
+      }
+    }
+    sentFullReport = fullReportNeeded
+        || heartbeatsSinceFullReport + 1 >= fullReportInterval;
+    if (sentFullReport) {
+      nodeStatus.setIncrementalContainersStatuses(false);
+      return;
+    }
+
+    List<ContainerStatus> changed = new ArrayList<>();
+    for (ContainerStatus status : statuses) {
+      if (status.getState() == ContainerState.COMPLETE
+          || !status.equals(acknowledged.get(status.getContainerId()))) {
+        changed.add(status);
+      }
+    }
+    nodeStatus.setContainersStatuses(changed);
+    nodeStatus.setIncrementalContainersStatuses(true);
+  }
+
+  /**
+   * The RM processed the last heartbeat.
+   */
+  void heartbeatAcknowledged() {
+    if (sent == null) {
+      return;
+    }
+    acknowledged.clear();
+    acknowledged.putAll(sent);
+    sent = null;
+    heartbeatsSinceFullReport =
+        sentFullReport ? 0 : heartbeatsSinceFullReport + 1;
+    fullReportNeeded = false;
+  }
+
+  /**
+   * The RM may not have processed the last heartbeat, e.g. it failed or the
+   * node has to register again, so the next one reports all containers.
+   */
+  void reset() {
+    acknowledged.clear();
+    sent = null;
+    fullReportNeeded = true;
+    heartbeatsSinceFullReport = 0;
+  }
+}
@@ -141,6 +141,8 @@ public class NodeStatusUpdaterImpl extends AbstractService implements
   private final Map<ContainerId, ContainerStatus> pendingCompletedContainers;
   // Duration for which to track recently stopped container.
   private long durationToTrackStoppedContainers;
+  // Container statuses acknowledged by the RM, for incremental reports.
+  private ContainerStatusReportTracker containerStatusReportTracker;
 
   private boolean logAggregationEnabled;
 
@@ -246,6 +248,11 @@ protected void serviceInit(Configuration conf) throws Exception {
     }
     LOG.debug("{} :{}", YARN_NODEMANAGER_DURATION_TO_TRACK_STOPPED_CONTAINERS,
         durationToTrackStoppedContainers);
+    containerStatusReportTracker = new ContainerStatusReportTracker(
+        conf.getInt(
+            YarnConfiguration.NM_CONTAINER_STATUSES_FULL_REPORT_INTERVAL,
+            YarnConfiguration
+                .DEFAULT_NM_CONTAINER_STATUSES_FULL_REPORT_INTERVAL));
     super.serviceInit(conf);
     LOG.info("Initialized nodemanager with :" +
         " physical-memory=" + memoryMb + " virtual-memory=" + virtualMemoryMb +
@@ -1311,6 +1318,7 @@ public void run() {
           Set<NodeAttribute> nodeAttributesForHeartbeat =
                   nodeAttributesHandler.getNodeAttributesForHeartbeat();
           NodeStatus nodeStatus = getNodeStatus(lastHeartbeatID);
+          containerStatusReportTracker.removeUnchangedStatuses(nodeStatus);
           NodeHeartbeatRequest request =
               NodeHeartbeatRequest.newInstance(nodeStatus,
                   NodeStatusUpdaterImpl.this.context
@@ -1340,7 +1348,9 @@ public void run() {
           nextHeartBeatInterval = response.getNextHeartBeatInterval();
           updateMasterKeys(response);
 
-          if (!handleShutdownOrResyncCommand(response)) {
+          if (handleShutdownOrResyncCommand(response)) {
+            containerStatusReportTracker.reset();
+          } else {
             nodeLabelsHandler.verifyRMHeartbeatResponseForNodeLabels(
                 response);
             nodeAttributesHandler
@@ -1363,9 +1373,11 @@ public void run() {
             // the RM twice, which it can handle.
             if (!missedHearbeat) {
               pendingCompletedContainers.clear();
+              containerStatusReportTracker.heartbeatAcknowledged();
             } else {
               LOG.info("skipped clearing pending completed containers due to " +
                   "missed heartbeat");
+              containerStatusReportTracker.reset();
               missedHearbeat = false;
             }
 
@@ -1449,6 +1461,7 @@ public void run() {
           // NM still running.
           LOG.error("Caught exception in status-updater", e);
           missedHearbeat = true;
+          containerStatusReportTracker.reset();
         } finally {
           synchronized (heartbeatMonitor) {
             nextHeartBeatInterval = nextHeartBeatInterval <= 0 ?
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.nodemanager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.ContainerState;
+import org.apache.hadoop.yarn.api.records.ContainerStatus;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.server.api.records.NodeStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestContainerStatusReportTracker {
+
+  private static final ApplicationAttemptId ATTEMPT_ID =
+      ApplicationAttemptId.newInstance(ApplicationId.newInstance(1L, 1), 1);
+
+  private static ContainerStatus status(int id, ContainerState state,
+      String diagnostics) {
+    return ContainerStatus.newInstance(
+        ContainerId.newContainerId(ATTEMPT_ID, id), state, diagnostics, 0);
+  }
+
+  private static NodeStatus nodeStatus(ContainerStatus... statuses) {
+    return NodeStatus.newInstance(NodeId.newInstance("host", 1234), 0,
+        Arrays.asList(statuses), Collections.emptyList(), null, null, null,
+        Collections.emptyList());
+  }
+
+  private static List<ContainerStatus> report(
+      ContainerStatusReportTracker tracker, NodeStatus nodeStatus) {
+    tracker.removeUnchangedStatuses(nodeStatus);
+    tracker.heartbeatAcknowledged();
+    return nodeStatus.getContainersStatuses();
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    ContainerStatusReportTracker tracker = new ContainerStatusReportTracker(1);
+    ContainerStatus c1 = status(1, ContainerState.RUNNING, "");
+    report(tracker, nodeStatus(c1));
+    NodeStatus nodeStatus = nodeStatus(c1);
+    Assert.assertEquals(1, report(tracker, nodeStatus).size());
+    Assert.assertFalse(nodeStatus.isIncrementalContainersStatuses());
+  }
+
+  @Test
+  public void testOnlyChangedStatusesReported() {
+    ContainerStatusReportTracker tracker = new ContainerStatusReportTracker(3);
+    ContainerStatus c1 = status(1, ContainerState.RUNNING, "");
+    ContainerStatus c2 = status(2, ContainerState.RUNNING, "");
+
+    // The first heartbeat is a full report
+    NodeStatus nodeStatus = nodeStatus(c1, c2);
+    Assert.assertEquals(2, report(tracker, nodeStatus).size());
+    Assert.assertFalse(nodeStatus.isIncrementalContainersStatuses());
+
+    // Then only new, changed and completed containers
+    ContainerStatus c2Changed = status(2, ContainerState.RUNNING, "changed");
+    ContainerStatus c3 = status(3, ContainerState.RUNNING, "");
+    nodeStatus = nodeStatus(c1, c2Changed, c3);
+    Assert.assertEquals(Arrays.asList(c2Changed, c3),
+        report(tracker, nodeStatus));
+    Assert.assertTrue(nodeStatus.isIncrementalContainersStatuses());
+
+    ContainerStatus c1Completed = status(1, ContainerState.COMPLETE, "");
+    nodeStatus = nodeStatus(c2Changed, c3, c1Completed);
+    Assert.assertEquals(Collections.singletonList(c1Completed),
+        report(tracker, nodeStatus));
+    Assert.assertTrue(nodeStatus.isIncrementalContainersStatuses());
+
+    // Every third heartbeat is a full report again
+    nodeStatus = nodeStatus(c2Changed, c3);
+    Assert.assertEquals(2, report(tracker, nodeStatus).size());
+    Assert.assertFalse(nodeStatus.isIncrementalContainersStatuses());
+  }
+
+  @Test
+  public void testFullReportAfterMissedHeartbeat() {
+    ContainerStatusReportTracker tracker = new ContainerStatusReportTracker(10);
+    ContainerStatus c1 = status(1, ContainerState.RUNNING, "");
+    report(tracker, nodeStatus(c1));
+    Assert.assertTrue(report(tracker, nodeStatus(c1)).isEmpty());
+
+    // The heartbeat fails, so it is never acknowledged
+    ContainerStatus c2 = status(2, ContainerState.RUNNING, "");
+    tracker.removeUnchangedStatuses(nodeStatus(c1, c2));
+    tracker.reset();
+
+    NodeStatus nodeStatus = nodeStatus(c1, c2);
+    Assert.assertEquals(2, report(tracker, nodeStatus).size());
+    Assert.assertFalse(nodeStatus.isIncrementalContainersStatuses());
+  }
+}
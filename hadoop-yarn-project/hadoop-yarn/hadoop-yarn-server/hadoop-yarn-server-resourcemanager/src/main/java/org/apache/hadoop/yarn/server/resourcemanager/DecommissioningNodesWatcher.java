@@ -162,16 +162,19 @@ public synchronized void update(RMNode rmNode, NodeStatus remoteNodeStatus) {
 
       context.appIds = rmNode.getRunningApps();
 
-      // Count number of active containers.
-      int numActiveContainers = 0;
-      for (ContainerStatus cs : remoteNodeStatus.getContainersStatuses()) {
-        ContainerState newState = cs.getState();
-        if (newState == ContainerState.RUNNING ||
-            newState == ContainerState.NEW) {
-          numActiveContainers++;
+      // Count number of active containers. Incremental reports leave out
+      // unchanged containers, so only count them on full reports.
+      if (!remoteNodeStatus.isIncrementalContainersStatuses()) {
+        int numActiveContainers = 0;
+        for (ContainerStatus cs : remoteNodeStatus.getContainersStatuses()) {
+          ContainerState newState = cs.getState();
+          if (newState == ContainerState.RUNNING ||
+              newState == ContainerState.NEW) {
+            numActiveContainers++;
+          }
         }
+        context.numActiveContainers = numActiveContainers;
       }
-      context.numActiveContainers = numActiveContainers;
 
       // maintain lastContainerFinishTime.
       if (context.numActiveContainers == 0 &&
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.yarn.server.resourcemanager;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -24,6 +25,7 @@
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import org.apache.hadoop.yarn.api.records.Container;
@@ -35,6 +37,7 @@
 import org.apache.hadoop.security.AccessControlException;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ApplicationSubmissionContext;
 import org.apache.hadoop.yarn.api.records.ApplicationTimeoutType;
@@ -81,6 +84,7 @@
 
 import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.SettableFuture;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.yarn.util.StringHelper;
 
 /**
@@ -644,13 +648,45 @@ public void recover(RMState state) throws Exception {
     LOG.info("Recovering " + appStates.size() + " applications");
 
     int count = 0;
+    int recoveryThreads = conf.getInt(YarnConfiguration.RM_RECOVERY_THREADS,
+        YarnConfiguration.DEFAULT_RM_RECOVERY_THREADS);
+    ExecutorService recoverer = null;
+    List<Future<?>> unfinishedApps = new ArrayList<>();
 
     try {
+      if (recoveryThreads > 1) {
+        recoverer = HadoopExecutors.newFixedThreadPool(recoveryThreads,
+            new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("RMAppManager recovery #%d").build());
+      }
       for (ApplicationStateData appState : appStates.values()) {
-        recoverApplication(appState, state);
+        // Apps which did not finish are independent of each other, while
+        // finished ones have to complete in order to be retired in order.
+        if (recoverer != null && appState.getState() == null) {
+          unfinishedApps.add(recoverer.submit(() -> {
+            recoverApplication(appState, state);
+            return null;
+          }));
+        } else {
+          recoverApplication(appState, state);
+          count += 1;
+        }
+      }
+      for (Future<?> unfinishedApp : unfinishedApps) {
+        try {
+          unfinishedApp.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
         count += 1;
       }
     } finally {
+      if (recoverer != null) {
+        recoverer.shutdownNow();
+      }
       LOG.info("Successfully recovered " + count  + " out of "
           + appStates.size() + " applications");
     }
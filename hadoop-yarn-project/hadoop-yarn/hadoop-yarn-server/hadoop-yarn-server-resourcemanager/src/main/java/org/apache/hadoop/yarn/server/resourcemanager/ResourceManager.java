@@ -63,8 +63,10 @@
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.AsyncDispatcher;
 import org.apache.hadoop.yarn.event.Dispatcher;
+import org.apache.hadoop.yarn.event.Event;
 import org.apache.hadoop.yarn.event.EventDispatcher;
 import org.apache.hadoop.yarn.event.EventHandler;
+import org.apache.hadoop.yarn.event.ShardedAsyncDispatcher;
 
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
@@ -477,42 +479,56 @@ protected EventHandler<SchedulerEvent> createSchedulerEventDispatcher() {
   }
 
   protected Dispatcher createDispatcher() {
+    int numLanes = conf.getInt(YarnConfiguration.RM_DISPATCHER_LANES,
+        YarnConfiguration.DEFAULT_RM_DISPATCHER_LANES);
+    if (numLanes > 1) {
+      ShardedAsyncDispatcher dispatcher = new ShardedAsyncDispatcher(
+          "RM Event dispatcher", numLanes,
+          ResourceManager::getDispatcherLaneKey);
+      for (GenericEventTypeMetrics metrics :
+          createDispatcherMetrics("Dispatcher")) {
+        dispatcher.addMetrics(metrics, metrics.getEnumClass());
+      }
+      return dispatcher;
+    }
+
     AsyncDispatcher dispatcher = new AsyncDispatcher("RM Event dispatcher");
+    for (GenericEventTypeMetrics metrics :
+        createDispatcherMetrics(dispatcher.getName())) {
+      dispatcher.addMetrics(metrics, metrics.getEnumClass());
+    }
+    return dispatcher;
+  }
 
-    // Add 4 busy event types.
-    GenericEventTypeMetrics
-        nodesListManagerEventTypeMetrics =
+  // Add 4 busy event types.
+  private static List<GenericEventTypeMetrics> createDispatcherMetrics(
+      String dispatcherName) {
+    return Arrays.asList(
         GenericEventTypeMetricsManager.
-            create(dispatcher.getName(), NodesListManagerEventType.class);
-    dispatcher.addMetrics(nodesListManagerEventTypeMetrics,
-        nodesListManagerEventTypeMetrics
-            .getEnumClass());
-
-    GenericEventTypeMetrics
-        rmNodeEventTypeMetrics =
+            create(dispatcherName, NodesListManagerEventType.class),
         GenericEventTypeMetricsManager.
-            create(dispatcher.getName(), RMNodeEventType.class);
-    dispatcher.addMetrics(rmNodeEventTypeMetrics,
-        rmNodeEventTypeMetrics
-            .getEnumClass());
-
-    GenericEventTypeMetrics
-        rmAppEventTypeMetrics =
+            create(dispatcherName, RMNodeEventType.class),
         GenericEventTypeMetricsManager.
-            create(dispatcher.getName(), RMAppEventType.class);
-    dispatcher.addMetrics(rmAppEventTypeMetrics,
-        rmAppEventTypeMetrics
-            .getEnumClass());
-
-    GenericEventTypeMetrics
-        rmAppAttemptEventTypeMetrics =
+            create(dispatcherName, RMAppEventType.class),
         GenericEventTypeMetricsManager.
-            create(dispatcher.getName(), RMAppAttemptEventType.class);
-    dispatcher.addMetrics(rmAppAttemptEventTypeMetrics,
-        rmAppAttemptEventTypeMetrics
-            .getEnumClass());
+            create(dispatcherName, RMAppAttemptEventType.class));
+  }
 
-    return dispatcher;
+  /**
+   * Events of an application and its attempts share a lane of the sharded
+   * dispatcher, as do the events of a node, so that they stay in order.
+   */
+  @VisibleForTesting
+  static Object getDispatcherLaneKey(Event event) {
+    if (event instanceof RMAppEvent) {
+      return ((RMAppEvent) event).getApplicationId();
+    } else if (event instanceof RMAppAttemptEvent) {
+      return ((RMAppAttemptEvent) event).getApplicationAttemptId()
+          .getApplicationId();
+    } else if (event instanceof RMNodeEvent) {
+      return ((RMNodeEvent) event).getNodeId();
+    }
+    return null;
   }
 
   protected ResourceScheduler createScheduler() {
@@ -948,8 +964,10 @@ protected void serviceInit(Configuration configuration) throws Exception {
       eventQueueMetricExecutor.scheduleAtFixedRate(new Runnable() {
         @Override
         public void run() {
-          int rmEventQueueSize = ((AsyncDispatcher)getRMContext().
-              getDispatcher()).getEventQueueSize();
+          Dispatcher dispatcher = getRMContext().getDispatcher();
+          int rmEventQueueSize = dispatcher instanceof ShardedAsyncDispatcher
+              ? ((ShardedAsyncDispatcher) dispatcher).getEventQueueSize()
+              : ((AsyncDispatcher) dispatcher).getEventQueueSize();
           ClusterMetrics.getMetrics().setRmEventQueueSize(rmEventQueueSize);
           int schedulerEventQueueSize = ((EventDispatcher)schedulerDispatcher).
               getEventQueueSize();
@@ -27,9 +27,11 @@
 import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -288,7 +290,7 @@ public RMStateStoreState transition(RMStateStore store,
         }
 
         if (result != null) {
-          result.set(null);
+          store.setResult(result);
         }
 
       } catch (Exception e) {
@@ -798,6 +800,17 @@ public void setRMDispatcher(Dispatcher dispatcher) {
   }
   
   AsyncDispatcher dispatcher;
+
+  private static final Set<RMStateStoreEventType> BATCHED_EVENT_TYPES =
+      EnumSet.of(RMStateStoreEventType.STORE_APP,
+          RMStateStoreEventType.UPDATE_APP,
+          RMStateStoreEventType.STORE_APP_ATTEMPT,
+          RMStateStoreEventType.UPDATE_APP_ATTEMPT);
+  // Held back until the pending operations of a batch are committed
+  private final List<Runnable> pendingNotifications = new ArrayList<>();
+  private final List<SettableFuture<Object>> pendingResults =
+      new ArrayList<>();
+
   @SuppressWarnings("rawtypes")
   @VisibleForTesting
   protected EventHandler rmStateStoreEventHandler;
@@ -840,6 +853,14 @@ protected void serviceStart() throws Exception {
   @Override
   protected void serviceStop() throws Exception {
     dispatcher.stop();
+    this.writeLock.lock();
+    try {
+      flushPendingOperations();
+    } catch (Exception e) {
+      LOG.warn("Error committing pending state store operations on stop", e);
+    } finally {
+      this.writeLock.unlock();
+    }
     closeInternal();
   }
 
@@ -1244,8 +1265,19 @@ protected void handleStoreEvent(RMStateStoreEvent event) {
 
       final RMStateStoreState oldState = getRMStateStoreState();
 
+      // Keep the operations in order, only app and attempt stores and
+      // updates are held back in a batch.
+      if (!BATCHED_EVENT_TYPES.contains(event.getType())) {
+        flushPendingOperationsOrFail();
+      }
+
       this.stateMachine.doTransition(event.getType(), event);
 
+      if (hasPendingOperations() && (dispatcher.getEventQueueSize() == 0
+          || isPendingOperationsCommitDue())) {
+        flushPendingOperationsOrFail();
+      }
+
       if (oldState != getRMStateStoreState()) {
         LOG.info("RMStateStore state change from " + oldState + " to "
             + getRMStateStoreState());
@@ -1258,6 +1290,82 @@ protected void handleStoreEvent(RMStateStoreEvent event) {
     }
   }
 
+  /**
+   * Derived classes which batch the application and attempt operations
+   * report here whether some operations are not committed yet. The
+   * notifications of these operations are held back until they are.
+   * @return true if there are operations waiting to be committed
+   */
+  protected boolean hasPendingOperations() {
+    return false;
+  }
+
+  /**
+   * Derived classes which batch operations return true here once the
+   * pending operations should not wait for further ones anymore.
+   * @return true if the pending operations should be committed now
+   */
+  protected boolean isPendingOperationsCommitDue() {
+    return false;
+  }
+
+  /**
+   * Derived classes which batch operations commit them here. The pending
+   * operations have to be dropped even if the commit fails.
+   * @throws Exception if the operations could not be committed
+   */
+  protected void commitPendingOperations() throws Exception {
+  }
+
+  /**
+   * Commit the pending operations of a derived class and send the
+   * notifications held back for them. Derived classes call this when an
+   * operation can't be added to the pending ones.
+   * @throws Exception if the operations could not be committed, none of
+   *     the held back notifications is sent then
+   */
+  protected void flushPendingOperations() throws Exception {
+    if (!hasPendingOperations()) {
+      return;
+    }
+    try {
+      commitPendingOperations();
+    } catch (Exception e) {
+      pendingNotifications.clear();
+      for (SettableFuture<Object> result : pendingResults) {
+        result.setException(new YarnException(
+            "Error committing state store operations", e));
+      }
+      pendingResults.clear();
+      throw e;
+    }
+    for (Runnable notification : pendingNotifications) {
+      notification.run();
+    }
+    pendingNotifications.clear();
+    for (SettableFuture<Object> result : pendingResults) {
+      result.set(null);
+    }
+    pendingResults.clear();
+  }
+
+  private void flushPendingOperationsOrFail() {
+    try {
+      flushPendingOperations();
+    } catch (Exception e) {
+      LOG.error("Error committing pending state store operations", e);
+      notifyStoreOperationFailed(e);
+    }
+  }
+
+  private void setResult(SettableFuture<Object> result) {
+    if (hasPendingOperations()) {
+      pendingResults.add(result);
+    } else {
+      result.set(null);
+    }
+  }
+
   /**
    * This method is called to notify the ResourceManager that the store
    * operation has failed.
@@ -1299,7 +1407,12 @@ private boolean notifyStoreOperationFailedInternal(
    * @param event App event containing the app id and event type
    */
   private void notifyApplication(RMAppEvent event) {
-    rmDispatcher.getEventHandler().handle(event);
+    if (hasPendingOperations()) {
+      pendingNotifications.add(
+          () -> rmDispatcher.getEventHandler().handle(event));
+    } else {
+      rmDispatcher.getEventHandler().handle(event);
+    }
   }
   
   @SuppressWarnings("unchecked")
@@ -1310,7 +1423,12 @@ private void notifyApplication(RMAppEvent event) {
    * id and event type
    */
   private void notifyApplicationAttempt(RMAppAttemptEvent event) {
-    rmDispatcher.getEventHandler().handle(event);
+    if (hasPendingOperations()) {
+      pendingNotifications.add(
+          () -> rmDispatcher.getEventHandler().handle(event));
+    } else {
+      rmDispatcher.getEventHandler().handle(event);
+    }
   }
   
   /**
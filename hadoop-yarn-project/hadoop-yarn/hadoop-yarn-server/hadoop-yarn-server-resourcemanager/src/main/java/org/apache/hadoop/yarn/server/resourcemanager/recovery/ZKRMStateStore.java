@@ -19,6 +19,7 @@
 package org.apache.hadoop.yarn.server.resourcemanager.recovery;
 
 import org.apache.hadoop.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.yarn.util.Clock;
 import org.apache.hadoop.yarn.util.SystemClock;
 import org.slf4j.Logger;
@@ -30,6 +31,7 @@
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.security.token.delegation.DelegationKey;
 import org.apache.hadoop.util.ZKUtil;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
 import org.apache.hadoop.util.curator.ZKCuratorManager;
 import org.apache.hadoop.util.curator.ZKCuratorManager.SafeTransaction;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
@@ -74,9 +76,14 @@
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * {@link RMStateStore} implementation backed by ZooKeeper.
@@ -221,6 +228,7 @@ public class ZKRMStateStore extends RMStateStore {
   private Thread verifyActiveStatusThread;
   private int zkSessionTimeout;
   private int zknodeLimit;
+  private int loadThreads;
 
   /* ACL and auth info */
   private List<ACL> zkAcl;
@@ -240,6 +248,16 @@ public class ZKRMStateStore extends RMStateStore {
   @VisibleForTesting
   protected ZKRMStateStoreOpDurations opDurations;
 
+  /* Batching of application and attempt operations */
+  private int batchMaxOps;
+  private int batchMaxBytes;
+  private long batchMaxDelayMs;
+  private SafeTransaction batch;
+  private int batchOps;
+  private int batchBytes;
+  private long batchStartTime;
+  private final Set<ApplicationId> batchedApps = new HashSet<>();
+
   /*
    * Indicates different app attempt state store operations.
    */
@@ -323,6 +341,8 @@ public synchronized void initInternal(Configuration conf)
         YarnConfiguration.DEFAULT_RM_ZK_TIMEOUT_MS);
     zknodeLimit = conf.getInt(YarnConfiguration.RM_ZK_ZNODE_SIZE_LIMIT_BYTES,
         YarnConfiguration.DEFAULT_RM_ZK_ZNODE_SIZE_LIMIT_BYTES);
+    loadThreads = conf.getInt(YarnConfiguration.ZK_RM_STATE_STORE_LOAD_THREADS,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_LOAD_THREADS);
 
     appIdNodeSplitIndex =
         conf.getInt(YarnConfiguration.ZK_APPID_NODE_SPLIT_INDEX,
@@ -335,6 +355,15 @@ public synchronized void initInternal(Configuration conf)
       appIdNodeSplitIndex = YarnConfiguration.DEFAULT_ZK_APPID_NODE_SPLIT_INDEX;
     }
 
+    batchMaxOps = conf.getInt(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_OPS,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_OPS);
+    batchMaxBytes = conf.getInt(
+        YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_BYTES,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_BYTES);
+    batchMaxDelayMs = conf.getLong(
+        YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_DELAY_MS,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_DELAY_MS);
+
     opDurations = ZKRMStateStoreOpDurations.getInstance();
 
     zkAcl = ZKCuratorManager.getZKAcls(conf);
@@ -696,7 +725,7 @@ private void loadDelegationTokenFromNode(RMState rmState, String path)
     }
   }
 
-  private void loadRMAppStateFromAppNode(RMState rmState, String appNodePath,
+  private ApplicationStateData loadRMAppStateFromAppNode(String appNodePath,
       String appIdStr) throws Exception {
     byte[] appData = getData(appNodePath);
     LOG.debug("Loading application from znode: {}", appNodePath);
@@ -708,11 +737,13 @@ private void loadRMAppStateFromAppNode(RMState rmState, String appNodePath,
       throw new YarnRuntimeException("The node name is different from the " +
              "application id");
     }
-    rmState.appState.put(appId, appState);
     loadApplicationAttemptState(appState, appNodePath);
+    return appState;
   }
 
   private synchronized void loadRMAppState(RMState rmState) throws Exception {
+    // Paths of the app znodes, keyed by app id
+    Map<String, String> appNodes = new LinkedHashMap<>();
     for (int splitIndex = 0; splitIndex <= 4; splitIndex++) {
       String appRoot = rmAppRootHierarchies.get(splitIndex);
       if (appRoot == null) {
@@ -724,16 +755,15 @@ private synchronized void loadRMAppState(RMState rmState) throws Exception {
         if (childNodeName.startsWith(ApplicationId.appIdStrPrefix)) {
           appNodeFound = true;
           if (splitIndex == 0) {
-            loadRMAppStateFromAppNode(rmState,
-                getNodePath(appRoot, childNodeName), childNodeName);
+            appNodes.put(childNodeName, getNodePath(appRoot, childNodeName));
           } else {
             // If AppId Node is partitioned.
             String parentNodePath = getNodePath(appRoot, childNodeName);
             List<String> leafNodes = getChildren(parentNodePath);
             for (String leafNodeName : leafNodes) {
               String appIdStr = childNodeName + leafNodeName;
-              loadRMAppStateFromAppNode(rmState,
-                  getNodePath(parentNodePath, leafNodeName), appIdStr);
+              appNodes.put(appIdStr,
+                  getNodePath(parentNodePath, leafNodeName));
             }
           }
         } else if (!childNodeName.equals(RM_APP_ROOT_HIERARCHIES)){
@@ -749,6 +779,49 @@ private synchronized void loadRMAppState(RMState rmState) throws Exception {
         rmAppRootHierarchies.remove(splitIndex);
       }
     }
+
+    if (loadThreads <= 1 || appNodes.size() <= 1) {
+      for (Map.Entry<String, String> appNode : appNodes.entrySet()) {
+        ApplicationStateData appState =
+            loadRMAppStateFromAppNode(appNode.getValue(), appNode.getKey());
+        rmState.appState.put(
+            appState.getApplicationSubmissionContext().getApplicationId(),
+            appState);
+      }
+      return;
+    }
+    // Reading the znodes one after the other is bound by the ZooKeeper
+    // round trips, so read those of several apps at once.
+    ExecutorService loader = HadoopExecutors.newFixedThreadPool(
+        Math.min(loadThreads, appNodes.size()), new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("ZKRMStateStore app loader #%d")
+            .build());
+    try {
+      List<Future<ApplicationStateData>> appStates =
+          new ArrayList<>(appNodes.size());
+      for (Map.Entry<String, String> appNode : appNodes.entrySet()) {
+        appStates.add(loader.submit(() ->
+            loadRMAppStateFromAppNode(appNode.getValue(), appNode.getKey())));
+      }
+      for (Future<ApplicationStateData> future : appStates) {
+        ApplicationStateData appState;
+        try {
+          appState = future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+        rmState.appState.put(
+            appState.getApplicationSubmissionContext().getApplicationId(),
+            appState);
+      }
+    } finally {
+      loader.shutdownNow();
+    }
+    LOG.info("Loaded {} applications with {} threads", appNodes.size(),
+        loadThreads);
   }
 
   private void loadApplicationAttemptState(ApplicationStateData appState,
@@ -845,14 +918,14 @@ private void loadProxyCAManagerState(RMState rmState) throws Exception {
   public synchronized void storeApplicationStateInternal(ApplicationId appId,
       ApplicationStateData appStateDataPB) throws Exception {
     long start = clock.getTime();
+    flushIfBatched(appId);
     String nodeCreatePath = getLeafAppIdNodePath(appId.toString(), true);
 
     LOG.debug("Storing info for app: {} at: {}", appId, nodeCreatePath);
 
     byte[] appStateData = appStateDataPB.getProto().toByteArray();
     if (appStateData.length <= zknodeLimit) {
-      zkManager.safeCreate(nodeCreatePath, appStateData, zkAcl,
-          CreateMode.PERSISTENT, zkAcl, fencingNodePath);
+      safeCreateOrSetData(appId, nodeCreatePath, appStateData, false);
     } else {
       LOG.debug("Application state data size for {} is {}",
           appId, appStateData.length);
@@ -869,6 +942,7 @@ protected synchronized void updateApplicationStateInternal(
       ApplicationId appId, ApplicationStateData appStateDataPB)
       throws Exception {
     long start = clock.getTime();
+    flushIfBatched(appId);
     String nodeUpdatePath = getLeafAppIdNodePath(appId.toString(), false);
     boolean pathExists = true;
     // Look for paths based on other split indices if path as per split index
@@ -896,12 +970,8 @@ protected synchronized void updateApplicationStateInternal(
 
     byte[] appStateData = appStateDataPB.getProto().toByteArray();
 
-    if (pathExists) {
-      zkManager.safeSetData(nodeUpdatePath, appStateData, -1, zkAcl,
-          fencingNodePath);
-    } else {
-      zkManager.safeCreate(nodeUpdatePath, appStateData, zkAcl,
-          CreateMode.PERSISTENT, zkAcl, fencingNodePath);
+    safeCreateOrSetData(appId, nodeUpdatePath, appStateData, pathExists);
+    if (!pathExists) {
       LOG.debug("Path {} for {} didn't exist. Creating a new znode to update"
           + " the application state.", nodeUpdatePath, appId);
     }
@@ -916,6 +986,7 @@ private void handleApplicationAttemptStateOp(
       ApplicationAttemptId appAttemptId,
       ApplicationAttemptStateData attemptStateDataPB, AppAttemptOp operation)
       throws Exception {
+    flushIfBatched(appAttemptId.getApplicationId());
     String appId = appAttemptId.getApplicationId().toString();
     String appDirPath = getLeafAppIdNodePath(appId, false);
     // Look for paths based on other split indices.
@@ -940,20 +1011,17 @@ private void handleApplicationAttemptStateOp(
 
     switch (operation) {
     case UPDATE:
-      if (exists(path)) {
-        zkManager.safeSetData(path, attemptStateData, -1, zkAcl,
-            fencingNodePath);
-      } else {
-        zkManager.safeCreate(path, attemptStateData, zkAcl,
-            CreateMode.PERSISTENT, zkAcl, fencingNodePath);
+      boolean attemptExists = exists(path);
+      safeCreateOrSetData(appAttemptId.getApplicationId(), path,
+          attemptStateData, attemptExists);
+      if (!attemptExists) {
         LOG.debug("Path {} for {} didn't exist. Created a new znode to update"
             + " the application attempt state.", path, appAttemptId);
-
       }
       break;
     case STORE:
-      zkManager.safeCreate(path, attemptStateData, zkAcl, CreateMode.PERSISTENT,
-          zkAcl, fencingNodePath);
+      safeCreateOrSetData(appAttemptId.getApplicationId(), path,
+          attemptStateData, false);
       break;
     case REMOVE:
       zkManager.safeDelete(path, zkAcl, fencingNodePath);
@@ -963,6 +1031,85 @@ private void handleApplicationAttemptStateOp(
     }
   }
 
+  /*
+   * Sets the data of the znode of an app or attempt if it exists, otherwise
+   * creates it if it is still missing. With batching enabled the operation
+   * is added to the pending batch, which is committed right away once full.
+   */
+  private void safeCreateOrSetData(ApplicationId appId, String path,
+      byte[] data, boolean exists) throws Exception {
+    if (batchMaxOps <= 1) {
+      if (exists) {
+        zkManager.safeSetData(path, data, -1, zkAcl, fencingNodePath);
+      } else {
+        zkManager.safeCreate(path, data, zkAcl, CreateMode.PERSISTENT, zkAcl,
+            fencingNodePath);
+      }
+      return;
+    }
+    if (!exists && exists(path)) {
+      return;
+    }
+    if (batch != null && batchBytes + data.length > batchMaxBytes) {
+      flushPendingOperations();
+    }
+    if (batch == null) {
+      batch = zkManager.createTransaction(zkAcl, fencingNodePath);
+      batchStartTime = clock.getTime();
+    }
+    if (exists) {
+      batch.setData(path, data, -1);
+    } else {
+      batch.create(path, data, zkAcl, CreateMode.PERSISTENT);
+    }
+    batchOps++;
+    batchBytes += data.length;
+    batchedApps.add(appId);
+    if (batchOps >= batchMaxOps) {
+      flushPendingOperations();
+    }
+  }
+
+  /*
+   * Commits the pending batch if it holds an operation of the app, so that
+   * the znodes of the app can be looked up.
+   */
+  private void flushIfBatched(ApplicationId appId) throws Exception {
+    if (batchedApps.contains(appId)) {
+      flushPendingOperations();
+    }
+  }
+
+  @Override
+  protected synchronized boolean hasPendingOperations() {
+    return batch != null;
+  }
+
+  @Override
+  protected synchronized boolean isPendingOperationsCommitDue() {
+    return batch != null
+        && clock.getTime() - batchStartTime >= batchMaxDelayMs;
+  }
+
+  @Override
+  protected synchronized void commitPendingOperations() throws Exception {
+    if (batch == null) {
+      return;
+    }
+    SafeTransaction transaction = batch;
+    int ops = batchOps;
+    batch = null;
+    batchOps = 0;
+    batchBytes = 0;
+    batchedApps.clear();
+
+    long start = clock.getTime();
+    transaction.commit();
+    opDurations.addCommitBatchCallDuration(clock.getTime() - start);
+    opDurations.addBatchSize(ops);
+    LOG.debug("Committed {} application and attempt operations", ops);
+  }
+
   @Override
   protected synchronized void storeApplicationAttemptStateInternal(
       ApplicationAttemptId appAttemptId,
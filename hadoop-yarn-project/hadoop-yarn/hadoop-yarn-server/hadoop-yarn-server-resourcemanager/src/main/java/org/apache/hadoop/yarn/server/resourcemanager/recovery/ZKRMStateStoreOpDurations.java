@@ -52,6 +52,12 @@ public final class ZKRMStateStoreOpDurations implements MetricsSource {
   @Metric("Duration to handle a remove application state call")
   MutableRate removeApplicationStateCall;
 
+  @Metric("Duration to commit a batch of application and attempt operations")
+  MutableRate commitBatchCall;
+
+  @Metric("Number of operations in a committed batch")
+  MutableRate batchSize;
+
   protected static final MetricsInfo RECORD_INFO =
       info("ZKRMStateStoreOpDurations", "Durations of ZKRMStateStore calls");
 
@@ -94,4 +100,12 @@ public void addUpdateApplicationStateCallDuration(long value) {
   public void addRemoveApplicationStateCallDuration(long value) {
     removeApplicationStateCall.add(value);
   }
+
+  public void addCommitBatchCallDuration(long value) {
+    commitBatchCall.add(value);
+  }
+
+  public void addBatchSize(long value) {
+    batchSize.add(value);
+  }
 }
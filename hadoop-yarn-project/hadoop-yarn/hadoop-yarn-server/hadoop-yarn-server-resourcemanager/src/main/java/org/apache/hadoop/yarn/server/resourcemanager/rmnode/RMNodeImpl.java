@@ -1076,7 +1076,7 @@ private void handleNMContainerStatus(
         for (NMContainerStatus nmContainerStatus : nmContainerStatuses) {
           containerStatuses.add(createContainerStatus(nmContainerStatus));
         }
-        rmnode.handleContainerStatus(containerStatuses);
+        rmnode.handleContainerStatus(containerStatuses, false);
       }
     }
 
@@ -1375,7 +1375,8 @@ public NodeState transition(RMNodeImpl rmNode, RMNodeEvent event) {
         }
       }
 
-      rmNode.handleContainerStatus(statusEvent.getContainers());
+      rmNode.handleContainerStatus(statusEvent.getContainers(),
+          statusEvent.isIncrementalContainerStatuses());
       rmNode.handleReportedIncreasedContainers(
           statusEvent.getNMReportedIncreasedContainers());
 
@@ -1517,7 +1518,8 @@ private void handleReportedIncreasedContainers(
     }
   }
 
-  private void handleContainerStatus(List<ContainerStatus> containerStatuses) {
+  private void handleContainerStatus(List<ContainerStatus> containerStatuses,
+      boolean incremental) {
     // Filter the map to only obtain just launched containers and finished
     // containers.
     List<ContainerStatus> newlyLaunchedContainers =
@@ -1597,8 +1599,10 @@ private void handleContainerStatus(List<ContainerStatus> containerStatuses) {
       }
     }
 
-    List<ContainerStatus> lostContainers =
-        findLostContainers(numRemoteRunningContainers, containerStatuses);
+    // Running containers missing from an incremental report did not change
+    List<ContainerStatus> lostContainers = incremental
+        ? Collections.emptyList()
+        : findLostContainers(numRemoteRunningContainers, containerStatuses);
     for (ContainerStatus remoteContainer : lostContainers) {
       ContainerId containerId = remoteContainer.getContainerId();
       updatedExistContainers.remove(containerId);
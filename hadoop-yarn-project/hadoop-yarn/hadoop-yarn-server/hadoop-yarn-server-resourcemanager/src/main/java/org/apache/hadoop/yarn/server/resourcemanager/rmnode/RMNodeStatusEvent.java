@@ -55,6 +55,13 @@ public List<ContainerStatus> getContainers() {
     return this.nodeStatus.getContainersStatuses();
   }
 
+  /**
+   * @return true if only the containers whose status changed are reported
+   */
+  public boolean isIncrementalContainerStatuses() {
+    return this.nodeStatus.isIncrementalContainersStatuses();
+  }
+
   public List<ApplicationId> getKeepAliveAppIds() {
     return this.nodeStatus.getKeepAliveApplications();
   }
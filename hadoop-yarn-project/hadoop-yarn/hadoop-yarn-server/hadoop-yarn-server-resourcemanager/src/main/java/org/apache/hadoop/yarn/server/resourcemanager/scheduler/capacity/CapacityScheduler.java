@@ -29,10 +29,13 @@
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.yarn.server.resourcemanager.placement.ApplicationPlacementContext;
@@ -366,7 +369,11 @@ void initScheduler(Configuration configuration) throws
         for (int i = 0; i < maxAsyncSchedulingThreads; i++) {
           asyncSchedulerThreads.add(new AsyncScheduleThread(this));
         }
-        resourceCommitterService = new ResourceCommitterService(this);
+        resourceCommitterService = new ResourceCommitterService(this,
+            this.conf.getInt(CapacitySchedulerConfiguration
+                    .SCHEDULE_ASYNCHRONOUSLY_COMMITTER_THREADS,
+                CapacitySchedulerConfiguration
+                    .DEFAULT_SCHEDULE_ASYNCHRONOUSLY_COMMITTER_THREADS));
         asyncMaxPendingBacklogs = this.conf.getInt(
             CapacitySchedulerConfiguration.
                 SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_PENDING_BACKLOGS,
@@ -442,8 +449,7 @@ public void serviceStop() throws Exception {
           t.interrupt();
           t.join(THREAD_JOIN_TIMEOUT_MS);
         }
-        resourceCommitterService.interrupt();
-        resourceCommitterService.join(THREAD_JOIN_TIMEOUT_MS);
+        resourceCommitterService.stopCommitters(THREAD_JOIN_TIMEOUT_MS);
       }
     } finally {
       writeLock.unlock();
@@ -689,17 +695,44 @@ public void suspendSchedule() {
   }
 
   static class ResourceCommitterService extends Thread {
+    // Proposals hashing to the same stripe are committed one at a time.
+    private static final int COMMIT_LOCK_STRIPES = 1024;
+
     private final CapacityScheduler cs;
     private BlockingQueue<ResourceCommitRequest<FiCaSchedulerApp, FiCaSchedulerNode>>
         backlogs = new LinkedBlockingQueue<>();
+    private final List<Thread> extraCommitters = new ArrayList<>();
+    private final ReentrantLock[] commitLocks;
 
     public ResourceCommitterService(CapacityScheduler cs) {
+      this(cs, 1);
+    }
+
+    ResourceCommitterService(CapacityScheduler cs, int numCommitters) {
       this.cs = cs;
       setDaemon(true);
+      if (numCommitters > 1) {
+        commitLocks = new ReentrantLock[COMMIT_LOCK_STRIPES];
+        for (int i = 0; i < commitLocks.length; i++) {
+          commitLocks[i] = new ReentrantLock();
+        }
+        for (int i = 1; i < numCommitters; i++) {
+          Thread committer = new Thread(this::commitConcurrently,
+              "ResourceCommitterService #" + i);
+          committer.setDaemon(true);
+          extraCommitters.add(committer);
+        }
+      } else {
+        commitLocks = null;
+      }
     }
 
     @Override
     public void run() {
+      if (commitLocks != null) {
+        commitConcurrently();
+        return;
+      }
       while (!Thread.currentThread().isInterrupted()) {
         try {
           ResourceCommitRequest<FiCaSchedulerApp, FiCaSchedulerNode> request =
@@ -719,6 +752,131 @@ public void run() {
       LOG.info("ResourceCommitterService exited!");
     }
 
+    /**
+     * Commit proposals alongside the other committers. A proposal only
+     * allocating new containers holds the scheduler's read lock and the
+     * stripes of its nodes and queues, any other the write lock.
+     */
+    private void commitConcurrently() {
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          ResourceCommitRequest<FiCaSchedulerApp, FiCaSchedulerNode> request =
+              backlogs.take();
+          int[] stripes = getCommitStripes(request);
+          if (stripes == null) {
+            cs.writeLock.lockInterruptibly();
+            try {
+              cs.tryCommit(cs.getClusterResource(), request, true);
+            } finally {
+              cs.writeLock.unlock();
+            }
+          } else {
+            cs.readLock.lockInterruptibly();
+            try {
+              commitWithStripes(request, stripes);
+            } finally {
+              cs.readLock.unlock();
+            }
+          }
+        } catch (InterruptedException e) {
+          LOG.error(e.toString());
+          Thread.currentThread().interrupt();
+        }
+      }
+      LOG.info(Thread.currentThread().getName() + " exited!");
+    }
+
+    private void commitWithStripes(
+        ResourceCommitRequest<FiCaSchedulerApp, FiCaSchedulerNode> request,
+        int[] stripes) throws InterruptedException {
+      long waitStart = System.nanoTime();
+      boolean conflict = false;
+      int locked = 0;
+      try {
+        // in ascending order, so committers cannot deadlock
+        for (int stripe : stripes) {
+          if (!commitLocks[stripe].tryLock()) {
+            conflict = true;
+            commitLocks[stripe].lockInterruptibly();
+          }
+          locked++;
+        }
+        CapacitySchedulerMetrics.getMetrics().addCommitLockWait(
+            System.nanoTime() - waitStart, conflict);
+        cs.tryCommit(cs.getClusterResource(), request, true);
+      } finally {
+        for (int i = locked - 1; i >= 0; i--) {
+          commitLocks[stripes[i]].unlock();
+        }
+      }
+    }
+
+    /**
+     * Get the sorted commit lock stripes of a proposal that only allocates
+     * new containers: those of its nodes, of its leaf queue and of the
+     * queue's parents. The root queue is left out, its limit is the
+     * resource of the nodes. Proposals reserving or releasing containers,
+     * possibly of other queues and nodes, are committed exclusively.
+     *
+     * @return the stripes, or null to commit the proposal exclusively
+     */
+    private int[] getCommitStripes(
+        ResourceCommitRequest<FiCaSchedulerApp, FiCaSchedulerNode> request) {
+      if (request.getContainersToAllocate().isEmpty()
+          || !request.getContainersToReserve().isEmpty()
+          || !request.getContainersToRelease().isEmpty()) {
+        return null;
+      }
+      SortedSet<Integer> stripes = new TreeSet<>();
+      for (ContainerAllocationProposal<FiCaSchedulerApp, FiCaSchedulerNode>
+          allocation : request.getContainersToAllocate()) {
+        if (allocation.getAllocateFromReservedContainer() != null
+            || (allocation.getToRelease() != null
+                && !allocation.getToRelease().isEmpty())) {
+          return null;
+        }
+        SchedulerContainer<FiCaSchedulerApp, FiCaSchedulerNode> container =
+            allocation.getAllocatedOrReservedContainer();
+        stripes.add(getCommitStripe(
+            container.getSchedulerNode().getNodeID()));
+        CSQueue queue =
+            container.getSchedulerApplicationAttempt().getCSLeafQueue();
+        while (queue != null && queue.getParent() != null) {
+          stripes.add(getCommitStripe(queue.getQueuePath()));
+          queue = queue.getParent();
+        }
+      }
+      int[] sorted = new int[stripes.size()];
+      int i = 0;
+      for (int stripe : stripes) {
+        sorted[i++] = stripe;
+      }
+      return sorted;
+    }
+
+    private static int getCommitStripe(Object key) {
+      return (key.hashCode() & Integer.MAX_VALUE) % COMMIT_LOCK_STRIPES;
+    }
+
+    @Override
+    public synchronized void start() {
+      super.start();
+      for (Thread committer : extraCommitters) {
+        committer.start();
+      }
+    }
+
+    void stopCommitters(long timeoutMs) throws InterruptedException {
+      interrupt();
+      for (Thread committer : extraCommitters) {
+        committer.interrupt();
+      }
+      join(timeoutMs);
+      for (Thread committer : extraCommitters) {
+        committer.join(timeoutMs);
+      }
+    }
+
     public void addNewCommitRequest(
         ResourceCommitRequest<FiCaSchedulerApp, FiCaSchedulerNode> proposal) {
       backlogs.add(proposal);
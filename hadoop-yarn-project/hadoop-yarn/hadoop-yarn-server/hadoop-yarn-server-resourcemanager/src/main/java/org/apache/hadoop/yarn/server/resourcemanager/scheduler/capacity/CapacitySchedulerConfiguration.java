@@ -265,6 +265,18 @@ public class CapacitySchedulerConfiguration extends ReservationSchedulerConfigur
   public static final String SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_PENDING_BACKLOGS =
       SCHEDULE_ASYNCHRONOUSLY_PREFIX + ".maximum-pending-backlogs";
 
+  /**
+   * Number of threads committing the proposals of async scheduling. With
+   * more than one, proposals for disjoint nodes and queues are committed
+   * concurrently.
+   */
+  @Private
+  public static final String SCHEDULE_ASYNCHRONOUSLY_COMMITTER_THREADS =
+      SCHEDULE_ASYNCHRONOUSLY_PREFIX + ".committer-threads";
+
+  @Private
+  public static final int DEFAULT_SCHEDULE_ASYNCHRONOUSLY_COMMITTER_THREADS = 1;
+
   @Private
   public static final String APP_FAIL_FAST = PREFIX + "application.fail-fast";
 
@@ -26,6 +26,7 @@
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableRate;
 
@@ -49,6 +50,9 @@ public class CapacitySchedulerMetrics {
   @Metric("Scheduler allocate containers") MutableRate allocate;
   @Metric("Scheduler commit success") MutableRate commitSuccess;
   @Metric("Scheduler commit failure") MutableRate commitFailure;
+  @Metric("Scheduler commit lock wait") MutableRate commitLockWait;
+  @Metric("Scheduler commits waiting for a conflicting commit")
+  MutableCounterLong commitConflicts;
   @Metric("Scheduler node update") MutableRate nodeUpdate;
   @Metric("Scheduler node heartbeat interval") MutableQuantiles
       schedulerNodeHBInterval;
@@ -101,6 +105,13 @@ public void addCommitFailure(long latency) {
     this.commitFailure.add(latency);
   }
 
+  public void addCommitLockWait(long latency, boolean conflict) {
+    this.commitLockWait.add(latency);
+    if (conflict) {
+      this.commitConflicts.incr();
+    }
+  }
+
   public void addNodeUpdate(long latency) {
     this.nodeUpdate.add(latency);
   }
@@ -120,6 +131,16 @@ public long getNumOfCommitSuccess() {
     return this.commitSuccess.lastStat().numSamples();
   }
 
+  @VisibleForTesting
+  public long getNumOfCommitLockWaits() {
+    return this.commitLockWait.lastStat().numSamples();
+  }
+
+  @VisibleForTesting
+  public long getNumOfCommitConflicts() {
+    return this.commitConflicts.value();
+  }
+
   public void addSchedulerNodeHBInterval(long heartbeatInterval) {
     schedulerNodeHBInterval.add(heartbeatInterval);
   }
@@ -133,6 +133,9 @@ public class LeafQueue extends AbstractCSQueue {
   @VisibleForTesting
   long currentUserLimitCacheVersion = 0;
 
+  // The version of the users state of each partition in userLimitsCache
+  private final Map<String, Long> userLimitsCacheVersions = new HashMap<>();
+
   // record all ignore partition exclusivityRMContainer, this will be used to do
   // preemption, key is the partition of the RMContainer allocated on
   private Map<String, TreeSet<RMContainer>> ignorePartitionExclusivityRMContainers =
@@ -1116,27 +1119,28 @@ private ConcurrentMap<String, CachedUserLimit> getUserLimitCache(
       long latestVersion = usersManager.getLatestVersionOfUsersState();
 
       if (latestVersion != this.currentUserLimitCacheVersion) {
-        // User limits cache needs invalidating
+        // User limits cache needs invalidating, but only for the partitions
+        // whose users state changed
         this.currentUserLimitCacheVersion = latestVersion;
-        userLimitsCache.clear();
-
-        Map<SchedulingMode, ConcurrentMap<String, CachedUserLimit>>
-            uLCByPartition = new HashMap<>();
-        userLimitsCache.put(partition, uLCByPartition);
-
-        ConcurrentMap<String, CachedUserLimit> uLCBySchedulingMode =
-            new ConcurrentHashMap<>();
-        uLCByPartition.put(schedulingMode, uLCBySchedulingMode);
-
-        return uLCBySchedulingMode;
+        Iterator<Map.Entry<String, Long>> versions =
+            userLimitsCacheVersions.entrySet().iterator();
+        while (versions.hasNext()) {
+          Map.Entry<String, Long> version = versions.next();
+          if (version.getValue() != usersManager
+              .getLatestVersionOfUsersState(version.getKey())) {
+            userLimitsCache.remove(version.getKey());
+            versions.remove();
+          }
+        }
       }
 
-      // User limits cache does not need invalidating
       Map<SchedulingMode, ConcurrentMap<String, CachedUserLimit>>
           uLCByPartition = userLimitsCache.get(partition);
       if (uLCByPartition == null) {
         uLCByPartition = new HashMap<>();
         userLimitsCache.put(partition, uLCByPartition);
+        userLimitsCacheVersions.put(partition,
+            usersManager.getLatestVersionOfUsersState(partition));
       }
 
       ConcurrentMap<String, CachedUserLimit> uLCBySchedulingMode =
@@ -1517,7 +1521,7 @@ private Resource getHeadroom(User user,
             ? currentPartitionResourceLimit
             : getQueueMaxResource(partition);
 
-    Resource headroom = Resources.componentwiseMin(
+    Resource headroom = Resources.componentwiseMinTo(
         Resources.subtractNonNegative(userLimitResource,
             user.getUsed(partition)),
         Resources.subtractNonNegative(currentPartitionResourceLimit,
@@ -2112,7 +2116,7 @@ public Resource getTotalPendingResourcesConsideringUserLimit(
                   partition, SchedulingMode.RESPECT_PARTITION_EXCLUSIVITY),
               user.getUsed(partition));
           // Make sure headroom is not negative.
-          headroom = Resources.componentwiseMax(headroom, Resources.none());
+          Resources.componentwiseMaxTo(headroom, Resources.none());
           userNameToHeadroom.put(userName, headroom);
         }
 
@@ -2122,11 +2126,13 @@ public Resource getTotalPendingResourcesConsideringUserLimit(
         if (deductReservedFromPending) {
           pending = Resources.subtract(pending,
               app.getAppAttemptResourceUsage().getReserved(partition));
+        } else {
+          pending = Resources.clone(pending);
         }
-        pending = Resources.componentwiseMax(pending, Resources.none());
+        Resources.componentwiseMaxTo(pending, Resources.none());
 
-        Resource minpendingConsideringUserLimit = Resources.componentwiseMin(
-            userNameToHeadroom.get(userName), pending);
+        Resource minpendingConsideringUserLimit = Resources.componentwiseMinTo(
+            pending, userNameToHeadroom.get(userName));
         Resources.addTo(totalPendingConsideringUserLimit,
             minpendingConsideringUserLimit);
         Resources.subtractFrom(userNameToHeadroom.get(userName),
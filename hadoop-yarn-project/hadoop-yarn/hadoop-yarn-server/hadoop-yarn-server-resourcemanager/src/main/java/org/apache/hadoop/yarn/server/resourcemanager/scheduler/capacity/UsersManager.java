@@ -72,6 +72,12 @@ public class UsersManager implements AbstractUsersManager {
   // To detect whether there is a change in user count for every user-limit
   // calculation.
   private long latestVersionOfUsersState = 0;
+  // The user-limits of a partition only depend on the usage of that
+  // partition, so an allocation or release only invalidates those. The version
+  // of a partition is the sum of both counters.
+  private long latestVersionOfAllPartitions = 0;
+  private Map<String, Long> latestVersionOfPartitions =
+      new HashMap<String, Long>();
   private Map<String, Map<SchedulingMode, Long>> localVersionOfActiveUsersState =
       new HashMap<String, Map<SchedulingMode, Long>>();
   private Map<String, Map<SchedulingMode, Long>> localVersionOfAllUsersState =
@@ -368,6 +374,29 @@ public void userLimitNeedsRecompute() {
       if (value < 0) {
         latestVersionOfUsersState = 0;
       }
+      if (++latestVersionOfAllPartitions < 0) {
+        latestVersionOfAllPartitions = 0;
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Force UsersManager to recompute the user-limits of one partition.
+   *
+   * @param nodePartition the partition whose usage changed
+   */
+  public void userLimitNeedsRecompute(String nodePartition) {
+    writeLock.lock();
+    try {
+      long value = ++latestVersionOfUsersState;
+      if (value < 0) {
+        latestVersionOfUsersState = 0;
+      }
+      Long version = latestVersionOfPartitions.get(nodePartition);
+      latestVersionOfPartitions.put(nodePartition,
+          version == null || version == Long.MAX_VALUE ? 1 : version + 1);
     } finally {
       writeLock.unlock();
     }
@@ -593,6 +622,23 @@ protected long getLatestVersionOfUsersState() {
     }
   }
 
+  /**
+   * Get the version of the state the user-limits of a partition depend on.
+   *
+   * @param nodePartition the partition
+   * @return a version that changes whenever the user-limits of the partition
+   *         need to be recomputed
+   */
+  protected long getLatestVersionOfUsersState(String nodePartition) {
+    readLock.lock();
+    try {
+      Long version = latestVersionOfPartitions.get(nodePartition);
+      return latestVersionOfAllPartitions + (version == null ? 0 : version);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
   /*
    * Recompute user-limit under following conditions: 1. cached user-limit does
    * not exist in local map. 2. Total User count doesn't match with local cached
@@ -603,7 +649,7 @@ private boolean isRecomputeNeeded(SchedulingMode schedulingMode,
     readLock.lock();
     try {
       return (getLocalVersionOfUsersState(nodePartition, schedulingMode,
-          isActive) != latestVersionOfUsersState);
+          isActive) != getLatestVersionOfUsersState(nodePartition));
     } finally {
       readLock.unlock();
     }
@@ -627,7 +673,8 @@ private void setLocalVersionOfUsersState(String nodePartition,
         localVersionOfUsersState.put(nodePartition, localVersion);
       }
 
-      localVersion.put(schedulingMode, latestVersionOfUsersState);
+      localVersion.put(schedulingMode,
+          getLatestVersionOfUsersState(nodePartition));
     } finally {
       writeLock.unlock();
     }
@@ -1082,7 +1129,7 @@ public User updateUserResourceUsage(String userName, Resource resource,
       // New container is allocated. Invalidate user-limit.
       updateResourceUsagePerUser(user, resource, nodePartition, isAllocate);
 
-      userLimitNeedsRecompute();
+      userLimitNeedsRecompute(nodePartition);
 
       // Update usage ratios
       Resource resourceByLabel = labelManager.getResourceByLabel(nodePartition,
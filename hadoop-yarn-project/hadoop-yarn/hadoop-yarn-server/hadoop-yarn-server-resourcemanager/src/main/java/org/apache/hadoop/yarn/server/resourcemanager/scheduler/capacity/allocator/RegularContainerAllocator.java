@@ -79,15 +79,17 @@ private boolean checkHeadroom(Resource clusterResource,
       String nodePartition) {
     // If headroom + currentReservation < required, we cannot allocate this
     // require
-    Resource resourceCouldBeUnReserved =
-        application.getAppAttemptResourceUsage().getReserved(nodePartition);
-    if (!application.getCSLeafQueue().getReservationContinueLooking()) {
-      // If we don't allow reservation continuous looking,
-      // we won't allow to unreserve before allocation.
-      resourceCouldBeUnReserved = Resources.none();
+    Resource headroom = currentResourceLimits.getHeadroom();
+    // If we don't allow reservation continuous looking,
+    // we won't allow to unreserve before allocation.
+    if (application.getCSLeafQueue().getReservationContinueLooking()) {
+      Resource resourceCouldBeUnReserved =
+          application.getAppAttemptResourceUsage().getReserved(nodePartition);
+      if (!Resources.isNone(resourceCouldBeUnReserved)) {
+        headroom = Resources.add(headroom, resourceCouldBeUnReserved);
+      }
     }
-    return Resources.greaterThanOrEqual(rc, clusterResource, Resources.add(
-        currentResourceLimits.getHeadroom(), resourceCouldBeUnReserved),
+    return Resources.greaterThanOrEqual(rc, clusterResource, headroom,
         required);
   }
 
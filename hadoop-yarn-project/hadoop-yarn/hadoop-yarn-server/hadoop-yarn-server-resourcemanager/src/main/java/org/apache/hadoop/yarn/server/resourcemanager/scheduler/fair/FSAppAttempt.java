@@ -247,7 +247,7 @@ public Resource getHeadroom() {
 
     Resource queueMaxAvailableResources =
         Resources.subtract(fsQueue.getMaxShare(), queueUsage);
-    Resource maxAvailableResource = Resources.componentwiseMin(
+    Resource maxAvailableResource = Resources.componentwiseMinTo(
         clusterAvailableResources, queueMaxAvailableResources);
 
     Resource headroom = policy.getHeadroom(queueFairShare,
@@ -1159,7 +1159,7 @@ Resource fairShareStarvation() {
     long now = scheduler.getClock().getTime();
     Resource threshold = Resources.multiply(
         getFairShare(), getQueue().getFairSharePreemptionThreshold());
-    Resource fairDemand = Resources.componentwiseMin(threshold, demand);
+    Resource fairDemand = Resources.componentwiseMinTo(threshold, demand);
 
     // Check if the queue is starved for fairshare
     boolean starved = isUsageBelowShare(getResourceUsage(), fairDemand);
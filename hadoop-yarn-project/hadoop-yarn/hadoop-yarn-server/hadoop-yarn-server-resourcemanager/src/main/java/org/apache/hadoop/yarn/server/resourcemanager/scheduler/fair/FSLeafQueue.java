@@ -68,6 +68,13 @@ public class FSLeafQueue extends FSQueue {
   private final Lock writeLock = rwl.writeLock();
   
   private Resource demand = Resources.createResource(0);
+
+  // What the fair shares of the runnable apps were last computed from. They
+  // only need computing again once one of these changes.
+  private boolean runnableAppsChanged = true;
+  private SchedulingPolicy appSharesPolicy;
+  private Resource appSharesFairShare;
+  private float[] appSharesWeights = new float[0];
   
   // Variables used for preemption
   private long lastTimeAtMinShare;
@@ -92,6 +99,7 @@ void addApp(FSAppAttempt app, boolean runnable) {
     try {
       if (runnable) {
         runnableApps.add(app);
+        runnableAppsChanged = true;
       } else {
         nonRunnableApps.add(app);
       }
@@ -115,7 +123,9 @@ boolean removeApp(FSAppAttempt app) {
     writeLock.lock();
     try {
       runnable = runnableApps.remove(app);
-      if (!runnable) {
+      if (runnable) {
+        runnableAppsChanged = true;
+      } else {
         // removeNonRunnableApp acquires the write lock again, which is fine
         if (!removeNonRunnableApp(app)) {
           throw new IllegalStateException("Given app to remove " + app +
@@ -199,12 +209,50 @@ public void collectSchedulerApplications(
   void updateInternal() {
     readLock.lock();
     try {
-      policy.computeShares(runnableApps, getFairShare());
+      if (appSharesOutdated()) {
+        policy.computeShares(runnableApps, getFairShare());
+        recordAppSharesInputs();
+      }
     } finally {
       readLock.unlock();
     }
   }
 
+  /**
+   * The fair shares of the apps only depend on the queue's policy and fair
+   * share, and on which apps are runnable and their weights. Checking these is
+   * much cheaper than computing the shares, which most of the time turn out
+   * the same as in the previous update.
+   *
+   * Caller must hold the read lock.
+   */
+  private boolean appSharesOutdated() {
+    if (runnableAppsChanged || policy != appSharesPolicy
+        || !getFairShare().equals(appSharesFairShare)) {
+      return true;
+    }
+    for (int i = 0; i < appSharesWeights.length; i++) {
+      if (runnableApps.get(i).getWeight() != appSharesWeights[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void recordAppSharesInputs() {
+    appSharesPolicy = policy;
+    appSharesFairShare = Resources.clone(getFairShare());
+    if (appSharesWeights.length != runnableApps.size()) {
+      appSharesWeights = new float[runnableApps.size()];
+    }
+    for (int i = 0; i < appSharesWeights.length; i++) {
+      appSharesWeights[i] = runnableApps.get(i).getWeight();
+    }
+    // Updates run one at a time under the scheduler lock, and the queue's
+    // write lock keeps out the app changes which set this flag
+    runnableAppsChanged = false;
+  }
+
   /**
    * Compute the extent of fairshare starvation for a set of apps.
    *
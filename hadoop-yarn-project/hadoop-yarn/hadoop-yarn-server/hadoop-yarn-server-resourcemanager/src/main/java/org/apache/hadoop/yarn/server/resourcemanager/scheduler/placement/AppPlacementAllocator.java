@@ -86,11 +86,14 @@ public Iterator<N> getPreferredNodeIterator(
     }
 
     // singleNode will be null if Multi-node placement lookup is enabled, and
-    // hence could consider sorting policies.
+    // hence could consider sorting policies. Pass the size of the ask so
+    // that the policy can return nodes which fit it first.
+    PendingAsk pendingAsk = getPendingAsk(ResourceRequest.ANY);
     return multiNodeSortingManager.getMultiNodeSortIterator(
         candidateNodeSet.getAllNodes().values(),
         candidateNodeSet.getPartition(),
-        multiNodeSortPolicyName);
+        multiNodeSortPolicyName,
+        pendingAsk == null ? null : pendingAsk.getPerAllocationResource());
   }
 
   /**
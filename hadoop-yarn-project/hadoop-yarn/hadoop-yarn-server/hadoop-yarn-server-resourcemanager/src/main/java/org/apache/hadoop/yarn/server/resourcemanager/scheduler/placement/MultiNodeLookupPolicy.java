@@ -18,6 +18,7 @@
 
 package org.apache.hadoop.yarn.server.resourcemanager.scheduler.placement;
 
+import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
 
 import java.util.Collection;
@@ -46,6 +47,25 @@
    */
   Iterator<N> getPreferredNodeIterator(Collection<N> nodes, String partition);
 
+  /**
+   * Get iterator of preferred node for an allocation of the given size. Every
+   * node is still returned, but policies may return the nodes which can fit
+   * the allocation first so that they are not found by a linear scan.
+   *
+   * @param nodes
+   *          List of Nodes
+   * @param partition
+   *          node label
+   * @param required
+   *          resource of a single allocation, may be null
+   *
+   * @return iterator of preferred node
+   */
+  default Iterator<N> getPreferredNodeIterator(Collection<N> nodes,
+      String partition, Resource required) {
+    return getPreferredNodeIterator(nodes, partition);
+  }
+
   /**
    * Refresh working nodes set for re-ordering based on the algorithm selected.
    *
@@ -31,6 +31,7 @@
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.service.AbstractService;
+import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
@@ -113,6 +114,11 @@ public void registerMultiNodePolicyNames(
 
   public Iterator<N> getMultiNodeSortIterator(Collection<N> nodes,
       String partition, String policyName) {
+    return getMultiNodeSortIterator(nodes, partition, policyName, null);
+  }
+
+  public Iterator<N> getMultiNodeSortIterator(Collection<N> nodes,
+      String partition, String policyName, Resource required) {
     // nodeLookupPolicy can be null if app is configured with invalid policy.
     // in such cases, use the the first node.
     if(policyName == null) {
@@ -140,7 +146,7 @@ public Iterator<N> getMultiNodeSortIterator(Collection<N> nodes,
     }
 
     Iterator<N> nodesIterator = policy.getPreferredNodeIterator(nodes,
-        partition);
+        partition, required);
 
     // Skip node which missed YarnConfiguration.SCHEDULER_SKIP_NODE_MULTIPLIER
     // heartbeats since the node might be dead and we should not continue
@@ -18,13 +18,18 @@
 
 package org.apache.hadoop.yarn.server.resourcemanager.scheduler.placement;
 
+import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
+import org.apache.hadoop.yarn.util.resource.Resources;
 
 import java.util.Comparator;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -37,11 +42,25 @@
  * ResourceUsageMultiNodeLookupPolicy holds sorted nodes list based on the
  * resource usage of nodes at given time.
  * </p>
+ *
+ * <p>
+ * The sorted nodes are also indexed by their unallocated resource, so that
+ * the few nodes which can fit a large allocation are returned first instead
+ * of being found by walking all the nodes.
+ * </p>
  */
 public class ResourceUsageMultiNodeLookupPolicy<N extends SchedulerNode>
     implements MultiNodeLookupPolicy<N> {
 
+  /**
+   * The index is only used if it leaves at most this fraction of the nodes,
+   * otherwise most nodes fit and the sorted nodes are found as quickly.
+   */
+  private static final int MIN_INDEX_SELECTIVITY = 8;
+
   protected Map<String, Set<N>> nodesPerPartition = new ConcurrentHashMap<>();
+  private final Map<String, UnallocatedResourceIndex<N>> indexPerPartition =
+      new ConcurrentHashMap<>();
   protected Comparator<N> comparator;
 
   public ResourceUsageMultiNodeLookupPolicy() {
@@ -64,16 +83,80 @@ public Iterator<N> getPreferredNodeIterator(Collection<N> nodes,
     return getNodesPerPartition(partition).iterator();
   }
 
+  @Override
+  public Iterator<N> getPreferredNodeIterator(Collection<N> nodes,
+      String partition, Resource required) {
+    UnallocatedResourceIndex<N> index = indexPerPartition.get(partition);
+    if (required == null || index == null) {
+      return getPreferredNodeIterator(nodes, partition);
+    }
+    List<N> candidates = index.getCandidates(required,
+        index.size() / MIN_INDEX_SELECTIVITY);
+    if (candidates == null) {
+      return getPreferredNodeIterator(nodes, partition);
+    }
+    return new FittingNodesFirstIterator(candidates.iterator(),
+        getNodesPerPartition(partition).iterator(), required);
+  }
+
   @Override
   public void addAndRefreshNodesSet(Collection<N> nodes,
       String partition) {
     Set<N> nodeList = new ConcurrentSkipListSet<N>(comparator);
     nodeList.addAll(nodes);
     nodesPerPartition.put(partition, Collections.unmodifiableSet(nodeList));
+    indexPerPartition.put(partition, new UnallocatedResourceIndex<>(nodeList));
   }
 
   @Override
   public Set<N> getNodesPerPartition(String partition) {
     return nodesPerPartition.getOrDefault(partition, Collections.emptySet());
   }
+
+  /**
+   * Returns the candidates which still fit the allocation, followed by all
+   * the other sorted nodes, so that every node is returned exactly once.
+   */
+  private class FittingNodesFirstIterator implements Iterator<N> {
+    private final Iterator<N> candidates;
+    private final Iterator<N> sortedNodes;
+    private final Resource required;
+    private final Set<N> returned = new HashSet<>();
+    private N next;
+
+    FittingNodesFirstIterator(Iterator<N> candidates,
+        Iterator<N> sortedNodes, Resource required) {
+      this.candidates = candidates;
+      this.sortedNodes = sortedNodes;
+      this.required = required;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && candidates.hasNext()) {
+        N node = candidates.next();
+        if (Resources.fitsIn(required, node.getUnallocatedResource())) {
+          returned.add(node);
+          next = node;
+        }
+      }
+      while (next == null && sortedNodes.hasNext()) {
+        N node = sortedNodes.next();
+        if (!returned.contains(node)) {
+          next = node;
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public N next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      N node = next;
+      next = null;
+      return node;
+    }
+  }
 }
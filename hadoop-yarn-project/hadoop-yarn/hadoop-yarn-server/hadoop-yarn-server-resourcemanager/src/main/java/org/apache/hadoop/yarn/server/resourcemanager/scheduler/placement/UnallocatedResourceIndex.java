@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.placement;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * Index over the sorted nodes of a partition by their unallocated memory and
+ * vcores, taken when the nodes were sorted.
+ * </p>
+ *
+ * <p>
+ * It answers which nodes had at least a given resource unallocated with two
+ * binary searches, and returns them in the order of the sorted nodes. The
+ * unallocated resource of a node changes between two sorts, so callers must
+ * check the returned nodes again before using them.
+ * </p>
+ */
+class UnallocatedResourceIndex<N extends SchedulerNode> {
+
+  private final List<N> sortedNodes;
+  private final long[] memory;
+  private final int[] memoryRanks;
+  private final long[] vcores;
+  private final int[] vcoresRanks;
+
+  /**
+   * @param sortedNodes nodes in the order of the lookup policy
+   */
+  UnallocatedResourceIndex(Collection<N> sortedNodes) {
+    this.sortedNodes = Collections.unmodifiableList(
+        new ArrayList<>(sortedNodes));
+    int size = this.sortedNodes.size();
+    long[] nodeMemory = new long[size];
+    long[] nodeVcores = new long[size];
+    for (int i = 0; i < size; i++) {
+      Resource unallocated = this.sortedNodes.get(i).getUnallocatedResource();
+      nodeMemory[i] = unallocated.getMemorySize();
+      nodeVcores[i] = unallocated.getVirtualCores();
+    }
+    this.memoryRanks = sortRanks(nodeMemory);
+    this.memory = valuesOf(nodeMemory, memoryRanks);
+    this.vcoresRanks = sortRanks(nodeVcores);
+    this.vcores = valuesOf(nodeVcores, vcoresRanks);
+  }
+
+  int size() {
+    return sortedNodes.size();
+  }
+
+  /**
+   * Get the nodes which had at least the required memory and vcores
+   * unallocated, in the order of the sorted nodes. Only the more selective of
+   * the two dimensions is used, so some of the returned nodes may not fit.
+   *
+   * @param required resource of a single allocation
+   * @param maxCandidates limit on the number of nodes to return
+   * @return candidate nodes, or null if there are more than maxCandidates
+   */
+  List<N> getCandidates(Resource required, int maxCandidates) {
+    int fromMemory = lowerBound(memory, required.getMemorySize());
+    int fromVcores = lowerBound(vcores, required.getVirtualCores());
+    int[] ranks;
+    int from;
+    if (memory.length - fromMemory <= vcores.length - fromVcores) {
+      ranks = memoryRanks;
+      from = fromMemory;
+    } else {
+      ranks = vcoresRanks;
+      from = fromVcores;
+    }
+    if (ranks.length - from > maxCandidates) {
+      return null;
+    }
+    int[] candidates = Arrays.copyOfRange(ranks, from, ranks.length);
+    Arrays.sort(candidates);
+    List<N> nodes = new ArrayList<>(candidates.length);
+    for (int rank : candidates) {
+      nodes.add(sortedNodes.get(rank));
+    }
+    return nodes;
+  }
+
+  /**
+   * @return positions of the values in ascending order of value
+   */
+  private static int[] sortRanks(long[] values) {
+    Integer[] boxed = new Integer[values.length];
+    for (int i = 0; i < values.length; i++) {
+      boxed[i] = i;
+    }
+    Arrays.sort(boxed, Comparator.comparingLong(i -> values[i]));
+    int[] ranks = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      ranks[i] = boxed[i];
+    }
+    return ranks;
+  }
+
+  private static long[] valuesOf(long[] values, int[] ranks) {
+    long[] sorted = new long[ranks.length];
+    for (int i = 0; i < ranks.length; i++) {
+      sorted[i] = values[ranks[i]];
+    }
+    return sorted;
+  }
+
+  /**
+   * @return first position whose value is at least the key
+   */
+  private static int lowerBound(long[] sorted, long key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -52,7 +52,9 @@
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -209,6 +211,7 @@
 import org.apache.hadoop.yarn.server.webapp.dao.ContainersInfo;
 import org.apache.hadoop.yarn.util.AdHocLogDumper;
 import org.apache.hadoop.yarn.util.ConverterUtils;
+import org.apache.hadoop.yarn.util.SystemClock;
 import org.apache.hadoop.yarn.util.Times;
 import org.apache.hadoop.yarn.util.resource.Resources;
 import org.apache.hadoop.yarn.webapp.BadRequestException;
@@ -235,6 +238,7 @@ public class RMWebServices extends WebServices implements RMWebServiceProtocol {
   private static RecordFactory recordFactory =
       RecordFactoryProvider.getRecordFactory(null);
   private final Configuration conf;
+  private @Context HttpServletRequest request;
   private @Context HttpServletResponse response;
 
   // -------Default values of QueryParams for RMWebServiceProtocol--------
@@ -254,6 +258,9 @@ public class RMWebServices extends WebServices implements RMWebServiceProtocol {
   private boolean filterAppsByUser = false;
   private boolean filterInvalidXMLChars = false;
   private boolean enableRestAppSubmissions = true;
+  private final ResponseSnapshotCache<Boolean, SchedulerTypeInfo>
+      schedulerInfoCache;
+  private final ResponseSnapshotCache<Set<NodeState>, NodesInfo> nodesCache;
 
   public final static String DELEGATION_TOKEN_HEADER =
       "Hadoop-YARN-RM-Delegation-Token";
@@ -275,6 +282,19 @@ public RMWebServices(final ResourceManager rm, Configuration conf) {
     this.enableRestAppSubmissions = conf.getBoolean(
         YarnConfiguration.ENABLE_REST_APP_SUBMISSIONS,
         YarnConfiguration.DEFAULT_ENABLE_REST_APP_SUBMISSIONS);
+    long responseCacheExpiryMs = conf.getLong(
+        YarnConfiguration.RM_WEBAPP_RESPONSE_CACHE_EXPIRY_MS,
+        YarnConfiguration.DEFAULT_RM_WEBAPP_RESPONSE_CACHE_EXPIRY_MS);
+    if (responseCacheExpiryMs > 0) {
+      String entityTagPrefix = Long.toString(System.currentTimeMillis(), 36);
+      schedulerInfoCache = new ResponseSnapshotCache<>(responseCacheExpiryMs,
+          SystemClock.getInstance(), entityTagPrefix);
+      nodesCache = new ResponseSnapshotCache<>(responseCacheExpiryMs,
+          SystemClock.getInstance(), entityTagPrefix);
+    } else {
+      schedulerInfoCache = null;
+      nodesCache = null;
+    }
   }
 
   RMWebServices(ResourceManager rm, Configuration conf,
@@ -283,6 +303,37 @@ public RMWebServices(final ResourceManager rm, Configuration conf) {
     this.response = response;
   }
 
+  @VisibleForTesting
+  RMWebServices(ResourceManager rm, Configuration conf,
+      HttpServletRequest request, HttpServletResponse response) {
+    this(rm, conf, response);
+    this.request = request;
+  }
+
+  /**
+   * Returns the response of the snapshot, with its entity tag. If the client
+   * already has it, a 304 Not Modified is returned instead.
+   */
+  private <T> T getSnapshotResponse(
+      ResponseSnapshotCache.Snapshot<T> snapshot) {
+    EntityTag entityTag = new EntityTag(snapshot.getEntityTag());
+    if (request != null) {
+      String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+      if (ifNoneMatch != null) {
+        for (String tag : ifNoneMatch.split(",")) {
+          if (tag.trim().equals(entityTag.toString())) {
+            throw new WebApplicationException(
+                Response.notModified(entityTag).build());
+          }
+        }
+      }
+    }
+    if (response != null) {
+      response.setHeader(HttpHeaders.ETAG, entityTag.toString());
+    }
+    return snapshot.getResponse();
+  }
+
   protected Boolean hasAccess(RMApp app, HttpServletRequest hsr) {
     // Check for the authorization.
     UserGroupInformation callerUGI = getCallerUserGroupInformation(hsr, true);
@@ -395,6 +446,14 @@ public ClusterMetricsInfo getClusterMetricsInfo() {
   public SchedulerTypeInfo getSchedulerInfo() {
     initForReadableEndpoints();
 
+    if (schedulerInfoCache != null) {
+      return getSnapshotResponse(
+          schedulerInfoCache.get(Boolean.TRUE, this::buildSchedulerInfo));
+    }
+    return buildSchedulerInfo();
+  }
+
+  private SchedulerTypeInfo buildSchedulerInfo() {
     ResourceScheduler rs = rm.getResourceScheduler();
     SchedulerInfo sinfo;
     if (rs instanceof CapacityScheduler) {
@@ -465,6 +524,15 @@ public NodesInfo getNodes(@QueryParam(RMWSConsts.STATES) String states) {
       }
     }
 
+    if (nodesCache != null) {
+      return getSnapshotResponse(nodesCache.get(acceptedStates,
+          () -> buildNodesInfo(sched, acceptedStates)));
+    }
+    return buildNodesInfo(sched, acceptedStates);
+  }
+
+  private NodesInfo buildNodesInfo(ResourceScheduler sched,
+      EnumSet<NodeState> acceptedStates) {
     Collection<RMNode> rmNodes =
         RMServerUtils.queryRMNodes(this.rm.getRMContext(), acceptedStates);
     NodesInfo nodesInfo = new NodesInfo();
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.webapp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.hadoop.yarn.util.Clock;
+
+/**
+ * Keeps the last response built for each key for a while, so that clients
+ * polling an expensive endpoint share one response instead of each of them
+ * walking the scheduler state. Only one response is built at a time, the
+ * others wait for it rather than building it again.
+ *
+ * Every response built gets a new entity tag, which stays the same as long
+ * as the response is served from the cache.
+ *
+ * @param <K> key of a response, e.g. the query parameters
+ * @param <T> response
+ */
+class ResponseSnapshotCache<K, T> {
+
+  /**
+   * A response and its entity tag.
+   */
+  static final class Snapshot<T> {
+    private final T response;
+    private final String entityTag;
+    private final long buildTime;
+
+    private Snapshot(T response, String entityTag, long buildTime) {
+      this.response = response;
+      this.entityTag = entityTag;
+      this.buildTime = buildTime;
+    }
+
+    T getResponse() {
+      return response;
+    }
+
+    String getEntityTag() {
+      return entityTag;
+    }
+  }
+
+  private final long expiryMs;
+  private final Clock clock;
+  // Tells apart the responses of another RM, or of this one before it
+  // restarted, from ours
+  private final String entityTagPrefix;
+  private final Map<K, Snapshot<T>> snapshots = new ConcurrentHashMap<>();
+  private long version = 0;
+
+  ResponseSnapshotCache(long expiryMs, Clock clock, String entityTagPrefix) {
+    this.expiryMs = expiryMs;
+    this.clock = clock;
+    this.entityTagPrefix = entityTagPrefix;
+  }
+
+  /**
+   * @param key key of the response
+   * @param builder builds the response if there is none or it expired
+   * @return the response for the key
+   */
+  Snapshot<T> get(K key, Supplier<T> builder) {
+    Snapshot<T> snapshot = snapshots.get(key);
+    if (isValid(snapshot)) {
+      return snapshot;
+    }
+    synchronized (this) {
+      snapshot = snapshots.get(key);
+      if (isValid(snapshot)) {
+        return snapshot;
+      }
+      long buildTime = clock.getTime();
+      snapshot = new Snapshot<>(builder.get(),
+          entityTagPrefix + "-" + (++version), buildTime);
+      snapshots.put(key, snapshot);
+      return snapshot;
+    }
+  }
+
+  private boolean isValid(Snapshot<T> snapshot) {
+    return snapshot != null
+        && clock.getTime() - snapshot.buildTime < expiryMs;
+  }
+}
@@ -42,6 +42,7 @@
 import org.apache.hadoop.yarn.api.records.ContainerExitStatus;
 import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.ContainerState;
+import org.apache.hadoop.yarn.api.records.ExecutionType;
 import org.apache.hadoop.yarn.api.records.ContainerStatus;
 import org.apache.hadoop.yarn.api.records.NodeId;
 import org.apache.hadoop.yarn.api.records.NodeState;
@@ -248,6 +249,37 @@ public void testExpiredContainer() {
     verify(scheduler, times(1)).handle(any(NodeUpdateSchedulerEvent.class));
   }
 
+  @Test (timeout = 5000)
+  public void testIncrementalContainerStatuses() {
+    NodeStatus mockNodeStatus = createMockNodeStatus();
+    node.handle(new RMNodeStartedEvent(null, null, null, mockNodeStatus));
+
+    ContainerId runningContainerId = BuilderUtils.newContainerId(
+        BuilderUtils.newApplicationAttemptId(
+            BuilderUtils.newApplicationId(0, 0), 0), 0);
+    ContainerStatus runningStatus = mock(ContainerStatus.class);
+    doReturn(runningContainerId).when(runningStatus).getContainerId();
+    doReturn(ContainerState.RUNNING).when(runningStatus).getState();
+    doReturn(ExecutionType.GUARANTEED).when(runningStatus).getExecutionType();
+    node.handle(getMockRMNodeStatusEvent(
+        Collections.singletonList(runningStatus)));
+    Assert.assertTrue(node.getLaunchedContainers()
+        .contains(runningContainerId));
+
+    // An unchanged container is left out of an incremental report
+    RMNodeStatusEvent incrementalEvent =
+        getMockRMNodeStatusEvent(Collections.emptyList());
+    doReturn(true).when(incrementalEvent).isIncrementalContainerStatuses();
+    node.handle(incrementalEvent);
+    Assert.assertTrue(node.getLaunchedContainers()
+        .contains(runningContainerId));
+
+    // but missing from a full report means it is lost
+    node.handle(getMockRMNodeStatusEvent(Collections.emptyList()));
+    Assert.assertFalse(node.getLaunchedContainers()
+        .contains(runningContainerId));
+  }
+
   @Test
   public void testStatusUpdateOnDecommissioningNode() {
     RMNodeImpl node = getDecommissioningNode();
@@ -1050,6 +1050,42 @@ public void testRMRestartSucceededApp() throws Exception {
     Assert.assertEquals("trackingUrl", appReport.getOriginalTrackingUrl());
   }
 
+  @Test (timeout = 60000)
+  public void testRMRestartWithRecoveryThreads() throws Exception {
+    conf.setInt(YarnConfiguration.RM_RECOVERY_THREADS, 4);
+    MockRM rm1 = createMockRM(conf);
+    MemoryRMStateStore memStore = (MemoryRMStateStore) rm1.getRMStateStore();
+    rm1.start();
+    MockNM nm1 =
+        new MockNM("127.0.0.1:1234", 15120, rm1.getResourceTrackerService());
+    nm1.registerNode();
+
+    // a finished app and several which are still running
+    MockRMAppSubmissionData data =
+        MockRMAppSubmissionData.Builder.createWithMemory(200, rm1)
+        .withUser("user")
+        .withQueue("default")
+        .build();
+    RMApp finishedApp = MockRMAppSubmitter.submit(rm1, data);
+    MockAM am0 = launchAM(finishedApp, rm1, nm1);
+    finishApplicationMaster(finishedApp, rm1, nm1, am0,
+        FinishApplicationMasterRequest.newInstance(
+            FinalApplicationStatus.SUCCEEDED, "", ""));
+    List<RMApp> runningApps = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      runningApps.add(MockRMAppSubmitter.submit(rm1, data));
+    }
+
+    // restart rm
+    MockRM rm2 = createMockRM(conf, memStore);
+    rm2.start();
+    Assert.assertEquals(6, rm2.getRMContext().getRMApps().size());
+    rm2.waitForState(finishedApp.getApplicationId(), RMAppState.FINISHED);
+    for (RMApp app : runningApps) {
+      rm2.waitForState(app.getApplicationId(), RMAppState.ACCEPTED);
+    }
+  }
+
   @Test (timeout = 60000)
   public void testRMRestartGetApplicationList() throws Exception {
     conf.setInt(YarnConfiguration.RM_AM_MAX_ATTEMPTS, 1);
@@ -33,15 +33,26 @@
 import org.apache.hadoop.net.NetworkTopology;
 import org.apache.hadoop.security.AuthenticationFilterInitializer;
 import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.NodeId;
 import org.apache.hadoop.yarn.api.records.Priority;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.api.records.ResourceRequest;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.event.Dispatcher;
+import org.apache.hadoop.yarn.event.ShardedAsyncDispatcher;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.server.api.records.NodeStatus;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEventType;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEventType;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptState;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeEventType;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeImpl;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeStartedEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.AbstractYarnScheduler;
@@ -384,4 +395,31 @@ public void testUserProvidedUGIConf() throws Exception {
       dummyResourceManager.stop();
     }
   }
+
+  @Test
+  public void testShardedDispatcher() throws Exception {
+    Configuration conf = new YarnConfiguration();
+    conf.setInt(YarnConfiguration.RM_DISPATCHER_LANES, 4);
+    ResourceManager rm = new ResourceManager();
+    try {
+      rm.init(conf);
+      Dispatcher dispatcher = rm.getRMContext().getDispatcher();
+      Assert.assertTrue(dispatcher instanceof ShardedAsyncDispatcher);
+      Assert.assertEquals(4,
+          ((ShardedAsyncDispatcher) dispatcher).getNumLanes());
+    } finally {
+      rm.stop();
+    }
+
+    // Events of an application and its attempts stay in one lane
+    ApplicationId appId = ApplicationId.newInstance(1L, 1);
+    Assert.assertEquals(appId, ResourceManager.getDispatcherLaneKey(
+        new RMAppEvent(appId, RMAppEventType.START)));
+    Assert.assertEquals(appId, ResourceManager.getDispatcherLaneKey(
+        new RMAppAttemptEvent(ApplicationAttemptId.newInstance(appId, 2),
+            RMAppAttemptEventType.START)));
+    NodeId nodeId = NodeId.newInstance("host1", 1234);
+    Assert.assertEquals(nodeId, ResourceManager.getDispatcherLaneKey(
+        new RMNodeEvent(nodeId, RMNodeEventType.STARTED)));
+  }
 }
@@ -75,6 +75,7 @@
 
 import org.apache.hadoop.thirdparty.com.google.common.base.Joiner;
 import org.apache.hadoop.thirdparty.com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.SettableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -91,6 +92,8 @@
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -1572,6 +1575,107 @@ public void testAppSubmissionContextIsPrunedInFinalApplicationState()
     store.close();
   }
 
+  private static ApplicationStateData newAppState(ApplicationId appId,
+      RMAppState state) {
+    ApplicationSubmissionContext ctx =
+        new ApplicationSubmissionContextPBImpl();
+    ctx.setApplicationId(appId);
+    ctx.setAMContainerSpec(new ContainerLaunchContextPBImpl());
+    ApplicationStateDataPBImpl appState = new ApplicationStateDataPBImpl();
+    appState.setState(state);
+    appState.setApplicationSubmissionContext(ctx);
+    return appState;
+  }
+
+  @Test
+  public void testBatchedAppOperations() throws Exception {
+    TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester();
+    Configuration conf = new YarnConfiguration();
+    conf.setInt(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_OPS, 3);
+    conf.setLong(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_DELAY_MS,
+        60000);
+    RMStateStore store = zkTester.getRMStateStore(conf);
+    List<ApplicationId> notifiedApps = new ArrayList<>();
+    store.setRMDispatcher(new TestDispatcher() {
+      @Override
+      public void handle(Event event) {
+        ApplicationId appId = ((RMAppEvent) event).getApplicationId();
+        try {
+          // Apps are only notified once their state is in ZooKeeper
+          assertNotNull(curatorFramework.checkExists()
+              .forPath(zkTester.store.getAppNode(appId.toString())));
+        } catch (Exception e) {
+          throw new AssertionError(e);
+        }
+        notifiedApps.add(appId);
+      }
+    });
+
+    ApplicationId appId1 = ApplicationId.newInstance(1234, 1);
+    ApplicationId appId2 = ApplicationId.newInstance(1234, 2);
+    ApplicationId appId3 = ApplicationId.newInstance(1234, 3);
+    store.storeApplicationStateInternal(appId1,
+        newAppState(appId1, RMAppState.NEW));
+    store.storeApplicationStateInternal(appId2,
+        newAppState(appId2, RMAppState.NEW));
+    assertTrue(store.hasPendingOperations());
+    assertEquals(0, store.loadState().getApplicationState().size());
+
+    // The third operation fills the batch
+    store.handleStoreEvent(
+        new RMStateStoreAppEvent(newAppState(appId3, RMAppState.NEW)));
+    assertFalse(store.hasPendingOperations());
+    assertEquals(3, store.loadState().getApplicationState().size());
+    assertEquals(Collections.singletonList(appId3), notifiedApps);
+
+    // An update of a batched app commits the batch first, the update is
+    // committed once the store has no more events queued
+    store.updateApplicationStateInternal(appId1,
+        newAppState(appId1, RMAppState.ACCEPTED));
+    SettableFuture<Object> result = SettableFuture.create();
+    store.handleStoreEvent(new RMStateUpdateAppEvent(
+        newAppState(appId1, RMAppState.RUNNING), true, result));
+    assertFalse(store.hasPendingOperations());
+    assertTrue(result.isDone());
+    assertEquals(Arrays.asList(appId3, appId1), notifiedApps);
+    assertEquals(RMAppState.RUNNING, store.loadState().getApplicationState()
+        .get(appId1).getState());
+    store.close();
+  }
+
+  @Test
+  public void testLoadAppsWithSeveralThreads() throws Exception {
+    TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester();
+    Configuration conf = new YarnConfiguration();
+    conf.setInt(YarnConfiguration.ZK_RM_STATE_STORE_LOAD_THREADS, 4);
+    RMStateStore store = zkTester.getRMStateStore(conf);
+    int numApps = 20;
+    for (int i = 1; i <= numApps; i++) {
+      ApplicationId appId = ApplicationId.newInstance(1234, i);
+      store.storeApplicationStateInternal(appId,
+          newAppState(appId, RMAppState.RUNNING));
+      ApplicationAttemptId attemptId =
+          ApplicationAttemptId.newInstance(appId, 1);
+      store.storeApplicationAttemptStateInternal(attemptId,
+          ApplicationAttemptStateData.newInstance(attemptId, null, null, 0,
+              new HashMap<>(), new HashMap<>(), 0));
+    }
+
+    Map<ApplicationId, ApplicationStateData> appStates =
+        store.loadState().getApplicationState();
+    assertEquals(numApps, appStates.size());
+    int appNum = 1;
+    for (Map.Entry<ApplicationId, ApplicationStateData> appState
+        : appStates.entrySet()) {
+      ApplicationId appId = ApplicationId.newInstance(1234, appNum++);
+      assertEquals(appId, appState.getKey());
+      assertEquals(1, appState.getValue().attempts.size());
+      assertNotNull(appState.getValue()
+          .getAttempt(ApplicationAttemptId.newInstance(appId, 1)));
+    }
+    store.close();
+  }
+
   @Test
   public void testMetricsInited() throws Exception  {
     TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester();
@@ -20,6 +20,7 @@
 
 import org.apache.hadoop.thirdparty.com.google.common.collect.ImmutableList;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.yarn.api.records.Container;
 import org.apache.hadoop.yarn.api.records.ContainerExitStatus;
 import org.apache.hadoop.yarn.api.records.ContainerId;
@@ -115,6 +116,118 @@ public void testThreeThreadsAsyncContainerAllocation() throws Exception {
     testAsyncContainerAllocation(3);
   }
 
+  @Test(timeout = 300000)
+  public void testConcurrentCommitters() throws Exception {
+    conf.setInt(
+        CapacitySchedulerConfiguration.SCHEDULE_ASYNCHRONOUSLY_COMMITTER_THREADS,
+        4);
+    conf.setInt(
+        CapacitySchedulerConfiguration.SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREAD,
+        3);
+    conf.setInt(CapacitySchedulerConfiguration.SCHEDULE_ASYNCHRONOUSLY_PREFIX
+        + ".scheduling-interval-ms", 0);
+    CapacitySchedulerConfiguration csConf =
+        new CapacitySchedulerConfiguration(
+            TestUtils.getConfigurationWithMultipleQueues(conf));
+    // a may not use more than 20% of the cluster, and the single user of b
+    // not more than the capacity of b
+    csConf.setMaximumCapacity(CapacitySchedulerConfiguration.ROOT + ".a", 20);
+    csConf.setUserLimitFactor(CapacitySchedulerConfiguration.ROOT + ".b", 1);
+    final RMNodeLabelsManager mgr = new NullRMNodeLabelsManager();
+    mgr.init(csConf);
+
+    MockRM rm = new MockRM(csConf) {
+      @Override
+      public RMNodeLabelsManager createNodeLabelManager() {
+        return mgr;
+      }
+    };
+    try {
+      rm.getRMContext().setNodeLabelManager(mgr);
+      rm.start();
+      CapacityScheduler cs = (CapacityScheduler) rm.getResourceScheduler();
+      CapacitySchedulerMetrics csMetrics =
+          CapacitySchedulerMetrics.getMetrics();
+      long stripedCommits = csMetrics.getNumOfCommitLockWaits();
+
+      int extraCommitters = 0;
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        if (thread.getName().startsWith("ResourceCommitterService #")) {
+          extraCommitters++;
+        }
+      }
+      Assert.assertEquals(3, extraCommitters);
+
+      // 10 nodes with 200 GB in total
+      List<MockNM> nms = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        nms.add(rm.registerNode("127.0.0." + i + ":1234", 20 * GB));
+      }
+      keepNMHeartbeat(nms, 1000);
+
+      // Every app asks for 60 GB more than its AM, one app per queue
+      for (int i = 0; i < 3; i++) {
+        RMApp rmApp = MockRMAppSubmitter.submit(rm,
+            MockRMAppSubmissionData.Builder.createWithMemory(GB, rm)
+                .withAppName("app")
+                .withUser("user")
+                .withAcls(null)
+                .withUnmanagedAM(false)
+                .withQueue(Character.toString((char) (i + 97)))
+                .withMaxAppAttempts(1)
+                .withCredentials(null)
+                .withAppType(null)
+                .withWaitForAppAcceptedState(false)
+                .build());
+        MockAM am = MockRM.launchAMWhenAsyncSchedulingEnabled(rmApp, rm);
+        am.registerAppAttempt();
+        am.allocate("*", GB, 60, new ArrayList<>());
+      }
+
+      final LeafQueue a = (LeafQueue) cs.getQueue("a");
+      final LeafQueue b = (LeafQueue) cs.getQueue("b");
+      final LeafQueue c = (LeafQueue) cs.getQueue("c");
+      GenericTestUtils.waitFor(() ->
+          a.getUsedResources().getMemorySize() == 40 * GB
+              && b.getUsedResources().getMemorySize() >= 40 * GB
+              && c.getUsedResources().getMemorySize() == 61 * GB,
+          50, 15000);
+
+      // Make sure the limits still hold once the backlog is drained
+      Thread.sleep(2000);
+      Assert.assertEquals(40 * GB, a.getUsedResources().getMemorySize());
+      // The user limit lets the last container go beyond it, as with a
+      // single committer
+      Assert.assertTrue("User limit of b exceeded",
+          b.getUser("user").getUsed().getMemorySize() <= 41 * GB);
+      Assert.assertEquals(61 * GB, c.getUsedResources().getMemorySize());
+
+      long queueUsed = a.getUsedResources().getMemorySize()
+          + b.getUsedResources().getMemorySize()
+          + c.getUsedResources().getMemorySize();
+      long nodeUsed = 0;
+      for (MockNM nm : nms) {
+        long allocated = cs.getSchedulerNode(nm.getNodeId())
+            .getAllocatedResource().getMemorySize();
+        Assert.assertTrue("Node " + nm.getNodeId() + " overcommitted",
+            allocated <= 20 * GB);
+        nodeUsed += allocated;
+      }
+      Assert.assertEquals(queueUsed, nodeUsed);
+      Assert.assertEquals(queueUsed,
+          cs.getRootQueue().getQueueResourceUsage().getUsed()
+              .getMemorySize());
+      Assert.assertEquals(queueUsed,
+          cs.getRootQueueMetrics().getAllocatedMB());
+
+      // The allocations were committed through the striped locks
+      Assert.assertTrue("No proposal committed concurrently",
+          csMetrics.getNumOfCommitLockWaits() > stripedCommits);
+    } finally {
+      rm.close();
+    }
+  }
+
   @Test(timeout = 300000)
   public void testAsyncContainerAllocationWithMultiNode() throws Exception {
     conf.set(CapacitySchedulerConfiguration.MULTI_NODE_SORTING_POLICIES,
@@ -22,6 +22,7 @@
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.nodelabels.CommonNodeLabelsManager;
@@ -97,6 +98,31 @@ public void testComputeUserLimitWithNonZeroCapacityQueue() {
     checkLimit(NON_ZERO_CAPACITY);
   }
 
+  @Test
+  public void testUserLimitsInvalidatedByPartition() {
+    final String label = "x";
+    long noLabelVersion = usersManager.getLatestVersionOfUsersState(
+        CommonNodeLabelsManager.NO_LABEL);
+    long labelVersion = usersManager.getLatestVersionOfUsersState(label);
+    long version = usersManager.getLatestVersionOfUsersState();
+
+    // e.g. a container allocated on a node of the partition
+    usersManager.userLimitNeedsRecompute(label);
+    assertEquals(noLabelVersion, usersManager.getLatestVersionOfUsersState(
+        CommonNodeLabelsManager.NO_LABEL));
+    assertNotEquals(labelVersion,
+        usersManager.getLatestVersionOfUsersState(label));
+    assertNotEquals(version, usersManager.getLatestVersionOfUsersState());
+
+    // e.g. a user activated
+    labelVersion = usersManager.getLatestVersionOfUsersState(label);
+    usersManager.userLimitNeedsRecompute();
+    assertNotEquals(noLabelVersion, usersManager.getLatestVersionOfUsersState(
+        CommonNodeLabelsManager.NO_LABEL));
+    assertNotEquals(labelVersion,
+        usersManager.getLatestVersionOfUsersState(label));
+  }
+
   private void checkLimit(Resource expectedLimit) {
     Resource limit = usersManager.computeUserLimit(TEST_USER,
         CLUSTER_RESOURCE,
@@ -109,6 +109,52 @@ public void testUpdateDemand() {
         Resources.equals(schedulable.getDemand(), maxResource));
   }
 
+  @Test
+  public void testAppSharesComputedOnlyWhenInputsChange() {
+    resourceManager = new MockRM(conf);
+    resourceManager.start();
+    scheduler = (FairScheduler) resourceManager.getResourceScheduler();
+
+    FSLeafQueue queue = new FSLeafQueue("root.queue1", scheduler, null);
+    Resource app1Share = Resources.createResource(0);
+    Resource app2Share = Resources.createResource(0);
+    FSAppAttempt app1 = mockAppForShares(app1Share);
+    FSAppAttempt app2 = mockAppForShares(app2Share);
+    queue.addApp(app1, true);
+    queue.addApp(app2, true);
+
+    queue.update(Resources.createResource(4096));
+    assertEquals(2048, app1Share.getMemorySize());
+    assertEquals(2048, app2Share.getMemorySize());
+
+    // Nothing the shares depend on changed, so they are not computed again
+    app1Share.setMemorySize(0);
+    queue.update(Resources.createResource(4096));
+    assertEquals(0, app1Share.getMemorySize());
+
+    Mockito.when(app2.getWeight()).thenReturn(3.0f);
+    queue.update(Resources.createResource(4096));
+    assertEquals(1024, app1Share.getMemorySize());
+    assertEquals(3072, app2Share.getMemorySize());
+
+    queue.removeApp(app2);
+    queue.update(Resources.createResource(4096));
+    assertEquals(4096, app1Share.getMemorySize());
+
+    queue.update(Resources.createResource(2048));
+    assertEquals(2048, app1Share.getMemorySize());
+  }
+
+  private static FSAppAttempt mockAppForShares(Resource fairShare) {
+    FSAppAttempt app = mock(FSAppAttempt.class);
+    Mockito.when(app.getFairShare()).thenReturn(fairShare);
+    Mockito.when(app.getWeight()).thenReturn(1.0f);
+    Mockito.when(app.getMinShare()).thenReturn(Resources.none());
+    Mockito.when(app.getMaxShare()).thenReturn(Resources.unbounded());
+    Mockito.when(app.getResourceUsage()).thenReturn(Resources.none());
+    return app;
+  }
+
   @Test (timeout = 5000)
   public void test() {
     conf.set(FairSchedulerConfiguration.ALLOCATION_FILE, ALLOC_FILE);
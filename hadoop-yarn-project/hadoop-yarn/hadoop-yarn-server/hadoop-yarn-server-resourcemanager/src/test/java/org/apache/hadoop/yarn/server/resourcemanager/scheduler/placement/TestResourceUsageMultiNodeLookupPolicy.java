@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.placement;
+
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
+import org.apache.hadoop.yarn.util.resource.Resources;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test node lookup of the resource usage based multi-node lookup policy.
+ */
+public class TestResourceUsageMultiNodeLookupPolicy {
+  private static final String PARTITION = "";
+  private static final int NUM_NODES = 100;
+  private static final long NODE_MEMORY = 8192;
+
+  private ResourceUsageMultiNodeLookupPolicy<SchedulerNode> policy;
+  private List<SchedulerNode> nodes;
+
+  @Before
+  public void setup() {
+    policy = new ResourceUsageMultiNodeLookupPolicy<>();
+    nodes = new ArrayList<>();
+    // Every tenth node is empty, the others have 1GB left
+    for (int i = 0; i < NUM_NODES; i++) {
+      long allocated = i % 10 == 0 ? 0 : NODE_MEMORY - 1024;
+      nodes.add(mockNode(i, allocated));
+    }
+    policy.addAndRefreshNodesSet(nodes, PARTITION);
+  }
+
+  private static SchedulerNode mockNode(int id, long allocatedMemory) {
+    SchedulerNode node = mock(SchedulerNode.class);
+    when(node.getNodeID()).thenReturn(NodeId.newInstance("h" + id, 1));
+    when(node.getAllocatedResource()).thenReturn(
+        Resource.newInstance(allocatedMemory, 1));
+    when(node.getUnallocatedResource()).thenReturn(
+        Resource.newInstance(NODE_MEMORY - allocatedMemory, 8));
+    return node;
+  }
+
+  private List<SchedulerNode> lookup(Resource required) {
+    List<SchedulerNode> result = new ArrayList<>();
+    Iterator<SchedulerNode> it =
+        policy.getPreferredNodeIterator(nodes, PARTITION, required);
+    while (it.hasNext()) {
+      result.add(it.next());
+    }
+    return result;
+  }
+
+  @Test
+  public void testFittingNodesReturnedFirst() {
+    Resource required = Resource.newInstance(4096, 1);
+    List<SchedulerNode> result = lookup(required);
+
+    Assert.assertEquals(NUM_NODES, result.size());
+    Assert.assertEquals(NUM_NODES, new HashSet<>(result).size());
+    for (int i = 0; i < NUM_NODES / 10; i++) {
+      Assert.assertTrue(Resources.fitsIn(required,
+          result.get(i).getUnallocatedResource()));
+    }
+    for (int i = NUM_NODES / 10; i < NUM_NODES; i++) {
+      Assert.assertFalse(Resources.fitsIn(required,
+          result.get(i).getUnallocatedResource()));
+    }
+  }
+
+  @Test
+  public void testSmallRequestKeepsSortedOrder() {
+    List<SchedulerNode> result = lookup(Resource.newInstance(1024, 1));
+    Assert.assertEquals(new ArrayList<>(policy.getNodesPerPartition(
+        PARTITION)), result);
+    Assert.assertEquals(result, lookup(null));
+  }
+
+  @Test
+  public void testNodeFilledSinceSort() {
+    // An empty node got filled up after the nodes were sorted
+    SchedulerNode filled = nodes.get(0);
+    when(filled.getUnallocatedResource()).thenReturn(
+        Resource.newInstance(0, 0));
+    List<SchedulerNode> result = lookup(Resource.newInstance(4096, 1));
+
+    Assert.assertEquals(NUM_NODES, result.size());
+    Assert.assertFalse(result.subList(0, NUM_NODES / 10 - 1)
+        .contains(filled));
+    Assert.assertTrue(result.contains(filled));
+  }
+}
@@ -23,8 +23,10 @@
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
@@ -43,6 +45,7 @@
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -86,6 +89,7 @@
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.ApplicationSubmissionContextInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.AppsInfo;
 import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.ClusterUserInfo;
+import org.apache.hadoop.yarn.server.resourcemanager.webapp.dao.NodesInfo;
 import org.apache.hadoop.yarn.server.security.ApplicationACLsManager;
 import org.apache.hadoop.yarn.util.AdHocLogDumper;
 import org.apache.hadoop.yarn.util.YarnVersionInfo;
@@ -103,6 +107,7 @@
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -898,6 +903,42 @@ public void testClusterUserInfo() throws JSONException, Exception {
     verifyClusterUserInfo(userInfo, "yarn", "admin");
   }
 
+  @Test
+  public void testNodesResponseCache() {
+    ResourceManager mockRM = mock(ResourceManager.class);
+    RMContextImpl rmContext = new RMContextImpl(null, null, null, null, null,
+        null, null, null, null, null);
+    when(mockRM.getRMContext()).thenReturn(rmContext);
+    when(mockRM.getResourceScheduler())
+        .thenReturn(mock(ResourceScheduler.class));
+    Configuration conf = new YarnConfiguration();
+    conf.setLong(YarnConfiguration.RM_WEBAPP_RESPONSE_CACHE_EXPIRY_MS, 60000);
+    HttpServletRequest mockHsr = mock(HttpServletRequest.class);
+    HttpServletResponse mockResponse = mock(HttpServletResponse.class);
+    RMWebServices webSvc =
+        new RMWebServices(mockRM, conf, mockHsr, mockResponse);
+
+    NodesInfo nodesInfo = webSvc.getNodes(null);
+    ArgumentCaptor<String> entityTag = ArgumentCaptor.forClass(String.class);
+    verify(mockResponse).setHeader(eq(HttpHeaders.ETAG), entityTag.capture());
+    Assert.assertSame(nodesInfo, webSvc.getNodes(null));
+
+    // A client which already has the response is told it did not change
+    when(mockHsr.getHeader(HttpHeaders.IF_NONE_MATCH))
+        .thenReturn(entityTag.getValue());
+    try {
+      webSvc.getNodes(null);
+      fail("Expected the response not to be modified");
+    } catch (WebApplicationException e) {
+      assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(),
+          e.getResponse().getStatus());
+    }
+
+    // Other query parameters are other responses
+    when(mockHsr.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(null);
+    Assert.assertNotSame(nodesInfo, webSvc.getNodes("RUNNING"));
+  }
+
   @Test
   public void testInvalidXMLChars() throws Exception {
     ResourceManager mockRM = mock(ResourceManager.class);
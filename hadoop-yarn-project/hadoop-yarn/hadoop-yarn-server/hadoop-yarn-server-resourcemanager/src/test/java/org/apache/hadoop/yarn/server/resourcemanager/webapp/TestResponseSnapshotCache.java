@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.webapp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.yarn.util.ControlledClock;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestResponseSnapshotCache {
+
+  @Test
+  public void testResponseServedUntilExpiry() {
+    ControlledClock clock = new ControlledClock();
+    ResponseSnapshotCache<String, Integer> cache =
+        new ResponseSnapshotCache<>(1000, clock, "rm");
+    AtomicInteger builds = new AtomicInteger();
+
+    ResponseSnapshotCache.Snapshot<Integer> first =
+        cache.get("a", builds::incrementAndGet);
+    Assert.assertEquals(1, (int) first.getResponse());
+    Assert.assertEquals("rm-1", first.getEntityTag());
+
+    clock.tickMsec(999);
+    Assert.assertSame(first, cache.get("a", builds::incrementAndGet));
+    Assert.assertEquals(1, builds.get());
+
+    clock.tickMsec(1);
+    ResponseSnapshotCache.Snapshot<Integer> second =
+        cache.get("a", builds::incrementAndGet);
+    Assert.assertEquals(2, (int) second.getResponse());
+    Assert.assertEquals("rm-2", second.getEntityTag());
+  }
+
+  @Test
+  public void testKeysCachedSeparately() {
+    ControlledClock clock = new ControlledClock();
+    ResponseSnapshotCache<String, Integer> cache =
+        new ResponseSnapshotCache<>(1000, clock, "rm");
+    AtomicInteger builds = new AtomicInteger();
+
+    ResponseSnapshotCache.Snapshot<Integer> a =
+        cache.get("a", builds::incrementAndGet);
+    ResponseSnapshotCache.Snapshot<Integer> b =
+        cache.get("b", builds::incrementAndGet);
+    Assert.assertNotEquals(a.getEntityTag(), b.getEntityTag());
+    Assert.assertSame(a, cache.get("a", builds::incrementAndGet));
+    Assert.assertSame(b, cache.get("b", builds::incrementAndGet));
+    Assert.assertEquals(2, builds.get());
+  }
+}